@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import com.solace.samples.jms.patterns.BrokerSession;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import java.util.concurrent.TimeUnit;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The OpenTelemetry context propagation of the publishers and subscriber: injecting a span context and baggage into
+ * the properties of a message, and extracting it back, for each {@code tracing.propagation} mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropagationBenchmark {
+
+	@Param({"w3c", "compact", "compact+w3c"})
+	public String propagation;
+
+	private TextMapPropagator propagator;
+	private Context context;
+	private BytesMessage outbound;
+	private BytesMessage inbound;
+
+	@Setup(Level.Trial)
+	public void setup(BrokerSession broker) throws JMSException {
+		propagator = TracingUtil.propagator(propagation);
+		SpanContext spanContext = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+				TraceFlags.getSampled(), TraceState.getDefault());
+		context = Context.root().with(Span.wrap(spanContext))
+				.with(Baggage.builder().put("tenant", "acme").put("region", "us-east").build());
+		outbound = broker.session.createBytesMessage();
+		inbound = broker.session.createBytesMessage();
+		propagator.inject(context, inbound, TracingUtil.SETTER);
+	}
+
+	@Benchmark
+	public BytesMessage inject() throws JMSException {
+		outbound.clearProperties();
+		propagator.inject(context, outbound, TracingUtil.SETTER);
+		return outbound;
+	}
+
+	@Benchmark
+	public Context extract() {
+		return propagator.extract(Context.root(), inbound, TracingUtil.GETTER);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.metrics;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-message cost of {@link MessagingMetrics}: a send and a delivery recorded through a {@link DestinationMetrics}
+ * held by the caller, and through a lookup by topic name per message, as {@code NonPersistentPublisher} does. Against
+ * building the attributes per message, which is what the pre-built attribute sets avoid. With the GC profiler,
+ * {@code gc.alloc.rate.norm} should be 0 B/op for all but {@code attributesPerMessage}.
+ * <p>
+ * The SDK exports every second to a writer that discards everything, so collection runs during the measurement
+ * without adding I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagingMetricsBenchmark {
+
+    private static final String[] TOPICS = new String[26];
+
+    static {
+        for (int i = 0; i < TOPICS.length; i++) {
+            TOPICS[i] = "solace/samples/jms/direct/pub/" + (char) ('A' + i);
+        }
+    }
+
+    @Param({"sdk", "noop"})
+    public String provider;
+
+    private SdkMeterProvider sdkProvider;
+    private MessagingMetrics metrics;
+    private DestinationMetrics destination;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("noop".equals(provider)) {
+            metrics = MessagingMetrics.noop();
+        } else {
+            sdkProvider = SdkMeterProvider.builder()
+                    .registerMetricReader(PeriodicMetricReader.builder(new MetricsLineExporter(Writer.nullWriter(),
+                            false, MetricsLineExporter.temporalityFromSystemProperty()))
+                            .setInterval(Duration.ofSeconds(1)).build())
+                    .build();
+            metrics = new MessagingMetrics(sdkProvider, sdkProvider, 100);
+        }
+        destination = metrics.forDestination(TOPICS[0], "topic");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        metrics.close();
+    }
+
+    @Benchmark
+    public void sent() {
+        destination.sent(100, 20_000);
+    }
+
+    @Benchmark
+    public void received() {
+        destination.received(100);
+    }
+
+    @Benchmark
+    public void lookupAndSent() {
+        next = next == TOPICS.length - 1 ? 0 : next + 1;
+        metrics.forDestination(TOPICS[next], "topic").sent(100, 20_000);
+    }
+
+    /** The counter alone, with attributes built for the message. */
+    @Benchmark
+    public void attributesPerMessage() {
+        next = next == TOPICS.length - 1 ? 0 : next + 1;
+        metrics.sentMessages.add(1, Attributes.of(MessagingMetrics.SYSTEM, "solace",
+                MessagingMetrics.DESTINATION_NAME, TOPICS[next], MessagingMetrics.DESTINATION_KIND, "topic"));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.jms.patterns;
+
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SolJmsUtility;
+import javax.jms.Connection;
+import javax.jms.Session;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A session on a real broker for the benchmarks that need JMS objects. Nothing is published, but the Solace API only
+ * creates sessions on a live connection. The broker is given with the {@code solace.host}, {@code solace.vpn},
+ * {@code solace.username} and {@code solace.password} system properties, a local broker with the default VPN and
+ * user if not set. With {@code -Dsolace.host=loopback} the session is on the in-JVM loopback broker instead, so the
+ * benchmarks run without a broker, but measure the loopback messages rather than the Solace ones.
+ */
+@State(Scope.Benchmark)
+public class BrokerSession {
+
+    public Connection connection;
+    public Session session;
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        if ("loopback".equals(System.getProperty("solace.host"))) {
+            connection = new LoopbackConnectionFactory().createConnection();
+            session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            return;
+        }
+        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
+        connectionFactory.setHost(System.getProperty("solace.host", "localhost:55555"));
+        connectionFactory.setVPN(System.getProperty("solace.vpn", "default"));
+        connectionFactory.setUsername(System.getProperty("solace.username", "default"));
+        connectionFactory.setPassword(System.getProperty("solace.password", "default"));
+        connectionFactory.setXmlPayload(false);
+        connection = connectionFactory.createConnection();
+        session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        connection.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.jms.patterns;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message handling of {@link NonPersistentPublisher}: a message created for every send against one message reused
+ * with {@code clearBody()}, and the cost of setting properties and a {@code UUID} message ID on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    @Param({"100", "1024"})
+    public int payloadSize;
+
+    private byte[] payload;
+    private BytesMessage message;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setup(BrokerSession broker) throws JMSException {
+        payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'A');
+        message = broker.session.createBytesMessage();
+    }
+
+    @Benchmark
+    public BytesMessage newMessage(BrokerSession broker) throws JMSException {
+        BytesMessage message = broker.session.createBytesMessage();
+        message.writeBytes(payload);
+        return message;
+    }
+
+    /** As {@link NonPersistentPublisher} does it. */
+    @Benchmark
+    public BytesMessage reusedMessage() throws JMSException {
+        message.writeBytes(payload);
+        message.clearBody();
+        return message;
+    }
+
+    @Benchmark
+    public BytesMessage setProperties() throws JMSException {
+        message.clearProperties();
+        message.setStringProperty("region", "us-east");
+        message.setIntProperty("sequence", counter++);
+        message.setLongProperty("createdAt", 1_700_000_000_000L + counter);
+        message.setBooleanProperty("replay", false);
+        return message;
+    }
+
+    @Benchmark
+    public BytesMessage setUuidMessageId() throws JMSException {
+        message.setJMSMessageID(UUID.randomUUID().toString());
+        return message;
+    }
+}
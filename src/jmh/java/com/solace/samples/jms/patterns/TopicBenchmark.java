@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.jms.patterns;
+
+import java.util.concurrent.TimeUnit;
+import javax.jms.JMSException;
+import javax.jms.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The dynamic topic of {@link NonPersistentPublisher}: the topic string built for every message, and the
+ * {@code session.createTopic()} call on it, against topics built once and looked up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicBenchmark {
+
+    private static final String TOPIC_PREFIX = "solace/samples/";
+    private static final String API = "JMS";
+
+    private static final String[] TOPIC_STRINGS = new String[26];
+
+    static {
+        for (int i = 0; i < 26; i++) {
+            TOPIC_STRINGS[i] = TOPIC_PREFIX + API.toLowerCase() + "/direct/pub/" + (char) ('A' + i);
+        }
+    }
+
+    private int counter;
+
+    /** The topics created once on the session, separate so the string benchmarks run without a broker. */
+    @State(Scope.Thread)
+    public static class CachedTopics {
+        Topic[] topics;
+
+        @Setup(Level.Trial)
+        public void createTopics(BrokerSession broker) throws JMSException {
+            topics = new Topic[26];
+            for (int i = 0; i < 26; i++) {
+                topics[i] = broker.session.createTopic(TOPIC_STRINGS[i]);
+            }
+        }
+    }
+
+    private char nextCharacter() {
+        return (char) (counter++ % 26 + 65);
+    }
+
+    /** As {@link NonPersistentPublisher} does it. */
+    @Benchmark
+    public String topicStringBuilder() {
+        char chosenCharacter = nextCharacter();
+        return new StringBuilder(TOPIC_PREFIX)
+                .append(API.toLowerCase()).append("/direct/pub/").append(chosenCharacter).toString();
+    }
+
+    @Benchmark
+    public String topicStringConcat() {
+        return TOPIC_PREFIX + "jms/direct/pub/" + nextCharacter();
+    }
+
+    @Benchmark
+    public String topicStringCached() {
+        return TOPIC_STRINGS[counter++ % 26];
+    }
+
+    @Benchmark
+    public Topic createTopic(BrokerSession broker) throws JMSException {
+        char chosenCharacter = nextCharacter();
+        String topicString = new StringBuilder(TOPIC_PREFIX)
+                .append(API.toLowerCase()).append("/direct/pub/").append(chosenCharacter).toString();
+        return broker.session.createTopic(topicString);
+    }
+
+    @Benchmark
+    public Topic createTopicCached(CachedTopics cached) {
+        return cached.topics[counter++ % 26];
+    }
+}
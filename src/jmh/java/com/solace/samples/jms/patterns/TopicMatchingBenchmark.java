@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.jms.patterns;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The inbound topic handling of {@link NonPersistentProcessor}: {@code String.matches()}, which compiles the regex
+ * for every message, against a precompiled {@code Pattern} and a plain check of the topic levels; and
+ * {@code split()} against {@code indexOf()} to get the last level.
+ * <p>
+ * The level check only accepts one level between the prefix and {@code /direct/pub/}, which is all the
+ * {@code solace/samples/*}{@code /direct/pub/>} subscription can deliver; the regex accepts several.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicMatchingBenchmark {
+
+    private static final String TOPIC_PREFIX = "solace/samples/";
+    private static final Pattern PATTERN = Pattern.compile(TOPIC_PREFIX + ".+?/direct/pub/.*");
+    private static final String PUB_LEVELS = "/direct/pub/";
+
+    @Param({"solace/samples/jms/direct/pub/A", "solace/samples/jms/direct/sub/A"})
+    public String topic;
+
+    /** As {@link NonPersistentProcessor} does it. */
+    @Benchmark
+    public boolean stringMatches() {
+        return topic.matches(TOPIC_PREFIX + ".+?/direct/pub/.*");
+    }
+
+    @Benchmark
+    public boolean precompiledPattern() {
+        return PATTERN.matcher(topic).matches();
+    }
+
+    @Benchmark
+    public boolean levelCheck() {
+        if (!topic.startsWith(TOPIC_PREFIX)) {
+            return false;
+        }
+        int slash = topic.indexOf('/', TOPIC_PREFIX.length());
+        return slash > TOPIC_PREFIX.length() && topic.startsWith(PUB_LEVELS, slash);
+    }
+
+    /** As {@link NonPersistentProcessor} does it. */
+    @Benchmark
+    public String lastLevelSplit() {
+        String[] levels = topic.split("/", 6);
+        return levels.length == 6 ? levels[5] : null;
+    }
+
+    @Benchmark
+    public String lastLevelIndexOf() {
+        int index = -1;
+        for (int level = 0; level < 5; level++) {
+            index = topic.indexOf('/', index + 1);
+            if (index < 0) {
+                return null;
+            }
+        }
+        return topic.substring(index + 1);
+    }
+}
@@ -23,6 +23,7 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.tuning.ConnectionSettings;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
 import com.solacesystems.jms.SupportedProperty;
@@ -42,8 +43,9 @@ public class BasicRequestor {
     final int REPLY_TIMEOUT_MS = 10000; // 10 seconds
 
     public static void main(String... args) throws Exception {
-        if (args.length != 3 || args[1].split("@").length != 2) {
-            System.out.println("Usage: BasicRequestor <host:port> <client-username@message-vpn> <client-password>");
+        if (args.length < 3 || args[1].split("@").length != 2) {
+            System.out.println("Usage: BasicRequestor <host:port> <client-username@message-vpn> <client-password>"
+                    + " [-profile NAME] [-config FILE] [key=value ...]");
             System.out.println();
             System.exit(-1);
         }
@@ -62,21 +64,17 @@ public class BasicRequestor {
 
     public void run(String... args) throws Exception {
 
-        String[] split = args[1].split("@");
+        // the sample arguments, plus the optional -profile, -config and key=value connection settings
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
 
-        String host = args[0];
-        String vpnName = split[1];
-        String username = split[0];
-        String password = args[2];
+        String host = settings.get(ConnectionSettings.HOST);
+        String vpnName = settings.get(ConnectionSettings.VPN);
+        String username = settings.get(ConnectionSettings.USERNAME);
 
         System.out.printf("BasicRequestor is connecting to Solace messaging at %s...%n", host);
 
-        // Programmatically create the connection factory using default settings
-        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
-        connectionFactory.setHost(host);
-        connectionFactory.setVPN(vpnName);
-        connectionFactory.setUsername(username);
-        connectionFactory.setPassword(password);
+        // Create the connection factory with the settings of the tuning profile, "default" unless -profile is given
+        SolConnectionFactory connectionFactory = settings.createConnectionFactory();
 
         // Create connection to the Solace router
         Connection connection = connectionFactory.createConnection();
@@ -92,6 +90,7 @@ public class BasicRequestor {
 
         // Create the message producer for the created queue
         MessageProducer requestProducer = session.createProducer(requestTopic);
+        settings.configureProducer(requestProducer);
 
         // The response will be received on this temporary queue.
         TemporaryQueue replyToQueue = session.createTemporaryQueue();
@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ *  Solace JMS 1.1 Examples: ExtJndiBulkImporter
+ */
+
+package com.solace.samples;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Queue;
+import javax.jms.Topic;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.Reference;
+import javax.naming.Referenceable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manifest-driven bulk mode of {@link ExtJndiImport}: applies one operation to many JNDI objects with bounded
+ * concurrency, in a single JVM.
+ * <p>
+ * Each manifest line is {@code TYPE SOLACE_JNDI_NAME EXTERNAL_NAME}, where TYPE is one of {@code cf}, {@code topic}
+ * or {@code queue}; blank lines and lines starting with {@code #} are ignored. For UNBIND the Solace JNDI name is not
+ * used and may be {@code -}. Every item is resolved from Solace JNDI and bound, rebound or unbound on a worker thread
+ * with its own pair of initial contexts, since JNDI contexts are not thread-safe. The manifest is read as items are
+ * processed, so large manifests do not need to fit in memory.
+ * <p>
+ * In diff mode only entries that differ are touched: BIND and REBIND compare the Solace reference with the one
+ * already bound and skip equal ones (BIND rebinds changed ones), UNBIND skips names that are not bound.
+ * <p>
+ * One result line is printed per item ({@code OK}, {@code SKIPPED} or {@code FAILED} with the reason), followed by a
+ * summary.
+ */
+class ExtJndiBulkImporter {
+
+    private final Hashtable<String, Object> solaceEnv;
+    private final Hashtable<String, String> extJndiEnv;
+    private final ExtJndiImport.Operation operation;
+    private final int threads;
+    private final boolean diff;
+
+    private final ThreadLocal<Context> solaceContext = new ThreadLocal<>();
+    private final ThreadLocal<Context> extJndiContext = new ThreadLocal<>();
+    private final ConcurrentLinkedQueue<Context> openContexts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    ExtJndiBulkImporter(Hashtable<String, Object> solaceEnv, Hashtable<String, String> extJndiEnv,
+            ExtJndiImport.Operation operation, int threads, boolean diff) {
+        this.solaceEnv = solaceEnv;
+        this.extJndiEnv = extJndiEnv;
+        this.operation = operation;
+        this.threads = threads;
+        this.diff = diff;
+    }
+
+    /**
+     * Processes every manifest entry.
+     *
+     * @return true if no item failed
+     */
+    boolean run(File manifest) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        // a bounded queue plus caller-runs keeps the reader at most a few items ahead of the workers; the reader
+        // processes an item itself when the queue is full, so up to threads + 1 items are in flight
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 3) {
+                    report("FAILED", "line " + lineNumber, "expected TYPE SOLACE_JNDI_NAME EXTERNAL_NAME");
+                    failed.incrementAndGet();
+                    continue;
+                }
+                executor.execute(() -> process(fields[0], fields[1], fields[2]));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            for (Context context : openContexts) {
+                try {
+                    context.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s completed in %.2f s: %,d ok, %,d skipped, %,d failed%n",
+                operation, seconds, succeeded.get(), skipped.get(), failed.get());
+        return failed.get() == 0;
+    }
+
+    private void process(String type, String sourceName, String name) {
+        try {
+            Context extJndi = context(extJndiContext, extJndiEnv);
+            if (operation == ExtJndiImport.Operation.UNBIND) {
+                if (diff && !isBound(extJndi, name)) {
+                    skipped.incrementAndGet();
+                    report("SKIPPED", name, "not bound");
+                    return;
+                }
+                extJndi.unbind(name);
+                succeeded.incrementAndGet();
+                report("OK", name, "unbound");
+                return;
+            }
+            Reference ref = resolve(type, sourceName);
+            if (diff) {
+                Reference existing = boundReference(extJndi, name);
+                if (Objects.equals(existing, ref)) {
+                    skipped.incrementAndGet();
+                    report("SKIPPED", name, "unchanged");
+                    return;
+                }
+                if (existing != null) {
+                    extJndi.rebind(name, ref);
+                    succeeded.incrementAndGet();
+                    report("OK", name, "rebound changed " + type + " " + sourceName);
+                    return;
+                }
+            }
+            if (operation == ExtJndiImport.Operation.BIND) {
+                extJndi.bind(name, ref);
+            } else {
+                extJndi.rebind(name, ref);
+            }
+            succeeded.incrementAndGet();
+            report("OK", name, (operation == ExtJndiImport.Operation.BIND ? "bound " : "rebound ") + type + " " + sourceName);
+        } catch (NamingException | RuntimeException e) {
+            failed.incrementAndGet();
+            report("FAILED", name, e.toString());
+        }
+    }
+
+    /** Looks up the object in Solace JNDI and checks that it has the expected type. */
+    private Reference resolve(String type, String sourceName) throws NamingException {
+        Object object = context(solaceContext, solaceEnv).lookup(sourceName);
+        Class<?> expected = switch (type) {
+            case "cf" -> ConnectionFactory.class;
+            case "topic" -> Topic.class;
+            case "queue" -> Queue.class;
+            default -> throw new IllegalArgumentException("Unknown type '" + type + "', expected one of [cf, topic, queue]");
+        };
+        if (!expected.isInstance(object) || !(object instanceof Referenceable)) {
+            throw new IllegalArgumentException(sourceName + " is a " + object.getClass().getName() + ", not a " + type);
+        }
+        return ((Referenceable) object).getReference();
+    }
+
+    private static boolean isBound(Context context, String name) throws NamingException {
+        try {
+            context.lookup(name);
+            return true;
+        } catch (NameNotFoundException e) {
+            return false;
+        }
+    }
+
+    /** @return the reference currently bound under the name, or {@code null} if the name is not bound */
+    private static Reference boundReference(Context context, String name) throws NamingException {
+        Object bound;
+        try {
+            bound = context.lookup(name);
+        } catch (NameNotFoundException e) {
+            return null;
+        }
+        if (bound instanceof Reference) {
+            return (Reference) bound;
+        }
+        if (bound instanceof Referenceable) {
+            return ((Referenceable) bound).getReference();
+        }
+        throw new NamingException(name + " is bound to a " + bound.getClass().getName() + " that cannot be compared");
+    }
+
+    private Context context(ThreadLocal<Context> holder, Hashtable<?, ?> env) throws NamingException {
+        Context context = holder.get();
+        if (context == null) {
+            context = new InitialContext(env);
+            holder.set(context);
+            openContexts.add(context);
+        }
+        return context;
+    }
+
+    private static void report(String status, String name, String detail) {
+        System.out.printf("%-7s %s: %s%n", status, name, detail);
+    }
+}
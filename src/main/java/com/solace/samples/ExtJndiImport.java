@@ -28,6 +28,7 @@ import com.solacesystems.jms.SolQueue;
 import com.solacesystems.jms.SolTopic;
 
 import javax.naming.*;
+import java.io.File;
 import java.util.Hashtable;
 
 /**
@@ -61,6 +62,16 @@ public class ExtJndiImport {
     private String sourceQueueJndiName = null;
     // The distinguished name of the element to bind
     private String name = null;
+    // Bulk mode: file listing the objects to process, number of parallel workers and whether to touch changed entries only
+    private String manifest = null;
+    private int threads = 8;
+    private boolean diff = false;
+    // LIST options: walk subcontexts, output format, name and class filters (regular expressions), maximum entries
+    private boolean recursive = false;
+    private boolean ndjson = false;
+    private String filter = null;
+    private String classFilter = null;
+    private long limit = 0;
 
     public static void main(String[] args) {
         try {
@@ -133,6 +144,44 @@ public class ExtJndiImport {
                             instance.printUsage();
                         instance.name = args[i];
                     }
+                    case "-manifest" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.manifest = args[i];
+                    }
+                    case "-threads" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.threads = Integer.parseInt(args[i]);
+                    }
+                    case "-diff" -> instance.diff = true;
+                    case "-recursive" -> instance.recursive = true;
+                    case "-format" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.ndjson = args[i].equalsIgnoreCase("ndjson");
+                    }
+                    case "-filter" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.filter = args[i];
+                    }
+                    case "-class" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.classFilter = args[i];
+                    }
+                    case "-limit" -> {
+                        i++;
+                        if (i >= args.length)
+                            instance.printUsage();
+                        instance.limit = Long.parseLong(args[i]);
+                    }
                     default -> {
                         instance.printUsage();
                         System.out.println("Illegal argument specified - " + args[i]);
@@ -161,18 +210,34 @@ public class ExtJndiImport {
                 System.out.println("Please specify \"-operation\" parameter");
                 return;
             }
+            if (instance.threads < 1) {
+                instance.printUsage();
+                System.out.println("Please specify at least 1 for \"-threads\"");
+                return;
+            }
             if ((instance.operation.equals(Operation.BIND)) || (instance.operation.equals(Operation.REBIND))) {
                 if ((instance.solaceUrl == null) && (instance.solaceUsername == null) && (instance.solacePassword == null)) {
                     instance.printUsage();
                     System.out.println("For BIND or REBIND operation please specify all \"-solaceUrl\", \"-solaceUsername\" and \"-solacePassword\" parameters");
                     return;
                 }
-                if ((instance.sourceCfJndiName == null) && (instance.sourceQueueJndiName == null) && (instance.sourceTopicJndiName == null)) {
+                if ((instance.manifest == null) && (instance.sourceCfJndiName == null) && (instance.sourceQueueJndiName == null) && (instance.sourceTopicJndiName == null)) {
                     instance.printUsage();
                     System.out.println("Please specify one of [-cf, -topic, -queue]");
                     return;
                 }
             }
+            if (instance.manifest != null) {
+                if (instance.operation.equals(Operation.LIST)) {
+                    instance.printUsage();
+                    System.out.println("\"-manifest\" is not supported with the LIST operation");
+                    return;
+                }
+                if (!instance.runBulk()) {
+                    System.exit(1);
+                }
+                System.exit(0);
+            }
             if (instance.name == null) {
                 instance.printUsage();
                 System.out.println("Please specify \"-name\" parameter");
@@ -196,11 +261,41 @@ public class ExtJndiImport {
                          -jndiUrl J_Url -jndiUsername J_USERNAME -jndiPassword J_PASSWORD\
                          -operation OPERATION [-cf CF] [-topic TOPIC] [-queue QUEUE] -name DN\
                         
+                        List mode:\s
+                        SolJMSJNDIBind -jndiUrl J_Url -jndiUsername J_USERNAME -jndiPassword J_PASSWORD\
+                         -operation LIST -name DN [-recursive] [-format text|ndjson] [-filter NAME_REGEX]\
+                         [-class CLASS_REGEX] [-limit MAX_ENTRIES] [-threads N]\
+                        
+                        Bulk mode:\s
+                        SolJMSJNDIBind -solaceUrl S_Url -solaceUsername S_USERNAME@VPN -solacePassword S_PASSWORD\
+                         -jndiUrl J_Url -jndiUsername J_USERNAME -jndiPassword J_PASSWORD\
+                         -operation OPERATION -manifest FILE [-threads N] [-diff]\
+                        
                         Where:
                         - OPERATION  is one of [BIND, REBIND, UNBIND, LIST]
+                        - FILE  has one "TYPE SOLACE_JNDI_NAME EXTERNAL_NAME" line per object, TYPE is one of [cf, topic, queue]
+                        - N  is the number of parallel workers for bulk and list modes (default 8)
+                        - -diff  only touches entries that are missing or changed
                         """);
     }
 
+    private boolean runBulk() throws Exception {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, EXTJNDI_INITIAL_CONTEXT_FACTORY);
+        env.put(Context.PROVIDER_URL, extJndiUrl);
+        env.put(Context.REFERRAL, "throw");
+        env.put(Context.SECURITY_PRINCIPAL, extJndiUsername);
+        env.put(Context.SECURITY_CREDENTIALS, extJndiPassword);
+        Hashtable<String, Object> solEnv = new Hashtable<>();
+        if (!operation.equals(Operation.UNBIND)) {
+            solEnv.put(InitialContext.INITIAL_CONTEXT_FACTORY, "com.solacesystems.jndi.SolJNDIInitialContextFactory");
+            solEnv.put(InitialContext.PROVIDER_URL, solaceUrl);
+            solEnv.put(Context.SECURITY_PRINCIPAL, solaceUsername); // Formatted as user@message-vpn
+            solEnv.put(Context.SECURITY_CREDENTIALS, solacePassword);
+        }
+        return new ExtJndiBulkImporter(solEnv, env, operation, threads, diff).run(new File(manifest));
+    }
+
     private void run() {
         Context extJndiInitialContext = null;
         Context solInitialContext = null;
@@ -230,6 +325,11 @@ public class ExtJndiImport {
                 }
                 System.out.println("Unbind completed");
                 return;
+            } else if (operation.equals(Operation.LIST) && (recursive || ndjson || filter != null || classFilter != null || limit > 0)) {
+                extJndiInitialContext.close();
+                extJndiInitialContext = null;
+                new ExtJndiLister(env, threads, recursive, filter, classFilter, ndjson, limit).run(name);
+                return;
             } else if (operation.equals(Operation.LIST)) {
                 try {
                     NamingEnumeration<NameClassPair> enumer = extJndiInitialContext.list(name);
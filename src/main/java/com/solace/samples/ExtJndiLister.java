@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ *  Solace JMS 1.1 Examples: ExtJndiLister
+ */
+
+package com.solace.samples;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NameClassPair;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive, streaming LIST of {@link ExtJndiImport}: walks a JNDI tree with several threads and prints one line per
+ * matching entry as soon as it is enumerated. Without recursion only the given context level is listed.
+ * <p>
+ * Subcontexts are handed to a thread pool with a bounded work queue. When the queue is full the thread that found
+ * the subcontext lists it itself, so memory stays bounded by the queue size and the tree depth, whatever the number of
+ * entries. That caller-runs fallback only adds a thread when the caller is outside the pool, as for the bulk import
+ * reader; here the callers are the pool threads, so at most {@code threads} contexts are listed at once. Each thread
+ * uses its own initial context, since JNDI contexts are not thread-safe.
+ * <p>
+ * Output is either plain text or NDJSON, one object per line:
+ * {@code {"name":"cn=Q1,ou=queues","class":"javax.naming.Reference","context":false}}. Entries are printed in
+ * discovery order, which varies between runs; pipe the output through {@code sort} before diffing two listings.
+ * The summary goes to standard error so that standard output only contains entries.
+ */
+class ExtJndiLister {
+
+    private final Hashtable<String, String> env;
+    private final int threads;
+    private final boolean recursive;
+    private final Pattern namePattern;
+    private final Pattern classPattern;
+    private final boolean ndjson;
+    private final long limit;
+
+    private final ThreadLocal<Context> contexts = new ThreadLocal<>();
+    private final ConcurrentLinkedQueue<Context> openContexts = new ConcurrentLinkedQueue<>();
+    private final Map<String, Boolean> contextClasses = new ConcurrentHashMap<>();
+    private final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 65536));
+    private final Phaser pending = new Phaser(1);
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong visited = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong contextsListed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param namePattern regular expression searched in the full entry name, or {@code null} for all
+     * @param classPattern regular expression searched in the entry class name, or {@code null} for all
+     * @param limit stop after this many matching entries, 0 for no limit
+     */
+    ExtJndiLister(Hashtable<String, String> env, int threads, boolean recursive, String namePattern, String classPattern,
+            boolean ndjson, long limit) {
+        this.env = env;
+        this.threads = threads;
+        this.recursive = recursive;
+        this.namePattern = namePattern == null ? null : Pattern.compile(namePattern);
+        this.classPattern = classPattern == null ? null : Pattern.compile(classPattern);
+        this.ndjson = ndjson;
+        this.limit = limit;
+    }
+
+    void run(String root) throws InterruptedException {
+        long start = System.nanoTime();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), new ThreadPoolExecutor.CallerRunsPolicy());
+        submit(root);
+        pending.arriveAndAwaitAdvance();
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        out.flush();
+        for (Context context : openContexts) {
+            try {
+                context.close();
+            } catch (Exception ignored) {
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Listed %,d contexts, %,d entries (%,d matching, %,d errors) in %.2f s, %,.0f entries/s%n",
+                contextsListed.get(), visited.get(), matched.get(), errors.get(), seconds, visited.get() / seconds);
+    }
+
+    private void submit(String contextName) {
+        pending.register();
+        executor.execute(() -> {
+            try {
+                list(contextName);
+            } finally {
+                pending.arriveAndDeregister();
+            }
+        });
+    }
+
+    private void list(String contextName) {
+        if (isLimitReached()) {
+            return;
+        }
+        try {
+            Context context = context();
+            NamingEnumeration<NameClassPair> entries = context.list(contextName);
+            contextsListed.incrementAndGet();
+            try {
+                while (entries.hasMore() && !isLimitReached()) {
+                    NameClassPair pair = entries.next();
+                    visited.incrementAndGet();
+                    String fullName = contextName.isEmpty() ? pair.getName() : context.composeName(pair.getName(), contextName);
+                    boolean isContext = isContextClass(pair.getClassName());
+                    if (matches(fullName, pair.getClassName())) {
+                        print(fullName, pair.getClassName(), isContext);
+                    }
+                    if (isContext && recursive) {
+                        submit(fullName);
+                    }
+                }
+            } finally {
+                entries.close();
+            }
+        } catch (NamingException e) {
+            errors.incrementAndGet();
+            System.err.printf("### Unable to list %s: %s%n", contextName, e);
+        }
+    }
+
+    private boolean matches(String name, String className) {
+        return (namePattern == null || namePattern.matcher(name).find())
+                && (classPattern == null || (className != null && classPattern.matcher(className).find()));
+    }
+
+    private boolean isLimitReached() {
+        return limit > 0 && matched.get() >= limit;
+    }
+
+    private void print(String name, String className, boolean isContext) {
+        if (matched.incrementAndGet() > limit && limit > 0) {
+            matched.decrementAndGet();
+            return;
+        }
+        String line;
+        if (ndjson) {
+            line = "{\"name\":\"" + jsonEscape(name) + "\",\"class\":"
+                    + (className == null ? "null" : "\"" + jsonEscape(className) + "\"")
+                    + ",\"context\":" + isContext + "}";
+        } else {
+            line = name + "  (" + className + ")";
+        }
+        synchronized (out) {
+            out.println(line);
+        }
+    }
+
+    /** @return true if entries of this class are subcontexts that can be listed */
+    private boolean isContextClass(String className) {
+        if (className == null) {
+            return false;
+        }
+        return contextClasses.computeIfAbsent(className, name -> {
+            try {
+                return Context.class.isAssignableFrom(Class.forName(name, false, ExtJndiLister.class.getClassLoader()));
+            } catch (ClassNotFoundException | LinkageError e) {
+                return name.endsWith("Context");  // provider class not on the classpath, go by its name
+            }
+        });
+    }
+
+    private Context context() throws NamingException {
+        Context context = contexts.get();
+        if (context == null) {
+            context = new InitialContext(env);
+            contexts.set(context);
+            openContexts.add(context);
+        }
+        return context;
+    }
+
+    static String jsonEscape(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+                }
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> sb.append(String.format("\\u%04x", (int) c));
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? value : sb.toString();
+    }
+}
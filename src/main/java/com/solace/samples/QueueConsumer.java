@@ -23,6 +23,11 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.deduplication.DuplicateDetector;
+import com.solace.samples.features.deduplication.IdempotentMessageListener;
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.slowlistener.SlowListenerDetector;
+import com.solace.samples.features.tuning.ConnectionSettings;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
 import com.solacesystems.jms.SupportedProperty;
@@ -40,8 +45,9 @@ public class QueueConsumer {
     final CountDownLatch latch = new CountDownLatch(1);
 
     public static void main(String... args) throws Exception {
-        if (args.length != 4 || args[1].split("@").length != 2) {
-            System.out.println("Usage: QueueConsumer <host:port> <client-username@message-vpn> <client-password> <queueName>");
+        if (args.length < 4 || args[1].split("@").length != 2) {
+            System.out.println("Usage: QueueConsumer <host:port> <client-username@message-vpn> <client-password> <queueName>"
+                    + " [-profile NAME] [-config FILE] [key=value ...]");
             System.out.println();
             System.exit(-1);
         }
@@ -60,22 +66,18 @@ public class QueueConsumer {
 
     public void run(String... args) throws Exception {
 
-        String[] split = args[1].split("@");
+        // the sample arguments, plus the optional -profile, -config and key=value connection settings
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
 
-        String host = args[0];
-        String vpnName = split[1];
-        String username = split[0];
-        String password = args[2];
-        String queueName = args[3];
+        String host = settings.get(ConnectionSettings.HOST);
+        String vpnName = settings.get(ConnectionSettings.VPN);
+        String username = settings.get(ConnectionSettings.USERNAME);
+        String queueName = settings.getRemainingArgs()[0];
 
         System.out.printf("QueueConsumer is connecting to Solace messaging at %s...%n", host);
 
-        // Programmatically create the connection factory using default settings
-        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
-        connectionFactory.setHost(host);
-        connectionFactory.setVPN(vpnName);
-        connectionFactory.setUsername(username);
-        connectionFactory.setPassword(password);
+        // Create the connection factory with the settings of the tuning profile, "default" unless -profile is given
+        SolConnectionFactory connectionFactory = settings.createConnectionFactory();
 
         // Enables persistent queues or topic endpoints to be created dynamically
         // on the router, used when Session.createQueue() is called below
@@ -97,26 +99,32 @@ public class QueueConsumer {
         // From the session, create a consumer for the destination.
         MessageConsumer messageConsumer = session.createConsumer(queue);
 
+        // Drop redeliveries of messages that were already processed, remembering message IDs for 10 minutes
+        DuplicateDetector duplicateDetector = new DuplicateDetector(100_000, 10 * 60 * 1000L, 4);
+
         // Use the anonymous inner class for receiving messages asynchronously
-        messageConsumer.setMessageListener(message -> {
-            try {
-                if (message instanceof TextMessage) {
-                    System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
-                } else {
-                    System.out.println("Message received.");
-                }
-                System.out.printf("Message Content:%n%s%n", SolJmsUtility.dumpMessage(message));
-
-                // ACK the received message manually because of the set SupportedProperty.SOL_CLIENT_ACKNOWLEDGE above
-                message.acknowledge();
-
-                latch.countDown(); // unblock the main thread
-            } catch (JMSException ex) {
-                System.out.println("Error processing incoming message.");
-                ex.printStackTrace();
+        MessageListener idempotentListener = new IdempotentMessageListener(session, duplicateDetector, message -> {
+            // a JMSException thrown here fails the processing, and the session is recovered to redeliver the message
+            if (message instanceof TextMessage) {
+                System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
+            } else {
+                System.out.println("Message received.");
             }
+            System.out.printf("Message Content:%n%s%n", SolJmsUtility.dumpMessage(message));
+
+            // ACK the received message manually because of the set SupportedProperty.SOL_CLIENT_ACKNOWLEDGE above
+            JmsEvents.acknowledge(message);
+
+            latch.countDown(); // unblock the main thread
         });
 
+        // Record its callbacks as Java Flight Recorder events
+        MessageListener listener = JmsEvents.listener(idempotentListener);
+
+        // Report callbacks slow enough to hold up the next messages of the queue, with where they were stuck
+        SlowListenerDetector slowListenerDetector = SlowListenerDetector.defaults();
+        messageConsumer.setMessageListener(slowListenerDetector.wrap(listener));
+
         // Start receiving messages
         connection.start();
         System.out.println("Awaiting message...");
@@ -124,6 +132,9 @@ public class QueueConsumer {
         latch.await();
 
         connection.stop();
+        slowListenerDetector.close();
+        System.out.print(slowListenerDetector.report());
+        System.out.println(duplicateDetector);
         // Close everything in the order reversed from the opening order
         // NOTE: as the interfaces below extend AutoCloseable,
         // with them, it's possible to use the "try-with-resources" Java statement
@@ -23,6 +23,9 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.deduplication.DuplicateDetector;
+import com.solace.samples.features.deduplication.IdempotentMessageListener;
+import com.solace.samples.features.jndicache.CachingJndiLookup;
 import com.solacesystems.jms.SolJmsUtility;
 import com.solacesystems.jms.SupportedProperty;
 
@@ -87,10 +90,15 @@ public class QueueConsumerJNDI {
         env.put(Context.SECURITY_PRINCIPAL, username + '@' + vpnName); // Formatted as user@message-vpn
         env.put(Context.SECURITY_CREDENTIALS, password);
 
-        // Create the initial context that will be used to look up the JMS Administered Objects.
-        InitialContext initialContext = new InitialContext(env);
+        // Look up the JMS Administered Objects through a cache persisted between runs: a restart is served from the
+        // snapshot file without a JNDI round trip, and the snapshot is reconciled with the server in the background.
+        long lookupStart = System.nanoTime();
+        CachingJndiLookup jndi = new CachingJndiLookup(env, 5 * 60 * 1000L,
+                CachingJndiLookup.userSnapshotFile("QueueConsumerJNDI"));
         // Lookup the connection factory
-        ConnectionFactory connectionFactory = (ConnectionFactory) initialContext.lookup(CONNECTION_FACTORY_JNDI_NAME);
+        ConnectionFactory connectionFactory = jndi.lookup(CONNECTION_FACTORY_JNDI_NAME);
+        System.out.printf("Resolved the connection factory in %.1f ms (%s)%n", (System.nanoTime() - lookupStart) / 1e6,
+                jndi.getSnapshotHits() > 0 ? "from snapshot" : "from JNDI");
 
         // Create connection to the Solace router
         Connection connection = connectionFactory.createConnection();
@@ -102,30 +110,29 @@ public class QueueConsumerJNDI {
                 username);
 
         // Lookup the queue.
-        Queue queue = (Queue) initialContext.lookup(QUEUE_JNDI_NAME);
+        Queue queue = jndi.lookup(QUEUE_JNDI_NAME);
 
         // From the session, create a consumer for the destination.
         MessageConsumer messageConsumer = session.createConsumer(queue);
 
+        // Drop redeliveries of messages that were already processed, remembering message IDs for 10 minutes
+        DuplicateDetector duplicateDetector = new DuplicateDetector(100_000, 10 * 60 * 1000L, 4);
+
         // Use the anonymous inner class for receiving messages asynchronously
-        messageConsumer.setMessageListener(message -> {
-            try {
-                if (message instanceof TextMessage) {
-                    System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
-                } else {
-                    System.out.println("Message received.");
-                }
-                System.out.printf("Message Content:%n%s%n", SolJmsUtility.dumpMessage(message));
-
-                // ACK the received message manually because of the set SupportedProperty.SOL_CLIENT_ACKNOWLEDGE above
-                message.acknowledge();
-
-                latch.countDown(); // unblock the main thread
-            } catch (JMSException ex) {
-                System.out.println("Error processing incoming message.");
-                ex.printStackTrace();
+        messageConsumer.setMessageListener(new IdempotentMessageListener(session, duplicateDetector, message -> {
+            // a JMSException thrown here fails the processing, and the session is recovered to redeliver the message
+            if (message instanceof TextMessage) {
+                System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
+            } else {
+                System.out.println("Message received.");
             }
-        });
+            System.out.printf("Message Content:%n%s%n", SolJmsUtility.dumpMessage(message));
+
+            // ACK the received message manually because of the set SupportedProperty.SOL_CLIENT_ACKNOWLEDGE above
+            message.acknowledge();
+
+            latch.countDown(); // unblock the main thread
+        }));
 
         // Start receiving messages
         connection.start();
@@ -134,6 +141,7 @@ public class QueueConsumerJNDI {
         latch.await();
 
         connection.stop();
+        System.out.println(duplicateDetector);
         // Close everything in the order reversed from the opening order
         // NOTE: as the interfaces below extend AutoCloseable,
         // with them, it's possible to use the "try-with-resources" Java statement
@@ -141,7 +149,7 @@ public class QueueConsumerJNDI {
         messageConsumer.close();
         session.close();
         connection.close();
-        // The initial context needs to be close; it does not extend AutoCloseable
-        initialContext.close();
+        // Close the JNDI cache, which waits for the snapshot to be written and closes its initial context
+        jndi.close();
     }
 }
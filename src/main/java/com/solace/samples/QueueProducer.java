@@ -23,8 +23,9 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.tuning.ConnectionSettings;
 import com.solacesystems.jms.SolConnectionFactory;
-import com.solacesystems.jms.SolJmsUtility;
 
 import javax.jms.*;
 
@@ -36,8 +37,9 @@ import javax.jms.*;
 public class QueueProducer {
 
     public static void main(String... args) throws Exception {
-        if (args.length != 3 || args[1].split("@").length != 2) {
-            System.out.println("Usage: QueueProducer <host:port> <client-username@message-vpn> <client-password> <queueName>");
+        if (args.length < 4 || args[1].split("@").length != 2) {
+            System.out.println("Usage: QueueProducer <host:port> <client-username@message-vpn> <client-password> <queueName>"
+                    + " [-profile NAME] [-config FILE] [key=value ...]");
             System.out.println();
             System.exit(-1);
         }
@@ -56,23 +58,19 @@ public class QueueProducer {
 
     public void run(String... args) throws Exception {
 
-        String[] split = args[1].split("@");
+        // the sample arguments, plus the optional -profile, -config and key=value connection settings
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
 
-        String host = args[0];
-        String vpnName = split[1];
-        String username = split[0];
-        String password = args[2];
-        String queueName = args[3];
+        String host = settings.get(ConnectionSettings.HOST);
+        String vpnName = settings.get(ConnectionSettings.VPN);
+        String username = settings.get(ConnectionSettings.USERNAME);
+        String queueName = settings.getRemainingArgs()[0];
 
 
         System.out.printf("QueueProducer is connecting to Solace messaging at %s...%n", host);
 
-        // Programmatically create the connection factory using default settings
-        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
-        connectionFactory.setHost(host);
-        connectionFactory.setVPN(vpnName);
-        connectionFactory.setUsername(username);
-        connectionFactory.setPassword(password);
+        // Create the connection factory with the settings of the tuning profile, "default" unless -profile is given
+        SolConnectionFactory connectionFactory = settings.createConnectionFactory();
 
         // Enables persistent queues or topic endpoints to be created dynamically
         // on the router, used when Session.createQueue() is called below
@@ -93,15 +91,16 @@ public class QueueProducer {
 
         // Create the message producer for the created queue
         MessageProducer messageProducer = session.createProducer(queue);
+        settings.configureProducer(messageProducer);
 
         // Create a text message.
         TextMessage message = session.createTextMessage("Hello world Queues!");
 
         System.out.printf("Sending message '%s' to queue '%s'...%n", message.getText(), queue.toString());
 
-        // Send the message
+        // Send the message, recorded as a Java Flight Recorder event
         // NOTE: JMS Message Priority is not supported by the Solace Message Bus
-        messageProducer.send(queue, message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY,
+        JmsEvents.send(messageProducer, queue, message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY,
                 Message.DEFAULT_TIME_TO_LIVE);
 
         System.out.println("Sent successfully. Exiting...");
@@ -23,6 +23,8 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.jndicache.CachingJndiLookup;
+
 import javax.jms.*;
 import javax.naming.Context;
 import javax.naming.InitialContext;
@@ -79,10 +81,15 @@ public class QueueProducerJNDI {
         env.put(Context.SECURITY_PRINCIPAL, username + '@' + vpnName); // Formatted as user@message-vpn
         env.put(Context.SECURITY_CREDENTIALS, password);
 
-        // Create the initial context that will be used to look up the JMS Administered Objects.
-        InitialContext initialContext = new InitialContext(env);
+        // Look up the JMS Administered Objects through a cache persisted between runs: a restart is served from the
+        // snapshot file without a JNDI round trip, and the snapshot is reconciled with the server in the background.
+        long lookupStart = System.nanoTime();
+        CachingJndiLookup jndi = new CachingJndiLookup(env, 5 * 60 * 1000L,
+                CachingJndiLookup.userSnapshotFile("QueueProducerJNDI"));
         // Lookup the connection factory
-        ConnectionFactory connectionFactory = (ConnectionFactory) initialContext.lookup(CONNECTION_FACTORY_JNDI_NAME);
+        ConnectionFactory connectionFactory = jndi.lookup(CONNECTION_FACTORY_JNDI_NAME);
+        System.out.printf("Resolved the connection factory in %.1f ms (%s)%n", (System.nanoTime() - lookupStart) / 1e6,
+                jndi.getSnapshotHits() > 0 ? "from snapshot" : "from JNDI");
 
         // Create connection to Solace messaging
         Connection connection = connectionFactory.createConnection();
@@ -94,7 +101,7 @@ public class QueueProducerJNDI {
                 username);
 
         // Lookup the queue.
-        Queue queue = (Queue) initialContext.lookup(QUEUE_JNDI_NAME);
+        Queue queue = jndi.lookup(QUEUE_JNDI_NAME);
 
         // Create the message producer for the created queue
         MessageProducer messageProducer = session.createProducer(queue);
@@ -118,7 +125,7 @@ public class QueueProducerJNDI {
         messageProducer.close();
         session.close();
         connection.close();
-        // The initial context needs to be close; it does not extend AutoCloseable
-        initialContext.close();
+        // Close the JNDI cache, which waits for the snapshot to be written and closes its initial context
+        jndi.close();
     }
 }
@@ -23,8 +23,9 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.tuning.ConnectionSettings;
 import com.solacesystems.jms.SolConnectionFactory;
-import com.solacesystems.jms.SolJmsUtility;
 
 import javax.jms.*;
 
@@ -37,8 +38,9 @@ public class TopicPublisher {
 
     public static void main(String... args) throws Exception {
         // Check command line arguments
-        if (args.length != 4 || args[1].split("@").length != 2) {
-            System.out.println("Usage: TopicPublisher <host:port> <client-username@message-vpn> <client-password> <topicName>");
+        if (args.length < 4 || args[1].split("@").length != 2) {
+            System.out.println("Usage: TopicPublisher <host:port> <client-username@message-vpn> <client-password> <topicName>"
+                    + " [-profile NAME] [-config FILE] [key=value ...]");
             System.out.println();
             System.exit(-1);
         }
@@ -56,22 +58,18 @@ public class TopicPublisher {
     }
 
     public void run(String... args) throws Exception {
-        String[] split = args[1].split("@");
+        // the sample arguments, plus the optional -profile, -config and key=value connection settings
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
 
-        String host = args[0];
-        String vpnName = split[1];
-        String username = split[0];
-        String password = args[2];
-        String topicName = args[3];
+        String host = settings.get(ConnectionSettings.HOST);
+        String vpnName = settings.get(ConnectionSettings.VPN);
+        String username = settings.get(ConnectionSettings.USERNAME);
+        String topicName = settings.getRemainingArgs()[0];
 
         System.out.printf("TopicPublisher is connecting to Solace messaging at %s...%n", host);
 
-        // Programmatically create the connection factory using default settings
-        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
-        connectionFactory.setHost(host);
-        connectionFactory.setVPN(vpnName);
-        connectionFactory.setUsername(username);
-        connectionFactory.setPassword(password);
+        // Create the connection factory with the settings of the tuning profile, "default" unless -profile is given
+        SolConnectionFactory connectionFactory = settings.createConnectionFactory();
 
         // Create connection to the Solace router
         Connection connection = connectionFactory.createConnection();
@@ -87,15 +85,16 @@ public class TopicPublisher {
 
         // Create the message producer for the created topic
         MessageProducer messageProducer = session.createProducer(topic);
+        settings.configureProducer(messageProducer);
 
         // Create the message
         TextMessage message = session.createTextMessage("Hello world!");
 
         System.out.printf("Sending message '%s' to topic '%s'...%n", message.getText(), topic.toString());
 
-        // Send the message
+        // Send the message, recorded as a Java Flight Recorder event
         // NOTE: JMS Message Priority is not supported by the Solace Message Bus
-        messageProducer.send(topic, message, DeliveryMode.NON_PERSISTENT,
+        JmsEvents.send(messageProducer, topic, message, DeliveryMode.NON_PERSISTENT,
                 Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
         System.out.println("Sent successfully. Exiting...");
 
@@ -23,6 +23,9 @@
 
 package com.solace.samples;
 
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.slowlistener.SlowListenerDetector;
+import com.solace.samples.features.tuning.ConnectionSettings;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
 
@@ -40,8 +43,9 @@ public class TopicSubscriber {
     final CountDownLatch latch = new CountDownLatch(1);
 
     public static void main(String... args) throws Exception {
-        if (args.length != 4 || args[1].split("@").length != 2) {
-            System.out.println("Usage: TopicSubscriber <host:port> <client-username@message-vpn> <client-password> <topic>");
+        if (args.length < 4 || args[1].split("@").length != 2) {
+            System.out.println("Usage: TopicSubscriber <host:port> <client-username@message-vpn> <client-password> <topic>"
+                    + " [-profile NAME] [-config FILE] [key=value ...]");
             System.out.println();
             System.exit(-1);
         }
@@ -59,22 +63,18 @@ public class TopicSubscriber {
     }
 
     public void run(String... args) throws Exception {
-        String[] split = args[1].split("@");
+        // the sample arguments, plus the optional -profile, -config and key=value connection settings
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
 
-        String host = args[0];
-        String vpnName = split[1];
-        String username = split[0];
-        String password = args[2];
-        String topicName = args[3];
+        String host = settings.get(ConnectionSettings.HOST);
+        String vpnName = settings.get(ConnectionSettings.VPN);
+        String username = settings.get(ConnectionSettings.USERNAME);
+        String topicName = settings.getRemainingArgs()[0];
 
         System.out.printf("TopicSubscriber is connecting to Solace messaging at %s [%s]...%n", host, topicName);
 
-        // Programmatically create the connection factory using default settings
-        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
-        connectionFactory.setHost(host);
-        connectionFactory.setVPN(vpnName);
-        connectionFactory.setUsername(username);
-        connectionFactory.setPassword(password);
+        // Create the connection factory with the settings of the tuning profile, "default" unless -profile is given
+        SolConnectionFactory connectionFactory = settings.createConnectionFactory();
         Connection connection = connectionFactory.createConnection();
 
         // Create a non-transacted, Auto ACK session.
@@ -89,8 +89,9 @@ public class TopicSubscriber {
         // Create the message consumer for the subscription topic
         MessageConsumer messageConsumer = session.createConsumer(topic);
 
-        // Use the anonymous inner class for receiving messages asynchronously
-        messageConsumer.setMessageListener(message -> {
+        // Use the anonymous inner class for receiving messages asynchronously, its callbacks recorded as Java Flight
+        // Recorder events
+        MessageListener listener = JmsEvents.listener(message -> {
             try {
                 if (message instanceof TextMessage) {
                     System.out.printf("TextMessage received: '%s'%n", ((TextMessage) message).getText());
@@ -105,6 +106,10 @@ public class TopicSubscriber {
             }
         });
 
+        // Dumping every message takes a while, see how busy that keeps the dispatcher thread
+        SlowListenerDetector slowListenerDetector = SlowListenerDetector.defaults();
+        messageConsumer.setMessageListener(slowListenerDetector.wrap(listener));
+
         // Start receiving messages
         connection.start();
         System.out.println("Awaiting message...");
@@ -112,6 +117,8 @@ public class TopicSubscriber {
         latch.await();
 
         connection.stop();
+        slowListenerDetector.close();
+        System.out.print(slowListenerDetector.report());
         // Close everything in the order reversed from the opening order
         // NOTE: as the interfaces below extend AutoCloseable,
         // with them, it's possible to use the "try-with-resources" Java statement
@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: BufferPoolBenchmark
+ */
+
+package com.solace.samples.features.bufferpool;
+
+import com.solace.samples.features.loopback.LoopbackBroker;
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+/**
+ * Measures the allocation and GC rates of moving {@link BytesMessage} payloads in and out of messages, publishing at
+ * a fixed rate through the in-JVM loopback broker and reading every body in the listener. Runs offline, no broker
+ * needed.
+ * <ul>
+ *   <li>{@code reused array} - one array per side, written and read over and over: the floor, what's left is the
+ *       messaging itself, the broker copying each body included</li>
+ *   <li>{@code new array} - a new {@code byte[]} per message on both sides</li>
+ *   <li>{@code heap pool} - payloads through {@link BytesPayloads} and a {@link ByteBufferPool} of heap buffers</li>
+ *   <li>{@code direct pool} - same with direct buffers, copied through the per-thread scratch array</li>
+ * </ul>
+ * Options: {@code -rate} msgs/s (default 100,000), {@code -seconds} per mode and size (default 5), {@code -sizes}
+ * (default 1024,65536). The rate reached is reported too: on a small machine large payloads fall short of it.
+ */
+public class BufferPoolBenchmark {
+
+    private static final int MAX_IN_FLIGHT = 1000;  // the loopback broker queues without limit, the benchmark doesn't
+
+    private enum Mode {
+        REUSED_ARRAY("reused array"), NEW_ARRAY("new array"), HEAP_POOL("heap pool"), DIRECT_POOL("direct pool");
+
+        final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        int rate = 100_000;
+        int seconds = 5;
+        String sizes = "1024,65536";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-rate" -> rate = Integer.parseInt(args[i + 1]);
+                case "-seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "-sizes" -> sizes = args[i + 1];
+                default -> {
+                    System.out.printf("Usage: %s [-rate MSGS_PER_S] [-seconds N] [-sizes BYTES,BYTES...]%n%n",
+                            BufferPoolBenchmark.class.getSimpleName());
+                    System.exit(-1);
+                }
+            }
+        }
+        System.out.printf("%,d msgs/s for %d s per mode and size, loopback broker, %s%n%n", rate, seconds,
+                ManagementFactory.getRuntimeMXBean().getVmName());
+        System.out.println(String.format("%8s %-14s %12s %12s %12s %8s %8s", "size", "mode", "msgs/s", "alloc MB/s",
+                "alloc B/msg", "GCs", "GC ms"));
+        Connection connection = new LoopbackConnectionFactory(new LoopbackBroker()).createConnection();
+        try {
+            connection.start();
+            for (String size : sizes.split(",")) {
+                int payloadSize = Integer.parseInt(size.trim());
+                for (Mode mode : Mode.values()) {
+                    run(connection, mode, rate, 1, payloadSize);  // warm-up
+                    Result result = run(connection, mode, rate, seconds, payloadSize);
+                    System.out.println(String.format("%8d %-14s %,12.0f %,12.1f %,12.0f %,8d %,8d", payloadSize,
+                            mode.label, result.messages / result.seconds, result.allocatedBytes / result.seconds / 1e6,
+                            (double) result.allocatedBytes / result.messages, result.collections,
+                            result.collectionMillis));
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static final class Result {
+        final long messages;
+        final double seconds;
+        final long allocatedBytes;
+        final long collections;
+        final long collectionMillis;
+
+        Result(long messages, double seconds, long allocatedBytes, long collections, long collectionMillis) {
+            this.messages = messages;
+            this.seconds = seconds;
+            this.allocatedBytes = allocatedBytes;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+    }
+
+    private static Result run(Connection connection, Mode mode, int rate, int seconds, int size) throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic("solace/samples/bufferpool/" + size);
+        ByteBufferPool pool = mode == Mode.DIRECT_POOL ? ByteBufferPool.direct() : ByteBufferPool.heap();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        Reader reader = new Reader(mode, pool, size, inFlight);
+        MessageConsumer consumer = session.createConsumer(topic);
+        consumer.setMessageListener(reader);
+        MessageProducer producer = session.createProducer(topic);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        BytesMessage message = session.createBytesMessage();
+        byte[] reused = new byte[size];
+
+        long allocatedBefore = allocatedBytes();
+        long collectionsBefore = 0;
+        long collectionMillisBefore = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collectionsBefore += gc.getCollectionCount();
+            collectionMillisBefore += gc.getCollectionTime();
+        }
+        long interval = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long next = start;
+        long sent = 0;
+        while (next < end) {
+            waitUntil(next);
+            next += interval;
+            inFlight.acquire();
+            message.clearBody();
+            switch (mode) {
+                case REUSED_ARRAY -> {
+                    stamp(reused, sent);
+                    message.writeBytes(reused);
+                }
+                case NEW_ARRAY -> {
+                    byte[] payload = new byte[size];
+                    stamp(payload, sent);
+                    message.writeBytes(payload);
+                }
+                default -> {
+                    try (PooledBuffer pooled = pool.acquire(size)) {
+                        ByteBuffer payload = pooled.buffer();
+                        payload.putLong(0, sent);
+                        BytesPayloads.write(message, payload);
+                    }
+                }
+            }
+            producer.send(message);
+            sent++;
+        }
+        inFlight.acquire(MAX_IN_FLIGHT);  // all received
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long collections = -collectionsBefore;
+        long collectionMillis = -collectionMillisBefore;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += gc.getCollectionCount();
+            collectionMillis += gc.getCollectionTime();
+        }
+        session.close();
+        pool.close();
+        if (reader.checksum != sent * (sent - 1) / 2) {
+            throw new IllegalStateException("Payloads corrupted in " + mode.label);
+        }
+        return new Result(sent, elapsed, allocated, collections, collectionMillis);
+    }
+
+    private static void stamp(byte[] payload, long sequence) {
+        for (int i = 0; i < 8; i++) {
+            payload[i] = (byte) (sequence >>> (56 - 8 * i));
+        }
+    }
+
+    private static long sequence(byte[] payload) {
+        long sequence = 0;
+        for (int i = 0; i < 8; i++) {
+            sequence = sequence << 8 | payload[i] & 0xff;
+        }
+        return sequence;
+    }
+
+    private static void waitUntil(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            if (remaining > 100_000) {
+                LockSupport.parkNanos(remaining - 50_000);  // parking overshoots, spin the rest
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // all threads, the broker's and the session's included
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    private static final class Reader implements MessageListener {
+
+        private final Mode mode;
+        private final ByteBufferPool pool;
+        private final byte[] reused;
+        private final Semaphore inFlight;
+        long checksum;  // the sum of the sequence numbers read from the bodies
+
+        Reader(Mode mode, ByteBufferPool pool, int size, Semaphore inFlight) {
+            this.mode = mode;
+            this.pool = pool;
+            this.reused = new byte[size];
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            try {
+                BytesMessage bytes = (BytesMessage) message;
+                switch (mode) {
+                    case REUSED_ARRAY -> {
+                        bytes.readBytes(reused);
+                        checksum += sequence(reused);
+                    }
+                    case NEW_ARRAY -> {
+                        byte[] payload = new byte[(int) bytes.getBodyLength()];
+                        bytes.readBytes(payload);
+                        checksum += sequence(payload);
+                    }
+                    default -> {
+                        try (PooledBuffer pooled = BytesPayloads.read(bytes, pool)) {
+                            checksum += pooled.buffer().getLong(0);
+                        }
+                    }
+                }
+            } catch (JMSException e) {
+                System.out.printf("### Caught while reading a body: %s%n", e);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+}
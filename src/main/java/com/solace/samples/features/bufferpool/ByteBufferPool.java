@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: ByteBufferPool
+ */
+
+package com.solace.samples.features.bufferpool;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A pool of reusable heap or direct {@link ByteBuffer}s for message payloads, so that moving payloads in and out of
+ * messages doesn't allocate a buffer per message. Buffers come in power-of-two size classes from {@code minSize} to
+ * {@code maxSize}; a request gets a buffer of the smallest class that fits, and requests over {@code maxSize} get a
+ * buffer of their own, not pooled. Each class keeps at most {@code maxPerClass} free buffers, the extra released
+ * ones are left to the garbage collector.
+ * <p>
+ * Leak detection: a buffer acquired and never released is reported when the garbage collector finds it unreachable,
+ * at the next {@link #acquire(int)} or {@link #checkLeaks()}, and {@link #getOutstanding()} counts the buffers
+ * acquired and not released yet. Every {@code leakSampleInterval}th acquisition records its stack, printed with the
+ * leak report; 0 never records one, 1 records every acquisition, which allocates a {@code Throwable} each time.
+ * <p>
+ * The pool is thread-safe; a buffer may be released by another thread than the one that acquired it.
+ */
+public class ByteBufferPool implements AutoCloseable {
+
+    private final boolean direct;
+    private final int minShift;
+    private final int maxSize;
+    private final ArrayBlockingQueue<PooledBuffer>[] free;
+    private final int leakSampleInterval;
+    private final ReferenceQueue<PooledBuffer> collected = new ReferenceQueue<>();
+    // keeps the trackers reachable, so that the garbage collector enqueues them
+    private final Set<LeakTracker> trackers = ConcurrentHashMap.newKeySet();
+    private final AtomicLongArray created;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong unpooled = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * @param direct             direct buffers, or heap buffers
+     * @param minSize            size of the smallest class, rounded up to a power of two
+     * @param maxSize            size of the largest class, rounded up to a power of two
+     * @param maxPerClass        free buffers kept per size class
+     * @param leakSampleInterval records the stack of every so many acquisitions, 0 for none
+     */
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(boolean direct, int minSize, int maxSize, int maxPerClass, int leakSampleInterval) {
+        if (minSize < 1 || maxSize < minSize || maxSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid size classes " + minSize + " to " + maxSize);
+        }
+        this.direct = direct;
+        this.minShift = shift(minSize);
+        int classes = shift(maxSize) - minShift + 1;
+        this.maxSize = 1 << shift(maxSize);
+        this.free = new ArrayBlockingQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            free[i] = new ArrayBlockingQueue<>(maxPerClass);
+        }
+        this.created = new AtomicLongArray(classes);
+        this.leakSampleInterval = leakSampleInterval;
+    }
+
+    /** Heap buffers of 256 bytes to 1 MB, 64 free ones per class, the stack of one acquisition in 256 recorded. */
+    public static ByteBufferPool heap() {
+        return new ByteBufferPool(false, 256, 1 << 20, 64, 256);
+    }
+
+    /** Same as {@link #heap()} with direct buffers. */
+    public static ByteBufferPool direct() {
+        return new ByteBufferPool(true, 256, 1 << 20, 64, 256);
+    }
+
+    // the power of two of the smallest class holding size bytes
+    private static int shift(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * @param length the bytes needed
+     * @return a buffer of at least {@code length} bytes, positioned at 0 with {@code length} as its limit
+     */
+    public PooledBuffer acquire(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length);
+        }
+        checkLeaks();
+        PooledBuffer buffer;
+        if (length > maxSize) {
+            unpooled.incrementAndGet();
+            buffer = new PooledBuffer(null, allocate(length), -1);
+        } else {
+            int sizeClass = Math.max(0, shift(length) - minShift);
+            buffer = free[sizeClass].poll();
+            if (buffer == null) {
+                buffer = newBuffer(sizeClass);
+            }
+            outstanding.incrementAndGet();
+            if (leakSampleInterval > 0 && acquisitions.incrementAndGet() % leakSampleInterval == 0) {
+                buffer.tracker.acquiredAt = new Throwable("Acquired here");
+            }
+        }
+        buffer.acquired(length);
+        return buffer;
+    }
+
+    private PooledBuffer newBuffer(int sizeClass) {
+        created.incrementAndGet(sizeClass);
+        PooledBuffer buffer = new PooledBuffer(this, allocate(1 << (sizeClass + minShift)), sizeClass);
+        buffer.tracker = new LeakTracker(buffer, collected);
+        trackers.add(buffer.tracker);
+        return buffer;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    void release(PooledBuffer buffer) {
+        buffer.tracker.acquiredAt = null;
+        outstanding.decrementAndGet();
+        if (!free[buffer.sizeClass].offer(buffer)) {  // enough free ones already
+            trackers.remove(buffer.tracker);
+            buffer.tracker.clear();  // not a leak, never enqueued
+        }
+    }
+
+    /**
+     * Reports the buffers the garbage collector found acquired and unreachable since the last check. Called by every
+     * {@link #acquire(int)}, costs a volatile read when there's nothing to report.
+     *
+     * @return the number of leaks found
+     */
+    public int checkLeaks() {
+        int found = 0;
+        for (Reference<? extends PooledBuffer> ref = collected.poll(); ref != null; ref = collected.poll()) {
+            LeakTracker tracker = (LeakTracker) ref;
+            if (!trackers.remove(tracker)) {
+                continue;
+            }
+            found++;
+            leaks.incrementAndGet();
+            outstanding.decrementAndGet();
+            System.out.printf("### LEAK: a %d-byte %s buffer was garbage collected without PooledBuffer.release()%s%n",
+                    tracker.capacity, direct ? "direct" : "heap", tracker.acquiredAt == null
+                            ? ", see ByteBufferPool for recording where it was acquired" : ":");
+            if (tracker.acquiredAt != null) {
+                tracker.acquiredAt.printStackTrace(System.out);
+            }
+        }
+        return found;
+    }
+
+    /** @return the buffers acquired and neither released nor found leaked yet */
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    /** @return the buffers found leaked so far */
+    public long getLeaks() {
+        return leaks.get();
+    }
+
+    /** @return the buffers allocated by the pool, all classes; the fewer per acquisition, the better */
+    public long getCreated() {
+        long total = 0;
+        for (int i = 0; i < created.length(); i++) {
+            total += created.get(i);
+        }
+        return total;
+    }
+
+    /** @return the buffers too big for the largest class, allocated for one acquisition */
+    public long getUnpooled() {
+        return unpooled.get();
+    }
+
+    /** Reports the leaks found so far, and the buffers still acquired. */
+    @Override
+    public void close() {
+        checkLeaks();
+        if (outstanding.get() > 0) {
+            System.out.printf("### %,d buffer(s) acquired from the pool and not released%n", outstanding.get());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder classes = new StringBuilder();
+        for (int i = 0; i < free.length; i++) {
+            if (created.get(i) > 0) {
+                classes.append(classes.length() == 0 ? "" : ", ").append(1 << (i + minShift)).append('=')
+                        .append(created.get(i));
+            }
+        }
+        return String.format("ByteBufferPool{%s, created={%s}, unpooled=%d, outstanding=%d, leaks=%d}",
+                direct ? "direct" : "heap", classes, unpooled.get(), outstanding.get(), leaks.get());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: BytesPayloads
+ */
+
+package com.solace.samples.features.bufferpool;
+
+import java.nio.ByteBuffer;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * Reads and writes {@link BytesMessage} bodies through {@link ByteBuffer}s, typically from a {@link ByteBufferPool},
+ * instead of a fresh {@code byte[]} per message.
+ * <p>
+ * JMS only moves bodies through arrays: a heap buffer is passed its backing array, a direct buffer is copied through
+ * a per-thread 8 KB scratch array. Neither allocates per message.
+ */
+public final class BytesPayloads {
+
+    private static final int SCRATCH_SIZE = 8192;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    private BytesPayloads() {
+    }
+
+    /**
+     * Reads the body of a received message into a buffer of the pool. The message must not have been read from yet.
+     *
+     * @return the body, positioned at 0 with its length as the limit; to be released once done with
+     */
+    public static PooledBuffer read(BytesMessage message, ByteBufferPool pool) throws JMSException {
+        long length = message.getBodyLength();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Body of " + length + " bytes, too big for a ByteBuffer");
+        }
+        PooledBuffer pooled = pool.acquire((int) length);
+        try {
+            ByteBuffer buffer = pooled.buffer();
+            read(message, buffer);
+            buffer.flip();
+            return pooled;
+        } catch (JMSException | RuntimeException e) {
+            pooled.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the body of a message from its current position into the buffer, up to the end of the body or of the
+     * buffer, advancing both.
+     *
+     * @return the bytes read, -1 at the end of the body
+     */
+    public static int read(BytesMessage message, ByteBuffer target) throws JMSException {
+        if (target.hasArray() && target.arrayOffset() + target.position() == 0) {  // readBytes() fills from index 0
+            int n = message.readBytes(target.array(), target.remaining());
+            if (n > 0) {
+                target.position(n);
+            }
+            return n;
+        }
+        byte[] scratch = SCRATCH.get();
+        int total = -1;
+        while (target.hasRemaining()) {
+            int n = message.readBytes(scratch, Math.min(scratch.length, target.remaining()));
+            if (n < 0) {
+                break;
+            }
+            target.put(scratch, 0, n);
+            total = Math.max(total, 0) + n;
+        }
+        return total;
+    }
+
+    /** Appends the remaining bytes of the buffer to the body of a message, advancing the buffer to its limit. */
+    public static void write(BytesMessage message, ByteBuffer source) throws JMSException {
+        if (source.hasArray()) {
+            message.writeBytes(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            source.position(source.limit());
+            return;
+        }
+        byte[] scratch = SCRATCH.get();
+        while (source.hasRemaining()) {
+            int n = Math.min(scratch.length, source.remaining());
+            source.get(scratch, 0, n);
+            message.writeBytes(scratch, 0, n);
+        }
+    }
+}
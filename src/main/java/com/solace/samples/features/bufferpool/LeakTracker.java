@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LeakTracker
+ */
+
+package com.solace.samples.features.bufferpool;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Tracks one {@link PooledBuffer} for its whole life, from its creation by the pool. The pool keeps the buffer
+ * reachable while it's free, so if the garbage collector clears this reference, the buffer was acquired and dropped
+ * without a release. One tracker per buffer rather than per acquisition keeps the detection allocation-free.
+ */
+final class LeakTracker extends WeakReference<PooledBuffer> {
+
+    final int capacity;
+    // where the buffer was last acquired, only recorded for the sampled acquisitions
+    volatile Throwable acquiredAt;
+
+    LeakTracker(PooledBuffer buffer, ReferenceQueue<PooledBuffer> queue) {
+        super(buffer, queue);
+        this.capacity = buffer.capacity();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PooledBuffer
+ */
+
+package com.solace.samples.features.bufferpool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteBuffer} borrowed from a {@link ByteBufferPool}, to {@link #release()} once done with, best with
+ * try-with-resources. Neither the buffer nor its contents may be used after the release: the buffer goes to the next
+ * caller of {@link ByteBufferPool#acquire(int)}.
+ * <p>
+ * The wrapper is pooled along with its buffer, so acquiring and releasing doesn't allocate.
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private final ByteBufferPool pool;  // null for the buffers too big to pool
+    final ByteBuffer buffer;
+    final int sizeClass;
+    LeakTracker tracker;                // null for the buffers too big to pool
+    private boolean acquired;
+
+    PooledBuffer(ByteBufferPool pool, ByteBuffer buffer, int sizeClass) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.sizeClass = sizeClass;
+    }
+
+    void acquired(int length) {
+        buffer.clear().limit(length);
+        acquired = true;
+    }
+
+    /** @return the buffer, positioned at 0 with the length acquired as its limit, or the length read into it */
+    public ByteBuffer buffer() {
+        if (!acquired) {
+            throw new IllegalStateException("The buffer was released");
+        }
+        return buffer;
+    }
+
+    /** @return the size of the buffer, the size class it was acquired from */
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /** Returns the buffer to its pool. */
+    public void release() {
+        if (!acquired) {
+            throw new IllegalStateException("The buffer was already released");
+        }
+        acquired = false;
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    /** Same as {@link #release()}. */
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PooledBuffer{%s, capacity=%d, %s}", buffer.isDirect() ? "direct" : "heap",
+                buffer.capacity(), acquired ? "acquired" : "released");
+    }
+}
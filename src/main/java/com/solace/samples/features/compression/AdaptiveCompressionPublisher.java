@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: AdaptiveCompressionPublisher
+ */
+
+package com.solace.samples.features.compression;
+
+import com.solace.samples.features.bufferpool.ByteBufferPool;
+import com.solace.samples.features.bufferpool.PooledBuffer;
+import com.solace.samples.features.tuning.ConnectionSettings;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a mix of payload classes through an {@link AdaptivePayloadCompressor}: small JSON events, large JSON
+ * documents and random (incompressible) binary. A subscriber on the same topic reads them back and checks that every
+ * payload arrives unchanged. Prints the per-class metrics at the end: which level each class settled on, the ratio,
+ * the encode time per message and the bytes saved.
+ * <p>
+ * The connection-level compression is left at the profile's setting (0 unless configured), as the payloads are
+ * compressed by the application.
+ */
+public class AdaptiveCompressionPublisher {
+
+    private static final String SAMPLE_NAME = AdaptiveCompressionPublisher.class.getSimpleName();
+    private static final String TOPIC_NAME = "try-me/compression";
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3 || args[1].split("@").length != 2) {
+            System.out.printf("Usage: %s <host:port> <client-username@message-vpn> <client-password> [messages]"
+                    + " [-profile NAME] [-config FILE] [key=value ...]%n%n", SAMPLE_NAME);
+            System.exit(-1);
+        }
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
+        String[] remaining = settings.getRemainingArgs();
+        int messages = remaining.length > 0 ? Integer.parseInt(remaining[0]) : 30_000;
+
+        Random random = new Random(42);
+        byte[][] payloads = {
+                json(random, 3),                   // ~200 B event, below the threshold
+                json(random, 400),                 // ~25 KB document
+                randomBytes(random, 64 * 1024)     // incompressible
+        };
+        String[] classes = {"small-json", "large-json", "random-binary"};
+
+        AdaptivePayloadCompressor compressor = AdaptivePayloadCompressor.defaults();
+        ConnectionFactory connectionFactory = settings.createJmsConnectionFactory();
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session publishSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Session receiveSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = publishSession.createTopic(TOPIC_NAME);
+
+            CountDownLatch received = new CountDownLatch(messages);
+            AtomicLong mismatches = new AtomicLong();
+            ByteBufferPool receivePool = ByteBufferPool.heap();  // the received payloads are read without allocating
+            MessageConsumer consumer = receiveSession.createConsumer(topic);
+            consumer.setMessageListener(message -> {
+                try (PooledBuffer payload = compressor.read((BytesMessage) message, receivePool)) {
+                    int index = message.getIntProperty("payload_index");
+                    if (!payload.buffer().equals(ByteBuffer.wrap(payloads[index]))) {
+                        mismatches.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    System.out.println("### Unable to read message: " + e);
+                    mismatches.incrementAndGet();
+                } finally {
+                    received.countDown();
+                }
+            });
+            connection.start();
+
+            MessageProducer producer = publishSession.createProducer(topic);
+            settings.configureProducer(producer);
+            long bodyBytes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                int index = i % payloads.length;
+                BytesMessage message = publishSession.createBytesMessage();
+                message.setIntProperty("payload_index", index);
+                bodyBytes += compressor.write(message, classes[index], payloads[index]);
+                producer.send(message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (!received.await(30, TimeUnit.SECONDS)) {
+                System.out.printf("### Only %,d of %,d messages received%n", messages - received.getCount(), messages);
+            }
+
+            System.out.printf("Published %,d messages in %.2f s, %,d body bytes, %,d mismatches%n%n", messages, seconds,
+                    bodyBytes, mismatches.get());
+            System.out.print(compressor.report());
+            consumer.close();
+            receivePool.close();
+        }
+    }
+
+    // JSON-like text with some repetition, as real events have
+    private static byte[] json(Random random, int items) {
+        StringBuilder sb = new StringBuilder("{\"product\":\"A001\",\"operation\":\"updated\",\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"sku\":\"SKU-").append(random.nextInt(100_000))
+                    .append("\",\"quantity\":").append(random.nextInt(100))
+                    .append(",\"warehouse\":\"").append(random.nextBoolean() ? "OTTAWA" : "KANATA").append("\"}");
+        }
+        return sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
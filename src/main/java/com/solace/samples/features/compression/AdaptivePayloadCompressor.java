@@ -0,0 +1,351 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: AdaptivePayloadCompressor
+ */
+
+package com.solace.samples.features.compression;
+
+import com.solace.samples.features.bufferpool.ByteBufferPool;
+import com.solace.samples.features.bufferpool.BytesPayloads;
+import com.solace.samples.features.bufferpool.PooledBuffer;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per-message payload compression that decides, for each class of payload, whether compressing is worth it and at
+ * which level, from the observed CPU cost and byte savings. The connection-wide
+ * {@code SOLACE_JMS_PAYLOAD_COMPRESSION_LEVEL} (see {@code HowToEnablePayloadCompression}) makes every message pay
+ * the same cost; here small payloads are never compressed and incompressible ones (already compressed, encrypted,
+ * media) stop being compressed after the first sample.
+ * <p>
+ * The payload class is chosen by the application, e.g. the destination or a content type. Payloads below the size
+ * threshold are sent as is. For the first message of a class, and then every {@code sampleInterval} messages, the
+ * payload is compressed at each candidate level. Each level scores the time it would save on the network
+ * ({@code bytes saved / network bytes per second}) minus the time spent compressing. The best level with a positive
+ * score is used for the class until the next sample, or no compression if none scores positive.
+ * <p>
+ * Compressed payloads carry the {@value #ENCODING_PROPERTY} and {@value #LENGTH_PROPERTY} properties, so
+ * {@link #read(BytesMessage, ByteBufferPool)} knows whether and how to inflate. {@code clearBody()} keeps the
+ * properties, so when a message that was written compressed is reused for a plain payload, the encoding is
+ * overwritten with {@value #IDENTITY}. Disable the connection-level compression when using this, there is no point
+ * in compressing twice. Thread safe; deflaters and buffers are kept per thread.
+ */
+public class AdaptivePayloadCompressor {
+
+    public static final String ENCODING_PROPERTY = "acme_content_encoding";
+    public static final String LENGTH_PROPERTY = "acme_uncompressed_length";
+    public static final String DEFLATE = "deflate";
+    public static final String IDENTITY = "identity";
+
+    static final int[] CANDIDATE_LEVELS = {1, 3, 6, 9};
+
+    private final int minSize;
+    private final int sampleInterval;
+    private final double nanosPerNetworkByte;
+    private final Map<String, ClassStats> classes = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Deflater[]> deflaters = ThreadLocal.withInitial(() -> new Deflater[Deflater.BEST_COMPRESSION + 1]);
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+    /**
+     * @param minSize               payloads smaller than this are never compressed
+     * @param sampleInterval        messages of a class between two samples of its compressibility
+     * @param networkBytesPerSecond bandwidth available to the publisher, what a saved byte is worth
+     */
+    public AdaptivePayloadCompressor(int minSize, int sampleInterval, long networkBytesPerSecond) {
+        if (sampleInterval < 1 || networkBytesPerSecond < 1) {
+            throw new IllegalArgumentException("sampleInterval and networkBytesPerSecond must be positive");
+        }
+        this.minSize = minSize;
+        this.sampleInterval = sampleInterval;
+        this.nanosPerNetworkByte = 1e9 / networkBytesPerSecond;
+    }
+
+    /** 512 byte threshold, a sample every 1000 messages, 100 Mbit/s network. */
+    public static AdaptivePayloadCompressor defaults() {
+        return new AdaptivePayloadCompressor(512, 1000, 100_000_000L / 8);
+    }
+
+    /**
+     * Writes the payload to the message body, compressed if that pays off for its class.
+     *
+     * @return the number of bytes written to the body
+     */
+    public int write(BytesMessage message, String payloadClass, byte[] payload) throws JMSException {
+        ClassStats stats = classes.computeIfAbsent(payloadClass, ClassStats::new);
+        stats.messages.increment();
+        stats.bytesIn.add(payload.length);
+        if (payload.length < minSize) {
+            stats.belowThreshold.increment();
+            return writePlain(message, stats, payload);
+        }
+
+        int level;
+        long start = System.nanoTime();
+        int length;
+        if (stats.sampleCountdown.getAndDecrement() <= 0) {
+            stats.sampleCountdown.set(sampleInterval - 1);
+            level = sample(stats, payload);
+            if (level == 0) {
+                stats.encodeNanos.add(System.nanoTime() - start);
+                return writePlain(message, stats, payload);
+            }
+            length = deflate(payload, level);
+        } else {
+            level = stats.level;
+            if (level == 0) {
+                stats.notWorthIt.increment();
+                return writePlain(message, stats, payload);
+            }
+            length = deflate(payload, level);
+        }
+        long nanos = System.nanoTime() - start;
+        if (length >= payload.length) {
+            // not compressible after all, next message of this class re-samples
+            stats.sampleCountdown.set(0);
+            stats.notWorthIt.increment();
+            stats.encodeNanos.add(nanos);
+            return writePlain(message, stats, payload);
+        }
+        message.setStringProperty(ENCODING_PROPERTY, DEFLATE);
+        message.setIntProperty(LENGTH_PROPERTY, payload.length);
+        message.writeBytes(buffers.get(), 0, length);
+        stats.compressed.increment();
+        stats.encodeNanos.add(nanos);
+        stats.bytesOut.add(length);
+        return length;
+    }
+
+    /**
+     * Reads the body of a message written by {@link #write}, inflating it if needed. The returned array is the only
+     * allocation; {@link #read(BytesMessage, ByteBufferPool)} avoids that one too.
+     */
+    public byte[] read(BytesMessage message) throws JMSException {
+        if (!DEFLATE.equals(message.getStringProperty(ENCODING_PROPERTY))) {
+            byte[] body = new byte[(int) message.getBodyLength()];
+            message.readBytes(body);
+            return body;
+        }
+        byte[] payload = new byte[message.getIntProperty(LENGTH_PROPERTY)];
+        inflate(message, ByteBuffer.wrap(payload));
+        return payload;
+    }
+
+    /**
+     * Reads the body of a message written by {@link #write} into a buffer of the pool, inflating it if needed.
+     *
+     * @return the payload, positioned at 0 with its length as the limit; to be released once done with
+     */
+    public PooledBuffer read(BytesMessage message, ByteBufferPool pool) throws JMSException {
+        if (!DEFLATE.equals(message.getStringProperty(ENCODING_PROPERTY))) {
+            return BytesPayloads.read(message, pool);
+        }
+        PooledBuffer pooled = pool.acquire(message.getIntProperty(LENGTH_PROPERTY));
+        try {
+            inflate(message, pooled.buffer());
+            pooled.buffer().flip();
+            return pooled;
+        } catch (JMSException | RuntimeException e) {
+            pooled.release();
+            throw e;
+        }
+    }
+
+    // Reads the compressed body into the thread's buffer and inflates it into the remaining bytes of the target
+    private void inflate(BytesMessage message, ByteBuffer target) throws JMSException {
+        int bodyLength = (int) message.getBodyLength();
+        byte[] body = buffers.get();
+        if (body.length < bodyLength) {
+            body = new byte[Math.max(bodyLength, body.length * 2)];
+            buffers.set(body);
+        }
+        message.readBytes(body, bodyLength);
+        int expected = target.remaining();
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(body, 0, bodyLength);
+        try {
+            while (target.hasRemaining() && !inflater.finished()) {
+                int n = inflater.inflate(target);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if (target.hasRemaining()) {
+                throw new JMSException("Compressed payload is truncated: " + (expected - target.remaining()) + " of "
+                        + expected + " bytes");
+            }
+        } catch (DataFormatException e) {
+            JMSException jmsException = new JMSException("Corrupt compressed payload: " + e.getMessage());
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        }
+    }
+
+    /** @return the statistics of a payload class, null if no message of that class was written yet */
+    public ClassStats getStats(String payloadClass) {
+        return classes.get(payloadClass);
+    }
+
+    public Map<String, ClassStats> getAllStats() {
+        return classes;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format("%-20s %10s %10s %8s %6s %8s %12s %14s %10s%n",
+                "class", "messages", "compressed", "skipped", "level", "ratio", "encode us/msg", "bytes saved", "samples"));
+        classes.values().stream()
+                .sorted((a, b) -> a.name.compareTo(b.name))
+                .forEach(stats -> sb.append(stats).append(System.lineSeparator()));
+        return sb.toString();
+    }
+
+    private int writePlain(BytesMessage message, ClassStats stats, byte[] payload) throws JMSException {
+        if (message.propertyExists(ENCODING_PROPERTY)) {
+            // a reused message, written compressed before
+            message.setStringProperty(ENCODING_PROPERTY, IDENTITY);
+            message.setIntProperty(LENGTH_PROPERTY, payload.length);
+        }
+        message.writeBytes(payload);
+        stats.bytesOut.add(payload.length);
+        return payload.length;
+    }
+
+    // Compresses the payload at each candidate level and keeps the level with the best score
+    private int sample(ClassStats stats, byte[] payload) {
+        stats.samples.increment();
+        int bestLevel = 0;
+        double bestScore = 0;
+        for (int level : CANDIDATE_LEVELS) {
+            long start = System.nanoTime();
+            int length = deflate(payload, level);
+            long nanos = System.nanoTime() - start;
+            double score = (payload.length - length) * nanosPerNetworkByte - nanos;
+            if (score > bestScore) {
+                bestScore = score;
+                bestLevel = level;
+            }
+        }
+        stats.level = bestLevel;
+        if (bestLevel == 0) {
+            stats.notWorthIt.increment();
+        }
+        return bestLevel;
+    }
+
+    // Deflates into the thread's buffer, growing it as needed, and returns the compressed length
+    private int deflate(byte[] payload, int level) {
+        Deflater[] perLevel = deflaters.get();
+        Deflater deflater = perLevel[level];
+        if (deflater == null) {
+            deflater = perLevel[level] = new Deflater(level);
+        }
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] buffer = buffers.get();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffers.set(buffer);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return length;
+    }
+
+    /** Metrics and current decision of one payload class. */
+    public static final class ClassStats {
+        final String name;
+        final LongAdder messages = new LongAdder();
+        final LongAdder compressed = new LongAdder();
+        final LongAdder belowThreshold = new LongAdder();
+        final LongAdder notWorthIt = new LongAdder();
+        final LongAdder samples = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder encodeNanos = new LongAdder();
+        final AtomicLong sampleCountdown = new AtomicLong(0);
+        volatile int level = 0;
+
+        ClassStats(String name) {
+            this.name = name;
+        }
+
+        public long getMessages() {
+            return messages.sum();
+        }
+
+        public long getCompressed() {
+            return compressed.sum();
+        }
+
+        /** Messages sent uncompressed, below the size threshold or because compression didn't pay off. */
+        public long getSkipped() {
+            return belowThreshold.sum() + notWorthIt.sum();
+        }
+
+        /** The level currently used, 0 for none. */
+        public int getLevel() {
+            return level;
+        }
+
+        /** Bytes written divided by payload bytes, over all messages of the class. */
+        public double getRatio() {
+            long in = bytesIn.sum();
+            return in == 0 ? 1 : (double) bytesOut.sum() / in;
+        }
+
+        public long getBytesSaved() {
+            return bytesIn.sum() - bytesOut.sum();
+        }
+
+        /** Compression time, including samples, per message of the class. */
+        public double getEncodeMicrosPerMessage() {
+            long n = messages.sum();
+            return n == 0 ? 0 : encodeNanos.sum() / 1e3 / n;
+        }
+
+        public long getSamples() {
+            return samples.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %,10d %,10d %,8d %6d %8.3f %12.2f %,14d %,10d", name, getMessages(),
+                    getCompressed(), getSkipped(), level, getRatio(), getEncodeMicrosPerMessage(), getBytesSaved(),
+                    getSamples());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: CompressionBenchmark
+ */
+
+package com.solace.samples.features.compression;
+
+import com.solace.samples.features.tuning.ConnectionSettings;
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SupportedProperty;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Sweeps the payload compression level ({@code SOLACE_JMS_PAYLOAD_COMPRESSION_LEVEL}, 0-9) across payload sizes,
+ * content types and message types, and prints a results table to choose a level from data. With {@code -transport}
+ * it sweeps the transport compression level of the connection instead.
+ * <p>
+ * For every combination it publishes Direct (or persistent with {@code -persistent}) messages on a fresh connection
+ * and measures:
+ * <ul>
+ *   <li>publish throughput, in messages and payload MB per second;</li>
+ *   <li>process CPU time per message, which includes the API threads that compress;</li>
+ *   <li>an estimate of the payload bytes on the wire, framing not included: each payload deflated on its own for
+ *       payload compression, or the payloads deflated in sequence on one stream with a sync flush each for transport
+ *       compression.</li>
+ * </ul>
+ * Each cell cycles through a few distinct payloads, so the stream compression can't just match the previous message.
+ * Text messages are sent with {@code SOLACE_JMS_PROP_ISXML=false}, otherwise they are not compressed.
+ * <p>
+ * Transport compression above level 0 needs the broker's compressed port (55003 by default) in the host. On the
+ * loopback broker nothing is compressed, so only the CPU cost of the API and the wire estimate remain comparable.
+ * <p>
+ * Options, besides the connection settings: {@code -levels 0,1,..}, {@code -sizes 100,1000,..},
+ * {@code -contents random,json,text}, {@code -types bytes,text}, {@code -bytesPerCell N} (payload volume per
+ * combination, default 20 MB, between 20 and 10,000 messages), {@code -persistent}, {@code -transport},
+ * {@code -csv FILE}.
+ */
+public class CompressionBenchmark {
+
+    private static final String SAMPLE_NAME = CompressionBenchmark.class.getSimpleName();
+    private static final String TOPIC_NAME = "try-me/compression/benchmark";
+
+    private static final String HEADER = String.format("%-6s %-7s %10s %5s %7s %10s %9s %11s %14s %7s",
+            "type", "content", "size", "level", "msgs", "msgs/s", "MB/s", "cpu us/msg", "wire B/msg", "ratio");
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3 || args[1].split("@").length != 2) {
+            System.out.printf("Usage: %s <host:port> <client-username@message-vpn> <client-password>"
+                    + " [-levels 0,1,...,9] [-sizes 100,1000,...] [-contents random,json,text] [-types bytes,text]"
+                    + " [-bytesPerCell N] [-persistent] [-transport] [-csv FILE] [-profile NAME] [-config FILE] [key=value ...]%n%n",
+                    SAMPLE_NAME);
+            System.exit(-1);
+        }
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
+        int[] levels = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        int[] sizes = {100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+        String[] contents = {"random", "json", "text"};
+        String[] types = {"bytes", "text"};
+        long bytesPerCell = 20_000_000L;
+        int deliveryMode = DeliveryMode.NON_PERSISTENT;
+        boolean transport = false;
+        String csvFile = null;
+        String[] remaining = settings.getRemainingArgs();
+        for (int i = 0; i < remaining.length; i++) {
+            String option = remaining[i];
+            if ("-persistent".equals(option)) {
+                deliveryMode = DeliveryMode.PERSISTENT;
+            } else if ("-transport".equals(option)) {
+                transport = true;
+            } else if (i + 1 < remaining.length) {
+                String value = remaining[++i];
+                switch (option) {
+                    case "-levels" -> levels = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "-sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "-contents" -> contents = value.split(",");
+                    case "-types" -> types = value.split(",");
+                    case "-bytesPerCell" -> bytesPerCell = Long.parseLong(value);
+                    case "-csv" -> csvFile = value;
+                    default -> throw new IllegalArgumentException("Unknown option " + option);
+                }
+            } else {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+        }
+        System.out.print(settings.describe());
+
+        List<String> csv = new ArrayList<>();
+        csv.add("type,content,size,level,messages,msgs_per_s,mb_per_s,cpu_us_per_msg,wire_bytes_per_msg,ratio");
+        System.out.println(HEADER);
+        for (int level : levels) {
+            ConnectionFactory connectionFactory = settings.createJmsConnectionFactory();
+            if (connectionFactory instanceof SolConnectionFactory solConnectionFactory) {
+                if (transport) {
+                    solConnectionFactory.setCompressionLevel(level);
+                } else {
+                    solConnectionFactory.setPayloadCompressionLevel(level);
+                }
+            }
+            try (Connection connection = connectionFactory.createConnection()) {
+                Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                Topic topic = session.createTopic(TOPIC_NAME);
+                MessageProducer producer = session.createProducer(topic);
+                settings.configureProducer(producer);
+                for (String type : types) {
+                    for (String content : contents) {
+                        for (int size : sizes) {
+                            Cell cell = new Cell(type, content, size, level, transport);
+                            cell.run(session, producer, deliveryMode, bytesPerCell);
+                            System.out.println(cell);
+                            csv.add(cell.toCsv());
+                        }
+                    }
+                }
+            }
+        }
+        if (csvFile != null) {
+            try (PrintWriter out = new PrintWriter(new FileWriter(csvFile))) {
+                csv.forEach(out::println);
+            }
+            System.out.println("Results written to " + csvFile);
+        }
+    }
+
+    /** One combination of message type, content type, payload size and level, and its results. */
+    static final class Cell {
+        final String type;
+        final String content;
+        final int size;
+        final int level;
+        final boolean transport;
+
+        int messages;
+        double messagesPerSecond;
+        double megabytesPerSecond;
+        double cpuMicrosPerMessage;
+        double wireBytesPerMessage;
+
+        Cell(String type, String content, int size, int level, boolean transport) {
+            this.type = type;
+            this.content = content;
+            this.size = size;
+            this.level = level;
+            this.transport = transport;
+        }
+
+        void run(Session session, MessageProducer producer, int deliveryMode, long bytesPerCell) throws JMSException, IOException {
+            messages = (int) Math.max(20, Math.min(10_000, bytesPerCell / size));
+            int distinct = (int) Math.max(2, Math.min(16, 64_000_000L / size));
+            Random random = new Random(size * 31L + content.hashCode());
+            byte[][] payloads = new byte[distinct][];
+            Message[] pool = new Message[distinct];
+            for (int i = 0; i < distinct; i++) {
+                payloads[i] = payload(content, size, random);
+                if ("text".equals(type)) {
+                    TextMessage message = session.createTextMessage(new String(payloads[i], StandardCharsets.ISO_8859_1));
+                    message.setBooleanProperty(SupportedProperty.SOLACE_JMS_PROP_ISXML, false);
+                    pool[i] = message;
+                } else {
+                    BytesMessage message = session.createBytesMessage();
+                    message.writeBytes(payloads[i]);
+                    pool[i] = message;
+                }
+            }
+            wireBytesPerMessage = estimateWireBytes(payloads, Math.min(messages, 64));
+
+            // warm-up, then measure
+            for (int i = 0; i < Math.min(messages / 10 + 1, 200); i++) {
+                producer.send(pool[i % distinct], deliveryMode, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            }
+            long cpuBefore = processCpuNanos();
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                producer.send(pool[i % distinct], deliveryMode, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            cpuMicrosPerMessage = (processCpuNanos() - cpuBefore) / 1e3 / messages;
+            messagesPerSecond = messages / seconds;
+            megabytesPerSecond = messagesPerSecond * size / 1e6;
+        }
+
+        // Deflates the payloads as the API would: one after the other on a single stream flushed after each for
+        // transport compression, each on its own for payload compression
+        private double estimateWireBytes(byte[][] payloads, int count) {
+            if (level == 0) {
+                return size;
+            }
+            Deflater deflater = new Deflater(level);
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                if (!transport) {
+                    deflater.reset();
+                }
+                deflater.setInput(payloads[i % payloads.length]);
+                if (!transport) {
+                    deflater.finish();
+                }
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, transport ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH);
+                    total += n;
+                } while (transport ? n == buffer.length || !deflater.needsInput() : !deflater.finished());
+            }
+            deflater.end();
+            return (double) total / count;
+        }
+
+        String toCsv() {
+            return String.format("%s,%s,%d,%d,%d,%.1f,%.2f,%.2f,%.1f,%.4f", type, content, size, level, messages,
+                    messagesPerSecond, megabytesPerSecond, cpuMicrosPerMessage, wireBytesPerMessage,
+                    wireBytesPerMessage / size);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s %-7s %,10d %5d %,7d %,10.0f %9.2f %,11.1f %,14.0f %7.3f", type, content, size,
+                    level, messages, messagesPerSecond, megabytesPerSecond, cpuMicrosPerMessage, wireBytesPerMessage,
+                    wireBytesPerMessage / size);
+        }
+    }
+
+    /**
+     * A payload of the given content type. All are single byte characters, so the text message carries the same
+     * bytes: random is random printable ASCII for text-safety (random binary compresses even less).
+     */
+    static byte[] payload(String content, int size, Random random) {
+        byte[] bytes = new byte[size];
+        switch (content) {
+            case "random" -> {
+                for (int i = 0; i < size; i++) {
+                    bytes[i] = (byte) (' ' + random.nextInt(95));
+                }
+            }
+            case "json" -> {
+                StringBuilder sb = new StringBuilder(size + 128);
+                sb.append('[');
+                while (sb.length() < size) {
+                    sb.append("{\"sku\":\"SKU-").append(random.nextInt(100_000))
+                            .append("\",\"quantity\":").append(random.nextInt(1000))
+                            .append(",\"price\":").append(random.nextInt(100_000) / 100.0)
+                            .append(",\"warehouse\":\"").append(WAREHOUSES[random.nextInt(WAREHOUSES.length)])
+                            .append("\"},");
+                }
+                byte[] json = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+                System.arraycopy(json, 0, bytes, 0, size);
+            }
+            case "text" -> {
+                byte[] line = ("The quick brown fox jumps over the lazy dog " + random.nextInt(10) + ". ")
+                        .getBytes(StandardCharsets.ISO_8859_1);
+                for (int i = 0; i < size; i++) {
+                    bytes[i] = line[i % line.length];
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown content type " + content
+                    + ", expected random, json or text");
+        }
+        return bytes;
+    }
+
+    private static final String[] WAREHOUSES = {"OTTAWA", "KANATA", "TORONTO", "MONTREAL", "VANCOUVER"};
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: DuplicateDetector
+ */
+
+package com.solace.samples.features.deduplication;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory detector of already-seen message keys, used to drop redelivered messages.
+ * <p>
+ * Keys are reduced to a 64-bit fingerprint and stored in a small ring of open-addressing {@code long[]} tables
+ * ("generations"). Each generation covers a slice of the de-duplication window; when the current generation is
+ * older than its slice, or has reached its load limit, the oldest generation is dropped from the window. A spare
+ * table takes over as the current generation, and the dropped one becomes the spare, cleared a few slots per insert
+ * rather than all at once on the consumer thread. All tables are allocated once in the constructor, so lookups and
+ * inserts are O(1) and do not allocate.
+ * <p>
+ * A fingerprint collision between two different keys makes the second one look like a duplicate. With 64-bit
+ * fingerprints the probability is {@code entries / 2^64} per lookup, reported by {@link #falsePositiveRate()}.
+ * <p>
+ * Methods are synchronized so that one detector can be shared by consumers on several sessions.
+ */
+public class DuplicateDetector {
+
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final double TWO_POW_64 = 18446744073709551616.0;
+
+    private final long[][] generations;      // one open-addressing table per generation, plus the spare
+    private final int[] sizes;               // number of fingerprints in each generation
+    private final int mask;                  // table capacity - 1 (capacity is a power of two)
+    private final int maxEntriesPerGeneration;
+    private final long generationNanos;      // time slice covered by a single generation
+    private final int clearPerInsert;        // spare slots cleared per insert, enough to be clean by the next rotation
+
+    private int current = 0;                 // index of the generation receiving inserts
+    private int spare = 1;                   // the table after current, out of the window, being cleared
+    private int spareClearedUpTo;            // slots of the spare cleared so far
+    private long currentStartedNanos;
+
+    private long lookups = 0;
+    private long duplicatesDropped = 0;
+    private long rotations = 0;
+    private long earlyRotations = 0;         // rotations forced by a full generation, shortening the window
+
+    /**
+     * @param expectedKeysPerWindow number of distinct keys expected within {@code windowMillis}
+     * @param windowMillis how long a key should be remembered
+     * @param generationCount number of generations the window is split into, at least 2
+     */
+    public DuplicateDetector(int expectedKeysPerWindow, long windowMillis, int generationCount) {
+        if (expectedKeysPerWindow <= 0 || windowMillis <= 0 || generationCount < 2) {
+            throw new IllegalArgumentException("expectedKeysPerWindow and windowMillis must be positive, generationCount at least 2");
+        }
+        int perGeneration = (expectedKeysPerWindow + generationCount - 2) / (generationCount - 1);
+        int capacity = Integer.highestOneBit((int) Math.min(1 << 30, (long) Math.ceil(perGeneration / MAX_LOAD_FACTOR)));
+        if (capacity < perGeneration / MAX_LOAD_FACTOR) {
+            capacity <<= 1;
+        }
+        this.generations = new long[generationCount + 1][capacity];
+        this.sizes = new int[generationCount + 1];
+        this.mask = capacity - 1;
+        this.maxEntriesPerGeneration = (int) (capacity * MAX_LOAD_FACTOR);
+        this.clearPerInsert = (capacity + maxEntriesPerGeneration - 1) / maxEntriesPerGeneration + 1;
+        this.spareClearedUpTo = capacity;
+        // the oldest generation is always being recycled, so the remaining ones have to cover the whole window
+        this.generationNanos = windowMillis * 1_000_000L / (generationCount - 1);
+        this.currentStartedNanos = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the key has been seen within the window, without remembering it.
+     *
+     * @param key the message key, e.g. the JMSMessageID; {@code null} is never a duplicate
+     * @return true if the key was already recorded
+     */
+    public synchronized boolean contains(CharSequence key) {
+        if (key == null) {
+            return false;
+        }
+        lookups++;
+        return find(fingerprint(key));
+    }
+
+    /**
+     * Remembers the key as processed.
+     *
+     * @param key the message key; {@code null} is ignored
+     */
+    public synchronized void record(CharSequence key) {
+        if (key != null) {
+            insert(fingerprint(key));
+        }
+    }
+
+    /**
+     * Checks the key and records it in one step, so that two consumers can't both take the same key as new. A
+     * consumer claiming a key this way {@link #remove removes} it again if the processing fails.
+     *
+     * @param key the message key; {@code null} is never a duplicate and is not recorded
+     * @return true if the key is new and now recorded, false if it is a duplicate
+     */
+    public synchronized boolean tryRecord(CharSequence key) {
+        if (key == null) {
+            return true;
+        }
+        lookups++;
+        return insert(fingerprint(key));
+    }
+
+    /**
+     * Forgets a recorded key, for a message whose processing failed, so that its redelivery is processed.
+     *
+     * @param key the message key; {@code null} is ignored
+     */
+    public synchronized void remove(CharSequence key) {
+        if (key == null) {
+            return;
+        }
+        long fingerprint = fingerprint(key);
+        for (int g = 0; g < generations.length; g++) {
+            if (g == spare) {
+                continue;
+            }
+            long[] table = generations[g];
+            for (int slot = (int) fingerprint & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (table[slot] == fingerprint) {
+                    delete(table, slot);
+                    sizes[g]--;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Linear probing deletion: moves back the entries of the cluster that would no longer be reachable
+    private void delete(long[] table, int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            int home = (int) table[next] & mask;
+            // the entry can fill the hole unless its home slot lies cyclically in (hole, next]
+            boolean homeAfterHole = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!homeAfterHole) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    // false if the fingerprint was already recorded
+    private boolean insert(long fingerprint) {
+        if (find(fingerprint)) {
+            return false;
+        }
+        rotateIfNeeded();
+        clearSpare(clearPerInsert);
+        long[] table = generations[current];
+        int slot = (int) fingerprint & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = fingerprint;
+        sizes[current]++;
+        return true;
+    }
+
+    /** Counts a message that was dropped because {@link #tryRecord(CharSequence)} reported it as a duplicate. */
+    public synchronized void duplicateDropped() {
+        duplicatesDropped++;
+    }
+
+    private boolean find(long fingerprint) {
+        int start = (int) fingerprint & mask;
+        for (int g = 0; g < generations.length; g++) {
+            if (g == spare) {
+                continue;
+            }
+            long[] table = generations[g];
+            int slot = start;
+            long value;
+            while ((value = table[slot]) != EMPTY) {
+                if (value == fingerprint) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return false;
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.nanoTime();
+        boolean full = sizes[current] >= maxEntriesPerGeneration;
+        if (!full && now - currentStartedNanos < generationNanos) {
+            return;
+        }
+        if (full) {
+            earlyRotations++;
+        }
+        rotations++;
+        clearSpare(mask + 1);  // only left over when few keys were inserted since the last rotation
+        current = spare;
+        spare = (current + 1) % generations.length;  // the oldest slice, out of the window from now on
+        sizes[spare] = 0;
+        spareClearedUpTo = 0;
+        currentStartedNanos = now;
+    }
+
+    private void clearSpare(int slots) {
+        int end = Math.min(mask + 1, spareClearedUpTo + slots);
+        if (spareClearedUpTo < end) {
+            Arrays.fill(generations[spare], spareClearedUpTo, end, EMPTY);
+            spareClearedUpTo = end;
+        }
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars of the key, finished with the MurmurHash3 mixer. Never returns 0. */
+    static long fingerprint(CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = key.length(); i < n; i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+
+    /** @return the bytes held by the fingerprint tables, the spare included, fixed at construction time */
+    public long memoryBytes() {
+        return (long) generations.length * (mask + 1) * Long.BYTES;
+    }
+
+    /** @return number of keys currently remembered across all generations */
+    public synchronized long entries() {
+        long total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        return total;
+    }
+
+    /** @return the probability that a lookup of a new key is wrongly reported as a duplicate */
+    public synchronized double falsePositiveRate() {
+        return entries() / TWO_POW_64;
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    public synchronized long getDuplicatesDropped() {
+        return duplicatesDropped;
+    }
+
+    public synchronized long getRotations() {
+        return rotations;
+    }
+
+    /** @return rotations triggered by a full generation rather than by time; non-zero means the window is undersized */
+    public synchronized long getEarlyRotations() {
+        return earlyRotations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DuplicateDetector[memory=%,d bytes, entries=%,d, lookups=%,d, duplicatesDropped=%,d, "
+                        + "falsePositiveRate=%.3g, rotations=%,d (early=%,d)]",
+                memoryBytes(), entries(), lookups, duplicatesDropped, falsePositiveRate(), rotations, earlyRotations);
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: IdempotentMessageListener
+ */
+
+package com.solace.samples.features.deduplication;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+/**
+ * {@link MessageListener} that passes each message to a {@link MessageHandler}, dropping messages whose key has
+ * already been processed.
+ * <p>
+ * The key is the {@code JMSMessageID} by default, or the value of a configurable String property when the
+ * publisher sets its own business identifier. A duplicate is acknowledged (so the broker stops redelivering it)
+ * and is not processed. The key is claimed with {@link DuplicateDetector#tryRecord} before processing, so two
+ * sessions sharing the detector can't both process it.
+ * <p>
+ * When the handler throws, the key is removed again and {@link Session#recover()} is called, so the broker
+ * redelivers the unacknowledged messages of the session, the failed one included, and it is processed again. A
+ * message that keeps failing is redelivered until the max redelivery count of the queue moves it to the dead message
+ * queue.
+ * <p>
+ * Messages without a key are always processed: a publisher with {@code disableMessageID} set sends no
+ * {@code JMSMessageID}, so use a key property for such publishers. The first message without a key is reported.
+ */
+public class IdempotentMessageListener implements MessageListener {
+
+    private final Session session;
+    private final DuplicateDetector detector;
+    private final MessageHandler handler;
+    private final String keyProperty;
+    private volatile boolean missingKeyReported;
+
+    /**
+     * De-duplicates on the {@code JMSMessageID}.
+     *
+     * @param session the session of the consumer, recovered when the handler fails
+     */
+    public IdempotentMessageListener(Session session, DuplicateDetector detector, MessageHandler handler) {
+        this(session, detector, handler, null);
+    }
+
+    /**
+     * @param session     the session of the consumer, recovered when the handler fails
+     * @param keyProperty name of the String property holding the key, or {@code null} to use the JMSMessageID
+     */
+    public IdempotentMessageListener(Session session, DuplicateDetector detector, MessageHandler handler,
+            String keyProperty) {
+        this.session = session;
+        this.detector = detector;
+        this.handler = handler;
+        this.keyProperty = keyProperty;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        String key;
+        try {
+            key = keyProperty == null ? message.getJMSMessageID() : message.getStringProperty(keyProperty);
+        } catch (JMSException e) {
+            System.out.println("### Unable to check message for duplicates, processing it anyway: " + e);
+            key = null;
+        }
+        if (key == null && !missingKeyReported) {
+            missingKeyReported = true;
+            System.out.println("### Received a message without " + (keyProperty == null ? "a JMSMessageID"
+                    : "the '" + keyProperty + "' property") + ", such messages are not checked for duplicates");
+        }
+        if (!detector.tryRecord(key)) {
+            detector.duplicateDropped();
+            try {
+                message.acknowledge();  // no-op unless the session uses client acknowledgement
+            } catch (JMSException e) {
+                System.out.println("### Unable to acknowledge a duplicate message: " + e);
+            }
+            return;
+        }
+        try {
+            handler.handle(message);
+        } catch (Exception e) {
+            detector.remove(key);  // not processed, its redelivery has to be
+            System.out.println("### Processing failed, recovering the session for a redelivery: " + e);
+            try {
+                session.recover();
+            } catch (JMSException recoverException) {
+                System.out.println("### Unable to recover the session, the message is redelivered on reconnect: "
+                        + recoverException);
+            }
+        }
+    }
+
+    public DuplicateDetector getDetector() {
+        return detector;
+    }
+}
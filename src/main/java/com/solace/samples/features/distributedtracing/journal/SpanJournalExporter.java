@@ -0,0 +1,465 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SpanJournalExporter
+ */
+
+package com.solace.samples.features.distributedtracing.journal;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span exporter that appends finished spans as compact binary records to a local journal of rotating, memory-mapped
+ * segment files, for hosts without a collector. {@link SpanJournalToOtlpJson} converts the segments to OTLP JSON later.
+ * It also isolates the cost of exporting from the cost of the network.
+ * <p>
+ * Each segment, {@code spans-NNNNNN.journal}, is preallocated to the segment size and starts with the {@link #MAGIC}
+ * bytes and a format version. Records follow, each prefixed with its length as an {@code int}. A length of 0 (the
+ * file is zero filled) ends the segment. The length is written after the record, so a reader never sees a partial
+ * record. A record is a resource, an instrumentation scope or a span. Spans refer to their resource and scope by an
+ * id, and every segment repeats the resources and scopes it uses, so each segment can be read on its own. When the
+ * journal holds more than the configured number of segments, the oldest one is deleted.
+ * <p>
+ * Calls are serialized; the {@code BatchSpanProcessor} exports from a single thread anyway.
+ */
+public class SpanJournalExporter implements SpanExporter {
+
+    static final byte[] MAGIC = {'S', 'P', 'A', 'N', 'J', 'R', 'N', 'L'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+    static final String SEGMENT_PREFIX = "spans-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    static final byte RECORD_RESOURCE = 1;
+    static final byte RECORD_SCOPE = 2;
+    static final byte RECORD_SPAN = 3;
+
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_BOOLEAN = 2;
+    static final byte VALUE_LONG = 3;
+    static final byte VALUE_DOUBLE = 4;
+    static final byte VALUE_STRING_ARRAY = 5;
+    static final byte VALUE_BOOLEAN_ARRAY = 6;
+    static final byte VALUE_LONG_ARRAY = 7;
+    static final byte VALUE_DOUBLE_ARRAY = 8;
+
+    private static final int MAX_STRING_BYTES = 0xffff;
+    private static final byte[] NO_SPAN_ID = new byte[8];
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    // ids of the resources and scopes already written to the current segment
+    private final Map<Resource, Integer> resourceIds = new HashMap<>();
+    private final Map<InstrumentationScopeInfo, Integer> scopeIds = new HashMap<>();
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+
+    private long segmentNumber;
+    private MappedByteBuffer segment;
+    private boolean closed = false;
+
+    private volatile long spansWritten = 0;
+    private volatile long spansDropped = 0;
+    private volatile long bytesWritten = 0;
+    private volatile long segmentsWritten = 0;
+
+    /**
+     * @param directory   journal directory, created if needed. Numbering continues after existing segments.
+     * @param segmentSize size of each segment file in bytes
+     * @param maxSegments segments kept before the oldest is deleted
+     */
+    public SpanJournalExporter(File directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < 64 * 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 64 KB, was " + segmentSize);
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("maxSegments must be at least 1, was " + maxSegments);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        File[] existing = segments(directory);
+        segmentNumber = existing.length == 0 ? 0 : segmentNumber(existing[existing.length - 1]) + 1;
+        openSegment();
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (closed) {
+            return CompletableResultCode.ofFailure();
+        }
+        try {
+            for (SpanData span : spans) {
+                encodeSpan(span);
+                if (record.position() + Integer.BYTES > segmentSize - HEADER_SIZE) {
+                    spansDropped++;  // would not fit even in an empty segment
+                    continue;
+                }
+                if (writeSpan(span)) {
+                    spansWritten++;
+                } else {
+                    spansDropped++;  // its resource, scope and itself don't fit together in an empty segment
+                }
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            System.out.println("### Span journal write failed: " + e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    // Any rotation clears the ids of the segment, so the ids are resolved again until none happened in between
+    private boolean writeSpan(SpanData span) throws IOException {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long segmentBefore = segmentNumber;
+            int resourceId = resourceId(span.getResource());
+            int scopeId = scopeId(span.getInstrumentationScopeInfo());
+            if (segmentNumber != segmentBefore) {
+                continue;  // the resource id may have been defined in the previous segment
+            }
+            if (!fits(record.position())) {
+                rotate();
+                continue;
+            }
+            record.putInt(1, resourceId).putInt(1 + Integer.BYTES, scopeId);
+            append();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        if (!closed) {
+            segment.force();
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (closed) {
+            return CompletableResultCode.ofSuccess();
+        }
+        closed = true;
+        segment.force();
+        segment = null;
+        return CompletableResultCode.ofSuccess();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getSpansWritten() {
+        return spansWritten;
+    }
+
+    public long getSpansDropped() {
+        return spansDropped;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getSegmentsWritten() {
+        return segmentsWritten;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SpanJournalExporter{dir=%s, spans=%,d, dropped=%,d, bytes=%,d, segments=%,d}",
+                directory, spansWritten, spansDropped, bytesWritten, segmentsWritten);
+    }
+
+    /** The segment files of a journal directory, oldest first. */
+    static File[] segments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return files;
+    }
+
+    private static long segmentNumber(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentSize);
+            // the mapping stays valid after the file is closed, it is released when the buffer is collected
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.put(MAGIC).putInt(VERSION);
+        resourceIds.clear();
+        scopeIds.clear();
+        segmentsWritten++;
+
+        File[] all = segments(directory);
+        for (int i = 0; i < all.length - maxSegments; i++) {
+            if (!all[i].delete()) {
+                System.out.println("### Unable to delete old journal segment " + all[i]);
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        segment.force();
+        segmentNumber++;
+        openSegment();
+    }
+
+    private boolean fits(int recordLength) {
+        return segment.remaining() >= Integer.BYTES + recordLength;
+    }
+
+    // Appends the record buffer to the segment, the length last
+    private void append() {
+        int length = record.position();
+        int start = segment.position();
+        record.flip();
+        segment.position(start + Integer.BYTES);
+        segment.put(record);
+        segment.putInt(start, length);
+        record.clear();
+        bytesWritten += Integer.BYTES + length;
+    }
+
+    private int resourceId(Resource resource) throws IOException {
+        Integer id = resourceIds.get(resource);
+        if (id != null) {
+            return id;
+        }
+        ByteBuffer span = stash();
+        id = resourceIds.size() + 1;
+        putByte(RECORD_RESOURCE);
+        putInt(id);
+        putString(resource.getSchemaUrl());
+        putAttributes(resource.getAttributes());
+        writeOrRotate();
+        resourceIds.put(resource, id);
+        record = span;
+        return id;
+    }
+
+    private int scopeId(InstrumentationScopeInfo scope) throws IOException {
+        Integer id = scopeIds.get(scope);
+        if (id != null) {
+            return id;
+        }
+        ByteBuffer span = stash();
+        id = scopeIds.size() + 1;
+        putByte(RECORD_SCOPE);
+        putInt(id);
+        putString(scope.getName());
+        putString(scope.getVersion());
+        putString(scope.getSchemaUrl());
+        putAttributes(scope.getAttributes());
+        writeOrRotate();
+        scopeIds.put(scope, id);
+        record = span;
+        return id;
+    }
+
+    // Switches to a fresh buffer for a resource or scope record, returning the one holding the encoded span
+    private ByteBuffer stash() {
+        ByteBuffer span = record;
+        record = ByteBuffer.allocate(1024);
+        return span;
+    }
+
+    private void writeOrRotate() throws IOException {
+        if (!fits(record.position())) {
+            rotate();
+        }
+        append();
+    }
+
+    private void encodeSpan(SpanData span) {
+        record.clear();
+        putByte(RECORD_SPAN);
+        putInt(0);  // resource id, set once known
+        putInt(0);  // scope id
+        SpanContext context = span.getSpanContext();
+        putBytes(context.getTraceIdBytes());
+        putBytes(context.getSpanIdBytes());
+        SpanContext parent = span.getParentSpanContext();
+        putBytes(parent.isValid() ? parent.getSpanIdBytes() : NO_SPAN_ID);
+        putByte(context.getTraceFlags().asByte());
+        putByte((byte) span.getKind().ordinal());
+        putByte((byte) span.getStatus().getStatusCode().ordinal());
+        putLong(span.getStartEpochNanos());
+        putLong(span.getEndEpochNanos());
+        putString(span.getName());
+        putString(span.getStatus().getDescription());
+        putAttributes(span.getAttributes());
+
+        List<EventData> events = span.getEvents();
+        putInt(events.size());
+        for (EventData event : events) {
+            putString(event.getName());
+            putLong(event.getEpochNanos());
+            putAttributes(event.getAttributes());
+        }
+        List<LinkData> links = span.getLinks();
+        putInt(links.size());
+        for (LinkData link : links) {
+            putBytes(link.getSpanContext().getTraceIdBytes());
+            putBytes(link.getSpanContext().getSpanIdBytes());
+            putAttributes(link.getAttributes());
+        }
+    }
+
+    private void putAttributes(Attributes attributes) {
+        putInt(attributes.size());
+        attributes.forEach(this::putAttribute);
+    }
+
+    private void putAttribute(AttributeKey<?> key, Object value) {
+        putString(key.getKey());
+        switch (key.getType()) {
+            case STRING -> {
+                putByte(VALUE_STRING);
+                putString((String) value);
+            }
+            case BOOLEAN -> {
+                putByte(VALUE_BOOLEAN);
+                putByte((byte) ((Boolean) value ? 1 : 0));
+            }
+            case LONG -> {
+                putByte(VALUE_LONG);
+                putLong((Long) value);
+            }
+            case DOUBLE -> {
+                putByte(VALUE_DOUBLE);
+                putDouble((Double) value);
+            }
+            case STRING_ARRAY -> {
+                putByte(VALUE_STRING_ARRAY);
+                List<?> list = (List<?>) value;
+                putInt(list.size());
+                list.forEach(v -> putString((String) v));
+            }
+            case BOOLEAN_ARRAY -> {
+                putByte(VALUE_BOOLEAN_ARRAY);
+                List<?> list = (List<?>) value;
+                putInt(list.size());
+                list.forEach(v -> putByte((byte) ((Boolean) v ? 1 : 0)));
+            }
+            case LONG_ARRAY -> {
+                putByte(VALUE_LONG_ARRAY);
+                List<?> list = (List<?>) value;
+                putInt(list.size());
+                list.forEach(v -> putLong((Long) v));
+            }
+            case DOUBLE_ARRAY -> {
+                putByte(VALUE_DOUBLE_ARRAY);
+                List<?> list = (List<?>) value;
+                putInt(list.size());
+                list.forEach(v -> putDouble((Double) v));
+            }
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    private void putByte(byte value) {
+        ensure(1);
+        record.put(value);
+    }
+
+    private void putInt(int value) {
+        ensure(Integer.BYTES);
+        record.putInt(value);
+    }
+
+    private void putLong(long value) {
+        ensure(Long.BYTES);
+        record.putLong(value);
+    }
+
+    private void putDouble(double value) {
+        ensure(Double.BYTES);
+        record.putDouble(value);
+    }
+
+    private void putBytes(byte[] value) {
+        ensure(value.length);
+        record.put(value);
+    }
+
+    // Unsigned short length and UTF-8 bytes, null is written as empty, longer strings are truncated on a character
+    private void putString(String value) {
+        byte[] bytes = value == null ? NO_BYTES : value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length > MAX_STRING_BYTES) {
+            length = MAX_STRING_BYTES;
+            while ((bytes[length] & 0xc0) == 0x80) {  // a continuation byte, the cut would split its sequence
+                length--;
+            }
+        }
+        ensure(Short.BYTES + length);
+        record.putShort((short) length);
+        record.put(bytes, 0, length);
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SpanJournalReader
+ */
+
+package com.solace.samples.features.distributedtracing.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.solace.samples.features.distributedtracing.journal.SpanJournalExporter.*;
+
+/**
+ * Reads one segment written by {@link SpanJournalExporter} record by record and renders each record as an OTLP JSON
+ * fragment (the protobuf JSON mapping: hex trace and span IDs, 64 bit integers and timestamps as strings).
+ * <p>
+ * Resource and scope ids are only unique within a segment. A segment that is still being written can be read: the
+ * reader stops at the first record whose length is not written yet.
+ */
+public class SpanJournalReader implements AutoCloseable {
+
+    /** Receives the records of a segment in the order they were written. */
+    public interface Handler {
+
+        /** @param json the {@code "resource":{...},"schemaUrl":"..."} members of a {@code ResourceSpans} */
+        void resource(int id, String json);
+
+        /** @param json the {@code "scope":{...},"schemaUrl":"..."} members of a {@code ScopeSpans} */
+        void scope(int id, String json);
+
+        /** @param json a {@code Span} object */
+        void span(int resourceId, int scopeId, String json);
+    }
+
+    private static final String[] HEX = new String[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HEX[i] = String.format("%02x", i);
+        }
+    }
+
+    private final File file;
+    private ByteBuffer segment;
+    private final StringBuilder json = new StringBuilder(1024);
+    private long recordsRead = 0;
+
+    public SpanJournalReader(File file) throws IOException {
+        this.file = file;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        byte[] magic = new byte[MAGIC.length];
+        if (segment.remaining() < HEADER_SIZE) {
+            throw new IOException(file + " is not a span journal segment");
+        }
+        segment.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(file + " is not a span journal segment");
+        }
+        int version = segment.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported span journal version " + version + " in " + file);
+        }
+    }
+
+    /**
+     * Reads the next record and passes it to the handler.
+     *
+     * @return false at the end of the segment
+     */
+    public boolean next(Handler handler) throws IOException {
+        if (segment.remaining() < Integer.BYTES) {
+            return false;
+        }
+        int length = segment.getInt();
+        if (length == 0) {
+            return false;
+        }
+        if (length < 0 || length > segment.remaining()) {
+            throw new IOException("Corrupt record length " + length + " at offset " + (segment.position() - Integer.BYTES)
+                    + " in " + file);
+        }
+        int end = segment.position() + length;
+        byte type = segment.get();
+        json.setLength(0);
+        switch (type) {
+            case RECORD_RESOURCE -> {
+                int id = segment.getInt();
+                String schemaUrl = getString();
+                json.append("\"resource\":{");
+                attributes();
+                json.append('}');
+                schemaUrl(schemaUrl);
+                handler.resource(id, json.toString());
+            }
+            case RECORD_SCOPE -> {
+                int id = segment.getInt();
+                json.append("\"scope\":{\"name\":");
+                string(getString());
+                String version = getString();
+                if (!version.isEmpty()) {
+                    json.append(",\"version\":");
+                    string(version);
+                }
+                String schemaUrl = getString();
+                json.append(',');
+                attributes();
+                json.append('}');
+                schemaUrl(schemaUrl);
+                handler.scope(id, json.toString());
+            }
+            case RECORD_SPAN -> {
+                int resourceId = segment.getInt();
+                int scopeId = segment.getInt();
+                span();
+                handler.span(resourceId, scopeId, json.toString());
+            }
+            default -> throw new IOException("Unknown record type " + type + " in " + file);
+        }
+        segment.position(end);
+        recordsRead++;
+        return true;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    @Override
+    public void close() {
+        segment = null;  // the mapping is released when the buffer is collected
+    }
+
+    private void span() {
+        json.append("{\"traceId\":\"");
+        hex(16);
+        json.append("\",\"spanId\":\"");
+        hex(8);
+        json.append('"');
+        int parent = segment.position();
+        boolean hasParent = false;
+        for (int i = 0; i < 8; i++) {
+            hasParent |= segment.get(parent + i) != 0;
+        }
+        if (hasParent) {
+            json.append(",\"parentSpanId\":\"");
+            hex(8);
+            json.append('"');
+        } else {
+            segment.position(parent + 8);
+        }
+        json.append(",\"flags\":").append(segment.get() & 0xff);
+        int kind = segment.get() + 1;  // SpanKind ordinal to OTLP, which starts with UNSPECIFIED
+        int statusCode = segment.get(); // StatusCode ordinals match OTLP
+        long start = segment.getLong();
+        long end = segment.getLong();
+        json.append(",\"name\":");
+        string(getString());
+        json.append(",\"kind\":").append(kind);
+        json.append(",\"startTimeUnixNano\":\"").append(start).append('"');
+        json.append(",\"endTimeUnixNano\":\"").append(end).append('"');
+        String statusMessage = getString();
+        json.append(',');
+        attributes();
+
+        int events = segment.getInt();
+        if (events > 0) {
+            json.append(",\"events\":[");
+            for (int i = 0; i < events; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"name\":");
+                string(getString());
+                json.append(",\"timeUnixNano\":\"").append(segment.getLong()).append("\",");
+                attributes();
+                json.append('}');
+            }
+            json.append(']');
+        }
+        int links = segment.getInt();
+        if (links > 0) {
+            json.append(",\"links\":[");
+            for (int i = 0; i < links; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"traceId\":\"");
+                hex(16);
+                json.append("\",\"spanId\":\"");
+                hex(8);
+                json.append("\",");
+                attributes();
+                json.append('}');
+            }
+            json.append(']');
+        }
+        json.append(",\"status\":{\"code\":").append(statusCode);
+        if (!statusMessage.isEmpty()) {
+            json.append(",\"message\":");
+            string(statusMessage);
+        }
+        json.append("}}");
+    }
+
+    private void attributes() {
+        int count = segment.getInt();
+        json.append("\"attributes\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"key\":");
+            string(getString());
+            json.append(",\"value\":");
+            byte type = segment.get();
+            switch (type) {
+                case VALUE_STRING_ARRAY, VALUE_BOOLEAN_ARRAY, VALUE_LONG_ARRAY, VALUE_DOUBLE_ARRAY -> {
+                    int size = segment.getInt();
+                    json.append("{\"arrayValue\":{\"values\":[");
+                    for (int j = 0; j < size; j++) {
+                        if (j > 0) {
+                            json.append(',');
+                        }
+                        value((byte) (type - VALUE_STRING_ARRAY + VALUE_STRING));
+                    }
+                    json.append("]}}");
+                }
+                default -> value(type);
+            }
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private void value(byte type) {
+        switch (type) {
+            case VALUE_STRING -> {
+                json.append("{\"stringValue\":");
+                string(getString());
+                json.append('}');
+            }
+            case VALUE_BOOLEAN -> json.append("{\"boolValue\":").append(segment.get() != 0).append('}');
+            case VALUE_LONG -> json.append("{\"intValue\":\"").append(segment.getLong()).append("\"}");
+            case VALUE_DOUBLE -> {
+                double value = segment.getDouble();
+                json.append("{\"doubleValue\":");
+                if (Double.isFinite(value)) {
+                    json.append(value);
+                } else {
+                    json.append('"').append(value).append('"');  // NaN and Infinity as in the protobuf JSON mapping
+                }
+                json.append('}');
+            }
+            default -> throw new IllegalStateException("Unknown value type " + type + " in " + file);
+        }
+    }
+
+    private void schemaUrl(String schemaUrl) {
+        if (!schemaUrl.isEmpty()) {
+            json.append(",\"schemaUrl\":");
+            string(schemaUrl);
+        }
+    }
+
+    private void hex(int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            json.append(HEX[segment.get() & 0xff]);
+        }
+    }
+
+    private String getString() {
+        int length = segment.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        segment.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void string(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SpanJournalToOtlpJson
+ */
+
+package com.solace.samples.features.distributedtracing.journal;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts span journal segments written by {@link SpanJournalExporter} to OTLP JSON, one
+ * {@code ExportTraceServiceRequest} per line, as read by the collector's {@code otlpjsonfile} receiver or sent with
+ * {@code curl} to an OTLP/HTTP endpoint.
+ * <p>
+ * Usage: {@code SpanJournalToOtlpJson <journal-dir|segment-file>... [-out <file>] [-batch <spans-per-line>]}
+ */
+public class SpanJournalToOtlpJson implements SpanJournalReader.Handler {
+
+    private final Writer out;
+    private final int batchSize;
+
+    // per segment: resource and scope ids are only unique within a segment
+    private final Map<Integer, String> resources = new HashMap<>();
+    private final Map<Integer, String> scopes = new HashMap<>();
+    private final Map<Long, List<String>> pending = new LinkedHashMap<>();
+    private int pendingSpans = 0;
+
+    private long spans = 0;
+    private long lines = 0;
+
+    SpanJournalToOtlpJson(Writer out, int batchSize) {
+        this.out = out;
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String... args) throws IOException {
+        List<File> inputs = new ArrayList<>();
+        String outFile = null;
+        int batchSize = 1000;
+        for (int i = 0; i < args.length; i++) {
+            if ("-out".equals(args[i]) && i + 1 < args.length) {
+                outFile = args[++i];
+            } else if ("-batch".equals(args[i]) && i + 1 < args.length) {
+                batchSize = Integer.parseInt(args[++i]);
+            } else {
+                inputs.add(new File(args[i]));
+            }
+        }
+        if (inputs.isEmpty() || batchSize < 1) {
+            System.out.println("Usage: SpanJournalToOtlpJson <journal-dir|segment-file>... [-out <file>] [-batch <spans-per-line>]");
+            System.out.println();
+            System.exit(-1);
+        }
+
+        List<File> segments = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                segments.addAll(List.of(SpanJournalExporter.segments(input)));
+            } else {
+                segments.add(input);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                outFile == null ? System.out : new FileOutputStream(outFile), StandardCharsets.UTF_8), 65536);
+        SpanJournalToOtlpJson converter = new SpanJournalToOtlpJson(writer, batchSize);
+        try {
+            for (File segment : segments) {
+                converter.convert(segment);
+            }
+        } finally {
+            writer.flush();
+            if (outFile != null) {
+                writer.close();
+            }
+        }
+        System.err.printf("Converted %,d spans from %,d segments into %,d lines in %,d ms%n",
+                converter.spans, segments.size(), converter.lines, System.currentTimeMillis() - start);
+    }
+
+    void convert(File file) throws IOException {
+        resources.clear();
+        scopes.clear();
+        try (SpanJournalReader reader = new SpanJournalReader(file)) {
+            while (reader.next(this)) {
+                if (pendingSpans >= batchSize) {
+                    writeLine();
+                }
+            }
+        }
+        writeLine();
+    }
+
+    @Override
+    public void resource(int id, String json) {
+        resources.put(id, json);
+    }
+
+    @Override
+    public void scope(int id, String json) {
+        scopes.put(id, json);
+    }
+
+    @Override
+    public void span(int resourceId, int scopeId, String json) {
+        pending.computeIfAbsent(((long) resourceId << 32) | scopeId, k -> new ArrayList<>()).add(json);
+        pendingSpans++;
+        spans++;
+    }
+
+    // Writes the pending spans, grouped by resource and scope, as one ExportTraceServiceRequest
+    private void writeLine() throws IOException {
+        if (pendingSpans == 0) {
+            return;
+        }
+        Map<Integer, List<Map.Entry<Long, List<String>>>> byResource = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<String>> entry : pending.entrySet()) {
+            byResource.computeIfAbsent((int) (entry.getKey() >>> 32), k -> new ArrayList<>()).add(entry);
+        }
+        out.write("{\"resourceSpans\":[");
+        boolean firstResource = true;
+        for (Map.Entry<Integer, List<Map.Entry<Long, List<String>>>> resource : byResource.entrySet()) {
+            out.write(firstResource ? "{" : ",{");
+            firstResource = false;
+            out.write(resources.getOrDefault(resource.getKey(), "\"resource\":{}"));
+            out.write(",\"scopeSpans\":[");
+            boolean firstScope = true;
+            for (Map.Entry<Long, List<String>> scope : resource.getValue()) {
+                out.write(firstScope ? "{" : ",{");
+                firstScope = false;
+                out.write(scopes.getOrDefault((int) (long) scope.getKey(), "\"scope\":{}"));
+                out.write(",\"spans\":[");
+                out.write(String.join(",", scope.getValue()));
+                out.write("]}");
+            }
+            out.write("]}");
+        }
+        out.write("]}\n");
+        lines++;
+        pending.clear();
+        pendingSpans = 0;
+    }
+}
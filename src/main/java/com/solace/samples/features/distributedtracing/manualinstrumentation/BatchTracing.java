@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import javax.jms.Message;
+
+/**
+ * Traces consumers that process messages in batches: one processing span per batch instead of a receive and a
+ * processing span per message, so the consumer's span count scales with batches, not messages.
+ * <p>
+ * End-to-end traceability is kept with span links: the batch span links to the publisher span extracted from each
+ * message. Links are capped at {@code maxLinks}. For larger batches a uniform random sample of {@code maxLinks}
+ * messages is linked (reservoir sampling), and the number of messages left unlinked is recorded on the span.
+ * <p>
+ * Not thread safe, use one instance per consuming thread.
+ */
+public class BatchTracing {
+
+	static final AttributeKey<Long> UNLINKED_MESSAGES = AttributeKey.longKey("com.acme.batch.unlinked_messages");
+
+	private final Tracer tracer;
+	private final TextMapPropagator propagator;
+	private final int maxLinks;
+	private final SpanContext[] links;
+
+	/**
+	 * @param tracer     creates the batch spans
+	 * @param propagator extracts the publisher context of each message
+	 * @param maxLinks   most links per batch span
+	 */
+	public BatchTracing(Tracer tracer, TextMapPropagator propagator, int maxLinks) {
+		if (maxLinks < 1) {
+			throw new IllegalArgumentException("maxLinks must be at least 1, was " + maxLinks);
+		}
+		this.tracer = tracer;
+		this.propagator = propagator;
+		this.maxLinks = maxLinks;
+		this.links = new SpanContext[maxLinks];
+	}
+
+	/**
+	 * Processes a batch under a single CONSUMER span linked to the messages' publisher spans. A processor exception
+	 * is recorded on the span and rethrown.
+	 */
+	public void traceAndProcess(List<Message> batch, String destinationName, Consumer<List<Message>> batchProcessor) {
+		if (!TracingUtil.ENABLED) {
+			batchProcessor.accept(batch);
+			return;
+		}
+
+		// Reservoir of the publisher contexts to link: the first maxLinks, then each later one replaces a random
+		// slot with probability maxLinks/seen, so every message has the same chance to be linked
+		int seen = 0;
+		for (Message message : batch) {
+			SpanContext parent = Span.fromContext(propagator.extract(Context.root(), message, TracingUtil.GETTER))
+					.getSpanContext();
+			if (!parent.isValid()) {
+				continue;
+			}
+			if (seen < maxLinks) {
+				links[seen] = parent;
+			} else {
+				int slot = ThreadLocalRandom.current().nextInt(seen + 1);
+				if (slot < maxLinks) {
+					links[slot] = parent;
+				}
+			}
+			seen++;
+		}
+		int linked = Math.min(seen, maxLinks);
+
+		SpanBuilder builder = tracer.spanBuilder("Product Update > Process batch")
+				.setSpanKind(SpanKind.CONSUMER)
+				.setNoParent()  // a batch has many parents, they are links
+				.setAllAttributes(TracingUtil.RECEIVE_ATTRIBUTES)
+				.setAttribute(SemanticAttributes.MESSAGING_OPERATION, "process")
+				.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, destinationName)
+				.setAttribute(SemanticAttributes.MESSAGING_BATCH_MESSAGE_COUNT, (long) batch.size())
+				.setAttribute(UNLINKED_MESSAGES, (long) (batch.size() - linked));
+		for (int i = 0; i < linked; i++) {
+			builder.addLink(links[i]);
+			links[i] = null;
+		}
+		Span batchSpan = builder.startSpan();
+
+		try (Scope scope = batchSpan.makeCurrent()) {
+			batchProcessor.accept(batch);
+		} catch (RuntimeException e) {
+			batchSpan.recordException(e);
+			SamplingPolicy.setError(batchSpan, e.getClass().getName(), e.getMessage());
+			throw e;
+		} finally {
+			batchSpan.end();
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import com.solace.opentelemetry.javaagent.jms.SolaceJmsW3CTextMapGetter;
+import com.solace.opentelemetry.javaagent.jms.SolaceJmsW3CTextMapSetter;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.BaggageBuilder;
+import io.opentelemetry.api.baggage.BaggageEntry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceId;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.BiConsumer;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Propagates the trace context (and small baggage) in a single compact message property, {@value #PROPERTY}, instead
+ * of the W3C {@code traceparent}/{@code baggage} text and the {@code otel_parent_*} copies added by the publishers.
+ * <p>
+ * Layout of the property value, version 1, before Base64 (URL alphabet, no padding, as JMS properties can't hold
+ * {@code byte[]}):
+ * <pre>
+ *   0      version (1)
+ *   1      options, bit 0: baggage or trace state did not fit and was sent the W3C way
+ *   2      trace flags
+ *   3-18   trace ID
+ *   19-26  span ID
+ *   27-    optional baggage, per entry: key length, key, value length, value (UTF-8, lengths one byte)
+ * </pre>
+ * Without baggage the value is always 36 characters. Baggage is only carried up to {@value #MAX_BAGGAGE_BYTES} bytes.
+ * Larger baggage, baggage metadata and a non-empty trace state are left to the W3C propagator.
+ * <p>
+ * For interoperability with consumers that only understand W3C, the propagator can inject the W3C context as well
+ * ({@link Mode#COMPACT_AND_W3C}). On extraction the compact property is preferred and W3C is the fallback, so a
+ * consumer using this propagator understands both kinds of publisher.
+ * <p>
+ * Use {@link #SETTER} and {@link #GETTER} as carrier accessors: they handle {@value #PROPERTY} as a plain string
+ * property and hand every other key to the Solace W3C setter/getter.
+ */
+public final class CompactTraceContextPropagator implements TextMapPropagator {
+
+	public static final String PROPERTY = "otel_ctx";
+
+	public static final TextMapSetter<Message> SETTER = new JmsSetter(new SolaceJmsW3CTextMapSetter());
+	public static final TextMapGetter<Message> GETTER = new JmsGetter(new SolaceJmsW3CTextMapGetter());
+
+	static final byte VERSION = 1;
+	static final int HEADER_SIZE = 27;
+	static final int MAX_BAGGAGE_BYTES = 128;
+	private static final int OPTION_W3C = 0x01;
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+	private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[HEADER_SIZE + MAX_BAGGAGE_BYTES]);
+
+	public enum Mode {
+		/** Only the compact property, W3C is injected only for what doesn't fit. */
+		COMPACT,
+		/** The compact property and the full W3C context, for consumers that don't know the compact form. */
+		COMPACT_AND_W3C
+	}
+
+	private final TextMapPropagator w3c;
+	private final Mode mode;
+	private final Collection<String> fields;
+
+	/**
+	 * @param w3c  the W3C context and baggage propagator used as fallback, e.g. the Solace JMS ones
+	 * @param mode what to inject
+	 */
+	public CompactTraceContextPropagator(TextMapPropagator w3c, Mode mode) {
+		this.w3c = w3c;
+		this.mode = mode;
+		String[] all = w3c.fields().toArray(new String[0]);
+		all = Arrays.copyOf(all, all.length + 1);
+		all[all.length - 1] = PROPERTY;
+		this.fields = Collections.unmodifiableList(Arrays.asList(all));
+	}
+
+	@Override
+	public Collection<String> fields() {
+		return fields;
+	}
+
+	@Override
+	public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+		if (context == null || setter == null) {
+			return;
+		}
+		SpanContext spanContext = Span.fromContext(context).getSpanContext();
+		if (!spanContext.isValid()) {
+			w3c.inject(context, carrier, setter);  // baggage only, if any
+			return;
+		}
+		byte[] buffer = BUFFER.get();
+		int length = encode(spanContext, Baggage.fromContext(context), buffer);
+		setter.set(carrier, PROPERTY, ENCODER.encodeToString(length == buffer.length ? buffer : Arrays.copyOf(buffer, length)));
+		if (mode == Mode.COMPACT_AND_W3C || (buffer[1] & OPTION_W3C) != 0) {
+			w3c.inject(context, carrier, setter);
+		}
+	}
+
+	@Override
+	public <C> Context extract(Context context, C carrier, TextMapGetter<C> getter) {
+		if (context == null) {
+			context = Context.root();
+		}
+		if (getter == null) {
+			return context;
+		}
+		String value = getter.get(carrier, PROPERTY);
+		if (value == null) {
+			return w3c.extract(context, carrier, getter);
+		}
+		byte[] bytes;
+		try {
+			bytes = DECODER.decode(value);
+		} catch (IllegalArgumentException e) {
+			return w3c.extract(context, carrier, getter);
+		}
+		Context decoded = decode(context, bytes);
+		if (decoded == null) {
+			return w3c.extract(context, carrier, getter);
+		}
+		if ((bytes[1] & OPTION_W3C) != 0) {
+			// What didn't fit (baggage, trace state) was sent the W3C way
+			decoded = w3c.extract(decoded, carrier, getter);
+		}
+		return decoded;
+	}
+
+	/**
+	 * Encodes the span context and, if it fits, the baggage into {@code buffer}.
+	 *
+	 * @return the number of bytes written
+	 */
+	static int encode(SpanContext spanContext, Baggage baggage, byte[] buffer) {
+		int options = spanContext.getTraceState().isEmpty() ? 0 : OPTION_W3C;
+		buffer[0] = VERSION;
+		buffer[2] = spanContext.getTraceFlags().asByte();
+		System.arraycopy(spanContext.getTraceIdBytes(), 0, buffer, 3, 16);
+		System.arraycopy(spanContext.getSpanIdBytes(), 0, buffer, 19, 8);
+		int length = HEADER_SIZE;
+		if (!baggage.isEmpty()) {
+			BaggageWriter writer = new BaggageWriter(buffer);
+			baggage.forEach(writer);
+			if (writer.overflow) {
+				options |= OPTION_W3C;
+			} else {
+				length = writer.position;
+			}
+		}
+		buffer[1] = (byte) options;
+		return length;
+	}
+
+	/**
+	 * @return {@code parent} with the decoded remote span context and baggage, null if the bytes are not a valid
+	 *         version 1 value
+	 */
+	static Context decode(Context parent, byte[] bytes) {
+		if (bytes.length < HEADER_SIZE || bytes[0] != VERSION) {
+			return null;
+		}
+		SpanContext spanContext = SpanContext.createFromRemoteParent(
+				TraceId.fromBytes(Arrays.copyOfRange(bytes, 3, 19)),
+				SpanId.fromBytes(Arrays.copyOfRange(bytes, 19, 27)),
+				TraceFlags.fromByte(bytes[2]),
+				TraceState.getDefault());
+		if (!spanContext.isValid()) {
+			return null;
+		}
+		Context context = parent.with(Span.wrap(spanContext));
+		if (bytes.length > HEADER_SIZE) {
+			BaggageBuilder builder = Baggage.builder();
+			int position = HEADER_SIZE;
+			while (position < bytes.length) {
+				int keyLength = bytes[position++] & 0xff;
+				if (position + keyLength >= bytes.length) {
+					return null;
+				}
+				String key = new String(bytes, position, keyLength, StandardCharsets.UTF_8);
+				position += keyLength;
+				int valueLength = bytes[position++] & 0xff;
+				if (position + valueLength > bytes.length) {
+					return null;
+				}
+				builder.put(key, new String(bytes, position, valueLength, StandardCharsets.UTF_8));
+				position += valueLength;
+			}
+			context = context.with(builder.build());
+		}
+		return context;
+	}
+
+	@Override
+	public String toString() {
+		return "CompactTraceContextPropagator{mode=" + mode + ", w3c=" + w3c + "}";
+	}
+
+	private static final class BaggageWriter implements BiConsumer<String, BaggageEntry> {
+		private final byte[] buffer;
+		int position = HEADER_SIZE;
+		boolean overflow;
+
+		BaggageWriter(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void accept(String key, BaggageEntry entry) {
+			if (overflow) {
+				return;
+			}
+			if (!entry.getMetadata().getValue().isEmpty()) {
+				overflow = true;
+				return;
+			}
+			byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+			byte[] valueBytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+			if (keyBytes.length > 255 || valueBytes.length > 255
+					|| position + 2 + keyBytes.length + valueBytes.length > buffer.length) {
+				overflow = true;
+				return;
+			}
+			buffer[position++] = (byte) keyBytes.length;
+			System.arraycopy(keyBytes, 0, buffer, position, keyBytes.length);
+			position += keyBytes.length;
+			buffer[position++] = (byte) valueBytes.length;
+			System.arraycopy(valueBytes, 0, buffer, position, valueBytes.length);
+			position += valueBytes.length;
+		}
+	}
+
+	/** Sets {@value #PROPERTY} as a string property, delegates anything else. */
+	private static final class JmsSetter implements TextMapSetter<Message> {
+		private final TextMapSetter<Message> delegate;
+
+		JmsSetter(TextMapSetter<Message> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void set(Message message, String key, String value) {
+			if (message == null) {
+				return;
+			}
+			if (PROPERTY.equals(key)) {
+				try {
+					message.setStringProperty(PROPERTY, value);
+				} catch (JMSException e) {
+					System.out.println("### Unable to set " + PROPERTY + ": " + e);
+				}
+			} else {
+				delegate.set(message, key, value);
+			}
+		}
+	}
+
+	/** Reads {@value #PROPERTY} as a string property, delegates anything else. */
+	private static final class JmsGetter implements TextMapGetter<Message> {
+		private final TextMapGetter<Message> delegate;
+
+		JmsGetter(TextMapGetter<Message> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Iterable<String> keys(Message message) {
+			return delegate.keys(message);
+		}
+
+		@Override
+		public String get(Message message, String key) {
+			if (message == null) {
+				return null;
+			}
+			if (PROPERTY.equals(key)) {
+				try {
+					return message.getStringProperty(PROPERTY);
+				} catch (JMSException e) {
+					return null;
+				}
+			}
+			return delegate.get(message, key);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The measurement loop shared by the tracing benchmarks: runs an operation a fifth of the count as warm-up, then the
+ * full count, and reports the time and the bytes allocated by the calling thread per operation.
+ */
+final class Microbenchmark {
+
+	/** An operation to measure, which may throw. */
+	@FunctionalInterface
+	interface Operation {
+		void run() throws Exception;
+	}
+
+	/** Time and allocation per operation. */
+	static final class Result {
+		final double nanos;
+		final double bytes;
+
+		Result(double nanos, double bytes) {
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+	}
+
+	private Microbenchmark() {
+	}
+
+	static Result measure(int operations, Operation operation) throws Exception {
+		for (int i = 0; i < operations / 5; i++) {  // warm-up
+			operation.run();
+		}
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			operation.run();
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - bytesBefore;
+		return new Result((double) elapsed / operations, (double) allocated / operations);
+	}
+
+	/** Bytes allocated by the calling thread so far. */
+	static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+}
@@ -19,7 +19,6 @@
 
 package com.solace.samples.features.distributedtracing.manualinstrumentation;
 
-import com.solace.opentelemetry.javaagent.jms.SolaceJmsW3CTextMapGetter;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
 import javax.jms.Connection;
@@ -28,21 +27,21 @@ import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.Queue;
 import javax.jms.Session;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 
 //OpenTelemetry Instrumentation Imports:
-import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.baggage.Baggage;
-import io.opentelemetry.api.baggage.BaggageEntry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
-import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapPropagator;
 import io.opentelemetry.semconv.SemanticAttributes;
 
 /**
@@ -57,6 +56,17 @@ public class QueueSubscriber {
 
   private static final String SERVICE_NAME = "Abc System [DEV]";
 
+  // Application specific attribute keys, created once instead of per span
+  private static final AttributeKey<String> RECEIVE_KEY = AttributeKey.stringKey("com.acme.product_update.receive_key.1");
+  private static final AttributeKey<String> PROCESSING_KEY =
+      AttributeKey.stringKey("com.acme.product_update.processing_key.1");
+
+  // Batch mode, -Dtracing.batch=N: messages are processed N at a time under one span linked to each message's
+  // publisher span (at most -Dtracing.batch.maxLinks, default 128) instead of two spans per message
+  private static final int BATCH_SIZE = Integer.getInteger("tracing.batch", 0);
+  private static final int BATCH_MAX_LINKS = Integer.getInteger("tracing.batch.maxLinks", 128);
+  private static final long BATCH_WAIT_MILLIS = 100;
+
   // Latch used for synchronizing between threads
   final CountDownLatch latch = new CountDownLatch(1);
 
@@ -99,8 +109,9 @@ public class QueueSubscriber {
       // Use the getter to extract OpenTelemetry context from the received message. (e.g. Parent Trace ID)
       // (It is always advised to extract context before injecting new one.) 
       // The SolaceJCSMPTextMapGetter handles extraction from Solace SMF messages that can embed OTEL.
-      final OpenTelemetry openTelemetry = GlobalOpenTelemetry.get();
+      final OpenTelemetry openTelemetry = TracingUtil.openTelemetry();  // no-op with -Dtracing.enabled=false
       final Tracer tracer = openTelemetry.getTracer(SERVICE_NAME);
+      final TextMapPropagator propagator = openTelemetry.getPropagators().getTextMapPropagator();
       
       // Create the queue programmatically and the corresponding router resource
       // will also be created dynamically because DynamicDurables is enabled.
@@ -114,18 +125,22 @@ public class QueueSubscriber {
         log("New message received:%n%s%n", message.toString());
       };
 
-      // Use the anonymous inner class for receiving messages asynchronously
-      messageConsumer.setMessageListener(message -> {
-        traceAndProcess(message, consoleLogger, messageDestination, openTelemetry, tracer);
-        latch.countDown();  // this sample is for only one message... typically, delete latch & receive lots of messages
-      });
-
-      // Start receiving messages
-      connection.start();
-      log("Awaiting message...");
-
-      // the main thread blocks at the next statement until a message received
-      latch.await();
+      if (BATCH_SIZE > 0) {
+        receiveBatch(connection, messageConsumer, messageDestination, propagator, tracer);
+      } else {
+        // Use the anonymous inner class for receiving messages asynchronously
+        messageConsumer.setMessageListener(message -> {
+          traceAndProcess(message, consoleLogger, messageDestination, propagator, tracer);
+          latch.countDown();  // this sample is for only one message... typically, delete latch & receive lots of messages
+        });
+
+        // Start receiving messages
+        connection.start();
+        log("Awaiting message...");
+
+        // the main thread blocks at the next statement until a message received
+        latch.await();
+      }
       Thread.sleep(1500);  // give time for ACK and OTel to be flushed before disconnecting.
       connection.stop();
       messageConsumer.close();
@@ -133,108 +148,118 @@ public class QueueSubscriber {
     }
   }
 
+  // Receives one batch: waits for a first message, then takes what arrives within BATCH_WAIT_MILLIS, up to BATCH_SIZE
+  void receiveBatch(Connection connection, MessageConsumer messageConsumer, Queue messageDestination,
+      TextMapPropagator propagator, Tracer tracer) throws JMSException {
+    final BatchTracing batchTracing = new BatchTracing(tracer, propagator, BATCH_MAX_LINKS);
+    final List<Message> batch = new ArrayList<>(BATCH_SIZE);
+
+    connection.start();
+    log("Awaiting a batch of up to %d messages...", BATCH_SIZE);
+    final Message first = messageConsumer.receive();
+    if (first == null) {
+      return;  // consumer closed
+    }
+    batch.add(first);
+    final long deadline = System.currentTimeMillis() + BATCH_WAIT_MILLIS;
+    while (batch.size() < BATCH_SIZE) {
+      final long remaining = deadline - System.currentTimeMillis();
+      final Message message = remaining > 0 ? messageConsumer.receive(remaining) : messageConsumer.receiveNoWait();
+      if (message == null) {
+        break;
+      }
+      batch.add(message);
+    }
+
+    batchTracing.traceAndProcess(batch, messageDestination.getQueueName(),
+        messages -> log("Processed a batch of %d messages%n", messages.size()));
+  }
+
   void traceAndProcess(Message receivedMessage, Consumer<Message> messageProcessor,
-      Queue messageDestination, OpenTelemetry openTelemetry, Tracer tracer) {
-
-	  
-  	// Use the getter to extract OpenTelemetry context from the received message. (e.g. Parent Trace ID)
-  	// (It is always advised to extract context before injecting new one.) 
-  	// The SolaceJmsW3CTextMapGetter handles extraction from Solace JMS messages that can embed OTEL.	  
-    final SolaceJmsW3CTextMapGetter getter = new SolaceJmsW3CTextMapGetter();
-    
-    final Context extractedContext = openTelemetry.getPropagators()
-    		.getTextMapPropagator()
-    		.extract(Context.current(), receivedMessage, getter);
-    
+      Queue messageDestination, TextMapPropagator propagator, Tracer tracer) {
+
+    // Tracing disabled: straight to the processor, no span or context objects
+    if (!TracingUtil.ENABLED) {
+      messageProcessor.accept(receivedMessage);
+      return;
+    }
+
+    // Use the getter to extract OpenTelemetry context from the received message. (e.g. Parent Trace ID)
+    // (It is always advised to extract context before injecting new one.)
+    // The shared SolaceJmsW3CTextMapGetter handles extraction from Solace JMS messages that can embed OTEL.
+    final Context extractedContext = propagator.extract(Context.current(), receivedMessage, TracingUtil.GETTER);
+
     // Set the extracted context as current context as starting point
     try (Scope scope = extractedContext.makeCurrent()) {
-    	
+
       // Create a child span to signal the message receive and set extracted/current context as parent of this span
       final Span receiveSpan = tracer
-          .spanBuilder("Product Update > Received")		// The name as seen in the OTEL visualisation.
-          .setSpanKind(SpanKind.CONSUMER)				// A broad identifier of the type of operation
-          
-          // Optional: user defined Span attributes
-          // dot separated, snake_case is the convention, keeping to a fixed 'something.*' name space too for custom ones.
-          // See: https://opentelemetry.io/docs/specs/semconv/general/attribute-naming/
-
-          // Some runtime attributes to include:
-          .setAttribute("env", "Development")
-          .setAttribute("user.name", System.getProperty("user.name"))
-          .setAttribute("java.version", System.getProperty("java.version"))
-          .setAttribute("os.name", System.getProperty("os.name"))
-          
+          .spanBuilder("Product Update > Received")    // The name as seen in the OTEL visualisation.
+          .setSpanKind(SpanKind.CONSUMER)              // A broad identifier of the type of operation
+
+          // Runtime attributes (env, user.name, java.version, os.name) don't change per message,
+          // they are set once on the Resource in TracingUtil.
+
           // Some transport attributes to include, in the SemanticAttributes name space:
           // See: https://opentelemetry.io/docs/specs/semconv/general/trace/
+          // The constant ones are prebuilt once in TracingUtil, only the destination is set per message.
+          .setAllAttributes(TracingUtil.RECEIVE_ATTRIBUTES)
+          .setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, messageDestination.getQueueName())
 
-          .setAttribute(SemanticAttributes.MESSAGING_SYSTEM, "solace")
-          .setAttribute(SemanticAttributes.MESSAGING_OPERATION, "receive")
-          .setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, receivedMessage.getJMSDestination().toString())
-          .setAttribute(SemanticAttributes.NET_PROTOCOL_NAME, "smf")
-          
-          // Example attribute setting in a given namespace, information specific to this application 
-          .setAttribute("com.acme.product_update.receive_key.1", "myValue1")
+          // Example attribute setting in a given namespace, information specific to this application
+          .setAttribute(RECEIVE_KEY, "myValue1")
           //.setAttribute(...)
-          
+
           // creates a parent child relationship to a message publisher's application span if any
           .setParent(extractedContext)
           .startSpan();
 
       // Any OTEL Baggage (business level meta data) propagated in the context?
-      Baggage receivedTelemetryBaggage = Baggage.fromContext(extractedContext);
-      String receivedTelemetryBaggageStr = "";
-
-      for (Map.Entry<String, BaggageEntry> entry : receivedTelemetryBaggage.asMap().entrySet()) {
-    	  receivedTelemetryBaggageStr = receivedTelemetryBaggageStr +
-    			  entry.getKey() + "=" + receivedTelemetryBaggage.getEntryValue(entry.getKey()) + 
-    			  ",";
+      // Only formatted when it is actually logged.
+      if (TracingUtil.LOG_ENABLED) {
+        final Baggage receivedTelemetryBaggage = Baggage.fromContext(extractedContext);
+        System.out.println("Received a message with OTEL Trace ID: " + receiveSpan.getSpanContext().getTraceId() +
+            " with " + receivedTelemetryBaggage.size() + " keys found in telemetry baggage. " +
+            TracingUtil.formatBaggage(receivedTelemetryBaggage));
       }
 
-      System.out.println("Received a message with OTEL Trace ID: " + Span.current().getSpanContext().getTraceId() + 
-    		  " with " + receivedTelemetryBaggage.size() + " keys found in telemetry baggage. " + receivedTelemetryBaggageStr);
-
       //... and then we do some processing and have another child span to signal that part of the code
-      
+
       try {
-          final Span processingSpan = tracer
-              .spanBuilder("Product Update > Processed")    // The name as seen in the OTEL visualisation.
-              .setSpanKind(SpanKind.SERVER)                 // Signalling this is internal server operation now
-
-              // Set more attributes as needed for this part of the instrumentation
-              .setAttribute("com.acme.product_update.processing_key.1", "postProcessingInformation")
-
-              //.setAttribute(...)
-              .setParent(Context.current().with(receiveSpan)) // make the RECEIVE span be the parent.
-              .startSpan();
-          
-          	processingSpan.makeCurrent();
-
-          	// Processing finished, ack the message and end this span
-          	try {          		
-          		messageProcessor.accept(receivedMessage);
-          	} catch (Exception e) 
-          	{
-          		// Any exceptions in processing can also be captured in the span
-          		processingSpan.recordException(e);
-          		processingSpan.setStatus(StatusCode.ERROR, e.getMessage()); //Set span status as ERROR/FAILED
-          	} finally {
-            	// Mark the end of the span (instrumented section of code) by calling .end(). Data is then emitted.
-                processingSpan.end(); //End processSpan. Span data is exported when span.end() is called.
-          	}
+        final Span processingSpan = tracer
+            .spanBuilder("Product Update > Processed")    // The name as seen in the OTEL visualisation.
+            .setSpanKind(SpanKind.SERVER)                 // Signalling this is internal server operation now
+
+            // Set more attributes as needed for this part of the instrumentation
+            .setAttribute(PROCESSING_KEY, "postProcessingInformation")
+
+            //.setAttribute(...)
+            .setParent(extractedContext.with(receiveSpan)) // make the RECEIVE span be the parent.
+            .startSpan();
+
+        // Processing finished, ack the message and end this span
+        try (Scope processingScope = processingSpan.makeCurrent()) {
+          messageProcessor.accept(receivedMessage);
+        } catch (Exception e) {
+          // Any exceptions in processing can also be captured in the span
+          processingSpan.recordException(e);
+          SamplingPolicy.setError(processingSpan, e.getClass().getName(), e.getMessage()); //Set span status as ERROR/FAILED
+        } finally {
+          // Mark the end of the span (instrumented section of code) by calling .end(). Data is then emitted.
+          processingSpan.end(); //End processSpan. Span data is exported when span.end() is called.
+        }
       } catch (Exception e) {
-    	  // Any exceptions in processing can also be captured in the span
-    	  receiveSpan.recordException(e);
-    	  receiveSpan.setStatus(StatusCode.ERROR, e.getMessage()); //Set span status as ERROR/FAILED
-    	  e.printStackTrace();
+        // Any exceptions in processing can also be captured in the span
+        receiveSpan.recordException(e);
+        SamplingPolicy.setError(receiveSpan, e.getClass().getName(), e.getMessage()); //Set span status as ERROR/FAILED
+        e.printStackTrace();
       } finally {
-    	// Mark the end of the parent span too by calling .end(). Data is then emitted.
-    	receiveSpan.end(); 
-      } 
-      
-    } catch (JMSException e1) {
-		// TODO Auto-generated catch block
-		e1.printStackTrace();
-	}         	
+        // Mark the end of the parent span too by calling .end(). Data is then emitted.
+        receiveSpan.end();
+      }
+    } catch (JMSException e) {
+      e.printStackTrace();
+    }
   }
 
   public static void main(String... args) throws Exception {
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trace sampling policy for {@link TracingUtil}, selected at startup with the {@value #SYSTEM_PROPERTY} system property.
+ * <p>
+ * Supported values:
+ * <ul>
+ *   <li>{@code always_on} - every span is sampled (the default).</li>
+ *   <li>{@code ratio:P} - parent-based, a fraction P of the new traces is sampled, e.g. {@code ratio:0.01}.</li>
+ *   <li>{@code rate:N} - at most N sampled spans per second for each messaging destination (topic or queue), taken
+ *       from the {@code messaging.destination.name} attribute set on the span builder. Spans without a destination
+ *       follow their parent. The limit also applies to spans whose parent was extracted from a message.</li>
+ *   <li>{@code errors:P} - like {@code ratio:P}, but spans marked failed with {@link #setError} are always exported,
+ *       so failed sends are never lost. Unsampled spans are recorded (not dropped) to know their final status, which
+ *       costs more than {@code ratio:P}.</li>
+ * </ul>
+ */
+public class SamplingPolicy {
+
+	public static final String SYSTEM_PROPERTY = "tracing.sampler";
+
+	/** The semantic convention attribute that classifies the error of a failed operation. */
+	public static final AttributeKey<String> ERROR_TYPE = AttributeKey.stringKey("error.type");
+
+	// Upper bound for the per-destination limiter map, further destinations share one limiter
+	private static final int MAX_TRACKED_DESTINATIONS = 10_000;
+
+	private enum Kind { ALWAYS_ON, RATIO, RATE, ERRORS }
+
+	private final Kind kind;
+	private final double value;
+
+	private SamplingPolicy(Kind kind, double value) {
+		this.kind = kind;
+		this.value = value;
+	}
+
+	/**
+	 * Sets the ERROR status of a failed span along with its {@link #ERROR_TYPE}. The SDK gives span processors no
+	 * cheap way to read the status, so {@code errors:P} looks for the attribute when an unsampled span ends.
+	 */
+	public static void setError(Span span, String errorType, String description) {
+		span.setAttribute(ERROR_TYPE, errorType);
+		span.setStatus(StatusCode.ERROR, description);
+	}
+
+	/** @return the policy named by the {@value #SYSTEM_PROPERTY} system property, {@code always_on} if not set */
+	public static SamplingPolicy fromSystemProperty() {
+		return fromSpec(System.getProperty(SYSTEM_PROPERTY, "always_on"));
+	}
+
+	public static SamplingPolicy fromSpec(String spec) {
+		String[] parts = spec.trim().split(":", 2);
+		try {
+			switch (parts[0].toLowerCase()) {
+				case "always_on":
+					return new SamplingPolicy(Kind.ALWAYS_ON, 1.0);
+				case "ratio":
+					return new SamplingPolicy(Kind.RATIO, ratio(parts[1]));
+				case "rate":
+					double rate = Double.parseDouble(parts[1]);
+					if (rate <= 0) {
+						throw new IllegalArgumentException("rate must be positive");
+					}
+					return new SamplingPolicy(Kind.RATE, rate);
+				case "errors":
+					return new SamplingPolicy(Kind.ERRORS, parts.length > 1 ? ratio(parts[1]) : 0.0);
+				default:
+					break;
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			// fall through to the error below
+		}
+		throw new IllegalArgumentException("Invalid sampling policy '" + spec
+				+ "', expected one of [always_on, ratio:P, rate:N, errors:P]");
+	}
+
+	private static double ratio(String value) {
+		double ratio = Double.parseDouble(value);
+		if (ratio < 0.0 || ratio > 1.0) {
+			throw new IllegalArgumentException("ratio must be between 0 and 1");
+		}
+		return ratio;
+	}
+
+	/** @return the sampler to install on the {@code SdkTracerProvider} */
+	public Sampler sampler() {
+		switch (kind) {
+			case RATIO:
+				return Sampler.parentBased(Sampler.traceIdRatioBased(value));
+			case RATE:
+				Sampler limiter = new PerDestinationRateLimitingSampler(value);
+				return Sampler.parentBasedBuilder(limiter)
+						.setRemoteParentSampled(limiter)
+						.build();
+			case ERRORS:
+				return new RecordUnsampledSampler(Sampler.parentBased(Sampler.traceIdRatioBased(value)));
+			default:
+				return Sampler.alwaysOn();
+		}
+	}
+
+	/** @return true if the exporting span processor must also accept unsampled spans */
+	public boolean exportsUnsampledSpans() {
+		return kind == Kind.ERRORS;
+	}
+
+	/**
+	 * Wraps the exporting span processor so that, for the {@code errors} policy, only sampled spans and spans with an
+	 * ERROR status reach it. Other policies return the processor unchanged.
+	 */
+	public SpanProcessor wrap(SpanProcessor exportingProcessor) {
+		return kind == Kind.ERRORS ? new ErrorBiasedSpanProcessor(exportingProcessor) : exportingProcessor;
+	}
+
+	@Override
+	public String toString() {
+		switch (kind) {
+			case RATIO:
+				return "ratio:" + value;
+			case RATE:
+				return "rate:" + value;
+			case ERRORS:
+				return "errors:" + value;
+			default:
+				return "always_on";
+		}
+	}
+
+	/**
+	 * Allows at most {@code rate} sampled spans per second per destination, using the generic cell rate algorithm:
+	 * one {@link AtomicLong} "theoretical arrival time" per destination, updated with a CAS, so a decision does not
+	 * allocate once the destination is known.
+	 */
+	static final class PerDestinationRateLimitingSampler implements Sampler {
+
+		private final long intervalNanos;
+		private final long burstNanos;
+		private final Map<String, AtomicLong> limiters = new ConcurrentHashMap<>();
+		private final AtomicLong overflowLimiter = new AtomicLong();
+
+		PerDestinationRateLimitingSampler(double spansPerSecond) {
+			this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / spansPerSecond);
+			this.burstNanos = TimeUnit.SECONDS.toNanos(1);  // allow up to one second worth of spans in a burst
+		}
+
+		@Override
+		public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+				Attributes attributes, List<LinkData> parentLinks) {
+			String destination = attributes.get(SemanticAttributes.MESSAGING_DESTINATION_NAME);
+			AtomicLong limiter;
+			if (destination == null) {
+				limiter = overflowLimiter;
+			} else {
+				limiter = limiters.get(destination);
+				if (limiter == null) {
+					limiter = limiters.size() < MAX_TRACKED_DESTINATIONS
+							? limiters.computeIfAbsent(destination, d -> new AtomicLong())
+							: overflowLimiter;
+				}
+			}
+			return tryAcquire(limiter) ? SamplingResult.recordAndSample() : SamplingResult.drop();
+		}
+
+		private boolean tryAcquire(AtomicLong theoreticalArrival) {
+			long now = System.nanoTime();
+			while (true) {
+				long tat = theoreticalArrival.get();
+				long base = (tat == 0 || tat < now) ? now : tat;
+				if (base - now > burstNanos) {
+					return false;
+				}
+				if (theoreticalArrival.compareAndSet(tat, base + intervalNanos)) {
+					return true;
+				}
+			}
+		}
+
+		@Override
+		public String getDescription() {
+			return "PerDestinationRateLimitingSampler{intervalNanos=" + intervalNanos + "}";
+		}
+	}
+
+	/** Turns the DROP decisions of the delegate into RECORD_ONLY, so the final status of every span is known. */
+	static final class RecordUnsampledSampler implements Sampler {
+
+		private final Sampler delegate;
+
+		RecordUnsampledSampler(Sampler delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+				Attributes attributes, List<LinkData> parentLinks) {
+			SamplingResult result = delegate.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+			return result.getDecision() == SamplingDecision.DROP
+					? SamplingResult.recordOnly() : result;
+		}
+
+		@Override
+		public String getDescription() {
+			return "RecordUnsampled{" + delegate.getDescription() + "}";
+		}
+	}
+
+	/** Forwards sampled spans, and unsampled spans marked failed by {@link #setError}, to the exporting processor. */
+	static final class ErrorBiasedSpanProcessor implements SpanProcessor {
+
+		private final SpanProcessor delegate;
+
+		ErrorBiasedSpanProcessor(SpanProcessor delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onStart(Context parentContext, ReadWriteSpan span) {
+			if (span.getSpanContext().isSampled()) {
+				delegate.onStart(parentContext, span);
+			}
+		}
+
+		@Override
+		public boolean isStartRequired() {
+			return delegate.isStartRequired();
+		}
+
+		@Override
+		public void onEnd(ReadableSpan span) {
+			// a single attribute lookup, toSpanData() would copy every unsampled span
+			if (span.getSpanContext().isSampled() || span.getAttribute(ERROR_TYPE) != null) {
+				delegate.onEnd(span);
+			}
+		}
+
+		@Override
+		public boolean isEndRequired() {
+			return true;
+		}
+
+		@Override
+		public CompletableResultCode shutdown() {
+			return delegate.shutdown();
+		}
+
+		@Override
+		public CompletableResultCode forceFlush() {
+			return delegate.forceFlush();
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.BaggageEntry;
+import io.opentelemetry.api.baggage.propagation.BaggageUtil;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the per-message cost of the span creation done by the traced publishers and subscriber before and after
+ * moving the static attributes to the Resource / prebuilt Attributes, reusing setter, getter and propagator and
+ * formatting baggage only when it is logged.
+ * <p>
+ * A {@code HashMap} stands in for the JMS message as carrier, spans go to an exporter that discards them. Prints ns
+ * and allocated bytes per traced message for the send and the receive path. Usage:
+ * {@code SpanCreationBenchmark [messages]}.
+ */
+public class SpanCreationBenchmark {
+
+	private static final String DESTINATION = "acme/plm/product/updated/001";
+	private static final String BAGGAGE_STR = "product_operation=updated,product_code=A001";
+	private static final Baggage BAGGAGE = BaggageUtil.extractBaggage(BAGGAGE_STR);
+	private static final AttributeKey<String> RECEIVE_KEY = AttributeKey.stringKey("com.acme.product_update.receive_key.1");
+
+	private static final TextMapSetter<Map<String, String>> SETTER = Map::put;
+	private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<Map<String, String>>() {
+		@Override
+		public Iterable<String> keys(Map<String, String> carrier) {
+			return carrier.keySet();
+		}
+
+		@Override
+		public String get(Map<String, String> carrier, String key) {
+			return carrier == null ? null : carrier.get(key);
+		}
+	};
+
+	private final OpenTelemetrySdk sdk;
+	private final Tracer tracer;
+	private final TextMapPropagator propagator;
+	private final Map<String, String> carrier = new HashMap<>();
+	private long sink;  // keeps the formatted baggage from being optimized away
+
+	private SpanCreationBenchmark() {
+		sdk = OpenTelemetrySdk.builder()
+				.setTracerProvider(SdkTracerProvider.builder()
+						.setResource(TracingUtil.resource("benchmark"))
+						.addSpanProcessor(BatchSpanProcessor.builder(new DiscardingExporter()).build())
+						.build())
+				.setPropagators(ContextPropagators.create(TextMapPropagator.composite(
+						W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance())))
+				.build();
+		tracer = sdk.getTracer("benchmark");
+		propagator = sdk.getPropagators().getTextMapPropagator();
+	}
+
+	public static void main(String... args) throws Exception {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		SpanCreationBenchmark benchmark = new SpanCreationBenchmark();
+
+		System.out.printf("%-16s %12s %14s%n", "path", "ns/msg", "bytes/msg");
+		benchmark.measure("send/before", messages, benchmark::sendBefore);
+		benchmark.measure("send/after", messages, benchmark::sendAfter);
+		benchmark.measure("receive/before", messages, benchmark::receiveBefore);
+		benchmark.measure("receive/after", messages, benchmark::receiveAfter);
+		benchmark.sdk.close();
+		System.out.println("(" + benchmark.sink + ")");
+	}
+
+	private void measure(String name, int messages, Microbenchmark.Operation operation) throws Exception {
+		Microbenchmark.Result result = Microbenchmark.measure(messages, operation);
+		System.out.printf("%-16s %12.1f %14.1f%n", name, result.nanos, result.bytes);
+	}
+
+	// The send path as it was: runtime attributes looked up and set per span, baggage rebuilt per message.
+	private void sendBefore() {
+		Span span = tracer.spanBuilder("Product Update > Send")
+				.setSpanKind(SpanKind.PRODUCER)
+				.setAttribute("env", "Development")
+				.setAttribute("user.name", System.getProperty("user.name"))
+				.setAttribute("java.version", System.getProperty("java.version"))
+				.setAttribute("os.name", System.getProperty("os.name"))
+				.setAttribute(SemanticAttributes.MESSAGING_SYSTEM, "solace")
+				.setAttribute(SemanticAttributes.MESSAGING_OPERATION, "send")
+				.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, DESTINATION)
+				.setAttribute(SemanticAttributes.NET_PROTOCOL_NAME, "smf")
+				.setParent(Context.current())
+				.startSpan();
+		try (Scope scope = span.makeCurrent()) {
+			String productCode = "A001";
+			String operation = "updated";
+			String baggageStr = "product_operation=" + operation + ",product_code=" + productCode;
+			Baggage baggage = BaggageUtil.extractBaggage(baggageStr);
+			try (Scope baggageScope = baggage.storeInContext(Context.current()).makeCurrent()) {
+				carrier.clear();
+				propagator.inject(Context.current(), carrier, SETTER);
+				carrier.put("otel_parent_trace_id", Span.current().getSpanContext().getTraceId());
+				carrier.put("otel_parent_span_id", Span.current().getSpanContext().getSpanId());
+				carrier.put("otel_parent_baggage", baggageStr);
+			}
+		} finally {
+			span.end();
+		}
+	}
+
+	// The send path as in QueuePublisher.traceAndPublish
+	private void sendAfter() {
+		Span span = tracer.spanBuilder("Product Update > Send")
+				.setSpanKind(SpanKind.PRODUCER)
+				.setAllAttributes(TracingUtil.SEND_ATTRIBUTES)
+				.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, DESTINATION)
+				.setParent(Context.current())
+				.startSpan();
+		try (Scope scope = span.makeCurrent()) {
+			carrier.clear();
+			propagator.inject(Context.current().with(BAGGAGE), carrier, SETTER);
+			carrier.put("otel_parent_trace_id", span.getSpanContext().getTraceId());
+			carrier.put("otel_parent_span_id", span.getSpanContext().getSpanId());
+			carrier.put("otel_parent_baggage", BAGGAGE_STR);
+		} finally {
+			span.end();
+		}
+	}
+
+	// The receive path as it was, including the per message baggage string built for the console output
+	private void receiveBefore() {
+		sendAfter();
+		Context extracted = propagator.extract(Context.current(), carrier, GETTER);
+		try (Scope scope = extracted.makeCurrent()) {
+			Span span = tracer.spanBuilder("Product Update > Received")
+					.setSpanKind(SpanKind.CONSUMER)
+					.setAttribute("env", "Development")
+					.setAttribute("user.name", System.getProperty("user.name"))
+					.setAttribute("java.version", System.getProperty("java.version"))
+					.setAttribute("os.name", System.getProperty("os.name"))
+					.setAttribute(SemanticAttributes.MESSAGING_SYSTEM, "solace")
+					.setAttribute(SemanticAttributes.MESSAGING_OPERATION, "receive")
+					.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, DESTINATION)
+					.setAttribute(SemanticAttributes.NET_PROTOCOL_NAME, "smf")
+					.setAttribute("com.acme.product_update.receive_key.1", "myValue1")
+					.setParent(extracted)
+					.startSpan();
+			Baggage baggage = Baggage.fromContext(extracted);
+			String baggageStr = "";
+			for (Map.Entry<String, BaggageEntry> entry : baggage.asMap().entrySet()) {
+				baggageStr = baggageStr + entry.getKey() + "=" + baggage.getEntryValue(entry.getKey()) + ",";
+			}
+			sink += baggageStr.length();
+			span.end();
+		}
+	}
+
+	// The receive path as in QueueSubscriber.traceAndProcess with per message logging disabled
+	private void receiveAfter() {
+		sendAfter();
+		Context extracted = propagator.extract(Context.current(), carrier, GETTER);
+		try (Scope scope = extracted.makeCurrent()) {
+			Span span = tracer.spanBuilder("Product Update > Received")
+					.setSpanKind(SpanKind.CONSUMER)
+					.setAllAttributes(TracingUtil.RECEIVE_ATTRIBUTES)
+					.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, DESTINATION)
+					.setAttribute(RECEIVE_KEY, "myValue1")
+					.setParent(extracted)
+					.startSpan();
+			span.end();
+		}
+	}
+
+	private static final class DiscardingExporter implements SpanExporter {
+		@Override
+		public CompletableResultCode export(Collection<SpanData> spans) {
+			return CompletableResultCode.ofSuccess();
+		}
+
+		@Override
+		public CompletableResultCode flush() {
+			return CompletableResultCode.ofSuccess();
+		}
+
+		@Override
+		public CompletableResultCode shutdown() {
+			return CompletableResultCode.ofSuccess();
+		}
+	}
+}
@@ -19,16 +19,14 @@
 
 package com.solace.samples.features.distributedtracing.manualinstrumentation;
 
-import com.solace.opentelemetry.javaagent.jms.SolaceJmsW3CTextMapSetter;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
-import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.baggage.Baggage;
 import io.opentelemetry.api.baggage.propagation.BaggageUtil;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.api.trace.SpanKind;
-import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
@@ -55,6 +53,18 @@ import javax.jms.Topic;
 public class TopicPublisher {
 
   private static final String SERVICE_NAME = "ACME Product Master [DEV]";
+
+  // Add some OTEL Baggage (key-value store) of contextual information
+  // that can 'propagate' across multiple systems and spans by being copied from one to another.
+  // See: https://opentelemetry.io/docs/concepts/signals/baggage/
+  // Using the W3C Propagater, see below for key name rules and restrictions.
+  // https://www.w3.org/TR/baggage/#key
+  // Baggage in this case is the business data of product code and the operation that took place for it.
+  // An operator can search the Observability tool by the product code, not needing to know about transport details.
+  // It is the same for every message here, so it is parsed once rather than rebuilt per send.
+  private static final String TELEMETRY_BAGGAGE_STR = "product_operation=updated,product_code=A001";
+  private static final Baggage TELEMETRY_BAGGAGE = BaggageUtil.extractBaggage(TELEMETRY_BAGGAGE_STR);
+
   private static final String TOPIC_NAME = "acme/plm/product/updated/001";
 
   static {
@@ -93,8 +103,9 @@ public class TopicPublisher {
       final TextMessage message = session.createTextMessage("Hello world!");
       message.setJMSDeliveryMode(DeliveryMode.PERSISTENT);			// Distributed Tracing only covers persistent messaging
       
-      final OpenTelemetry openTelemetry = GlobalOpenTelemetry.get();
+      final OpenTelemetry openTelemetry = TracingUtil.openTelemetry();  // no-op with -Dtracing.enabled=false
       final Tracer tracer = openTelemetry.getTracer(SERVICE_NAME);
+      final TextMapPropagator propagator = openTelemetry.getPropagators().getTextMapPropagator();
 
       // Add few user properties
       message.setStringProperty("property1", "hello");
@@ -103,7 +114,7 @@ public class TopicPublisher {
       log("Sending message '%s' to topic '%s'...%n", message.getText(),
           messageDestination.getTopicName());
 
-      traceAndPublish(message, messageProducer, messageDestination, openTelemetry, tracer);
+      traceAndPublish(message, messageProducer, messageDestination, propagator, tracer);
 
       log("Sent successfully. Exiting...");
     }
@@ -112,11 +123,13 @@ public class TopicPublisher {
   }
 
   void traceAndPublish(Message message, MessageProducer messageProducer, Topic messageDestination,
-		  OpenTelemetry openTelemetry, Tracer tracer) throws JMSException {
+		  TextMapPropagator propagator, Tracer tracer) throws JMSException {
 
-	  // Use the setter and propagator to inject OpenTelemetry info in the outgoing message
-	  final SolaceJmsW3CTextMapSetter setter = new SolaceJmsW3CTextMapSetter();
-	  final TextMapPropagator propagator = openTelemetry.getPropagators().getTextMapPropagator();
+	  // Tracing disabled: straight send, no span, context or baggage objects
+	  if (!TracingUtil.ENABLED) {
+		  messageProducer.send(messageDestination, message);
+		  return;
+	  }
 
       // Spans are sections of code to instrument and identify. In this case creating a single 'send' span to cover the message publish.
       // (The span attributes are the details that get sent in each emitted span, should be consistent across applications.)
@@ -124,75 +137,52 @@ public class TopicPublisher {
 	  final Span sendSpan = tracer
 			  .spanBuilder("Product Update > Send")    // The name as seen in the OTEL visualisation.
 	          .setSpanKind(SpanKind.PRODUCER)          // A broad identifier of the type of operation
-			  
-	          // Optional: user defined Span attributes
-	          // dot separated, snake_case is the convention, keeping to a fixed 'something.*' name space too for custom ones.
-	          // See: https://opentelemetry.io/docs/specs/semconv/general/attribute-naming/
 
-	          // Some runtime attributes to include:
-	          .setAttribute("env", "Development")
-	          .setAttribute("user.name", System.getProperty("user.name"))
-	          .setAttribute("java.version", System.getProperty("java.version"))
-	          .setAttribute("os.name", System.getProperty("os.name"))
+	          // Runtime attributes (env, user.name, java.version, os.name) don't change per message,
+	          // they are set once on the Resource in TracingUtil.
 
 	          // Some transport attributes to include, in the SemanticAttributes name space:
 	          // See: https://opentelemetry.io/docs/specs/semconv/general/trace/
-			  
-	          // Some transport attributes to include, in the SemanticAttributes name space:
-	          // See: https://opentelemetry.io/docs/specs/semconv/general/trace/
-
-	          .setAttribute(SemanticAttributes.MESSAGING_SYSTEM, "solace")
-	          .setAttribute(SemanticAttributes.MESSAGING_OPERATION, "send")
+	          // The constant ones are prebuilt once in TracingUtil, only the destination is set per message.
+	          .setAllAttributes(TracingUtil.SEND_ATTRIBUTES)
 	          .setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, messageDestination.getTopicName())
-	          .setAttribute(SemanticAttributes.NET_PROTOCOL_NAME, "smf")
-	            
+
 			  .setParent(Context.current()) // set current context as parent (empty in this case, same as .setNoParent() )
 			  .startSpan();
 
 	  // This is signalling the span to have started, timestamps automatically captured.
 	  try (Scope scope = sendSpan.makeCurrent()) {
 
-		  // Add some OTEL Baggage (key-value store) of contextual information 
-		  // that can 'propagate' across multiple systems and spans by being copied from one to another.
-		  // See: https://opentelemetry.io/docs/concepts/signals/baggage/
-
-		  // This is actually carried as span attributes in a specific attribute naming range, 
-		  // however it is transparent to the recipient when the baggage is extracted.
-		  // i.e. No need to worry about a name space, just key names as needed by the downstream application(s).
-		  // Using the W3C Propagater, see below for key name rules and restrictions.
-		  // https://www.w3.org/TR/baggage/#key
-
-		  // Baggage in this case is the business data of product code and the operation that took place for it.
-		  // An operator can search the Observability tool by the product code, not needing to know about transport details.
-		  String productCode = "A001";
-		  String operation = "updated";
-		  String telemetryBaggageStr = "product_operation=" + operation + ",product_code=" + productCode;
-		  Baggage telemetryBaggage = BaggageUtil.extractBaggage(telemetryBaggageStr);
-
-          // Store the baggage in the current OTEL context
-          telemetryBaggage.storeInContext(Context.current()).makeCurrent();
-          
+		  // Add the OTEL Baggage (see TELEMETRY_BAGGAGE) to the context of this send only
+		  final Context context = Context.current().with(TELEMETRY_BAGGAGE);
+
           // Inject the Context (containing the send span and baggage) into the message
-          propagator.inject(Context.current(), message, setter);
+		  propagator.inject(context, message, TracingUtil.SETTER);
+
+		  final SpanContext spanContext = sendSpan.getSpanContext();
 
           // [Optional: for wider ecosystem compatibility...]
           // Insert the trace info as a message property to convey it to systems and protocols that do not support otel natively
           // i.e. Could be useful for internal logging for a receiver, or when creating onward spans manually and need the parent Trace ID.
-          
-          message.setStringProperty("otel_parent_trace_id", Span.current().getSpanContext().getTraceId());
-          message.setStringProperty("otel_parent_span_id", Span.current().getSpanContext().getSpanId());
-          message.setStringProperty("otel_parent_baggage", telemetryBaggageStr ); 
-
-          
-		  // message is being published to the given topic
+		  // Not needed with -Dtracing.propagation=compact*, the compact property already carries the same information
+		  // (see CompactTraceContextPropagator for its layout).
+		  if (!TracingUtil.COMPACT_PROPAGATION) {
+			  message.setStringProperty("otel_parent_trace_id", spanContext.getTraceId());
+			  message.setStringProperty("otel_parent_span_id", spanContext.getSpanId());
+			  message.setStringProperty("otel_parent_baggage", TELEMETRY_BAGGAGE_STR);
+		  }
+
+		  // message is being published to the given destination
 		  messageProducer.send(messageDestination, message);
-		  
-          System.out.println("Message sent, search for Trace ID: " + Span.current().getSpanContext().getTraceId());
+
+		  if (TracingUtil.LOG_ENABLED) {
+			  System.out.println("Message sent, search for Trace ID: " + spanContext.getTraceId());
+		  }
 
 	  } catch (Exception e) {
 		  // Any exceptions in the send can also be captured in the span:
           sendSpan.recordException(e);
-		  sendSpan.setStatus(StatusCode.ERROR, e.getMessage());
+		  SamplingPolicy.setError(sendSpan, e.getClass().getName(), e.getMessage());
 		  e.printStackTrace();
 	  } finally {
 		  // Mark the end of the span (instrumented section of code) by calling .end(). Data is then emitted.
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.baggage.propagation.W3CBaggagePropagator;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the message properties needed to carry the trace context with W3C text plus the {@code otel_parent_*}
+ * copies (what the publishers add by default) against {@link CompactTraceContextPropagator}.
+ * <p>
+ * A {@code HashMap} stands in for the message, sizes are the UTF-8 bytes of the property names and values (the
+ * per-property framing of the broker comes on top, which favours fewer properties even more). Encode is the inject
+ * plus the {@code otel_parent_*} properties, decode is the extract. Usage: {@code TraceContextSizeBenchmark [iterations]}.
+ */
+public class TraceContextSizeBenchmark {
+
+	private static final TextMapSetter<Map<String, String>> SETTER = Map::put;
+	private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<Map<String, String>>() {
+		@Override
+		public Iterable<String> keys(Map<String, String> carrier) {
+			return carrier.keySet();
+		}
+
+		@Override
+		public String get(Map<String, String> carrier, String key) {
+			return carrier == null ? null : carrier.get(key);
+		}
+	};
+
+	private static final String BAGGAGE_STR = "product_operation=updated,product_code=A001";
+
+	private final Context context;
+	private final Map<String, String> carrier = new HashMap<>();
+	private long sink;
+
+	private TraceContextSizeBenchmark() {
+		SpanContext spanContext = SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", "00f067aa0ba902b7",
+				TraceFlags.getSampled(), TraceState.getDefault());
+		Baggage baggage = Baggage.builder().put("product_operation", "updated").put("product_code", "A001").build();
+		context = Context.root().with(Span.wrap(spanContext)).with(baggage);
+	}
+
+	public static void main(String... args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		TraceContextSizeBenchmark benchmark = new TraceContextSizeBenchmark();
+		TextMapPropagator w3c = TextMapPropagator.composite(
+				W3CTraceContextPropagator.getInstance(), W3CBaggagePropagator.getInstance());
+
+		System.out.printf("%-22s %6s %8s %12s %12s %14s %14s%n",
+				"format", "props", "bytes", "encode ns", "decode ns", "encode bytes", "decode bytes");
+		benchmark.measure("w3c + otel_parent_*", w3c, true, iterations);
+		benchmark.measure("compact", new CompactTraceContextPropagator(w3c, CompactTraceContextPropagator.Mode.COMPACT),
+				false, iterations);
+		benchmark.measure("compact + w3c", new CompactTraceContextPropagator(w3c,
+				CompactTraceContextPropagator.Mode.COMPACT_AND_W3C), false, iterations);
+		System.out.println("(" + benchmark.sink + ")");
+	}
+
+	private void measure(String name, TextMapPropagator propagator, boolean parentProperties, int iterations)
+			throws Exception {
+		encode(propagator, parentProperties);
+		int properties = carrier.size();
+		int bytes = 0;
+		for (Map.Entry<String, String> entry : carrier.entrySet()) {
+			bytes += entry.getKey().getBytes(StandardCharsets.UTF_8).length
+					+ entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		Microbenchmark.Result encoding = Microbenchmark.measure(iterations, () -> encode(propagator, parentProperties));
+		Microbenchmark.Result decoding = Microbenchmark.measure(iterations, () -> decode(propagator));
+
+		System.out.printf("%-22s %6d %8d %12.1f %12.1f %14.1f %14.1f%n", name, properties, bytes,
+				encoding.nanos, decoding.nanos, encoding.bytes, decoding.bytes);
+	}
+
+	private void encode(TextMapPropagator propagator, boolean parentProperties) {
+		carrier.clear();
+		propagator.inject(context, carrier, SETTER);
+		if (parentProperties) {
+			SpanContext spanContext = Span.fromContext(context).getSpanContext();
+			carrier.put("otel_parent_trace_id", spanContext.getTraceId());
+			carrier.put("otel_parent_span_id", spanContext.getSpanId());
+			carrier.put("otel_parent_baggage", BAGGAGE_STR);
+		}
+	}
+
+	private void decode(TextMapPropagator propagator) {
+		Context extracted = propagator.extract(Context.root(), carrier, GETTER);
+		sink += Span.fromContext(extracted).getSpanContext().getTraceFlags().asByte() + Baggage.fromContext(extracted).size();
+	}
+}
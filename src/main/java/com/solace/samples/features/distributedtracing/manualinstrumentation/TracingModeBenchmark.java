@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SolJmsUtility;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.jms.Connection;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+/**
+ * Compares a raw send, a send through {@link QueuePublisher#traceAndPublish} with tracing disabled
+ * ({@code -Dtracing.enabled=false}) and the same with tracing enabled, and the startup cost of each: the time the
+ * publisher's static tracing initialization takes (SDK, span processor and exporter construction when enabled,
+ * nothing when disabled) and the JVM uptime when ready to send.
+ * <p>
+ * Each mode runs in its own JVM, as the switch is read once at startup. Without broker arguments the messages go to a
+ * queue of the in-JVM loopback broker ({@link LoopbackConnectionFactory}), drained on another thread, so the numbers
+ * are the cost of the send and the tracing without a network, and enabled mode uses the compact propagation and the
+ * span journal unless {@code -Dtracing.propagation} / {@code -Dtracing.exporter} say otherwise.
+ * With broker arguments the messages really go to the queue. Usage:
+ * {@code TracingModeBenchmark [-messages N] [-runs N] [<host:port> <client-username@message-vpn> <client-password> <queue-name>]}
+ */
+public class TracingModeBenchmark {
+
+	private static final String[] MODES = {"raw", "disabled", "enabled"};
+
+	public static void main(String... args) throws Exception {
+		if (args.length > 0 && "-child".equals(args[0])) {
+			child(args[1], Integer.parseInt(args[2]), Arrays.copyOfRange(args, 3, args.length));
+			return;
+		}
+		int messages = 1_000_000;
+		int runs = 3;
+		List<String> broker = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-messages".equals(args[i]) && i + 1 < args.length) {
+				messages = Integer.parseInt(args[++i]);
+			} else if ("-runs".equals(args[i]) && i + 1 < args.length) {
+				runs = Integer.parseInt(args[++i]);
+			} else {
+				broker.add(args[i]);
+			}
+		}
+		if (!broker.isEmpty() && (broker.size() != 4 || broker.get(1).split("@").length != 2)) {
+			System.out.println("Usage: TracingModeBenchmark [-messages N] [-runs N] "
+					+ "[<host:port> <client-username@message-vpn> <client-password> <queue-name>]");
+			System.out.println();
+			System.exit(-1);
+		}
+
+		System.out.printf("%-10s %14s %14s %12s %14s%n", "mode", "init ms", "ready ms", "ns/msg", "bytes/msg");
+		for (String mode : MODES) {
+			double[] best = null;
+			double[] initMillis = new double[runs];
+			double[] readyMillis = new double[runs];
+			for (int run = 0; run < runs; run++) {
+				double[] result = fork(mode, messages, broker);
+				initMillis[run] = result[0];
+				readyMillis[run] = result[1];
+				if (best == null || result[2] < best[2]) {
+					best = result;
+				}
+			}
+			System.out.printf("%-10s %14.1f %14.1f %12.1f %14.1f%n", mode, median(initMillis), median(readyMillis),
+					best[2], best[3]);
+		}
+		System.out.println("(init and ready: median of " + runs + " JVMs, ns and bytes: best run)");
+	}
+
+	// Runs one mode in a new JVM and parses its RESULT line: init ms, ready ms, ns/msg, bytes/msg
+	private static double[] fork(String mode, int messages, List<String> broker) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		Map<String, String> properties = new HashMap<>();
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith("tracing.")) {
+				properties.put(name, System.getProperty(name));
+			}
+		}
+		properties.put("tracing.enabled", String.valueOf("enabled".equals(mode)));
+		properties.put("tracing.log", "false");
+		if (broker.isEmpty()) {
+			properties.putIfAbsent("tracing.propagation", "compact");
+			properties.putIfAbsent("tracing.exporter", "journal");  // no collector needed either
+		}
+		properties.forEach((name, value) -> command.add("-D" + name + "=" + value));
+		command.add(TracingModeBenchmark.class.getName());
+		command.add("-child");
+		command.add(mode);
+		command.add(String.valueOf(messages));
+		command.addAll(broker);
+
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		double[] result = null;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				if (line.startsWith("RESULT ")) {
+					result = Arrays.stream(line.substring(7).split(" ")).mapToDouble(Double::parseDouble).toArray();
+				}
+			}
+		}
+		if (process.waitFor() != 0 || result == null) {
+			throw new IllegalStateException("Benchmark JVM for mode '" + mode + "' failed");
+		}
+		return result;
+	}
+
+	private static void child(String mode, int messages, String[] broker) throws Exception {
+		boolean raw = "raw".equals(mode);
+
+		// Class initialization of the publisher is where the tracing gets initialized
+		long start = System.nanoTime();
+		QueuePublisher publisher = raw ? null : new QueuePublisher();
+		double initMillis = (System.nanoTime() - start) / 1e6;
+		Tracer tracer = null;
+		TextMapPropagator propagator = null;
+		if (!raw) {
+			OpenTelemetry openTelemetry = TracingUtil.openTelemetry();
+			tracer = openTelemetry.getTracer("benchmark");
+			propagator = openTelemetry.getPropagators().getTextMapPropagator();
+		}
+		double readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+		Connection connection;
+		String queueName;
+		if (broker.length == 4) {
+			String[] split = broker[1].split("@");
+			SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
+			connectionFactory.setHost(broker[0]);
+			connectionFactory.setVPN(split[1]);
+			connectionFactory.setUsername(split[0]);
+			connectionFactory.setPassword(broker[2]);
+			connection = connectionFactory.createConnection();
+			queueName = broker[3];
+		} else {
+			connection = new LoopbackConnectionFactory().createConnection();
+			queueName = "benchmark/queue";
+			// drained on the consumer's thread, so the queue doesn't grow and its allocations aren't counted
+			Session drainSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			drainSession.createConsumer(drainSession.createQueue(queueName)).setMessageListener(received -> { });
+			connection.start();
+		}
+		Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue queue = session.createQueue(queueName);
+		MessageProducer producer = session.createProducer(queue);
+		Message message = session.createTextMessage("Hello world!");
+
+		TextMapPropagator sendPropagator = propagator;
+		Tracer sendTracer = tracer;
+		Microbenchmark.Result result = Microbenchmark.measure(messages,
+				() -> send(publisher, message, producer, queue, sendPropagator, sendTracer));
+		connection.close();
+		System.out.println("RESULT " + initMillis + " " + readyMillis + " " + result.nanos + " " + result.bytes);
+		System.exit(0);  // don't wait for exporter threads
+	}
+
+	private static void send(QueuePublisher publisher, Message message, MessageProducer producer, Queue queue,
+			TextMapPropagator propagator, Tracer tracer) throws Exception {
+		if (publisher == null) {
+			producer.send(queue, message);
+		} else {
+			publisher.traceAndPublish(message, producer, queue, propagator, tracer);
+		}
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
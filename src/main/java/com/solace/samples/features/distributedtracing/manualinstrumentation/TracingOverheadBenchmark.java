@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.solace.samples.features.distributedtracing.manualinstrumentation;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-message cost of the send-side tracing done by the traced publishers (span with messaging
+ * attributes, context injection, span end) under each {@link SamplingPolicy}. Spans go through the usual
+ * {@link BatchSpanProcessor} to an exporter that discards them, so no broker or collector is needed.
+ * <p>
+ * With {@code -Dtracing.exporter=journal} (see {@link TracingUtil}) the spans are written to the span journal instead,
+ * which measures the export cost without any network.
+ * <p>
+ * One message in 100 fails, to exercise the {@code errors:P} policy. Usage: {@code TracingOverheadBenchmark [messages]
+ * [policy ...]}, by default all policies are measured.
+ */
+public class TracingOverheadBenchmark {
+
+	private static final int DESTINATIONS = 10;
+	private static final TextMapSetter<Map<String, String>> SETTER = Map::put;
+
+	public static void main(String... args) throws Exception {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		String[] policies = args.length > 1
+				? Arrays.copyOfRange(args, 1, args.length)
+				: new String[] {"always_on", "ratio:0.01", "rate:100", "errors:0.01"};
+
+		System.out.printf("%-14s %12s %14s %10s%n", "policy", "ns/msg", "bytes/msg", "exported");
+		for (String spec : policies) {
+			SamplingPolicy policy = SamplingPolicy.fromSpec(spec);
+			CountingExporter exporter = new CountingExporter(System.getProperty("tracing.exporter") == null
+					? null : TracingUtil.spanExporter(System.getProperty("tracing.exporter")));
+			SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+					.setSampler(policy.sampler())
+					.addSpanProcessor(policy.wrap(BatchSpanProcessor.builder(exporter)
+							.setExportUnsampledSpans(policy.exportsUnsampledSpans()).build()))
+					.build();
+			OpenTelemetrySdk sdk = OpenTelemetrySdk.builder()
+					.setTracerProvider(tracerProvider)
+					.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+					.build();
+			Tracer tracer = sdk.getTracer("benchmark");
+			TextMapPropagator propagator = sdk.getPropagators().getTextMapPropagator();
+
+			Microbenchmark.Result result = Microbenchmark.measure(messages, new Sender(tracer, propagator)::send);
+			tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+			System.out.printf("%-14s %12.1f %14.1f %10d%n", policy, result.nanos, result.bytes, exporter.exported);
+			sdk.close();
+		}
+	}
+
+	// The traced send of one message, over a few destinations
+	private static final class Sender {
+		private final Tracer tracer;
+		private final TextMapPropagator propagator;
+		private final Map<String, String> carrier = new HashMap<>();
+		private final String[] destinations = new String[DESTINATIONS];
+		private int sent;
+
+		Sender(Tracer tracer, TextMapPropagator propagator) {
+			this.tracer = tracer;
+			this.propagator = propagator;
+			for (int i = 0; i < DESTINATIONS; i++) {
+				destinations[i] = "acme/plm/product/updated/" + i;
+			}
+		}
+
+		void send() {
+			int i = sent++;
+			Span span = tracer.spanBuilder("Product Update > Send")
+					.setSpanKind(SpanKind.PRODUCER)
+					.setAttribute(SemanticAttributes.MESSAGING_SYSTEM, "solace")
+					.setAttribute(SemanticAttributes.MESSAGING_OPERATION, "send")
+					.setAttribute(SemanticAttributes.MESSAGING_DESTINATION_NAME, destinations[i % DESTINATIONS])
+					.startSpan();
+			try (Scope scope = span.makeCurrent()) {
+				carrier.clear();
+				propagator.inject(Context.current(), carrier, SETTER);
+				if (i % 100 == 99) {
+					SamplingPolicy.setError(span, "simulated", "simulated send failure");
+				}
+			} finally {
+				span.end();
+			}
+		}
+	}
+
+	/** Counts spans, passing them on to the delegate if there is one, otherwise discarding them. */
+	private static final class CountingExporter implements SpanExporter {
+		private final SpanExporter delegate;
+		volatile long exported;
+
+		CountingExporter(SpanExporter delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public CompletableResultCode export(Collection<SpanData> spans) {
+			exported += spans.size();
+			return delegate == null ? CompletableResultCode.ofSuccess() : delegate.export(spans);
+		}
+
+		@Override
+		public CompletableResultCode flush() {
+			return delegate == null ? CompletableResultCode.ofSuccess() : delegate.flush();
+		}
+
+		@Override
+		public CompletableResultCode shutdown() {
+			return delegate == null ? CompletableResultCode.ofSuccess() : delegate.shutdown();
+		}
+	}
+}
@@ -21,60 +21,225 @@ package com.solace.samples.features.distributedtracing.manualinstrumentation;
 
 import com.solace.opentelemetry.javaagent.jms.SolaceJmsContextPropagator;
 import com.solace.opentelemetry.javaagent.jms.SolaceJmsBaggagePropagator;
+import com.solace.samples.features.distributedtracing.journal.SpanJournalExporter;
+import com.solace.samples.features.distributedtracing.pipeline.AdaptiveBatchController;
+import com.solace.samples.features.distributedtracing.pipeline.AdaptiveBatchSpanProcessor;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.baggage.Baggage;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapGetter;
 import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
 import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
 import io.opentelemetry.semconv.ResourceAttributes;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.concurrent.TimeUnit;
+import javax.jms.Message;
 
 //A class to facilitate OpenTelemetry Instrumentation. Can be commonly used across the application.
 public class TracingUtil {
 
+	// Setter and getter are stateless, one instance serves every message and thread. They handle both the W3C
+	// and the compact context properties (see CompactTraceContextPropagator).
+	public static final TextMapSetter<Message> SETTER = CompactTraceContextPropagator.SETTER;
+	public static final TextMapGetter<Message> GETTER = CompactTraceContextPropagator.GETTER;
+
+	// Context propagation format, -Dtracing.propagation=w3c (default), compact or compact+w3c
+	public static final String PROPAGATION = System.getProperty("tracing.propagation", "w3c");
+
+	// With the compact format the otel_parent_* string properties are redundant, publishers only add them for w3c
+	public static final boolean COMPACT_PROPAGATION = PROPAGATION.startsWith("compact");
+
+	// Span attributes that are the same for every message, built once and added with SpanBuilder.setAllAttributes().
+	// Per-message values (e.g. the destination name) are still set one by one.
+	public static final Attributes SEND_ATTRIBUTES = Attributes.of(
+			SemanticAttributes.MESSAGING_SYSTEM, "solace",
+			SemanticAttributes.MESSAGING_OPERATION, "send",
+			SemanticAttributes.NET_PROTOCOL_NAME, "smf");
+	public static final Attributes RECEIVE_ATTRIBUTES = Attributes.of(
+			SemanticAttributes.MESSAGING_SYSTEM, "solace",
+			SemanticAttributes.MESSAGING_OPERATION, "receive",
+			SemanticAttributes.NET_PROTOCOL_NAME, "smf");
+
+	// -Dtracing.enabled=false: the OpenTelemetry SDK is never initialized (no exporter, processor or thread), the
+	// samples use a no-op OpenTelemetry and send and receive without creating span or context objects
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("tracing.enabled", "true"));
+
+	// Per-message console output (trace IDs, baggage), disable with -Dtracing.log=false
+	public static final boolean LOG_ENABLED = Boolean.parseBoolean(System.getProperty("tracing.log", "true"));
+
 	private TracingUtil() {}
 
-	public static void initManualTracing(String serviceName) {
+	// Runtime attributes don't change for the life of the process: they belong to the Resource, which is attached
+	// to every exported span batch, instead of being looked up and copied into every span.
+	static Resource resource(String serviceName) {
+		return Resource.getDefault().merge(Resource.create(Attributes.builder()
+				.put(ResourceAttributes.SERVICE_NAME, serviceName)
+				.put(AttributeKey.stringKey("env"), "Development")
+				.put(AttributeKey.stringKey("user.name"), System.getProperty("user.name"))
+				.put(AttributeKey.stringKey("java.version"), System.getProperty("java.version"))
+				.put(AttributeKey.stringKey("os.name"), System.getProperty("os.name"))
+				.build()));
+	}
 
-		// OpenTelemetry Resource object
-		Resource resource = Resource.getDefault().merge(Resource.create(
-				Attributes.of(ResourceAttributes.SERVICE_NAME, serviceName)));
+	/** @return the global OpenTelemetry, or a no-op one when tracing is disabled */
+	public static OpenTelemetry openTelemetry() {
+		return ENABLED ? GlobalOpenTelemetry.get() : Noop.OPEN_TELEMETRY;
+	}
 
-		// OpenTelemetry provides gRPC, HTTP and NoOp span exporter.
-		// Configure the endpoint details dependent on the protocol choice for your OTLP endpoint
+	// Loaded on first use only
+	private static final class Noop {
+		static final OpenTelemetry OPEN_TELEMETRY = OpenTelemetry.noop();
+	}
 
-		// If gRPC:
-		OtlpGrpcSpanExporter spanExporterGrpc = OtlpGrpcSpanExporter.builder()
-	            .setEndpoint("http://localhost:4317")
-	            .build();
+	/**
+	 * Formats baggage as {@code key1=value1,key2=value2}. Only meant for logging, call it behind {@link #LOG_ENABLED}.
+	 */
+	public static String formatBaggage(Baggage baggage) {
+		if (baggage.isEmpty()) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(32 * baggage.size());
+		baggage.forEach((key, entry) -> {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(key).append('=').append(entry.getValue());
+		});
+		return sb.toString();
+	}
 
-		// If HTTP:
-		OtlpHttpSpanExporter spanExporterHttp = OtlpHttpSpanExporter.builder()
-			.setEndpoint("https://yourhost.com/opentelemetry/public/v1/traces/")
-			.addHeader("authorization", "dataKey example-key")
-			.build();
+	public static void initManualTracing(String serviceName) {
+		if (!ENABLED) {
+			return;
+		}
+		// Sampling policy selected at startup, e.g. -Dtracing.sampler=ratio:0.01 (see SamplingPolicy)
+		initManualTracing(serviceName, SamplingPolicy.fromSystemProperty());
+	}
+
+	public static void initManualTracing(String serviceName, SamplingPolicy samplingPolicy) {
+		if (!ENABLED) {
+			return;
+		}
+
+		// OpenTelemetry Resource object
+		Resource resource = resource(serviceName);
+
+		// Where finished spans go, -Dtracing.exporter=otlp (gRPC, the default), otlp-http or journal
+		SpanExporter spanExporter = spanExporter(System.getProperty("tracing.exporter", "otlp"));
 
 		// Use OpenTelemetry SdkTracerProvider as TracerProvider
 		SdkTracerProvider sdkTracerProvider = SdkTracerProvider.builder()
-			.addSpanProcessor(BatchSpanProcessor.builder(spanExporterGrpc)
-					.setScheduleDelay(1000, TimeUnit.MILLISECONDS).build())
+			.setSampler(samplingPolicy.sampler())
+			.addSpanProcessor(samplingPolicy.wrap(spanProcessor(spanExporter, samplingPolicy)))
 			.setResource(resource)
 			.build();
 
 		// This Instance can be used to get tracer if it is not configured as global
 		OpenTelemetrySdk.builder()
 			.setTracerProvider(sdkTracerProvider)
-            .setPropagators(
-                    ContextPropagators.create(
-                        TextMapPropagator.composite(
-                            new SolaceJmsContextPropagator(), // Solace JMS Context Propagator
-                            new SolaceJmsBaggagePropagator()  // Solace JMS Baggage Propagator
-                        )
-                    )
-                ).buildAndRegisterGlobal();
+			.setPropagators(ContextPropagators.create(propagator(PROPAGATION)))
+			.buildAndRegisterGlobal();
+
+		// Export what is still queued when the application exits
+		Runtime.getRuntime().addShutdownHook(new Thread(sdkTracerProvider::close));
+	}
+
+	// -Dtracing.processor=batch (default) uses the SDK BatchSpanProcessor with a fixed 1 s delay.
+	// -Dtracing.processor=adaptive (opt-in) batches with a batch size and delay adjusted to the load, and reports the
+	// tracing pipeline metrics every -Dtracing.pipeline.report seconds (0, the default, for never).
+	static SpanProcessor spanProcessor(SpanExporter spanExporter, SamplingPolicy samplingPolicy) {
+		String processor = System.getProperty("tracing.processor", "batch");
+		switch (processor) {
+			case "batch":
+				return BatchSpanProcessor.builder(spanExporter)
+					.setExportUnsampledSpans(samplingPolicy.exportsUnsampledSpans())
+					.setScheduleDelay(1000, TimeUnit.MILLISECONDS).build();
+			case "adaptive":
+				AdaptiveBatchSpanProcessor adaptive = new AdaptiveBatchSpanProcessor(spanExporter,
+						AdaptiveBatchController.defaults(), 2048, 30_000, samplingPolicy.exportsUnsampledSpans());
+				int reportSeconds = Integer.getInteger("tracing.pipeline.report", 0);
+				if (reportSeconds > 0) {
+					Thread reporter = new Thread(() -> {
+						try {
+							while (true) {
+								TimeUnit.SECONDS.sleep(reportSeconds);
+								System.out.println("Tracing pipeline: " + adaptive);
+							}
+						} catch (InterruptedException e) {
+							// exit
+						}
+					}, "tracing-pipeline-report");
+					reporter.setDaemon(true);
+					reporter.start();
+				}
+				return adaptive;
+			default:
+				throw new IllegalArgumentException("Unknown tracing.processor '" + processor
+						+ "', expected batch or adaptive");
+		}
+	}
+
+	static SpanExporter spanExporter(String exporter) {
+		switch (exporter) {
+			// OpenTelemetry provides gRPC, HTTP and NoOp span exporter.
+			// Configure the endpoint details dependent on the protocol choice for your OTLP endpoint
+			case "otlp":
+				// If gRPC:
+				return OtlpGrpcSpanExporter.builder()
+					.setEndpoint("http://localhost:4317")
+					.build();
+			case "otlp-http":
+				// If HTTP:
+				return OtlpHttpSpanExporter.builder()
+					.setEndpoint("https://yourhost.com/opentelemetry/public/v1/traces/")
+					.addHeader("authorization", "dataKey example-key")
+					.build();
+			case "journal":
+				// No collector: spans go to a local journal, convert it later with SpanJournalToOtlpJson
+				File directory = new File(System.getProperty("tracing.journal.dir",
+						new File(System.getProperty("java.io.tmpdir"), "span-journal").getPath()));
+				int segmentMegabytes = Integer.getInteger("tracing.journal.segmentMB", 64);
+				int segments = Integer.getInteger("tracing.journal.segments", 16);
+				try {
+					return new SpanJournalExporter(directory, segmentMegabytes * 1024 * 1024, segments);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Unable to open span journal in " + directory, e);
+				}
+			default:
+				throw new IllegalArgumentException("Unknown tracing.exporter '" + exporter
+						+ "', expected otlp, otlp-http or journal");
+		}
+	}
+
+	static TextMapPropagator propagator(String propagation) {
+		TextMapPropagator w3c = TextMapPropagator.composite(
+				new SolaceJmsContextPropagator(), // Solace JMS Context Propagator
+				new SolaceJmsBaggagePropagator()  // Solace JMS Baggage Propagator
+		);
+		switch (propagation) {
+			case "w3c":
+				return w3c;
+			case "compact":
+				return new CompactTraceContextPropagator(w3c, CompactTraceContextPropagator.Mode.COMPACT);
+			case "compact+w3c":
+				return new CompactTraceContextPropagator(w3c, CompactTraceContextPropagator.Mode.COMPACT_AND_W3C);
+			default:
+				throw new IllegalArgumentException("Unknown tracing.propagation '" + propagation
+						+ "', expected w3c, compact or compact+w3c");
+		}
 	}
 }
\ No newline at end of file
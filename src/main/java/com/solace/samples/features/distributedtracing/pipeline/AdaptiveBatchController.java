@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: AdaptiveBatchController
+ */
+
+package com.solace.samples.features.distributedtracing.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the batch size and schedule delay of an {@link AdaptiveBatchSpanProcessor}, within fixed bounds, from what
+ * it observes after each export: queue fill, export latency and span arrival rate.
+ * <ul>
+ *   <li>Queue at least half full: the exporter is falling behind, double the batch size and halve the delay, so
+ *       more spans leave per export and exports start sooner.</li>
+ *   <li>Exports slower than the target latency (and no queue pressure): shrink the batch size by a quarter to keep
+ *       each export short.</li>
+ *   <li>Queue at most 10% full: relax, the delay grows by a quarter and the batch size decays by an eighth, giving
+ *       fewer, fuller exports.</li>
+ * </ul>
+ * Whatever the rule, the delay never exceeds the time the current arrival rate needs to fill half the queue, so a
+ * burst after an idle period does not overflow the queue while the worker waits.
+ * <p>
+ * Only the processor's worker thread calls {@link #onExport}, the current values are read from any thread.
+ */
+public class AdaptiveBatchController {
+
+    static final double HIGH_WATER = 0.5;
+    static final double LOW_WATER = 0.1;
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long targetExportNanos;
+
+    private volatile int batchSize;
+    private volatile long delayNanos;
+
+    private double exportNanosAverage = -1;
+    private double arrivalsPerSecond = -1;
+    private long lastNanos = System.nanoTime();
+    private long lastArrivals = 0;
+    private volatile long adjustments = 0;
+
+    /**
+     * @param minBatchSize      smallest batch size
+     * @param maxBatchSize      largest batch size
+     * @param minDelayMillis    shortest schedule delay
+     * @param maxDelayMillis    longest schedule delay
+     * @param targetExportMillis export latency above which batches get smaller
+     * @param initialBatchSize  starting batch size
+     * @param initialDelayMillis starting schedule delay
+     */
+    public AdaptiveBatchController(int minBatchSize, int maxBatchSize, long minDelayMillis, long maxDelayMillis,
+            long targetExportMillis, int initialBatchSize, long initialDelayMillis) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Invalid batch size bounds " + minBatchSize + ".." + maxBatchSize);
+        }
+        if (minDelayMillis < 1 || maxDelayMillis < minDelayMillis) {
+            throw new IllegalArgumentException("Invalid delay bounds " + minDelayMillis + ".." + maxDelayMillis);
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.targetExportNanos = TimeUnit.MILLISECONDS.toNanos(targetExportMillis);
+        this.batchSize = clamp(initialBatchSize, minBatchSize, maxBatchSize);
+        this.delayNanos = clamp(TimeUnit.MILLISECONDS.toNanos(initialDelayMillis), minDelayNanos, maxDelayNanos);
+    }
+
+    /** Defaults around the SDK's BatchSpanProcessor ones: batch 64..2048 from 512, delay 50 ms..5 s from 1 s. */
+    public static AdaptiveBatchController defaults() {
+        return new AdaptiveBatchController(64, 2048, 50, 5000, 250, 512, 1000);
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public long delayNanos() {
+        return delayNanos;
+    }
+
+    public long getAdjustments() {
+        return adjustments;
+    }
+
+    /**
+     * Feeds the result of an export and adjusts the batch size and delay.
+     *
+     * @param exportNanos   how long the export took
+     * @param queueSize     spans waiting after the batch was taken
+     * @param queueCapacity capacity of the queue
+     * @param totalArrivals spans queued since the start, for the arrival rate
+     */
+    void onExport(long exportNanos, int queueSize, int queueCapacity, long totalArrivals) {
+        long now = System.nanoTime();
+        exportNanosAverage = exportNanosAverage < 0 ? exportNanos
+                : exportNanosAverage + EWMA_WEIGHT * (exportNanos - exportNanosAverage);
+        long elapsed = now - lastNanos;
+        if (elapsed > 0) {
+            double rate = (totalArrivals - lastArrivals) * 1e9 / elapsed;
+            arrivalsPerSecond = arrivalsPerSecond < 0 ? rate : arrivalsPerSecond + EWMA_WEIGHT * (rate - arrivalsPerSecond);
+        }
+        lastNanos = now;
+        lastArrivals = totalArrivals;
+
+        int size = batchSize;
+        long delay = delayNanos;
+        double fill = (double) queueSize / queueCapacity;
+        if (fill >= HIGH_WATER) {
+            size = size * 2;
+            delay = delay / 2;
+        } else if (exportNanosAverage > targetExportNanos) {
+            size = size - size / 4;
+        } else if (fill <= LOW_WATER) {
+            delay = delay + delay / 4;
+            size = size - size / 8;
+        }
+        if (arrivalsPerSecond > 0) {
+            long halfQueueNanos = (long) (queueCapacity / 2.0 / arrivalsPerSecond * 1e9);
+            delay = Math.min(delay, halfQueueNanos);
+        }
+        size = clamp(size, minBatchSize, Math.min(maxBatchSize, queueCapacity));
+        delay = clamp(delay, minDelayNanos, maxDelayNanos);
+        if (size != batchSize || delay != delayNanos) {
+            batchSize = size;
+            delayNanos = delay;
+            adjustments++;
+        }
+    }
+
+    double exportNanosAverage() {
+        return exportNanosAverage;
+    }
+
+    double arrivalsPerSecond() {
+        return arrivalsPerSecond;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("batchSize=%d [%d..%d], delay=%d ms [%d..%d], adjustments=%,d", batchSize, minBatchSize,
+                maxBatchSize, TimeUnit.NANOSECONDS.toMillis(delayNanos), TimeUnit.NANOSECONDS.toMillis(minDelayNanos),
+                TimeUnit.NANOSECONDS.toMillis(maxDelayNanos), adjustments);
+    }
+}
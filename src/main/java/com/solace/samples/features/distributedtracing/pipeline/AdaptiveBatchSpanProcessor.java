@@ -0,0 +1,287 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: AdaptiveBatchSpanProcessor
+ */
+
+package com.solace.samples.features.distributedtracing.pipeline;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A batching span processor like the SDK's {@code BatchSpanProcessor}, but with a batch size and schedule delay that
+ * an {@link AdaptiveBatchController} adjusts at runtime, and with self-metrics of the tracing pipeline: queue fill
+ * (current and peak), dropped spans, export latency (average and max), batch sizes and export failures.
+ * <p>
+ * Ended spans go into a bounded queue, a span that doesn't fit is dropped and counted. A single worker thread exports
+ * a batch when it has a full batch or when the delay has passed, whichever comes first, then hands the export time and
+ * queue fill to the controller.
+ */
+public class AdaptiveBatchSpanProcessor implements SpanProcessor {
+
+    private final SpanExporter exporter;
+    private final AdaptiveBatchController controller;
+    private final ArrayBlockingQueue<ReadableSpan> queue;
+    private final int queueCapacity;
+    private final long exportTimeoutNanos;
+    private final boolean exportUnsampledSpans;
+    private final Thread worker;
+    private final Queue<CompletableResultCode> flushRequests = new ConcurrentLinkedQueue<>();
+    private final CompletableResultCode shutdownResult = new CompletableResultCode();
+    private volatile boolean shutdown = false;
+
+    private final LongAdder spansQueued = new LongAdder();
+    private final LongAdder spansDropped = new LongAdder();
+    private volatile long spansExported = 0;
+    private volatile long spansBatched = 0;
+    private volatile long exports = 0;
+    private volatile long exportFailures = 0;
+    private volatile long exportNanosTotal = 0;
+    private volatile long exportNanosMax = 0;
+    private volatile int lastBatchSize = 0;
+    private volatile int maxBatchSize = 0;
+    private volatile int peakQueueSize = 0;
+
+    /**
+     * @param exporter             where batches go
+     * @param controller           chooses batch size and delay
+     * @param queueCapacity        spans that can wait for export, more are dropped
+     * @param exportTimeoutMillis  how long to wait for one export
+     * @param exportUnsampledSpans also export spans that are recorded but not sampled
+     */
+    public AdaptiveBatchSpanProcessor(SpanExporter exporter, AdaptiveBatchController controller, int queueCapacity,
+            long exportTimeoutMillis, boolean exportUnsampledSpans) {
+        if (queueCapacity < controller.batchSize()) {
+            throw new IllegalArgumentException("queueCapacity " + queueCapacity + " is smaller than the batch size");
+        }
+        this.exporter = exporter;
+        this.controller = controller;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.exportTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(exportTimeoutMillis);
+        this.exportUnsampledSpans = exportUnsampledSpans;
+        this.worker = new Thread(this::run, "adaptive-batch-span-processor");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (shutdown || (!exportUnsampledSpans && !span.getSpanContext().isSampled())) {
+            return;
+        }
+        if (!queue.offer(span)) {
+            spansDropped.increment();
+            return;
+        }
+        spansQueued.increment();
+        int size = queue.size();
+        if (size > peakQueueSize) {
+            peakQueueSize = size;  // racy, but only ever an underestimate
+        }
+        if (size >= controller.batchSize()) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        if (shutdown) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        flushRequests.add(result);
+        LockSupport.unpark(worker);
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            LockSupport.unpark(worker);
+        }
+        return shutdownResult;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getPeakQueueSize() {
+        return peakQueueSize;
+    }
+
+    public long getSpansDropped() {
+        return spansDropped.sum();
+    }
+
+    public long getSpansExported() {
+        return spansExported;
+    }
+
+    public long getExports() {
+        return exports;
+    }
+
+    public long getExportFailures() {
+        return exportFailures;
+    }
+
+    public double getAverageExportMillis() {
+        long n = exports;
+        return n == 0 ? 0 : exportNanosTotal / 1e6 / n;
+    }
+
+    public double getMaxExportMillis() {
+        return exportNanosMax / 1e6;
+    }
+
+    public double getAverageBatchSize() {
+        long n = exports;
+        return n == 0 ? 0 : (double) spansBatched / n;
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public AdaptiveBatchController getController() {
+        return controller;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue=%d/%d (peak %d), exported=%,d, dropped=%,d, exports=%,d (failed %,d), "
+                        + "batch avg=%.1f last=%d max=%d, export avg=%.2f ms max=%.2f ms, %s",
+                queue.size(), queueCapacity, peakQueueSize, spansExported, spansDropped.sum(), exports, exportFailures,
+                getAverageBatchSize(), lastBatchSize, maxBatchSize, getAverageExportMillis(), getMaxExportMillis(),
+                controller);
+    }
+
+    private void run() {
+        List<ReadableSpan> drained = new ArrayList<>(controller.batchSize());
+        List<SpanData> batch = new ArrayList<>(controller.batchSize());
+        List<CompletableResultCode> flushes = new ArrayList<>();
+        long deadline = System.nanoTime() + controller.delayNanos();
+        while (true) {
+            // flushes requested before this point cover all spans queued so far
+            for (CompletableResultCode flush; (flush = flushRequests.poll()) != null; ) {
+                flushes.add(flush);
+            }
+            boolean draining = shutdown || !flushes.isEmpty();
+            int batchSize = controller.batchSize();
+            if (drained.size() < batchSize) {
+                queue.drainTo(drained, batchSize - drained.size());
+            }
+            long now = System.nanoTime();
+            if (drained.size() >= batchSize || now - deadline >= 0 || draining) {
+                if (!drained.isEmpty()) {
+                    export(drained, batch);
+                }
+                deadline = System.nanoTime() + controller.delayNanos();
+                if (draining && queue.isEmpty()) {
+                    flushes.forEach(CompletableResultCode::succeed);
+                    flushes.clear();
+                    if (shutdown) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            LockSupport.parkNanos(this, deadline - now);
+        }
+        CompletableResultCode flushed = exporter.flush();
+        flushed.whenComplete(() -> exporter.shutdown().whenComplete(shutdownResult::succeed));
+        // anything requested while shutting down
+        for (CompletableResultCode flush; (flush = flushRequests.poll()) != null; ) {
+            flush.succeed();
+        }
+    }
+
+    private void export(List<ReadableSpan> drained, List<SpanData> batch) {
+        for (ReadableSpan span : drained) {
+            batch.add(span.toSpanData());
+        }
+        drained.clear();
+        int size = batch.size();
+        long start = System.nanoTime();
+        try {
+            CompletableResultCode result = exporter.export(Collections.unmodifiableList(batch));
+            result.join(exportTimeoutNanos, TimeUnit.NANOSECONDS);
+            if (result.isSuccess()) {
+                spansExported += size;
+            } else {
+                exportFailures++;
+            }
+        } catch (RuntimeException e) {
+            exportFailures++;
+            System.out.println("### Span export failed: " + e);
+        } finally {
+            batch.clear();
+        }
+        long nanos = System.nanoTime() - start;
+        exports++;
+        spansBatched += size;
+        exportNanosTotal += nanos;
+        exportNanosMax = Math.max(exportNanosMax, nanos);
+        lastBatchSize = size;
+        maxBatchSize = Math.max(maxBatchSize, size);
+        controller.onExport(nanos, queue.size(), queueCapacity, spansQueued.sum());
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: CommitEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A local transaction committed, the duration being the time spent in {@code commit()}.
+ */
+@Name("com.solace.jms.Commit")
+@Label("JMS Commit")
+@Description("A local transaction committed, the duration being the time spent in commit()")
+@Category({"Solace", "JMS"})
+@StackTrace(false)
+@Threshold("1 ms")
+final class CommitEvent extends Event {
+
+    @Label("Messages")
+    @Description("Messages sent and received in the transaction, as counted by the application")
+    int messages;
+
+    @Label("Rolled Back")
+    @Description("The commit failed and the transaction was rolled back")
+    boolean rolledBack;
+}
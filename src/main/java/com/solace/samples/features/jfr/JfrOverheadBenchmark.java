@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: JfrOverheadBenchmark
+ */
+
+package com.solace.samples.features.jfr;
+
+import com.solace.samples.features.loopback.LoopbackBroker;
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Measures what the {@link JmsEvents} instrumentation costs per message, sending and receiving through the in-JVM
+ * loopback broker, so that the messaging itself is as cheap as it gets and the overhead shows. Runs offline, no
+ * broker needed.
+ * <ul>
+ *   <li>{@code plain} - {@code producer.send()} and a bare listener</li>
+ *   <li>{@code no recording} - through {@code JmsEvents}, with no flight recording running</li>
+ *   <li>{@code disabled} - a recording running, the messaging events disabled in it</li>
+ *   <li>{@code thresholds} - the events enabled with their default thresholds, so hardly any is written</li>
+ *   <li>{@code every message} - thresholds of 0 as in {@code solace-jms.jfc}, one publish and one receive event per
+ *       message</li>
+ * </ul>
+ * Each mode runs {@code -rounds} times (default 5) and the best round is reported, along with the events written to
+ * the recording. Options: {@code -messages N} (per round, default 1,000,000), {@code -size BYTES} (default 100).
+ */
+public class JfrOverheadBenchmark {
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(PublishEvent.class, ReceiveEvent.class,
+            AckEvent.class, CommitEvent.class, ReconnectEvent.class, SlowListenerEvent.class);
+
+    private enum Mode {
+        PLAIN("plain"), NO_RECORDING("no recording"), DISABLED("disabled"), THRESHOLDS("thresholds"),
+        EVERY_MESSAGE("every message");
+
+        final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        int messages = 1_000_000;
+        int size = 100;
+        int rounds = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-messages" -> messages = Integer.parseInt(args[i + 1]);
+                case "-size" -> size = Integer.parseInt(args[i + 1]);
+                case "-rounds" -> rounds = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.out.printf("Usage: %s [-messages N] [-size BYTES] [-rounds N]%n%n",
+                            JfrOverheadBenchmark.class.getSimpleName());
+                    System.exit(-1);
+                }
+            }
+        }
+        System.out.printf("%,d messages of %d bytes per round, best of %d rounds, loopback broker%n%n", messages, size,
+                rounds);
+        System.out.println(String.format("%-16s %10s %14s %12s", "mode", "ns/msg", "msgs/s", "events"));
+        Connection connection = new LoopbackConnectionFactory(new LoopbackBroker()).createConnection();
+        try {
+            connection.start();
+            // the first pass warms up every path
+            for (int pass = 0; pass < 2; pass++) {
+                for (Mode mode : Mode.values()) {
+                    Result best = null;
+                    for (int round = 0; round < (pass == 0 ? 1 : rounds); round++) {
+                        Result result = run(connection, mode, pass == 0 ? messages / 10 : messages, size);
+                        if (best == null || result.nanosPerMessage < best.nanosPerMessage) {
+                            best = result;
+                        }
+                    }
+                    if (pass == 1) {
+                        System.out.println(String.format("%-16s %10.1f %,14.0f %,12d", mode.label,
+                                best.nanosPerMessage, 1e9 / best.nanosPerMessage, best.events));
+                    }
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static final class Result {
+        final double nanosPerMessage;
+        final long events;
+
+        Result(double nanosPerMessage, long events) {
+            this.nanosPerMessage = nanosPerMessage;
+            this.events = events;
+        }
+    }
+
+    private static Result run(Connection connection, Mode mode, int messages, int size) throws Exception {
+        Recording recording = null;
+        if (mode == Mode.DISABLED || mode == Mode.THRESHOLDS || mode == Mode.EVERY_MESSAGE) {
+            recording = new Recording();
+            for (Class<? extends Event> event : EVENTS) {
+                if (mode == Mode.DISABLED) {
+                    recording.disable(event);
+                } else if (mode == Mode.THRESHOLDS || event == SlowListenerEvent.class) {
+                    recording.enable(event);
+                } else {
+                    recording.enable(event).withThreshold(Duration.ZERO);
+                }
+            }
+            recording.start();
+        }
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Topic topic = session.createTopic("solace/samples/jfr/overhead");
+        CountDownLatch received = new CountDownLatch(messages);
+        MessageListener listener = message -> received.countDown();
+        MessageConsumer consumer = session.createConsumer(topic);
+        consumer.setMessageListener(mode == Mode.PLAIN ? listener : JmsEvents.listener(listener));
+        // a session of its own for sending, this thread's, while the consumer's session dispatches on its thread
+        Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = producerSession.createProducer(topic);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        BytesMessage message = producerSession.createBytesMessage();
+        message.writeBytes(new byte[size]);
+
+        long start = System.nanoTime();
+        if (mode == Mode.PLAIN) {
+            for (int i = 0; i < messages; i++) {
+                producer.send(message);
+            }
+        } else {
+            for (int i = 0; i < messages; i++) {
+                JmsEvents.send(producer, message);
+            }
+        }
+        if (!received.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Only " + (messages - received.getCount()) + " messages received");
+        }
+        long elapsed = System.nanoTime() - start;
+        producerSession.close();
+        session.close();
+
+        long events = 0;
+        if (recording != null) {
+            recording.stop();
+            Path file = Files.createTempFile("jfr-overhead", ".jfr");
+            try {
+                recording.dump(file);
+                events = countEvents(file);
+            } finally {
+                recording.close();
+                Files.deleteIfExists(file);
+            }
+        }
+        return new Result((double) elapsed / messages, events);
+    }
+
+    private static long countEvents(Path file) throws Exception {
+        long count = 0;
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                if (recordingFile.readEvent().getEventType().getName().startsWith("com.solace.jms.")) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: JmsEvents
+ */
+
+package com.solace.samples.features.jfr;
+
+import com.solace.samples.features.util.MessagePayloads;
+import com.solacesystems.jms.events.SolConnectionEvent;
+import com.solacesystems.jms.events.SolConnectionEventListener;
+import com.solacesystems.jms.events.SolReconnectedEvent;
+import com.solacesystems.jms.events.SolReconnectingEvent;
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TransactionRolledBackException;
+import javax.jms.Topic;
+
+/**
+ * Java Flight Recorder events for the messaging operations, so that they show on the JFR timeline next to GC
+ * pauses, lock contention and I/O: each method here does the JMS call and records it.
+ * <ul>
+ *   <li>{@code com.solace.jms.Publish} - {@link #send}, threshold 1 ms</li>
+ *   <li>{@code com.solace.jms.Receive} - {@link #receive} and the callbacks of a {@link #listener}, 1 ms</li>
+ *   <li>{@code com.solace.jms.Acknowledge} - {@link #acknowledge}, 1 ms</li>
+ *   <li>{@code com.solace.jms.Commit} - {@link #commit}, 1 ms</li>
+ *   <li>{@code com.solace.jms.Reconnect} - {@link #reconnectListener}, every reconnection</li>
+ *   <li>{@code com.solace.jms.SlowListener} - the callbacks of a {@link #listener} over 10 ms</li>
+ * </ul>
+ * The thresholds are the defaults; a recording overrides them with the {@code solace-jms.jfc} settings, e.g.
+ * {@code -XX:StartFlightRecording:settings=default,settings=solace-jms.jfc}, which records every message.
+ * <p>
+ * Without a recording, or with the events disabled, an event costs a check of a flag and the JIT removes the event
+ * object. When enabled, the destination and size are only looked up for the events over their threshold. A bytes
+ * message being sent is write-only, so its size can't be read: pass it to {@link #send(MessageProducer, Destination,
+ * Message, int)}, otherwise it is recorded as -1.
+ */
+public final class JmsEvents {
+
+    private static final int UNKNOWN_SIZE = Integer.MIN_VALUE;
+
+    private JmsEvents() {}
+
+    /** Sends to the producer's destination with its default delivery mode, priority and time to live. */
+    public static void send(MessageProducer producer, Message message) throws JMSException {
+        PublishEvent event = new PublishEvent();
+        event.begin();
+        producer.send(message);
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, producer.getDestination(), message, producer.getDeliveryMode(), UNKNOWN_SIZE);
+        }
+    }
+
+    /** Sends with the producer's default delivery mode, priority and time to live. */
+    public static void send(MessageProducer producer, Destination destination, Message message) throws JMSException {
+        PublishEvent event = new PublishEvent();
+        event.begin();
+        producer.send(destination, message);
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, destination, message, producer.getDeliveryMode(), UNKNOWN_SIZE);
+        }
+    }
+
+    /**
+     * Sends with the producer's default delivery mode, priority and time to live.
+     *
+     * @param size the payload size for the event, known to the caller of a bytes message
+     */
+    public static void send(MessageProducer producer, Destination destination, Message message, int size)
+            throws JMSException {
+        PublishEvent event = new PublishEvent();
+        event.begin();
+        producer.send(destination, message);
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, destination, message, producer.getDeliveryMode(), size);
+        }
+    }
+
+    public static void send(MessageProducer producer, Destination destination, Message message, int deliveryMode,
+            int priority, long timeToLive) throws JMSException {
+        PublishEvent event = new PublishEvent();
+        event.begin();
+        producer.send(destination, message, deliveryMode, priority, timeToLive);
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, destination, message, deliveryMode, UNKNOWN_SIZE);
+        }
+    }
+
+    private static void commit(PublishEvent event, Destination destination, Message message, int deliveryMode,
+            int size) throws JMSException {
+        event.destination = name(destination);
+        if (size != UNKNOWN_SIZE) {
+            event.size = size;
+        } else {
+            event.size = message instanceof BytesMessage ? -1 : MessagePayloads.size(message);  // write-only until sent
+        }
+        event.persistent = deliveryMode == DeliveryMode.PERSISTENT;
+        event.commit();
+    }
+
+    /** {@code consumer.receive(timeout)}, or {@code receive()} for a timeout of 0. Nothing is recorded on timeout. */
+    public static Message receive(MessageConsumer consumer, long timeout) throws JMSException {
+        ReceiveEvent event = new ReceiveEvent();
+        event.begin();
+        Message message = consumer.receive(timeout);
+        event.end();
+        if (message != null && event.shouldCommit()) {
+            event.destination = name(message.getJMSDestination());
+            event.size = MessagePayloads.size(message);
+            event.redelivered = message.getJMSRedelivered();
+            event.commit();
+        }
+        return message;
+    }
+
+    public static void acknowledge(Message message) throws JMSException {
+        AckEvent event = new AckEvent();
+        event.begin();
+        message.acknowledge();
+        event.end();
+        if (event.shouldCommit()) {
+            event.destination = name(message.getJMSDestination());
+            event.size = MessagePayloads.size(message);
+            event.commit();
+        }
+    }
+
+    /**
+     * Commits the session's transaction.
+     *
+     * @param messages the messages sent and received in the transaction, for the event
+     */
+    public static void commit(Session session, int messages) throws JMSException {
+        CommitEvent event = new CommitEvent();
+        event.begin();
+        try {
+            session.commit();
+        } catch (JMSException e) {
+            event.rolledBack = e instanceof TransactionRolledBackException;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.messages = messages;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Wraps a listener to record its callbacks: a receive event for each, and a slow-listener event for those over
+     * the slow-listener threshold.
+     */
+    public static MessageListener listener(MessageListener listener) {
+        return new RecordingListener(listener);
+    }
+
+    private static final class RecordingListener implements MessageListener {
+        private final MessageListener delegate;
+
+        RecordingListener(MessageListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            ReceiveEvent receive = new ReceiveEvent();
+            SlowListenerEvent slow = new SlowListenerEvent();
+            receive.begin();
+            slow.begin();
+            try {
+                delegate.onMessage(message);
+            } finally {
+                receive.end();
+                slow.end();
+                if (receive.shouldCommit() || slow.shouldCommit()) {
+                    commit(receive, slow, message);
+                }
+            }
+        }
+
+        private void commit(ReceiveEvent receive, SlowListenerEvent slow, Message message) {
+            String destination;
+            int size;
+            boolean redelivered;
+            try {
+                destination = name(message.getJMSDestination());
+                size = MessagePayloads.size(message);
+                redelivered = message.getJMSRedelivered();
+            } catch (JMSException e) {
+                destination = null;
+                size = -1;
+                redelivered = false;
+            }
+            if (receive.shouldCommit()) {
+                receive.destination = destination;
+                receive.size = size;
+                receive.listener = true;
+                receive.redelivered = redelivered;
+                receive.commit();
+            }
+            if (slow.shouldCommit()) {
+                slow.destination = destination;
+                slow.size = size;
+                slow.listenerClass = delegate.getClass();
+                slow.commit();
+            }
+        }
+    }
+
+    /**
+     * A Solace connection event listener recording each reconnection, to add with
+     * {@code ((SolConnection) connection).addConnectionEventListener()}. Wrap the connection's exception listener
+     * with {@link ReconnectListener#exceptionListener} too, so that a reconnection that fails is recorded as well.
+     */
+    public static ReconnectListener reconnectListener(Connection connection) {
+        return new ReconnectListener(connection);
+    }
+
+    /** Records a reconnect event from the first reconnection attempt until reconnected, or given up. */
+    public static final class ReconnectListener implements SolConnectionEventListener {
+        private final Connection connection;
+        private ReconnectEvent reconnecting;
+
+        ReconnectListener(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized void onEvent(SolConnectionEvent event) {
+            if (event instanceof SolReconnectingEvent && reconnecting == null) {
+                reconnecting = new ReconnectEvent();
+                reconnecting.begin();
+            } else if (event instanceof SolReconnectedEvent) {
+                commit(true);
+            }
+        }
+
+        /**
+         * @param delegate the application's exception listener
+         * @return an exception listener ending the reconnect event as failed, the connection being lost for good
+         */
+        public ExceptionListener exceptionListener(ExceptionListener delegate) {
+            return exception -> {
+                commit(false);
+                delegate.onException(exception);
+            };
+        }
+
+        private synchronized void commit(boolean reconnected) {
+            if (reconnecting == null) {
+                return;
+            }
+            reconnecting.end();
+            try {
+                reconnecting.clientId = connection.getClientID();
+            } catch (JMSException e) {
+                // leave it out
+            }
+            reconnecting.reconnected = reconnected;
+            reconnecting.commit();
+            reconnecting = null;  // the next reconnection starts an event of its own
+        }
+    }
+
+    static String name(Destination destination) throws JMSException {
+        if (destination instanceof Topic) {
+            return ((Topic) destination).getTopicName();
+        }
+        if (destination instanceof Queue) {
+            return ((Queue) destination).getQueueName();
+        }
+        return destination == null ? null : destination.toString();
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: MessageEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fields common to the messaging events: the destination and payload size of the message. Events are only
+ * recorded when they last longer than their threshold, so that a recording of a busy application holds the slow
+ * operations rather than every message; a threshold of 0 in the recording settings records them all.
+ */
+@Category({"Solace", "JMS"})
+@StackTrace(false)
+abstract class MessageEvent extends Event {
+
+    @Label("Destination")
+    @Description("Topic or queue name")
+    String destination;
+
+    @Label("Size")
+    @Description("Payload size, characters for a text message, -1 for a bytes message sent without its size")
+    @DataAmount
+    int size;
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PublishEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A message sent, the duration being the time spent in {@code send()}: the broker acknowledgement for a
+ * synchronous Guaranteed send, the copy into the socket buffer (or the wait for room in it) for a Direct one.
+ */
+@Name("com.solace.jms.Publish")
+@Label("JMS Publish")
+@Description("A message sent, the duration being the time spent in send()")
+@Threshold("1 ms")
+final class PublishEvent extends MessageEvent {
+
+    @Label("Persistent")
+    boolean persistent;
+}
@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: ReceiveEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A message received: the duration is the time blocked in {@code receive()}, or spent in {@code onMessage()} for a
+ * message delivered to a {@code MessageListener}.
+ */
+@Name("com.solace.jms.Receive")
+@Label("JMS Receive")
+@Description("A message received: the time blocked in receive(), or spent in onMessage() for a listener")
+@Threshold("1 ms")
+final class ReceiveEvent extends MessageEvent {
+
+    @Label("Listener")
+    @Description("Delivered to a MessageListener rather than returned by receive()")
+    boolean listener;
+
+    @Label("Redelivered")
+    boolean redelivered;
+}
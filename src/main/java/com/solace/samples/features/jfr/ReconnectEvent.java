@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: ReconnectEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A connection reconnecting, from the first reconnection attempt until it is reconnected. Publishing blocks and no
+ * message is delivered meanwhile.
+ */
+@Name("com.solace.jms.Reconnect")
+@Label("JMS Reconnect")
+@Description("A connection reconnecting, from the first attempt until reconnected")
+@Category({"Solace", "JMS"})
+@StackTrace(false)
+@Threshold("0 ms")
+final class ReconnectEvent extends Event {
+
+    @Label("Client ID")
+    String clientId;
+
+    @Label("Reconnected")
+    @Description("False when the connection gave up, or was closed while reconnecting")
+    boolean reconnected;
+}
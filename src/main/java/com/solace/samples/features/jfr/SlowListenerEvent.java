@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SlowListenerEvent
+ */
+
+package com.solace.samples.features.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A {@code MessageListener} callback that held the dispatcher thread longer than the threshold. Every other
+ * message of the session waits meanwhile, and a Direct subscriber that keeps doing it gets egress discards.
+ */
+@Name("com.solace.jms.SlowListener")
+@Label("JMS Slow Listener")
+@Description("A MessageListener callback that held the session's dispatcher thread longer than the threshold")
+@Threshold("10 ms")
+final class SlowListenerEvent extends MessageEvent {
+
+    @Label("Listener Class")
+    Class<?> listenerClass;
+}
@@ -0,0 +1,380 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: CachingJndiLookup
+ */
+
+package com.solace.samples.features.jndicache;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.naming.Reference;
+import javax.naming.Referenceable;
+import javax.naming.spi.NamingManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizes JNDI lookups of JMS administered objects (connection factories and destinations) and persists them to a
+ * local snapshot file, so that a restarting process can start without a JNDI round trip.
+ * <p>
+ * A lookup is answered, in order, from:
+ * <ol>
+ *   <li>the in-memory cache, while the entry is younger than the TTL;</li>
+ *   <li>the in-memory cache when the entry is stale: the stale object is returned and a background refresh is
+ *       scheduled;</li>
+ *   <li>the snapshot file: the stored {@link Reference} is turned back into the object locally with
+ *       {@link NamingManager#getObjectInstance}, and a background refresh reconciles it with the server;</li>
+ *   <li>a remote lookup through an {@link InitialContext}, which is only created when first needed.</li>
+ * </ol>
+ * Objects are cached in the snapshot only when they are {@link Referenceable}, as the Solace JMS objects are.
+ * The snapshot file is rewritten atomically whenever a reference changes. Connection factory references can contain
+ * connection properties, so the file is created readable by its owner only, best in a directory of the user's own as
+ * given by {@link #userSnapshotFile(String)}.
+ * <p>
+ * Reading a snapshot deserializes it and instantiates the factory classes its references name, so a snapshot is
+ * only trusted when it is owned by the current user and not writable by anyone else. Deserialization is restricted to
+ * the classes of a {@link Reference} map, and only references to Solace factories are rebuilt.
+ */
+public class CachingJndiLookup implements AutoCloseable {
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+    // a Map<String, Reference> and nothing else
+    private static final ObjectInputFilter SNAPSHOT_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=8;maxrefs=100000;maxbytes=16777216;maxarray=100000;"
+            + "java.util.HashMap;java.util.Map$Entry;java.util.Vector;java.lang.Object;java.lang.String;"
+            + "javax.naming.Reference;javax.naming.RefAddr;javax.naming.StringRefAddr;javax.naming.BinaryRefAddr;"
+            + "com.solacesystems.jms.**;!*");
+    private static final String TRUSTED_FACTORY_PREFIX = "com.solacesystems.jms.";
+
+    private final Hashtable<?, ?> environment;
+    private final long ttlNanos;
+    private final File snapshotFile;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, Reference> snapshot = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean();
+    private InitialContext initialContext;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong snapshotHits = new AtomicLong();
+    private final AtomicLong remoteLookups = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    /**
+     * @param environment the environment used to create the {@link InitialContext}
+     * @param ttlMillis how long a resolved object is served without being refreshed
+     * @param snapshotFile where resolved references are persisted, or {@code null} for memory-only caching
+     */
+    public CachingJndiLookup(Hashtable<?, ?> environment, long ttlMillis, File snapshotFile) {
+        this.environment = environment;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.snapshotFile = snapshotFile;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CachingJndiLookup-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        loadSnapshot();
+    }
+
+    /**
+     * @param name the application name
+     * @return {@code <user.home>/.solace-samples/jndi/<name>.jndi}, a snapshot file other users can't plant or read
+     */
+    public static File userSnapshotFile(String name) {
+        return new File(new File(System.getProperty("user.home"), ".solace-samples" + File.separator + "jndi"),
+                name + ".jndi");
+    }
+
+    /**
+     * Looks up a JNDI name, using the cache and the snapshot when possible.
+     *
+     * @throws NamingException if the name is neither cached nor resolvable through JNDI
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T lookup(String name) throws NamingException {
+        Entry entry = cache.get(name);
+        if (entry != null) {
+            if (System.nanoTime() - entry.resolvedNanos < ttlNanos) {
+                hits.incrementAndGet();
+            } else {
+                staleHits.incrementAndGet();
+                scheduleRefresh(name, entry);
+            }
+            return (T) entry.object;
+        }
+        Reference reference = snapshot.get(name);
+        if (reference != null) {
+            Object object = fromReference(reference);
+            if (object != null) {
+                snapshotHits.incrementAndGet();
+                entry = new Entry(object, reference, System.nanoTime());
+                cache.put(name, entry);
+                scheduleRefresh(name, entry);  // reconcile with the server in the background
+                return (T) object;
+            }
+        }
+        remoteLookups.incrementAndGet();
+        Object object = remoteLookup(name);
+        store(name, object);
+        return (T) object;
+    }
+
+    private synchronized Object remoteLookup(String name) throws NamingException {
+        if (initialContext == null) {
+            initialContext = new InitialContext(environment);
+        }
+        return initialContext.lookup(name);
+    }
+
+    private void store(String name, Object object) {
+        Reference reference = null;
+        if (object instanceof Referenceable) {
+            try {
+                reference = ((Referenceable) object).getReference();
+            } catch (NamingException e) {
+                System.out.println("### Unable to get reference of " + name + ", it will not be persisted: " + e);
+            }
+        }
+        cache.put(name, new Entry(object, reference, System.nanoTime()));
+        if (reference != null && !reference.equals(snapshot.put(name, reference))) {
+            snapshotDirty.set(true);
+            refresher.execute(this::saveSnapshot);
+        }
+    }
+
+    private void scheduleRefresh(String name, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;  // one refresh at a time per entry
+        }
+        refresher.execute(() -> {
+            try {
+                Object object = remoteLookup(name);
+                Entry current = cache.get(name);
+                Reference reference = object instanceof Referenceable ? ((Referenceable) object).getReference() : null;
+                if (current != null && reference != null && Objects.equals(reference, current.reference)) {
+                    // unchanged on the server: keep the instance applications already hold, just renew it
+                    cache.put(name, new Entry(current.object, reference, System.nanoTime()));
+                } else {
+                    store(name, object);
+                }
+            } catch (NamingException | RuntimeException e) {
+                refreshFailures.incrementAndGet();
+                entry.refreshing.set(false);  // keep serving the cached object, retry on a later lookup
+                System.out.println("### Unable to refresh JNDI name " + name + ": " + e);
+            }
+        });
+    }
+
+    private Object fromReference(Reference reference) {
+        String factory = reference.getFactoryClassName();
+        if (factory == null || !factory.startsWith(TRUSTED_FACTORY_PREFIX)
+                || reference.getFactoryClassLocation() != null) {  // never load factory classes from a codebase
+            System.out.println("### Not restoring " + reference.getClassName() + " from snapshot, untrusted factory "
+                    + factory);
+            return null;
+        }
+        try {
+            return NamingManager.getObjectInstance(reference, null, null, environment);
+        } catch (Exception e) {
+            System.out.println("### Unable to restore " + reference.getClassName() + " from snapshot: " + e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadSnapshot() {
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return;
+        }
+        Path path = snapshotFile.toPath();
+        try {
+            String untrusted = untrustedReason(path);
+            if (untrusted != null) {
+                System.out.println("### Ignoring JNDI snapshot " + snapshotFile + ", " + untrusted);
+                return;
+            }
+            try (InputStream file = Files.newInputStream(path, LinkOption.NOFOLLOW_LINKS);
+                 ObjectInputStream in = new ObjectInputStream(file)) {
+                in.setObjectInputFilter(SNAPSHOT_FILTER);
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) in.readObject()).entrySet()) {
+                    snapshot.put((String) entry.getKey(), (Reference) entry.getValue());
+                }
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("### Ignoring unreadable JNDI snapshot " + snapshotFile + ": " + e);
+        }
+    }
+
+    // null when the file is owned by the current user and nobody else can write it or its directory
+    private static String untrustedReason(Path path) throws IOException {
+        if (Files.isSymbolicLink(path)) {
+            return "it is a symbolic link";
+        }
+        UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        if (!owner.equals(user)) {
+            return "it is owned by " + owner.getName() + ", not " + user.getName();
+        }
+        if (Files.getFileAttributeView(path, PosixFileAttributeView.class) != null) {
+            for (Path p : new Path[] {path, path.toAbsolutePath().getParent()}) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(p, LinkOption.NOFOLLOW_LINKS);
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    return p + " is writable by other users";
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Runs on the refresh thread only. */
+    private void saveSnapshot() {
+        if (snapshotFile == null || !snapshotDirty.getAndSet(false)) {
+            return;
+        }
+        Path target = snapshotFile.toPath().toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        try {
+            if (!Files.isDirectory(target.getParent())) {
+                if (posix) {
+                    Files.createDirectories(target.getParent(),
+                            PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+                } else {
+                    Files.createDirectories(target.getParent());
+                }
+            }
+            Files.deleteIfExists(tmp);
+            // owner-only from creation, never readable by others even briefly
+            if (posix) {
+                Files.createFile(tmp, PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE));
+            } else {
+                Files.createFile(tmp);
+                File file = tmp.toFile();
+                file.setReadable(false, false);
+                file.setReadable(true, true);
+                file.setWritable(false, false);
+                file.setWritable(true, true);
+            }
+            try (OutputStream file = Files.newOutputStream(tmp, StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS);
+                 ObjectOutputStream out = new ObjectOutputStream(file)) {
+                out.writeObject(new HashMap<>(snapshot));
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("### Unable to write JNDI snapshot " + snapshotFile + ": " + e);
+        }
+    }
+
+    /** @return true if the name can be answered without a remote lookup */
+    public boolean isCached(String name) {
+        return cache.containsKey(name) || snapshot.containsKey(name);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    public long getSnapshotHits() {
+        return snapshotHits.get();
+    }
+
+    public long getRemoteLookups() {
+        return remoteLookups.get();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    /**
+     * Waits for pending refreshes and snapshot writes, then closes the {@link InitialContext}.
+     */
+    @Override
+    public void close() throws NamingException {
+        refresher.shutdown();
+        try {
+            refresher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (initialContext != null) {
+                initialContext.close();
+                initialContext = null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CachingJndiLookup[entries=%d, hits=%,d, staleHits=%,d, snapshotHits=%,d, remoteLookups=%,d, refreshFailures=%,d]",
+                cache.size(), getHits(), getStaleHits(), getSnapshotHits(), getRemoteLookups(), getRefreshFailures());
+    }
+
+    private static class Entry {
+        final Object object;
+        final Reference reference;
+        final long resolvedNanos;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Object object, Reference reference, long resolvedNanos) {
+            this.object = object;
+            this.reference = reference;
+            this.resolvedNanos = resolvedNanos;
+        }
+    }
+}
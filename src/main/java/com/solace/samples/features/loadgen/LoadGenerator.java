@@ -0,0 +1,500 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoadGenerator
+ */
+
+package com.solace.samples.features.loadgen;
+
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import com.solace.samples.features.tuning.ConnectionSettings;
+import com.solace.samples.features.util.LatencyHistogram;
+import com.solacesystems.jms.SolConnectionFactory;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A load generator for capacity planning, in the spirit of SDKPerf: publishers and subscribers on their own
+ * connections, at a given rate and payload size distribution, over a set of topics, Direct or Guaranteed. After a
+ * warm-up phase, it measures for a fixed duration and reports throughput, latency percentiles, discards and CPU as a
+ * table, CSV or JSON.
+ * <p>
+ * Every payload starts with a 24 byte header, so smaller payloads are sent as 24 bytes: the time the message was
+ * scheduled, the publisher, the topic and a sequence number per publisher and topic.
+ * <ul>
+ *   <li>Latency is measured from the scheduled time, not from the actual send, so a publisher falling behind its rate
+ *       shows in the latency instead of hiding it. Publishers and subscribers run in this JVM, on the same clock.</li>
+ *   <li>Discards are the gaps in the sequence numbers a subscriber receives, whatever dropped the messages.</li>
+ *   <li>CPU is the time used by this process, publishers and subscribers together.</li>
+ * </ul>
+ * Topics are {@code <topicPrefix>/<n>}. With {@code -fanout all} every subscriber subscribes to all of them, so each
+ * message is received once per subscriber; with {@code -fanout partitioned} the topics are shared out between the
+ * subscribers. With {@code -delivery persistent} subscribers use durable topic endpoints, created for the run and
+ * removed after, which needs a client profile allowing endpoint creation.
+ * <p>
+ * With the host {@code loopback} the run uses the in-JVM loopback broker instead, to measure the client side alone;
+ * the {@code loopback.*} system properties add a modelled network (see {@code NetworkModel}).
+ */
+public class LoadGenerator {
+
+    private static final String SAMPLE_NAME = LoadGenerator.class.getSimpleName();
+    static final int HEADER_SIZE = 24;
+
+    /** The parameters of a run, from the command line options. */
+    static final class Options {
+        int publishers = 1;
+        int subscribers = 1;
+        long rate = 1_000;
+        PayloadSizes sizes = PayloadSizes.parse("100");
+        int topics = 1;
+        String fanout = "all";
+        boolean persistent = false;
+        String topicPrefix = "solace/samples/jms/loadgen";
+        int warmupSeconds = 5;
+        int durationSeconds = 30;
+        String format = "table";
+        String out = null;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String value = args[++i];
+                switch (args[i - 1]) {
+                    case "-publishers" -> options.publishers = Integer.parseInt(value);
+                    case "-subscribers" -> options.subscribers = Integer.parseInt(value);
+                    case "-rate" -> options.rate = Long.parseLong(value);
+                    case "-size" -> options.sizes = PayloadSizes.parse(value);
+                    case "-topics" -> options.topics = Integer.parseInt(value);
+                    case "-fanout" -> options.fanout = value;
+                    case "-delivery" -> options.persistent = switch (value) {
+                        case "direct" -> false;
+                        case "persistent" -> true;
+                        default -> throw new IllegalArgumentException("-delivery must be direct or persistent");
+                    };
+                    case "-topicPrefix" -> options.topicPrefix = value;
+                    case "-warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "-duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "-format" -> options.format = value;
+                    case "-out" -> options.out = value;
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+                }
+            }
+            if (options.publishers < 0 || options.subscribers < 0 || options.topics < 1 || options.rate < 0
+                    || options.durationSeconds < 1 || options.warmupSeconds < 0) {
+                throw new IllegalArgumentException("Counts, rate and durations can't be negative, and there must be"
+                        + " at least one topic and one second of measurement");
+            }
+            if (!"all".equals(options.fanout) && !"partitioned".equals(options.fanout)) {
+                throw new IllegalArgumentException("-fanout must be all or partitioned");
+            }
+            if (!List.of("table", "csv", "json").contains(options.format)) {
+                throw new IllegalArgumentException("-format must be table, csv or json");
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d publisher(s) at %s msgs/s each, %d subscriber(s), %s delivery, payload %s bytes,"
+                            + " %d topic(s) fanned out to %s, %ds warm-up, %ds measurement",
+                    publishers, rate == 0 ? "max" : String.format("%,d", rate), subscribers,
+                    persistent ? "persistent" : "direct", sizes, topics, fanout, warmupSeconds, durationSeconds);
+        }
+    }
+
+    /** The measurement phase, in {@code System.nanoTime()}; messages scheduled in it are measured. */
+    static final class Window {
+        volatile long start = Long.MAX_VALUE;
+        volatile long end = Long.MAX_VALUE;
+
+        boolean contains(long time) {
+            return time >= start && time < end;
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3 || args[1].split("@").length != 2) {
+            System.out.printf("Usage: %s <host:port> <client-username@message-vpn> <client-password>"
+                    + " [-publishers N] [-subscribers N] [-rate MSGS_PER_S_PER_PUBLISHER, 0 for max]"
+                    + " [-size SIZE | MIN-MAX | SIZE:WEIGHT,...] [-topics N] [-fanout all|partitioned]"
+                    + " [-delivery direct|persistent] [-topicPrefix PREFIX] [-warmup S] [-duration S]"
+                    + " [-format table|csv|json] [-out FILE] [-profile NAME] [-config FILE] [key=value ...]%n%n",
+                    SAMPLE_NAME);
+            System.exit(-1);
+        }
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
+        Options options = Options.parse(settings.getRemainingArgs());
+        System.out.print(settings.describe());
+        System.out.println(options);
+
+        Window window = new Window();
+        List<Publisher> publishers = new ArrayList<>();
+        List<Subscriber> subscribers = new ArrayList<>();
+        try {
+            // subscribers first, so they see the first message of every publisher
+            for (int i = 0; i < options.subscribers; i++) {
+                subscribers.add(new Subscriber(i, settings, options, window));
+            }
+            for (int i = 0; i < options.publishers; i++) {
+                publishers.add(new Publisher(i, settings, options, window));
+            }
+            for (Publisher publisher : publishers) {
+                publisher.thread.start();
+            }
+
+            long cpuStart = 0;
+            long[] lastCounts = new long[2];
+            long start = System.nanoTime();
+            long warmupEnd = start + options.warmupSeconds * 1_000_000_000L;
+            long measurementEnd = warmupEnd + options.durationSeconds * 1_000_000_000L;
+            if (options.warmupSeconds == 0) {
+                cpuStart = processCpuNanos();
+                window.start = start;
+            }
+            for (long second = 1; ; second++) {
+                LockSupport.parkNanos(start + second * 1_000_000_000L - System.nanoTime());
+                long now = System.nanoTime();
+                if (window.start == Long.MAX_VALUE && now >= warmupEnd) {
+                    cpuStart = processCpuNanos();
+                    window.start = now;
+                }
+                long sent = publishers.stream().mapToLong(p -> p.sent.get()).sum();
+                long received = subscribers.stream().mapToLong(s -> s.received).sum();
+                System.out.printf("%s %s Published msgs/s: %,d, Received msgs/s: %,d%n", SAMPLE_NAME,
+                        window.start == Long.MAX_VALUE ? "warm-up" : "measuring", sent - lastCounts[0],
+                        received - lastCounts[1]);
+                lastCounts[0] = sent;
+                lastCounts[1] = received;
+                if (now >= measurementEnd) {
+                    window.end = now;
+                    break;
+                }
+            }
+            long cpuNanos = processCpuNanos() - cpuStart;
+            double seconds = (window.end - window.start) / 1e9;
+
+            for (Publisher publisher : publishers) {
+                publisher.running = false;
+            }
+            for (Publisher publisher : publishers) {
+                publisher.thread.join();
+            }
+            drain(subscribers);
+
+            long sent = 0;
+            long sentBytes = 0;
+            long sendErrors = 0;
+            for (Publisher publisher : publishers) {
+                sent += publisher.measuredSent;
+                sentBytes += publisher.measuredBytes;
+                sendErrors += publisher.measuredErrors;
+            }
+            long received = 0;
+            long discards = 0;
+            LatencyHistogram latency = new LatencyHistogram();
+            for (Subscriber subscriber : subscribers) {
+                subscriber.close();  // waits for the listener, the histogram can be read after
+                received += subscriber.latency.getCount();
+                discards += subscriber.measuredDiscards;
+                latency.add(subscriber.latency);
+            }
+            report(new LoadReport(options, seconds, sent, sendErrors, sentBytes, received, discards, latency, cpuNanos),
+                    options);
+        } finally {
+            for (Publisher publisher : publishers) {
+                publisher.running = false;
+                publisher.connection.close();
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.close();
+            }
+        }
+    }
+
+    // Waits until the subscribers stop receiving, for at most 10 seconds
+    private static void drain(List<Subscriber> subscribers) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        long last = -1;
+        while (System.nanoTime() < deadline) {
+            long received = subscribers.stream().mapToLong(s -> s.received).sum();
+            if (received == last) {
+                return;
+            }
+            last = received;
+            LockSupport.parkNanos(500_000_000L);
+        }
+        System.out.println("### Subscribers still receiving 10 seconds after the end of the measurement");
+    }
+
+    private static void report(LoadReport report, Options options) throws IOException {
+        String text = switch (options.format) {
+            case "csv" -> report.csvHeader() + System.lineSeparator() + report.toCsv();
+            case "json" -> report.toJson();
+            default -> report.toString();
+        };
+        if (options.out == null) {
+            System.out.println(text);
+            return;
+        }
+        File file = new File(options.out);
+        if ("csv".equals(options.format) && file.length() > 0) {
+            // one row per run, under the header written by the first one
+            text = report.toCsv();
+            try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+                out.println(text);
+            }
+        } else {
+            try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                out.println(text);
+            }
+        }
+        System.out.println(report);
+        System.out.println("Results written to " + file);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static ConnectionFactory connectionFactory(ConnectionSettings settings, Options options, String clientId)
+            throws Exception {
+        ConnectionFactory connectionFactory = settings.createJmsConnectionFactory();
+        // every client of the run has its own name
+        if (connectionFactory instanceof LoopbackConnectionFactory) {
+            ((LoopbackConnectionFactory) connectionFactory).setClientID(clientId);
+        } else {
+            SolConnectionFactory solConnectionFactory = (SolConnectionFactory) connectionFactory;
+            solConnectionFactory.setClientID(clientId);
+            if (options.persistent) {
+                solConnectionFactory.setDynamicDurables(true);
+            }
+        }
+        return connectionFactory;
+    }
+
+    /** A publisher, with its own connection and thread, sending at its rate until stopped. */
+    static final class Publisher implements Runnable {
+        final int id;
+        final Options options;
+        final Window window;
+        final Connection connection;
+        final Session session;
+        final MessageProducer producer;
+        final Topic[] topics;
+        final Thread thread;
+        final AtomicLong sent = new AtomicLong();
+        volatile boolean running = true;
+        // written by the publisher thread, read after it's joined
+        long measuredSent;
+        long measuredBytes;
+        long measuredErrors;
+
+        Publisher(int id, ConnectionSettings settings, Options options, Window window) throws Exception {
+            this.id = id;
+            this.options = options;
+            this.window = window;
+            connection = connectionFactory(settings, options, SAMPLE_NAME + "-pub-" + id).createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            producer = session.createProducer(null);
+            settings.configureProducer(producer);
+            topics = new Topic[options.topics];
+            for (int i = 0; i < topics.length; i++) {
+                topics[i] = session.createTopic(options.topicPrefix + "/" + i);
+            }
+            thread = new Thread(this, SAMPLE_NAME + "-pub-" + id);
+        }
+
+        @Override
+        public void run() {
+            int deliveryMode = options.persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT;
+            Random random = new Random(id);
+            byte[] payload = new byte[Math.max(HEADER_SIZE, options.sizes.getMax())];
+            ByteBuffer header = ByteBuffer.wrap(payload);
+            long[] sequences = new long[topics.length];
+            long interval = options.rate == 0 ? 0 : Math.max(1, 1_000_000_000L / options.rate);
+            long next = System.nanoTime();
+            int topic = 0;
+            try {
+                BytesMessage message = session.createBytesMessage();
+                while (running) {
+                    long scheduled;
+                    if (interval > 0) {
+                        waitUntil(next);
+                        scheduled = next;
+                        next += interval;
+                    } else {
+                        scheduled = System.nanoTime();
+                    }
+                    int size = Math.max(HEADER_SIZE, options.sizes.next(random));
+                    header.putLong(0, scheduled).putInt(8, id).putInt(12, topic).putLong(16, ++sequences[topic]);
+                    boolean measured = window.contains(scheduled);
+                    try {
+                        message.clearBody();
+                        message.writeBytes(payload, 0, size);
+                        producer.send(topics[topic], message, deliveryMode, Message.DEFAULT_PRIORITY,
+                                Message.DEFAULT_TIME_TO_LIVE);
+                        sent.incrementAndGet();
+                        if (measured) {
+                            measuredSent++;
+                            measuredBytes += size;
+                        }
+                    } catch (JMSException e) {
+                        sequences[topic]--;  // not sent, so not a gap for the subscribers
+                        if (measured && measuredErrors++ == 0) {
+                            System.out.printf("### Caught while trying to producer.send(): %s%n", e);
+                        }
+                    }
+                    topic = (topic + 1) % topics.length;
+                }
+            } catch (JMSException e) {
+                System.out.printf("### Publisher %d could not create its message: %s%n", id, e);
+            }
+        }
+
+        private static void waitUntil(long deadline) {
+            for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+                if (remaining > 100_000) {
+                    LockSupport.parkNanos(remaining - 50_000);  // parking overshoots, spin the rest
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    /** A subscriber, with its own connection, recording the latency and gaps of what it receives. */
+    static final class Subscriber implements MessageListener {
+        final int id;
+        final Options options;
+        final Window window;
+        final Connection connection;
+        final Session session;
+        final List<MessageConsumer> consumers = new ArrayList<>();
+        final List<String> durableNames = new ArrayList<>();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final long[] lastSequences;
+        // written by the session's dispatcher thread only
+        volatile long received;
+        long measuredDiscards;
+        private boolean closed;
+
+        Subscriber(int id, ConnectionSettings settings, Options options, Window window) throws Exception {
+            this.id = id;
+            this.options = options;
+            this.window = window;
+            lastSequences = new long[options.publishers * options.topics];
+            connection = connectionFactory(settings, options, SAMPLE_NAME + "-sub-" + id).createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            List<String> subscriptions = new ArrayList<>();
+            if ("all".equals(options.fanout)) {
+                subscriptions.add(options.topicPrefix + "/>");
+            } else {
+                for (int topic = id; topic < options.topics; topic += options.subscribers) {
+                    subscriptions.add(options.topicPrefix + "/" + topic);
+                }
+                if (subscriptions.isEmpty()) {
+                    System.out.printf("### Subscriber %d has no topic, there are fewer topics than subscribers%n", id);
+                }
+            }
+            for (String subscription : subscriptions) {
+                Topic topic = session.createTopic(subscription);
+                MessageConsumer consumer;
+                if (options.persistent) {
+                    String name = SAMPLE_NAME + "-sub-" + id + "-" + consumers.size();
+                    consumer = session.createDurableSubscriber(topic, name);
+                    durableNames.add(name);
+                } else {
+                    consumer = session.createConsumer(topic);
+                }
+                consumer.setMessageListener(this);
+                consumers.add(consumer);
+            }
+            connection.start();
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            long now = System.nanoTime();
+            try {
+                BytesMessage bytes = (BytesMessage) message;
+                long scheduled = bytes.readLong();
+                int publisher = bytes.readInt();
+                int topic = bytes.readInt();
+                long sequence = bytes.readLong();
+                int key = publisher * options.topics + topic;
+                long gap = sequence - lastSequences[key] - 1;
+                if (gap >= 0) {
+                    lastSequences[key] = sequence;
+                }
+                if (window.contains(scheduled)) {
+                    latency.record(now - scheduled);
+                    if (gap > 0) {
+                        measuredDiscards += gap;
+                    }
+                }
+                received++;
+            } catch (JMSException | ClassCastException | ArrayIndexOutOfBoundsException e) {
+                System.out.printf("### Subscriber %d received a message not sent by this run: %s%n", id, e);
+            }
+        }
+
+        synchronized void close() throws JMSException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                for (MessageConsumer consumer : consumers) {
+                    consumer.close();
+                }
+                for (String name : durableNames) {
+                    session.unsubscribe(name);
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoadReport
+ */
+
+package com.solace.samples.features.loadgen;
+
+import com.solace.samples.features.util.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of the measurement phase of a {@link LoadGenerator} run, with the parameters of the run, as a table,
+ * CSV or JSON. The CSV has one row per run under a fixed header, so runs can be appended to the same file.
+ */
+public final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    LoadReport(LoadGenerator.Options options, double seconds, long sent, long sendErrors, long sentBytes,
+               long received, long discards, LatencyHistogram latency, long cpuNanos) {
+        values.put("publishers", options.publishers);
+        values.put("subscribers", options.subscribers);
+        values.put("delivery", options.persistent ? "persistent" : "direct");
+        values.put("topics", options.topics);
+        values.put("fanout", options.fanout);
+        values.put("target_rate_per_publisher", options.rate);
+        values.put("payload_sizes", options.sizes.toString());
+        values.put("duration_s", round(seconds, 3));
+        values.put("sent", sent);
+        values.put("send_errors", sendErrors);
+        values.put("sent_msgs_per_s", round(sent / seconds, 1));
+        values.put("sent_mb_per_s", round(sentBytes / seconds / 1e6, 3));
+        values.put("received", received);
+        values.put("received_msgs_per_s", round(received / seconds, 1));
+        values.put("discards", discards);
+        values.put("latency_mean_us", round(latency.getMean() / 1e3, 1));
+        for (double percentile : PERCENTILES) {
+            values.put("latency_p" + percentileName(percentile) + "_us", round(latency.getPercentile(percentile) / 1e3, 1));
+        }
+        values.put("latency_max_us", round(latency.getMax() / 1e3, 1));
+        values.put("cpu_cores", round(cpuNanos / 1e9 / seconds, 2));
+        long messages = sent + received;
+        values.put("cpu_us_per_msg", round(messages == 0 ? 0 : cpuNanos / 1e3 / messages, 2));
+    }
+
+    public Object get(String name) {
+        return values.get(name);
+    }
+
+    public String csvHeader() {
+        return String.join(",", values.keySet());
+    }
+
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values.values()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            String text = String.valueOf(value);
+            sb.append(text.contains(",") ? '"' + text + '"' : text);
+        }
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("\n  \"").append(entry.getKey()).append("\": ");
+            Object value = entry.getValue();
+            if (value instanceof Number) {
+                sb.append(value);
+            } else {
+                sb.append('"').append(value).append('"');
+            }
+        }
+        return sb.append("\n}").toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        values.forEach((name, value) -> sb.append(String.format("%-28s %s%n", name,
+                value instanceof Double ? String.format("%,.2f", value) : value instanceof Long ? String.format("%,d", value) : value)));
+        return sb.toString();
+    }
+
+    private static String percentileName(double percentile) {
+        String name = percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+        return name.replace(".", "_");
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
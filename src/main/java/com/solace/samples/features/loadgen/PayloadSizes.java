@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PayloadSizes
+ */
+
+package com.solace.samples.features.loadgen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The distribution of payload sizes of a load, from a spec:
+ * <ul>
+ *   <li>{@code 1024}: every payload is 1024 bytes;</li>
+ *   <li>{@code 100-10000}: uniformly distributed between 100 and 10,000 bytes;</li>
+ *   <li>{@code 200:80,4096:15,65536:5}: a mix of sizes with their weights, here 80% 200 bytes, 15% 4 KB and
+ *       5% 64 KB.</li>
+ * </ul>
+ */
+public final class PayloadSizes {
+
+    private final String spec;
+    private final int[] sizes;
+    // uniform between sizes[0] and sizes[1] if null, cumulative weights of the sizes otherwise
+    private final double[] cumulativeWeights;
+
+    private PayloadSizes(String spec, int[] sizes, double[] cumulativeWeights) {
+        this.spec = spec;
+        this.sizes = sizes;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static PayloadSizes parse(String spec) {
+        try {
+            if (spec.contains(":")) {
+                String[] entries = spec.split(",");
+                int[] sizes = new int[entries.length];
+                double[] cumulative = new double[entries.length];
+                double total = 0;
+                for (int i = 0; i < entries.length; i++) {
+                    String[] entry = entries[i].split(":");
+                    sizes[i] = checkSize(Integer.parseInt(entry[0].trim()));
+                    double weight = Double.parseDouble(entry[1].trim());
+                    if (weight <= 0) {
+                        throw new IllegalArgumentException("weights must be positive");
+                    }
+                    total += weight;
+                    cumulative[i] = total;
+                }
+                for (int i = 0; i < cumulative.length; i++) {
+                    cumulative[i] /= total;
+                }
+                return new PayloadSizes(spec, sizes, cumulative);
+            }
+            int dash = spec.indexOf('-');
+            if (dash > 0) {
+                int min = checkSize(Integer.parseInt(spec.substring(0, dash).trim()));
+                int max = checkSize(Integer.parseInt(spec.substring(dash + 1).trim()));
+                if (max < min) {
+                    throw new IllegalArgumentException("the maximum is below the minimum");
+                }
+                return new PayloadSizes(spec, new int[]{min, max}, null);
+            }
+            int size = checkSize(Integer.parseInt(spec.trim()));
+            return new PayloadSizes(spec, new int[]{size}, new double[]{1});
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid payload sizes '" + spec + "', expected SIZE, MIN-MAX or"
+                    + " SIZE:WEIGHT,SIZE:WEIGHT,...: " + e.getMessage(), e);
+        }
+    }
+
+    private static int checkSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("sizes can't be negative");
+        }
+        return size;
+    }
+
+    public int next(Random random) {
+        if (cumulativeWeights == null) {
+            return sizes[0] + random.nextInt(sizes[1] - sizes[0] + 1);
+        }
+        if (sizes.length == 1) {
+            return sizes[0];
+        }
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (r < cumulativeWeights[i]) {
+                return sizes[i];
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    public int getMax() {
+        return Arrays.stream(sizes).max().getAsInt();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: Endpoint
+ */
+
+package com.solace.samples.features.loopback;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Where the loopback broker keeps messages for consumers: a queue, a durable or shared subscription, or the private
+ * subscription of one topic consumer. Messages sit in a lock-free deque; the consumers attached compete for them and
+ * are signalled when one arrives.
+ */
+final class Endpoint {
+
+    private final String name;
+    private final ConcurrentLinkedDeque<LoopbackMessage> messages = new ConcurrentLinkedDeque<>();
+    private final List<LoopbackConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    Endpoint(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void deliver(LoopbackMessage message) {
+        messages.offerLast(message);
+        signal();
+    }
+
+    /** Puts back a message that was delivered but not acknowledged, ahead of the others. */
+    void redeliver(LoopbackMessage message) {
+        message.prepareRedelivery();
+        messages.offerFirst(message);
+        signal();
+    }
+
+    /**
+     * @return the next message that has arrived (see {@link NetworkModel}) and is not expired, null if none
+     */
+    LoopbackMessage poll(long nowNanos) {
+        for (;;) {
+            LoopbackMessage message = messages.pollFirst();
+            if (message == null) {
+                return null;
+            }
+            if (message.visibleAt != 0 && message.visibleAt - nowNanos > 0) {
+                messages.offerFirst(message);  // still on the wire
+                return null;
+            }
+            if (message.isExpired()) {
+                continue;
+            }
+            return message;
+        }
+    }
+
+    /** How long until the first message arrives, 0 if it has arrived or there is none. */
+    long nanosUntilNext(long nowNanos) {
+        LoopbackMessage next = messages.peekFirst();
+        return next == null || next.visibleAt == 0 ? 0 : Math.max(0, next.visibleAt - nowNanos);
+    }
+
+    /** Whether the first message has arrived, so that {@link #poll(long)} would return something. */
+    boolean hasArrived(long nowNanos) {
+        LoopbackMessage next = messages.peekFirst();
+        return next != null && (next.visibleAt == 0 || next.visibleAt - nowNanos <= 0);
+    }
+
+    LoopbackMessage[] snapshot() {
+        return messages.toArray(new LoopbackMessage[0]);
+    }
+
+    int size() {
+        return messages.size();
+    }
+
+    void attach(LoopbackConsumer consumer) {
+        consumers.add(consumer);
+        if (!messages.isEmpty()) {
+            consumer.signal();
+        }
+    }
+
+    void detach(LoopbackConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    boolean hasConsumers() {
+        return !consumers.isEmpty();
+    }
+
+    private void signal() {
+        for (LoopbackConsumer consumer : consumers) {
+            consumer.signal();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Endpoint[" + name + ", " + messages.size() + " messages, " + consumers.size() + " consumers]";
+    }
+}
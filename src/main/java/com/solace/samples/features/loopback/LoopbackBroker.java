@@ -0,0 +1,321 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackBroker
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-memory broker behind {@link LoopbackConnectionFactory}: topic subscriptions with the Solace wildcards
+ * (see {@link TopicMatcher}), queues created on first use, temporary queues, and durable and shared subscriptions.
+ * <p>
+ * Routing a message appends it to the endpoint of each matching subscription, or of the queue; nothing is persisted,
+ * so the delivery mode makes no difference, and priorities and selectors are not supported. Subscriptions without
+ * wildcards are looked up by topic, the ones with wildcards are matched one by one.
+ */
+public class LoopbackBroker {
+
+    private static volatile LoopbackBroker defaultBroker;
+
+    private final NetworkModel network;
+    private final Map<String, List<Subscription>> exactSubscriptions = new ConcurrentHashMap<>();
+    private final List<Subscription> wildcardSubscriptions = new CopyOnWriteArrayList<>();
+    private final Map<String, Endpoint> queues = new ConcurrentHashMap<>();
+    private final Map<String, TemporaryEndpoint> temporaryQueues = new ConcurrentHashMap<>();
+    private final Map<String, NamedSubscription> durableSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, NamedSubscription> sharedSubscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile ScheduledExecutorService completions;
+
+    public LoopbackBroker() {
+        this(NetworkModel.NONE);
+    }
+
+    public LoopbackBroker(NetworkModel network) {
+        this.network = network;
+    }
+
+    /** The broker shared by the connection factories created without one, with the system property network model. */
+    public static LoopbackBroker getDefault() {
+        LoopbackBroker broker = defaultBroker;
+        if (broker == null) {
+            synchronized (LoopbackBroker.class) {
+                broker = defaultBroker;
+                if (broker == null) {
+                    broker = defaultBroker = new LoopbackBroker(NetworkModel.fromSystemProperties());
+                }
+            }
+        }
+        return broker;
+    }
+
+    public NetworkModel getNetwork() {
+        return network;
+    }
+
+    /** The number of messages waiting on a queue, 0 if it doesn't exist. */
+    public int getQueueDepth(String queueName) {
+        Endpoint queue = queues.get(queueName);
+        if (queue == null) {
+            TemporaryEndpoint temporary = temporaryQueues.get(queueName);
+            queue = temporary == null ? null : temporary.endpoint;
+        }
+        return queue == null ? 0 : queue.size();
+    }
+
+    /** A subscription of an endpoint to the topics matching a subscription string. */
+    static final class Subscription {
+        final TopicMatcher matcher;
+        final Endpoint endpoint;
+        final LoopbackConnection owner;
+        final boolean noLocal;
+
+        Subscription(TopicMatcher matcher, Endpoint endpoint, LoopbackConnection owner, boolean noLocal) {
+            this.matcher = matcher;
+            this.endpoint = endpoint;
+            this.owner = owner;
+            this.noLocal = noLocal;
+        }
+    }
+
+    /** A durable or shared subscription, which outlives its consumers. */
+    static final class NamedSubscription {
+        final String topic;
+        final Endpoint endpoint;
+        final Subscription subscription;
+
+        NamedSubscription(String topic, Endpoint endpoint, Subscription subscription) {
+            this.topic = topic;
+            this.endpoint = endpoint;
+            this.subscription = subscription;
+        }
+    }
+
+    private static final class TemporaryEndpoint {
+        final Endpoint endpoint;
+        final LoopbackConnection owner;
+
+        TemporaryEndpoint(Endpoint endpoint, LoopbackConnection owner) {
+            this.endpoint = endpoint;
+            this.owner = owner;
+        }
+    }
+
+    Subscription subscribe(String topic, Endpoint endpoint, LoopbackConnection owner, boolean noLocal) {
+        TopicMatcher matcher = new TopicMatcher(topic);
+        Subscription subscription = new Subscription(matcher, endpoint, owner, noLocal);
+        if (matcher.isExact()) {
+            // add inside compute, so an unsubscribe can't drop the list between the lookup and the add
+            exactSubscriptions.compute(topic, (t, subscriptions) -> {
+                List<Subscription> list = subscriptions != null ? subscriptions : new CopyOnWriteArrayList<>();
+                list.add(subscription);
+                return list;
+            });
+        } else {
+            wildcardSubscriptions.add(subscription);
+        }
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        if (subscription.matcher.isExact()) {
+            exactSubscriptions.computeIfPresent(subscription.matcher.getSubscription(), (topic, subscriptions) -> {
+                subscriptions.remove(subscription);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        } else {
+            wildcardSubscriptions.remove(subscription);
+        }
+    }
+
+    Endpoint queue(LoopbackQueue queue, LoopbackConnection consumer) throws JMSException {
+        if (queue instanceof LoopbackTemporaryQueue) {
+            TemporaryEndpoint temporary = temporaryQueues.get(queue.getQueueName());
+            if (temporary == null) {
+                throw new InvalidDestinationException("Temporary queue " + queue + " was deleted");
+            }
+            if (consumer != null && temporary.owner != consumer) {
+                throw new InvalidDestinationException("Only the connection that created " + queue + " can consume from it");
+            }
+            return temporary.endpoint;
+        }
+        return queues.computeIfAbsent(queue.getQueueName(), Endpoint::new);
+    }
+
+    LoopbackTemporaryQueue createTemporaryQueue(LoopbackConnection owner) {
+        String name = "#P2P/QTMP/loopback/" + ids.incrementAndGet();
+        LoopbackTemporaryQueue queue = new LoopbackTemporaryQueue(name, owner);
+        temporaryQueues.put(name, new TemporaryEndpoint(new Endpoint(name), owner));
+        return queue;
+    }
+
+    LoopbackTemporaryTopic createTemporaryTopic() {
+        return new LoopbackTemporaryTopic("#P2P/TTMP/loopback/" + ids.incrementAndGet());
+    }
+
+    void deleteTemporaryQueue(LoopbackTemporaryQueue queue) throws JMSException {
+        TemporaryEndpoint temporary = temporaryQueues.get(queue.getQueueName());
+        if (temporary != null && temporary.endpoint.hasConsumers()) {
+            throw new IllegalStateException("Temporary queue " + queue + " still has consumers");
+        }
+        temporaryQueues.remove(queue.getQueueName());
+    }
+
+    /**
+     * Gets the durable subscription of that name, creating it if needed. A subscription to another topic is replaced,
+     * as if it was unsubscribed first, unless it has active consumers.
+     */
+    NamedSubscription durableSubscription(String name, String topic, boolean noLocal, LoopbackConnection owner)
+            throws JMSException {
+        synchronized (durableSubscriptions) {
+            NamedSubscription durable = durableSubscriptions.get(name);
+            if (durable != null && !durable.topic.equals(topic)) {
+                if (durable.endpoint.hasConsumers()) {
+                    throw new IllegalStateException("Durable subscription " + name + " is active on " + durable.topic);
+                }
+                unsubscribe(durable.subscription);
+                durable = null;
+            }
+            if (durable == null) {
+                Endpoint endpoint = new Endpoint(name);
+                durable = new NamedSubscription(topic, endpoint, subscribe(topic, endpoint, owner, noLocal));
+                durableSubscriptions.put(name, durable);
+            }
+            return durable;
+        }
+    }
+
+    void removeDurableSubscription(String name) throws JMSException {
+        synchronized (durableSubscriptions) {
+            NamedSubscription durable = durableSubscriptions.get(name);
+            if (durable == null) {
+                throw new InvalidDestinationException("No durable subscription " + name);
+            }
+            if (durable.endpoint.hasConsumers()) {
+                throw new IllegalStateException("Durable subscription " + name + " has active consumers");
+            }
+            durableSubscriptions.remove(name);
+            unsubscribe(durable.subscription);
+        }
+    }
+
+    /** Gets or creates the shared (non-durable) subscription of that name, for one more consumer. */
+    NamedSubscription sharedSubscription(String name, String topic, LoopbackConnection owner) throws JMSException {
+        synchronized (sharedSubscriptions) {
+            NamedSubscription shared = sharedSubscriptions.get(name);
+            if (shared != null && !shared.topic.equals(topic)) {
+                throw new IllegalStateException("Shared subscription " + name + " is active on " + shared.topic);
+            }
+            if (shared == null) {
+                Endpoint endpoint = new Endpoint(name);
+                shared = new NamedSubscription(topic, endpoint, subscribe(topic, endpoint, owner, false));
+                sharedSubscriptions.put(name, shared);
+            }
+            return shared;
+        }
+    }
+
+    /** Removes a shared subscription when its last consumer has gone. */
+    void releaseSharedSubscription(String name) {
+        synchronized (sharedSubscriptions) {
+            NamedSubscription shared = sharedSubscriptions.get(name);
+            if (shared != null && !shared.endpoint.hasConsumers()) {
+                sharedSubscriptions.remove(name);
+                unsubscribe(shared.subscription);
+            }
+        }
+    }
+
+    /** Hands copies of a sent message to every endpoint it is routed to. */
+    void route(LoopbackMessage sent, LoopbackConnection sender) throws JMSException {
+        Destination destination = sent.getJMSDestination();
+        if (destination instanceof LoopbackQueue) {
+            queue((LoopbackQueue) destination, null).deliver(sent.copyForDelivery());
+            return;
+        }
+        LoopbackTopic topic = (LoopbackTopic) destination;
+        List<Subscription> exact = exactSubscriptions.get(topic.getTopicName());
+        if (exact != null) {
+            for (Subscription subscription : exact) {
+                deliver(subscription, sent, sender);
+            }
+        }
+        if (!wildcardSubscriptions.isEmpty()) {
+            String[] levels = topic.levels();
+            for (Subscription subscription : wildcardSubscriptions) {
+                if (subscription.matcher.matches(levels)) {
+                    deliver(subscription, sent, sender);
+                }
+            }
+        }
+    }
+
+    private static void deliver(Subscription subscription, LoopbackMessage sent, LoopbackConnection sender) {
+        if (!(subscription.noLocal && subscription.owner == sender)) {
+            subscription.endpoint.deliver(sent.copyForDelivery());
+        }
+    }
+
+    String nextMessageId() {
+        return "ID:loopback-" + ids.incrementAndGet();
+    }
+
+    /** Runs a send completion callback, at the given {@code System.nanoTime()} or now if 0, in send order. */
+    void complete(Runnable callback, long atNanos) {
+        ScheduledExecutorService executor = completions;
+        if (executor == null) {
+            synchronized (this) {
+                executor = completions;
+                if (executor == null) {
+                    ScheduledThreadPoolExecutor threadPool = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "loopback-completions");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor = completions = threadPool;
+                }
+            }
+        }
+        long delay = atNanos == 0 ? 0 : Math.max(0, atNanos - System.nanoTime());
+        executor.schedule(callback, delay, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoopbackBroker[%s, %d subscriptions, %d queues, %d durable subscriptions]", network,
+                exactSubscriptions.values().stream().mapToInt(List::size).sum() + wildcardSubscriptions.size(),
+                queues.size() + temporaryQueues.size(), durableSubscriptions.size());
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackBytesMessage
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotReadableException;
+import javax.jms.MessageNotWriteableException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@link BytesMessage} over a growable array, big-endian like {@code DataOutputStream}. A reused message keeps its
+ * array across {@code clearBody()}, so publishing from one message doesn't allocate for the body.
+ */
+public class LoopbackBytesMessage extends LoopbackMessage implements BytesMessage {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] body = EMPTY;
+    private int length;
+    private int position;
+    private boolean readOnly;
+    // true when the array is shared with other deliveries and must not be written to
+    private boolean shared;
+
+    @Override
+    LoopbackMessage newInstance() {
+        return new LoopbackBytesMessage();
+    }
+
+    @Override
+    void copyBodyTo(LoopbackMessage copy) {
+        LoopbackBytesMessage bytes = (LoopbackBytesMessage) copy;
+        bytes.body = length == 0 ? EMPTY : Arrays.copyOf(body, length);
+        bytes.length = length;
+        bytes.shared = true;
+    }
+
+    @Override
+    void shareBodyWith(LoopbackMessage delivery) {
+        LoopbackBytesMessage bytes = (LoopbackBytesMessage) delivery;
+        bytes.body = body;
+        bytes.length = length;
+        bytes.shared = true;
+        bytes.readOnly = true;
+    }
+
+    @Override
+    void prepareRedelivery() {
+        super.prepareRedelivery();
+        position = 0;
+    }
+
+    @Override
+    int wireSize() {
+        return super.wireSize() + length;
+    }
+
+    @Override
+    public long getBodyLength() throws JMSException {
+        checkReadable();
+        return length;
+    }
+
+    @Override
+    public boolean readBoolean() throws JMSException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws JMSException {
+        require(1);
+        return body[position++];
+    }
+
+    @Override
+    public int readUnsignedByte() throws JMSException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws JMSException {
+        return (short) readUnsignedShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws JMSException {
+        require(2);
+        int value = (body[position] & 0xff) << 8 | body[position + 1] & 0xff;
+        position += 2;
+        return value;
+    }
+
+    @Override
+    public char readChar() throws JMSException {
+        return (char) readUnsignedShort();
+    }
+
+    @Override
+    public int readInt() throws JMSException {
+        require(4);
+        int value = (body[position] & 0xff) << 24 | (body[position + 1] & 0xff) << 16
+                | (body[position + 2] & 0xff) << 8 | body[position + 3] & 0xff;
+        position += 4;
+        return value;
+    }
+
+    @Override
+    public long readLong() throws JMSException {
+        return (long) readInt() << 32 | readInt() & 0xffffffffL;
+    }
+
+    @Override
+    public float readFloat() throws JMSException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws JMSException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readUTF() throws JMSException {
+        require(2);
+        int utfLength = (body[position] & 0xff) << 8 | body[position + 1] & 0xff;
+        require(2 + utfLength);
+        try {
+            String value = new DataInputStream(new ByteArrayInputStream(body, position, 2 + utfLength)).readUTF();
+            position += 2 + utfLength;
+            return value;
+        } catch (IOException e) {
+            MessageFormatException exception = new MessageFormatException("Invalid UTF string: " + e.getMessage());
+            exception.setLinkedException(e);
+            throw exception;
+        }
+    }
+
+    @Override
+    public int readBytes(byte[] value) throws JMSException {
+        return readBytes(value, value.length);
+    }
+
+    @Override
+    public int readBytes(byte[] value, int count) throws JMSException {
+        checkReadable();
+        if (count < 0 || count > value.length) {
+            throw new IndexOutOfBoundsException("length " + count + " for an array of " + value.length);
+        }
+        if (position == length) {
+            return -1;
+        }
+        int n = Math.min(count, length - position);
+        System.arraycopy(body, position, value, 0, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws JMSException {
+        writeByte((byte) (value ? 1 : 0));
+    }
+
+    @Override
+    public void writeByte(byte value) throws JMSException {
+        ensureWritable(1);
+        body[length++] = value;
+    }
+
+    @Override
+    public void writeShort(short value) throws JMSException {
+        ensureWritable(2);
+        body[length++] = (byte) (value >> 8);
+        body[length++] = (byte) value;
+    }
+
+    @Override
+    public void writeChar(char value) throws JMSException {
+        writeShort((short) value);
+    }
+
+    @Override
+    public void writeInt(int value) throws JMSException {
+        ensureWritable(4);
+        body[length++] = (byte) (value >> 24);
+        body[length++] = (byte) (value >> 16);
+        body[length++] = (byte) (value >> 8);
+        body[length++] = (byte) value;
+    }
+
+    @Override
+    public void writeLong(long value) throws JMSException {
+        writeInt((int) (value >> 32));
+        writeInt((int) value);
+    }
+
+    @Override
+    public void writeFloat(float value) throws JMSException {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    @Override
+    public void writeDouble(double value) throws JMSException {
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    public void writeUTF(String value) throws JMSException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length() + 2);
+        try {
+            new DataOutputStream(out).writeUTF(value);
+        } catch (IOException e) {
+            MessageFormatException exception = new MessageFormatException("Can't encode as UTF: " + e.getMessage());
+            exception.setLinkedException(e);
+            throw exception;
+        }
+        writeBytes(out.toByteArray());
+    }
+
+    @Override
+    public void writeBytes(byte[] value) throws JMSException {
+        writeBytes(value, 0, value.length);
+    }
+
+    @Override
+    public void writeBytes(byte[] value, int offset, int count) throws JMSException {
+        ensureWritable(count);
+        System.arraycopy(value, offset, body, length, count);
+        length += count;
+    }
+
+    @Override
+    public void writeObject(Object value) throws JMSException {
+        if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            writeShort((Short) value);
+        } else if (value instanceof Character) {
+            writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            writeLong((Long) value);
+        } else if (value instanceof Float) {
+            writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            writeDouble((Double) value);
+        } else if (value instanceof String) {
+            writeUTF((String) value);
+        } else if (value instanceof byte[]) {
+            writeBytes((byte[]) value);
+        } else {
+            throw new MessageFormatException("Can't write a " + (value == null ? "null" : value.getClass().getName()));
+        }
+    }
+
+    @Override
+    public void reset() {
+        readOnly = true;
+        position = 0;
+    }
+
+    @Override
+    public void clearBody() {
+        if (shared) {
+            body = EMPTY;
+            shared = false;
+        }
+        length = 0;
+        position = 0;
+        readOnly = false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getBody(Class<T> c) throws JMSException {
+        if (!isBodyAssignableTo(c)) {
+            throw new MessageFormatException("The body of a BytesMessage is a byte[], not a " + c.getName());
+        }
+        return length == 0 ? null : (T) Arrays.copyOf(body, length);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isBodyAssignableTo(Class c) {
+        return length == 0 || c.isAssignableFrom(byte[].class);
+    }
+
+    private void checkReadable() throws JMSException {
+        if (!readOnly) {
+            throw new MessageNotReadableException("The message is in write-only mode, call reset() to read it");
+        }
+    }
+
+    private void require(int count) throws JMSException {
+        checkReadable();
+        if (length - position < count) {
+            throw new MessageEOFException("End of the message body, " + (length - position) + " bytes left");
+        }
+    }
+
+    private void ensureWritable(int count) throws JMSException {
+        if (readOnly) {
+            throw new MessageNotWriteableException("The message body is read-only, call clearBody() to write it");
+        }
+        if (shared) {
+            body = Arrays.copyOf(body, Math.max(length + count, 64));
+            shared = false;
+        } else if (length + count > body.length) {
+            body = Arrays.copyOf(body, Math.max(length + count, Math.max(64, body.length * 2)));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackConnection
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A connection to a {@link LoopbackBroker}. It carries the simulated link of the {@link NetworkModel}: messages sent
+ * by all its sessions go out one after the other at the model's bandwidth.
+ */
+public class LoopbackConnection implements Connection {
+
+    private final LoopbackBroker broker;
+    private final List<LoopbackSession> sessions = new CopyOnWriteArrayList<>();
+    private final List<LoopbackTemporaryQueue> temporaryQueues = new CopyOnWriteArrayList<>();
+    // System.nanoTime() when the link is done sending what it was given
+    private final AtomicLong linkFreeAt = new AtomicLong(System.nanoTime());
+    private String clientId;
+    private boolean clientIdFixed;
+    private ExceptionListener exceptionListener;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    LoopbackConnection(LoopbackBroker broker, String clientId) {
+        this.broker = broker;
+        this.clientId = clientId;
+        this.clientIdFixed = clientId != null;
+    }
+
+    LoopbackBroker getBroker() {
+        return broker;
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Puts a message of that size on the connection's link, waiting while the link's buffer is full.
+     *
+     * @return when the message arrives, in {@code System.nanoTime()}, or 0 without a network model
+     */
+    long transmit(int bytes) {
+        NetworkModel network = broker.getNetwork();
+        if (network.isNone()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long sent = now;
+        long bytesPerSecond = network.getBytesPerSecond();
+        if (bytesPerSecond > 0) {
+            long duration = bytes * 1_000_000_000L / bytesPerSecond;
+            long free;
+            do {
+                free = linkFreeAt.get();
+                sent = (free - now > 0 ? free : now) + duration;
+            } while (!linkFreeAt.compareAndSet(free, sent));
+            // like a full socket buffer: block while more than the buffer is waiting to go out
+            long bufferNanos = network.getBufferBytes() * 1_000_000_000L / bytesPerSecond;
+            for (long backlog = sent - System.nanoTime() - duration; backlog > bufferNanos && !closed;
+                 backlog = sent - System.nanoTime() - duration) {
+                LockSupport.parkNanos(backlog - bufferNanos);
+            }
+        }
+        long arrival = sent + network.getLatencyNanos();
+        return arrival == 0 ? 1 : arrival;
+    }
+
+    LoopbackTemporaryQueue createTemporaryQueue() throws JMSException {
+        checkOpen();
+        LoopbackTemporaryQueue queue = broker.createTemporaryQueue(this);
+        temporaryQueues.add(queue);
+        return queue;
+    }
+
+    void removeSession(LoopbackSession session) {
+        sessions.remove(session);
+    }
+
+    void checkOpen() throws JMSException {
+        if (closed) {
+            throw new IllegalStateException("Connection is closed");
+        }
+    }
+
+    @Override
+    public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        checkOpen();
+        clientIdFixed = true;
+        LoopbackSession session = new LoopbackSession(this, transacted ? Session.SESSION_TRANSACTED : acknowledgeMode);
+        sessions.add(session);
+        return session;
+    }
+
+    @Override
+    public Session createSession(int sessionMode) throws JMSException {
+        return createSession(sessionMode == Session.SESSION_TRANSACTED, sessionMode);
+    }
+
+    @Override
+    public Session createSession() throws JMSException {
+        return createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @Override
+    public String getClientID() {
+        return clientId;
+    }
+
+    @Override
+    public void setClientID(String clientId) throws JMSException {
+        if (clientIdFixed) {
+            throw new IllegalStateException("The client ID can only be set before the connection is used");
+        }
+        this.clientId = clientId;
+        clientIdFixed = true;
+    }
+
+    @Override
+    public ConnectionMetaData getMetaData() {
+        return new ConnectionMetaData() {
+            @Override
+            public String getJMSVersion() {
+                return "2.0";
+            }
+
+            @Override
+            public int getJMSMajorVersion() {
+                return 2;
+            }
+
+            @Override
+            public int getJMSMinorVersion() {
+                return 0;
+            }
+
+            @Override
+            public String getJMSProviderName() {
+                return "Loopback";
+            }
+
+            @Override
+            public String getProviderVersion() {
+                return "1.0";
+            }
+
+            @Override
+            public int getProviderMajorVersion() {
+                return 1;
+            }
+
+            @Override
+            public int getProviderMinorVersion() {
+                return 0;
+            }
+
+            @Override
+            public Enumeration<String> getJMSXPropertyNames() {
+                return Collections.emptyEnumeration();
+            }
+        };
+    }
+
+    @Override
+    public ExceptionListener getExceptionListener() {
+        return exceptionListener;
+    }
+
+    /** Kept for the API, the loopback never fails asynchronously. */
+    @Override
+    public void setExceptionListener(ExceptionListener listener) {
+        this.exceptionListener = listener;
+    }
+
+    @Override
+    public void start() throws JMSException {
+        checkOpen();
+        clientIdFixed = true;
+        started = true;
+        for (LoopbackSession session : sessions) {
+            session.signalAll();
+        }
+    }
+
+    @Override
+    public void stop() throws JMSException {
+        checkOpen();
+        started = false;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (closed) {
+            return;
+        }
+        started = false;
+        for (LoopbackSession session : sessions) {
+            session.close();
+        }
+        for (LoopbackTemporaryQueue queue : temporaryQueues) {
+            broker.deleteTemporaryQueue(queue);
+        }
+        closed = true;
+    }
+
+    @Override
+    public ConnectionConsumer createConnectionConsumer(Destination destination, String messageSelector,
+                                                       ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        throw unsupported();
+    }
+
+    @Override
+    public ConnectionConsumer createSharedConnectionConsumer(Topic topic, String subscriptionName, String messageSelector,
+                                                             ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        throw unsupported();
+    }
+
+    @Override
+    public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName, String messageSelector,
+                                                              ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        throw unsupported();
+    }
+
+    @Override
+    public ConnectionConsumer createSharedDurableConnectionConsumer(Topic topic, String subscriptionName, String messageSelector,
+                                                                    ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        throw unsupported();
+    }
+
+    private static JMSException unsupported() {
+        return new JMSException("Connection consumers are not supported by the loopback broker");
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConnection[clientId=" + clientId + ", " + sessions.size() + " sessions, "
+                + (closed ? "closed" : started ? "started" : "stopped") + "]";
+    }
+}
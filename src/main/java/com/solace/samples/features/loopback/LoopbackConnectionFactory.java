@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackConnectionFactory
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+
+/**
+ * The {@code ConnectionFactory} of a {@link LoopbackBroker}, to run JMS code against a broker in the JVM: benchmarks
+ * of the client-side code without a network in the way, or tests without a broker to start. Without a broker given,
+ * connections go to {@link LoopbackBroker#getDefault()}, so that separate parts of an application meet on it.
+ * <p>
+ * The {@code JMSContext} API is not supported; user names and passwords are accepted and ignored.
+ */
+public class LoopbackConnectionFactory implements ConnectionFactory {
+
+    private final LoopbackBroker broker;
+    private String clientId;
+
+    public LoopbackConnectionFactory() {
+        this(LoopbackBroker.getDefault());
+    }
+
+    public LoopbackConnectionFactory(LoopbackBroker broker) {
+        this.broker = broker;
+    }
+
+    public LoopbackBroker getBroker() {
+        return broker;
+    }
+
+    /** The client ID of the connections created, null to let the application set one. */
+    public void setClientID(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientID() {
+        return clientId;
+    }
+
+    @Override
+    public Connection createConnection() throws JMSException {
+        return new LoopbackConnection(broker, clientId);
+    }
+
+    @Override
+    public Connection createConnection(String userName, String password) throws JMSException {
+        return createConnection();
+    }
+
+    @Override
+    public JMSContext createContext() {
+        throw unsupported();
+    }
+
+    @Override
+    public JMSContext createContext(String userName, String password) {
+        throw unsupported();
+    }
+
+    @Override
+    public JMSContext createContext(String userName, String password, int sessionMode) {
+        throw unsupported();
+    }
+
+    @Override
+    public JMSContext createContext(int sessionMode) {
+        throw unsupported();
+    }
+
+    private static JMSRuntimeException unsupported() {
+        return new JMSRuntimeException("JMSContext is not supported by the loopback broker");
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConnectionFactory[" + broker + "]";
+    }
+}
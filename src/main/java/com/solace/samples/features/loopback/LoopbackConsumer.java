@@ -0,0 +1,246 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackConsumer
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A consumer of a {@link LoopbackSession}, on a queue or a subscription endpoint. Messages are either pulled with
+ * {@code receive()}, which parks the calling thread until one arrives, or pushed to a {@code MessageListener} by the
+ * session's dispatcher.
+ * <p>
+ * A listener that throws a {@code RuntimeException} has the exception printed and the message counts as consumed;
+ * the broker doesn't redeliver it, which would loop for ever on a listener that always fails.
+ */
+public class LoopbackConsumer implements TopicSubscriber {
+
+    private final LoopbackSession session;
+    private final Destination destination;
+    private final Endpoint endpoint;
+    private final boolean noLocal;
+    private LoopbackBroker.Subscription ownSubscription;
+    private String sharedSubscriptionName;
+    private volatile MessageListener listener;
+    private volatile Thread receiver;
+    private volatile boolean closed;
+
+    LoopbackConsumer(LoopbackSession session, Destination destination, Endpoint endpoint, boolean noLocal) {
+        this.session = session;
+        this.destination = destination;
+        this.endpoint = endpoint;
+        this.noLocal = noLocal;
+    }
+
+    /** The consumer has a subscription of its own, removed when it closes. */
+    void ownSubscription(LoopbackBroker.Subscription subscription) {
+        this.ownSubscription = subscription;
+    }
+
+    /** The consumer is one of those of a shared subscription, removed when the last one closes. */
+    void sharedSubscription(String name) {
+        this.sharedSubscriptionName = name;
+    }
+
+    void attach() {
+        endpoint.attach(this);
+    }
+
+    MessageListener getListener() {
+        return listener;
+    }
+
+    /** Takes the next message that has arrived, if any, as delivered to this consumer's session. */
+    LoopbackMessage poll(long nowNanos) {
+        LoopbackMessage message = endpoint.poll(nowNanos);
+        if (message != null) {
+            message.endpoint = endpoint;
+            session.delivered(message);
+        }
+        return message;
+    }
+
+    long nanosUntilNext(long nowNanos) {
+        return endpoint.nanosUntilNext(nowNanos);
+    }
+
+    boolean hasArrived(long nowNanos) {
+        return endpoint.hasArrived(nowNanos);
+    }
+
+    /** Called by the endpoint when a message arrives: wakes whoever is waiting for one. */
+    void signal() {
+        Thread thread = receiver;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } else if (listener != null) {
+            session.signal();
+        }
+    }
+
+    void dispatch(MessageListener listener, LoopbackMessage message) {
+        try {
+            listener.onMessage(message);
+        } catch (RuntimeException e) {
+            System.out.println("### MessageListener threw on " + destination + ": " + e);
+        }
+    }
+
+    @Override
+    public MessageListener getMessageListener() throws JMSException {
+        checkOpen();
+        return listener;
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) throws JMSException {
+        checkOpen();
+        if (listener != null && receiver != null) {
+            throw new IllegalStateException("A thread is blocked in receive() on this consumer");
+        }
+        this.listener = listener;
+        if (listener != null) {
+            session.startDispatcher();
+            session.signal();
+        }
+    }
+
+    @Override
+    public Message receive() throws JMSException {
+        return receive(0);
+    }
+
+    @Override
+    public Message receive(long timeout) throws JMSException {
+        checkOpen();
+        if (listener != null) {
+            throw new IllegalStateException("The consumer has a MessageListener");
+        }
+        long deadline = timeout > 0 ? System.nanoTime() + timeout * 1_000_000L : 0;
+        receiver = Thread.currentThread();
+        try {
+            while (!closed) {
+                long now = System.nanoTime();
+                if (session.getConnection().isStarted()) {
+                    LoopbackMessage message = poll(now);
+                    if (message != null) {
+                        return message;
+                    }
+                }
+                long parkNanos = Long.MAX_VALUE;
+                if (deadline != 0) {
+                    parkNanos = deadline - now;
+                    if (parkNanos <= 0) {
+                        return null;
+                    }
+                }
+                long untilNext = endpoint.nanosUntilNext(now);
+                if (untilNext > 0) {
+                    parkNanos = Math.min(parkNanos, untilNext);
+                }
+                // the receiver is set before the last look, so a message arriving in between unparks this thread
+                if (!(session.getConnection().isStarted() && endpoint.hasArrived(System.nanoTime()))) {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        } finally {
+            receiver = null;
+        }
+    }
+
+    @Override
+    public Message receiveNoWait() throws JMSException {
+        checkOpen();
+        if (listener != null) {
+            throw new IllegalStateException("The consumer has a MessageListener");
+        }
+        return session.getConnection().isStarted() ? poll(System.nanoTime()) : null;
+    }
+
+    @Override
+    public String getMessageSelector() throws JMSException {
+        checkOpen();
+        return null;
+    }
+
+    @Override
+    public Topic getTopic() throws JMSException {
+        checkOpen();
+        if (!(destination instanceof Topic)) {
+            throw new IllegalStateException("Not a topic consumer");
+        }
+        return (Topic) destination;
+    }
+
+    @Override
+    public boolean getNoLocal() throws JMSException {
+        checkOpen();
+        return noLocal;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        listener = null;
+        Thread thread = receiver;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        endpoint.detach(this);
+        if (ownSubscription != null) {
+            session.getBroker().unsubscribe(ownSubscription);
+        }
+        if (sharedSubscriptionName != null) {
+            session.getBroker().releaseSharedSubscription(sharedSubscriptionName);
+        }
+        session.removeConsumer(this);
+    }
+
+    private void checkOpen() throws JMSException {
+        if (closed) {
+            throw new IllegalStateException("Consumer is closed");
+        }
+        session.checkOpen();
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConsumer[" + destination + ", " + endpoint + "]";
+    }
+}
@@ -0,0 +1,467 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackMessage
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message without a body, and the headers and properties of all loopback messages.
+ * <p>
+ * Sending takes a copy of the message, so the application can change or reuse it right after; each consumer then gets
+ * its own message object sharing that copy's body and properties, read-only as JMS requires until cleared.
+ * Properties are converted between types following the JMS conversion table.
+ */
+public class LoopbackMessage implements Message {
+
+    private static final Map<String, Object> NO_PROPERTIES = Collections.emptyMap();
+
+    private String messageId;
+    private long timestamp;
+    private String correlationId;
+    private Destination replyTo;
+    private Destination destination;
+    private int deliveryMode = DeliveryMode.PERSISTENT;
+    private boolean redelivered;
+    private String type;
+    private long expiration;
+    private long deliveryTime;
+    private int priority = DEFAULT_PRIORITY;
+
+    private Map<String, Object> properties = NO_PROPERTIES;
+    private boolean propertiesReadOnly;
+
+    // set on the copies handed to consumers
+    LoopbackSession session;
+    Endpoint endpoint;
+    long visibleAt;
+
+    LoopbackMessage() {
+    }
+
+    /** A new, empty message of the same type, for {@link #copyForSend()} and {@link #copyForDelivery()}. */
+    LoopbackMessage newInstance() {
+        return new LoopbackMessage();
+    }
+
+    /** Copies the body into the message taken at send time. */
+    void copyBodyTo(LoopbackMessage copy) {
+    }
+
+    /** Shares the (sent, immutable) body with the message handed to a consumer, read-only. */
+    void shareBodyWith(LoopbackMessage delivery) {
+    }
+
+    /** Makes a redelivered message readable from the start again. */
+    void prepareRedelivery() {
+        redelivered = true;
+    }
+
+    /** Rough size on the wire, for the {@link NetworkModel}. */
+    int wireSize() {
+        int size = 64;
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            size += property.getKey().length() + 8 + (property.getValue() instanceof String ? ((String) property.getValue()).length() : 0);
+        }
+        return size;
+    }
+
+    final LoopbackMessage copyForSend() {
+        LoopbackMessage copy = newInstance();
+        copyHeadersTo(copy);
+        copy.properties = properties.isEmpty() ? NO_PROPERTIES : new HashMap<>(properties);
+        copyBodyTo(copy);
+        return copy;
+    }
+
+    final LoopbackMessage copyForDelivery() {
+        LoopbackMessage delivery = newInstance();
+        copyHeadersTo(delivery);
+        delivery.properties = properties;
+        delivery.propertiesReadOnly = true;
+        delivery.visibleAt = visibleAt;
+        shareBodyWith(delivery);
+        return delivery;
+    }
+
+    private void copyHeadersTo(LoopbackMessage copy) {
+        copy.messageId = messageId;
+        copy.timestamp = timestamp;
+        copy.correlationId = correlationId;
+        copy.replyTo = replyTo;
+        copy.destination = destination;
+        copy.deliveryMode = deliveryMode;
+        copy.redelivered = redelivered;
+        copy.type = type;
+        copy.expiration = expiration;
+        copy.deliveryTime = deliveryTime;
+        copy.priority = priority;
+    }
+
+    boolean isExpired() {
+        return expiration != 0 && expiration < System.currentTimeMillis();
+    }
+
+    @Override
+    public String getJMSMessageID() {
+        return messageId;
+    }
+
+    @Override
+    public void setJMSMessageID(String id) {
+        messageId = id;
+    }
+
+    @Override
+    public long getJMSTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void setJMSTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public byte[] getJMSCorrelationIDAsBytes() {
+        return correlationId == null ? null : correlationId.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public void setJMSCorrelationIDAsBytes(byte[] correlationId) {
+        this.correlationId = correlationId == null ? null : new String(correlationId, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public void setJMSCorrelationID(String correlationId) {
+        this.correlationId = correlationId;
+    }
+
+    @Override
+    public String getJMSCorrelationID() {
+        return correlationId;
+    }
+
+    @Override
+    public Destination getJMSReplyTo() {
+        return replyTo;
+    }
+
+    @Override
+    public void setJMSReplyTo(Destination replyTo) {
+        this.replyTo = replyTo;
+    }
+
+    @Override
+    public Destination getJMSDestination() {
+        return destination;
+    }
+
+    @Override
+    public void setJMSDestination(Destination destination) {
+        this.destination = destination;
+    }
+
+    @Override
+    public int getJMSDeliveryMode() {
+        return deliveryMode;
+    }
+
+    @Override
+    public void setJMSDeliveryMode(int deliveryMode) {
+        this.deliveryMode = deliveryMode;
+    }
+
+    @Override
+    public boolean getJMSRedelivered() {
+        return redelivered;
+    }
+
+    @Override
+    public void setJMSRedelivered(boolean redelivered) {
+        this.redelivered = redelivered;
+    }
+
+    @Override
+    public String getJMSType() {
+        return type;
+    }
+
+    @Override
+    public void setJMSType(String type) {
+        this.type = type;
+    }
+
+    @Override
+    public long getJMSExpiration() {
+        return expiration;
+    }
+
+    @Override
+    public void setJMSExpiration(long expiration) {
+        this.expiration = expiration;
+    }
+
+    @Override
+    public long getJMSDeliveryTime() {
+        return deliveryTime;
+    }
+
+    @Override
+    public void setJMSDeliveryTime(long deliveryTime) {
+        this.deliveryTime = deliveryTime;
+    }
+
+    @Override
+    public int getJMSPriority() {
+        return priority;
+    }
+
+    @Override
+    public void setJMSPriority(int priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public void clearProperties() {
+        properties = NO_PROPERTIES;
+        propertiesReadOnly = false;
+    }
+
+    @Override
+    public boolean propertyExists(String name) {
+        return properties.containsKey(name);
+    }
+
+    @Override
+    public boolean getBooleanProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null || value instanceof String) {
+            return Boolean.parseBoolean((String) value);
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw cannotConvert(name, value, "boolean");
+    }
+
+    @Override
+    public byte getByteProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null || value instanceof String) {
+            return Byte.parseByte((String) value);
+        }
+        if (value instanceof Byte) {
+            return (Byte) value;
+        }
+        throw cannotConvert(name, value, "byte");
+    }
+
+    @Override
+    public short getShortProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null || value instanceof String) {
+            return Short.parseShort((String) value);
+        }
+        if (value instanceof Byte || value instanceof Short) {
+            return ((Number) value).shortValue();
+        }
+        throw cannotConvert(name, value, "short");
+    }
+
+    @Override
+    public int getIntProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null || value instanceof String) {
+            return Integer.parseInt((String) value);
+        }
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer) {
+            return ((Number) value).intValue();
+        }
+        throw cannotConvert(name, value, "int");
+    }
+
+    @Override
+    public long getLongProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null || value instanceof String) {
+            return Long.parseLong((String) value);
+        }
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        throw cannotConvert(name, value, "long");
+    }
+
+    @Override
+    public float getFloatProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            throw new NullPointerException("No property " + name);
+        }
+        if (value instanceof String) {
+            return Float.parseFloat((String) value);
+        }
+        if (value instanceof Float) {
+            return (Float) value;
+        }
+        throw cannotConvert(name, value, "float");
+    }
+
+    @Override
+    public double getDoubleProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            throw new NullPointerException("No property " + name);
+        }
+        if (value instanceof String) {
+            return Double.parseDouble((String) value);
+        }
+        if (value instanceof Float || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        }
+        throw cannotConvert(name, value, "double");
+    }
+
+    @Override
+    public String getStringProperty(String name) {
+        Object value = properties.get(name);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Object getObjectProperty(String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getPropertyNames() {
+        return Collections.enumeration(properties.keySet());
+    }
+
+    @Override
+    public void setBooleanProperty(String name, boolean value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setByteProperty(String name, byte value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setShortProperty(String name, short value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setIntProperty(String name, int value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setLongProperty(String name, long value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setFloatProperty(String name, float value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setDoubleProperty(String name, double value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setStringProperty(String name, String value) throws JMSException {
+        putProperty(name, value);
+    }
+
+    @Override
+    public void setObjectProperty(String name, Object value) throws JMSException {
+        if (value != null && !(value instanceof Boolean || value instanceof Number || value instanceof String)) {
+            throw new MessageFormatException("Property " + name + " can't be a " + value.getClass().getName());
+        }
+        putProperty(name, value);
+    }
+
+    private void putProperty(String name, Object value) throws JMSException {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Property name can't be empty");
+        }
+        if (propertiesReadOnly) {
+            throw new MessageNotWriteableException("Properties of a received message are read-only until clearProperties()");
+        }
+        if (properties == NO_PROPERTIES) {
+            properties = new HashMap<>();
+        }
+        properties.put(name, value);
+    }
+
+    private static MessageFormatException cannotConvert(String name, Object value, String type) {
+        return new MessageFormatException("Property " + name + " is a " + value.getClass().getSimpleName()
+                + ", which can't be read as a " + type);
+    }
+
+    /** Acknowledges all the messages consumed by the session so far, in {@code CLIENT_ACKNOWLEDGE} mode. */
+    @Override
+    public void acknowledge() throws JMSException {
+        if (session != null) {
+            session.acknowledge();
+        }
+    }
+
+    @Override
+    public void clearBody() throws JMSException {
+    }
+
+    @Override
+    public <T> T getBody(Class<T> c) throws JMSException {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isBodyAssignableTo(Class c) throws JMSException {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[destination=" + destination + ", messageId=" + messageId
+                + ", redelivered=" + redelivered + ", properties=" + properties + "]";
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackProducer
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.CompletionListener;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageProducer;
+
+/**
+ * A producer of a {@link LoopbackSession}. A send sets the JMS headers on the message, as a provider does, then takes
+ * a copy of it, so the application can reuse the message straight away; the copy goes on the connection's link (see
+ * {@link NetworkModel}) and is routed by the broker.
+ * <p>
+ * Asynchronous sends complete on the broker's completion thread, in send order, once the message has arrived plus
+ * the link latency, standing in for the broker's acknowledgement.
+ */
+public class LoopbackProducer implements MessageProducer {
+
+    private final LoopbackSession session;
+    private final Destination destination;
+    private boolean disableMessageId;
+    private boolean disableMessageTimestamp;
+    private int deliveryMode = DeliveryMode.PERSISTENT;
+    private int priority = Message.DEFAULT_PRIORITY;
+    private long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+    private long deliveryDelay = Message.DEFAULT_DELIVERY_DELAY;
+    private volatile boolean closed;
+
+    LoopbackProducer(LoopbackSession session, Destination destination) {
+        this.session = session;
+        this.destination = destination;
+    }
+
+    @Override
+    public void setDisableMessageID(boolean value) throws JMSException {
+        checkOpen();
+        disableMessageId = value;
+    }
+
+    @Override
+    public boolean getDisableMessageID() throws JMSException {
+        checkOpen();
+        return disableMessageId;
+    }
+
+    @Override
+    public void setDisableMessageTimestamp(boolean value) throws JMSException {
+        checkOpen();
+        disableMessageTimestamp = value;
+    }
+
+    @Override
+    public boolean getDisableMessageTimestamp() throws JMSException {
+        checkOpen();
+        return disableMessageTimestamp;
+    }
+
+    @Override
+    public void setDeliveryMode(int deliveryMode) throws JMSException {
+        checkOpen();
+        if (deliveryMode != DeliveryMode.PERSISTENT && deliveryMode != DeliveryMode.NON_PERSISTENT) {
+            throw new JMSException("Invalid delivery mode " + deliveryMode);
+        }
+        this.deliveryMode = deliveryMode;
+    }
+
+    @Override
+    public int getDeliveryMode() throws JMSException {
+        checkOpen();
+        return deliveryMode;
+    }
+
+    @Override
+    public void setPriority(int priority) throws JMSException {
+        checkOpen();
+        if (priority < 0 || priority > 9) {
+            throw new JMSException("Invalid priority " + priority);
+        }
+        this.priority = priority;
+    }
+
+    @Override
+    public int getPriority() throws JMSException {
+        checkOpen();
+        return priority;
+    }
+
+    @Override
+    public void setTimeToLive(long timeToLive) throws JMSException {
+        checkOpen();
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public long getTimeToLive() throws JMSException {
+        checkOpen();
+        return timeToLive;
+    }
+
+    @Override
+    public void setDeliveryDelay(long deliveryDelay) throws JMSException {
+        checkOpen();
+        this.deliveryDelay = deliveryDelay;
+    }
+
+    @Override
+    public long getDeliveryDelay() throws JMSException {
+        checkOpen();
+        return deliveryDelay;
+    }
+
+    @Override
+    public Destination getDestination() throws JMSException {
+        checkOpen();
+        return destination;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        closed = true;
+        session.removeProducer(this);
+    }
+
+    @Override
+    public void send(Message message) throws JMSException {
+        doSend(checkUnidentified(), message, deliveryMode, priority, timeToLive, null);
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        doSend(checkUnidentified(), message, deliveryMode, priority, timeToLive, null);
+    }
+
+    @Override
+    public void send(Destination destination, Message message) throws JMSException {
+        doSend(checkIdentified(destination), message, deliveryMode, priority, timeToLive, null);
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
+            throws JMSException {
+        doSend(checkIdentified(destination), message, deliveryMode, priority, timeToLive, null);
+    }
+
+    @Override
+    public void send(Message message, CompletionListener completionListener) throws JMSException {
+        doSend(checkUnidentified(), message, deliveryMode, priority, timeToLive, checkListener(completionListener));
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive,
+                     CompletionListener completionListener) throws JMSException {
+        doSend(checkUnidentified(), message, deliveryMode, priority, timeToLive, checkListener(completionListener));
+    }
+
+    @Override
+    public void send(Destination destination, Message message, CompletionListener completionListener)
+            throws JMSException {
+        doSend(checkIdentified(destination), message, deliveryMode, priority, timeToLive,
+                checkListener(completionListener));
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+                     CompletionListener completionListener) throws JMSException {
+        doSend(checkIdentified(destination), message, deliveryMode, priority, timeToLive,
+                checkListener(completionListener));
+    }
+
+    private void doSend(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+                        CompletionListener completionListener) throws JMSException {
+        checkOpen();
+        if (!(message instanceof LoopbackMessage)) {
+            throw new MessageFormatException("Not a loopback message: " + (message == null ? null : message.getClass()));
+        }
+        if (!(destination instanceof LoopbackTopic || destination instanceof LoopbackQueue)) {
+            throw new InvalidDestinationException("Not a loopback destination: " + destination);
+        }
+        LoopbackMessage original = (LoopbackMessage) message;
+        long now = System.currentTimeMillis();
+        original.setJMSDestination(destination);
+        original.setJMSDeliveryMode(deliveryMode);
+        original.setJMSPriority(priority);
+        original.setJMSExpiration(timeToLive > 0 ? now + timeToLive : 0);
+        original.setJMSDeliveryTime(now + deliveryDelay);
+        original.setJMSTimestamp(disableMessageTimestamp ? 0 : now);
+        original.setJMSMessageID(disableMessageId ? null : session.getBroker().nextMessageId());
+        original.setJMSRedelivered(false);
+
+        LoopbackMessage sent = original.copyForSend();
+        long arrival = session.getConnection().transmit(sent.wireSize());
+        if (deliveryDelay > 0) {
+            long delayed = System.nanoTime() + deliveryDelay * 1_000_000L;
+            arrival = arrival == 0 ? delayed : Math.max(arrival, delayed);
+        }
+        sent.visibleAt = arrival;
+        session.send(sent);
+
+        if (completionListener != null) {
+            long acknowledged = arrival == 0 ? 0 : arrival + session.getBroker().getNetwork().getLatencyNanos();
+            session.getBroker().complete(() -> completionListener.onCompletion(message), acknowledged);
+        }
+    }
+
+    private Destination checkUnidentified() throws JMSException {
+        if (destination == null) {
+            throw new UnsupportedOperationException("The producer was created without a destination");
+        }
+        return destination;
+    }
+
+    private Destination checkIdentified(Destination destination) throws JMSException {
+        if (this.destination != null) {
+            throw new UnsupportedOperationException("The producer was created with destination " + this.destination);
+        }
+        if (destination == null) {
+            throw new InvalidDestinationException("No destination");
+        }
+        return destination;
+    }
+
+    private static CompletionListener checkListener(CompletionListener completionListener) {
+        if (completionListener == null) {
+            throw new IllegalArgumentException("No CompletionListener");
+        }
+        return completionListener;
+    }
+
+    private void checkOpen() throws JMSException {
+        if (closed) {
+            throw new IllegalStateException("Producer is closed");
+        }
+        session.checkOpen();
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackProducer[" + destination + "]";
+    }
+}
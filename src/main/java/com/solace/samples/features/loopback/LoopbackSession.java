@@ -0,0 +1,558 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackSession
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A session of a {@link LoopbackConnection}.
+ * <p>
+ * As with a real provider, the consumers of a session with a {@code MessageListener} are called from one thread, the
+ * session's dispatcher, started with the first listener. It parks when no message is ready and is unparked by the
+ * endpoints when one arrives.
+ * <p>
+ * {@code CLIENT_ACKNOWLEDGE} and transacted sessions keep the messages they consumed until acknowledged or committed;
+ * {@code recover()}, {@code rollback()} and closing put them back on their endpoints, flagged as redelivered.
+ * Transacted sessions also hold what they send until {@code commit()}. Bytes, text and plain messages are
+ * supported; map, object and stream messages, selectors and the session-level listener are not.
+ */
+public class LoopbackSession implements Session {
+
+    private static final long MAX_PARK_NANOS = 100_000_000L;
+
+    private final LoopbackConnection connection;
+    private final int acknowledgeMode;
+    private final List<LoopbackConsumer> consumers = new CopyOnWriteArrayList<>();
+    private final List<LoopbackProducer> producers = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<LoopbackMessage> unacknowledged = new ConcurrentLinkedQueue<>();
+    private final List<LoopbackMessage> pendingSends = new ArrayList<>();
+    private volatile Thread dispatcher;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    LoopbackSession(LoopbackConnection connection, int acknowledgeMode) throws JMSException {
+        if (acknowledgeMode < Session.SESSION_TRANSACTED || acknowledgeMode > Session.DUPS_OK_ACKNOWLEDGE) {
+            throw new JMSException("Invalid acknowledge mode " + acknowledgeMode);
+        }
+        this.connection = connection;
+        this.acknowledgeMode = acknowledgeMode;
+    }
+
+    LoopbackConnection getConnection() {
+        return connection;
+    }
+
+    LoopbackBroker getBroker() {
+        return connection.getBroker();
+    }
+
+    void checkOpen() throws JMSException {
+        if (closed) {
+            throw new IllegalStateException("Session is closed");
+        }
+    }
+
+    /** Routes a sent message now, or at commit in a transacted session. */
+    void send(LoopbackMessage sent) throws JMSException {
+        if (acknowledgeMode == SESSION_TRANSACTED) {
+            synchronized (pendingSends) {
+                pendingSends.add(sent);
+            }
+        } else {
+            getBroker().route(sent, connection);
+        }
+    }
+
+    /** Records a message handed to one of the session's consumers, until it's acknowledged. */
+    void delivered(LoopbackMessage message) {
+        message.session = this;
+        if (acknowledgeMode == CLIENT_ACKNOWLEDGE || acknowledgeMode == SESSION_TRANSACTED) {
+            unacknowledged.add(message);
+        }
+    }
+
+    void acknowledge() throws JMSException {
+        checkOpen();
+        if (acknowledgeMode == CLIENT_ACKNOWLEDGE) {
+            unacknowledged.clear();
+        }
+    }
+
+    // Puts the unacknowledged messages back on their endpoints, in their original order
+    private void redeliverUnacknowledged() {
+        List<LoopbackMessage> messages = new ArrayList<>();
+        for (LoopbackMessage message = unacknowledged.poll(); message != null; message = unacknowledged.poll()) {
+            messages.add(message);
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            LoopbackMessage message = messages.get(i);
+            message.endpoint.redeliver(message);
+        }
+    }
+
+    void removeConsumer(LoopbackConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    void removeProducer(LoopbackProducer producer) {
+        producers.remove(producer);
+    }
+
+    /** Wakes the dispatcher, if it's waiting for a message. */
+    void signal() {
+        Thread thread = dispatcher;
+        if (thread != null && waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    void signalAll() {
+        signal();
+        for (LoopbackConsumer consumer : consumers) {
+            consumer.signal();
+        }
+    }
+
+    synchronized void startDispatcher() {
+        if (dispatcher == null && !closed) {
+            Thread thread = new Thread(this::dispatch, "loopback-session-" + Integer.toHexString(System.identityHashCode(this)));
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+        }
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            long parkNanos = MAX_PARK_NANOS;
+            boolean delivered = false;
+            if (connection.isStarted()) {
+                long now = System.nanoTime();
+                for (LoopbackConsumer consumer : consumers) {
+                    MessageListener listener = consumer.getListener();
+                    if (listener == null) {
+                        continue;
+                    }
+                    LoopbackMessage message = consumer.poll(now);
+                    if (message != null) {
+                        consumer.dispatch(listener, message);
+                        delivered = true;
+                    } else {
+                        long untilNext = consumer.nanosUntilNext(now);
+                        if (untilNext > 0) {
+                            parkNanos = Math.min(parkNanos, untilNext);
+                        }
+                    }
+                }
+            }
+            if (!delivered) {
+                // announce the wait before the last look, so a message arriving in between unparks this thread
+                waiting = true;
+                if (!hasArrivedMessage()) {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    private boolean hasArrivedMessage() {
+        if (!connection.isStarted()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (LoopbackConsumer consumer : consumers) {
+            if (consumer.getListener() != null && consumer.hasArrived(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BytesMessage createBytesMessage() throws JMSException {
+        checkOpen();
+        return new LoopbackBytesMessage();
+    }
+
+    @Override
+    public MapMessage createMapMessage() throws JMSException {
+        throw unsupported("MapMessage");
+    }
+
+    @Override
+    public Message createMessage() throws JMSException {
+        checkOpen();
+        return new LoopbackMessage();
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage() throws JMSException {
+        throw unsupported("ObjectMessage");
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+        throw unsupported("ObjectMessage");
+    }
+
+    @Override
+    public StreamMessage createStreamMessage() throws JMSException {
+        throw unsupported("StreamMessage");
+    }
+
+    @Override
+    public TextMessage createTextMessage() throws JMSException {
+        checkOpen();
+        return new LoopbackTextMessage();
+    }
+
+    @Override
+    public TextMessage createTextMessage(String text) throws JMSException {
+        TextMessage message = createTextMessage();
+        message.setText(text);
+        return message;
+    }
+
+    @Override
+    public boolean getTransacted() {
+        return acknowledgeMode == SESSION_TRANSACTED;
+    }
+
+    @Override
+    public int getAcknowledgeMode() {
+        return acknowledgeMode;
+    }
+
+    @Override
+    public void commit() throws JMSException {
+        checkOpen();
+        if (acknowledgeMode != SESSION_TRANSACTED) {
+            throw new IllegalStateException("commit() on a session that isn't transacted");
+        }
+        List<LoopbackMessage> sends;
+        synchronized (pendingSends) {
+            sends = new ArrayList<>(pendingSends);
+            pendingSends.clear();
+        }
+        for (LoopbackMessage sent : sends) {
+            getBroker().route(sent, connection);
+        }
+        unacknowledged.clear();
+    }
+
+    @Override
+    public void rollback() throws JMSException {
+        checkOpen();
+        if (acknowledgeMode != SESSION_TRANSACTED) {
+            throw new IllegalStateException("rollback() on a session that isn't transacted");
+        }
+        synchronized (pendingSends) {
+            pendingSends.clear();
+        }
+        redeliverUnacknowledged();
+    }
+
+    @Override
+    public void recover() throws JMSException {
+        checkOpen();
+        if (acknowledgeMode == SESSION_TRANSACTED) {
+            throw new IllegalStateException("recover() on a transacted session, use rollback()");
+        }
+        redeliverUnacknowledged();
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread()) {
+                try {
+                    thread.join();  // a listener in progress finishes first
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        for (LoopbackConsumer consumer : consumers) {
+            consumer.close();
+        }
+        for (LoopbackProducer producer : producers) {
+            producer.close();
+        }
+        synchronized (pendingSends) {
+            pendingSends.clear();
+        }
+        redeliverUnacknowledged();
+        connection.removeSession(this);
+    }
+
+    @Override
+    public MessageListener getMessageListener() {
+        return null;
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) throws JMSException {
+        throw unsupported("A session MessageListener");
+    }
+
+    @Override
+    public void run() {
+        throw new UnsupportedOperationException("Session.run() is not supported by the loopback broker");
+    }
+
+    @Override
+    public MessageProducer createProducer(Destination destination) throws JMSException {
+        checkOpen();
+        LoopbackProducer producer = new LoopbackProducer(this, destination == null ? null : checkDestination(destination));
+        producers.add(producer);
+        return producer;
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination) throws JMSException {
+        return createConsumer(destination, null, false);
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
+        return createConsumer(destination, messageSelector, false);
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal)
+            throws JMSException {
+        checkOpen();
+        checkSelector(messageSelector);
+        Destination checked = checkDestination(destination);
+        LoopbackConsumer consumer;
+        if (checked instanceof LoopbackQueue) {
+            consumer = new LoopbackConsumer(this, checked, getBroker().queue((LoopbackQueue) checked, connection), false);
+        } else {
+            // a subscription of its own, gone with the consumer
+            Endpoint endpoint = new Endpoint("subscription to " + checked);
+            consumer = new LoopbackConsumer(this, checked, endpoint, noLocal);
+            consumer.ownSubscription(getBroker().subscribe(((Topic) checked).getTopicName(), endpoint, connection, noLocal));
+        }
+        return attach(consumer);
+    }
+
+    @Override
+    public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) throws JMSException {
+        return createSharedConsumer(topic, sharedSubscriptionName, null);
+    }
+
+    @Override
+    public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, String messageSelector)
+            throws JMSException {
+        checkOpen();
+        checkSelector(messageSelector);
+        Topic checked = (Topic) checkDestination(topic);
+        LoopbackBroker.NamedSubscription shared = getBroker().sharedSubscription(sharedSubscriptionName,
+                checked.getTopicName(), connection);
+        LoopbackConsumer consumer = new LoopbackConsumer(this, checked, shared.endpoint, false);
+        consumer.sharedSubscription(sharedSubscriptionName);
+        return attach(consumer);
+    }
+
+    @Override
+    public Queue createQueue(String queueName) throws JMSException {
+        checkOpen();
+        return new LoopbackQueue(queueName);
+    }
+
+    @Override
+    public Topic createTopic(String topicName) throws JMSException {
+        checkOpen();
+        return new LoopbackTopic(topicName);
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name) throws JMSException {
+        return createDurableSubscriber(topic, name, null, false);
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name, String messageSelector, boolean noLocal)
+            throws JMSException {
+        return durableConsumer(topic, name, messageSelector, noLocal);
+    }
+
+    @Override
+    public MessageConsumer createDurableConsumer(Topic topic, String name) throws JMSException {
+        return durableConsumer(topic, name, null, false);
+    }
+
+    @Override
+    public MessageConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal)
+            throws JMSException {
+        return durableConsumer(topic, name, messageSelector, noLocal);
+    }
+
+    @Override
+    public MessageConsumer createSharedDurableConsumer(Topic topic, String name) throws JMSException {
+        return durableConsumer(topic, name, null, false);
+    }
+
+    @Override
+    public MessageConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector)
+            throws JMSException {
+        return durableConsumer(topic, name, messageSelector, false);
+    }
+
+    private LoopbackConsumer durableConsumer(Topic topic, String name, String messageSelector, boolean noLocal)
+            throws JMSException {
+        checkOpen();
+        checkSelector(messageSelector);
+        Topic checked = (Topic) checkDestination(topic);
+        LoopbackBroker.NamedSubscription durable = getBroker().durableSubscription(durableName(name),
+                checked.getTopicName(), noLocal, connection);
+        return attach(new LoopbackConsumer(this, checked, durable.endpoint, noLocal));
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue) throws JMSException {
+        return createBrowser(queue, null);
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue, String messageSelector) throws JMSException {
+        checkOpen();
+        checkSelector(messageSelector);
+        LoopbackQueue checked = (LoopbackQueue) checkDestination(queue);
+        Endpoint endpoint = getBroker().queue(checked, null);
+        return new QueueBrowser() {
+            @Override
+            public Queue getQueue() {
+                return checked;
+            }
+
+            @Override
+            public String getMessageSelector() {
+                return null;
+            }
+
+            @Override
+            public Enumeration<Message> getEnumeration() {
+                List<Message> messages = new ArrayList<>();
+                for (LoopbackMessage message : endpoint.snapshot()) {
+                    messages.add(message.copyForDelivery());
+                }
+                return Collections.enumeration(messages);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public TemporaryQueue createTemporaryQueue() throws JMSException {
+        checkOpen();
+        return connection.createTemporaryQueue();
+    }
+
+    @Override
+    public TemporaryTopic createTemporaryTopic() throws JMSException {
+        checkOpen();
+        return getBroker().createTemporaryTopic();
+    }
+
+    @Override
+    public void unsubscribe(String name) throws JMSException {
+        checkOpen();
+        getBroker().removeDurableSubscription(durableName(name));
+    }
+
+    // Durable subscriptions belong to the client ID, as in JMS
+    private String durableName(String name) {
+        String clientId = connection.getClientID();
+        return clientId == null ? name : clientId + "/" + name;
+    }
+
+    private LoopbackConsumer attach(LoopbackConsumer consumer) {
+        consumers.add(consumer);
+        consumer.attach();
+        return consumer;
+    }
+
+    private static Destination checkDestination(Destination destination) throws JMSException {
+        if (destination instanceof LoopbackTopic || destination instanceof LoopbackQueue) {
+            return destination;
+        }
+        throw new InvalidDestinationException("Not a loopback destination: " + destination);
+    }
+
+    private static void checkSelector(String messageSelector) throws JMSException {
+        if (messageSelector != null && !messageSelector.trim().isEmpty()) {
+            throw new InvalidSelectorException("Message selectors are not supported by the loopback broker");
+        }
+    }
+
+    private static JMSException unsupported(String feature) {
+        return new JMSException(feature + " is not supported by the loopback broker");
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackSession[acknowledgeMode=" + acknowledgeMode + ", " + consumers.size() + " consumers, "
+                + unacknowledged.size() + " unacknowledged]" + (closed ? " closed" : "");
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackTextMessage
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.TextMessage;
+
+/** A {@link TextMessage}; the text is immutable, so sending and delivering share it. */
+public class LoopbackTextMessage extends LoopbackMessage implements TextMessage {
+
+    private String text;
+    private boolean readOnly;
+
+    @Override
+    LoopbackMessage newInstance() {
+        return new LoopbackTextMessage();
+    }
+
+    @Override
+    void copyBodyTo(LoopbackMessage copy) {
+        ((LoopbackTextMessage) copy).text = text;
+    }
+
+    @Override
+    void shareBodyWith(LoopbackMessage delivery) {
+        LoopbackTextMessage textMessage = (LoopbackTextMessage) delivery;
+        textMessage.text = text;
+        textMessage.readOnly = true;
+    }
+
+    @Override
+    int wireSize() {
+        return super.wireSize() + (text == null ? 0 : text.length());
+    }
+
+    @Override
+    public void setText(String text) throws JMSException {
+        if (readOnly) {
+            throw new MessageNotWriteableException("The message body is read-only, call clearBody() to write it");
+        }
+        this.text = text;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public void clearBody() {
+        text = null;
+        readOnly = false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getBody(Class<T> c) throws JMSException {
+        if (!isBodyAssignableTo(c)) {
+            throw new MessageFormatException("The body of a TextMessage is a String, not a " + c.getName());
+        }
+        return (T) text;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isBodyAssignableTo(Class c) {
+        return text == null || c.isAssignableFrom(String.class);
+    }
+}
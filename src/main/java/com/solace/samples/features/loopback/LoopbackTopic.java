@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: LoopbackTopic
+ */
+
+package com.solace.samples.features.loopback;
+
+import javax.jms.Topic;
+
+/** A topic of the loopback broker. Its levels are split once, on first publish. */
+public class LoopbackTopic implements Topic {
+
+    private final String name;
+    private String[] levels;
+
+    LoopbackTopic(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getTopicName() {
+        return name;
+    }
+
+    String[] levels() {
+        String[] split = levels;
+        if (split == null) {
+            split = levels = name.split("/", -1);
+        }
+        return split;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LoopbackTopic && name.equals(((LoopbackTopic) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: NetworkModel
+ */
+
+package com.solace.samples.features.loopback;
+
+/**
+ * A simple model of the network between the clients and the loopback broker, to see how latency and bandwidth
+ * shape a workload without a real network.
+ * <p>
+ * Each connection has a link of the given bandwidth: a message takes its size divided by the bandwidth to go out,
+ * after the messages before it, and then the latency to arrive. Consumers don't see it before. Like a socket, the
+ * link buffers {@code bufferBytes}; {@code send()} blocks while more than that is waiting to go out. Send
+ * completions ({@code CompletionListener}) come back one more latency later, as the acknowledgement would.
+ */
+public final class NetworkModel {
+
+    /** No latency, no bandwidth limit: messages are delivered as soon as they are sent. */
+    public static final NetworkModel NONE = new NetworkModel(0, 0, 0);
+
+    private final long latencyNanos;
+    private final long bytesPerSecond;
+    private final long bufferBytes;
+
+    /**
+     * @param latencyMicros  one way latency, from client to broker to client
+     * @param bytesPerSecond bandwidth of each connection, 0 for unlimited
+     * @param bufferBytes    bytes that can wait on a connection's link before {@code send()} blocks
+     */
+    public NetworkModel(long latencyMicros, long bytesPerSecond, long bufferBytes) {
+        if (latencyMicros < 0 || bytesPerSecond < 0 || bufferBytes < 0) {
+            throw new IllegalArgumentException("latency, bandwidth and buffer can't be negative");
+        }
+        this.latencyNanos = latencyMicros * 1_000;
+        this.bytesPerSecond = bytesPerSecond;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * The model given by the {@code loopback.latencyMicros}, {@code loopback.bandwidthMbps} and
+     * {@code loopback.bufferKB} (default 64) system properties, {@link #NONE} if none is set.
+     */
+    public static NetworkModel fromSystemProperties() {
+        long latencyMicros = Long.getLong("loopback.latencyMicros", 0);
+        long bandwidthMbps = Long.getLong("loopback.bandwidthMbps", 0);
+        if (latencyMicros == 0 && bandwidthMbps == 0) {
+            return NONE;
+        }
+        return new NetworkModel(latencyMicros, bandwidthMbps * 1_000_000 / 8, Long.getLong("loopback.bufferKB", 64) * 1024);
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getBufferBytes() {
+        return bufferBytes;
+    }
+
+    boolean isNone() {
+        return latencyNanos == 0 && bytesPerSecond == 0;
+    }
+
+    @Override
+    public String toString() {
+        return isNone() ? "NetworkModel[none]" : String.format("NetworkModel[latency=%dus, bandwidth=%s, buffer=%,dB]",
+                latencyNanos / 1_000, bytesPerSecond == 0 ? "unlimited" : String.format("%,dB/s", bytesPerSecond), bufferBytes);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: TopicMatcher
+ */
+
+package com.solace.samples.features.loopback;
+
+import java.util.Arrays;
+
+/**
+ * A topic subscription with the Solace wildcards, matched against topics level by level:
+ * <ul>
+ *   <li>{@code *} as a whole level matches any one level, and {@code abc*} matches one level starting with
+ *       {@code abc};</li>
+ *   <li>{@code >} as the last level matches one or more levels.</li>
+ * </ul>
+ * A {@code *} or {@code >} anywhere else is an ordinary character.
+ */
+final class TopicMatcher {
+
+    private final String subscription;
+    private final String[] levels;
+    // per level: the prefix before '*', or null for a literal level
+    private final String[] prefixes;
+    private final boolean trailingGreaterThan;
+    private final boolean exact;
+
+    TopicMatcher(String subscription) {
+        this.subscription = subscription;
+        String[] all = subscription.split("/", -1);
+        trailingGreaterThan = all.length > 1 && ">".equals(all[all.length - 1])
+                || all.length == 1 && ">".equals(all[0]);
+        levels = trailingGreaterThan ? Arrays.copyOf(all, all.length - 1) : all;
+        prefixes = new String[levels.length];
+        boolean wildcard = trailingGreaterThan;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i].endsWith("*")) {
+                prefixes[i] = levels[i].substring(0, levels[i].length() - 1);
+                wildcard = true;
+            }
+        }
+        exact = !wildcard;
+    }
+
+    /** True when the subscription has no wildcard, so it only matches the topic of the same name. */
+    boolean isExact() {
+        return exact;
+    }
+
+    String getSubscription() {
+        return subscription;
+    }
+
+    boolean matches(String[] topicLevels) {
+        if (trailingGreaterThan ? topicLevels.length <= levels.length : topicLevels.length != levels.length) {
+            return false;
+        }
+        for (int i = 0; i < levels.length; i++) {
+            String prefix = prefixes[i];
+            if (prefix == null ? !levels[i].equals(topicLevels[i]) : !topicLevels[i].startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return subscription;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: DestinationMetrics
+ */
+
+package com.solace.samples.features.metrics;
+
+import io.opentelemetry.api.common.Attributes;
+
+/**
+ * The message flow metrics of one destination, from {@link MessagingMetrics#forDestination}. It holds the attribute
+ * sets of the destination, built once, so its methods record without allocating.
+ * <p>
+ * Durations are given in nanoseconds, from {@code System.nanoTime()}, and recorded in seconds.
+ */
+public final class DestinationMetrics {
+
+    private final MessagingMetrics metrics;
+    private final String name;
+    private final Attributes attributes;
+    private final Attributes sendAttributes;
+    private final Attributes ackAttributes;
+
+    DestinationMetrics(MessagingMetrics metrics, String name, String kind) {
+        this.metrics = metrics;
+        this.name = name;
+        this.attributes = Attributes.of(MessagingMetrics.SYSTEM, "solace", MessagingMetrics.DESTINATION_NAME, name,
+                MessagingMetrics.DESTINATION_KIND, kind);
+        this.sendAttributes = attributes.toBuilder().put(MessagingMetrics.OPERATION_NAME, "send").build();
+        this.ackAttributes = attributes.toBuilder().put(MessagingMetrics.OPERATION_NAME, "ack").build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a sent message.
+     *
+     * @param bytes     payload size
+     * @param sendNanos time spent in {@code send()}
+     */
+    public void sent(int bytes, long sendNanos) {
+        metrics.sentMessages.add(1, attributes);
+        metrics.sentBytes.add(bytes, attributes);
+        metrics.operationDuration.record(sendNanos / 1e9, sendAttributes);
+    }
+
+    /**
+     * Records the time from a send to the broker's acknowledgement, where it is measured apart from the send, such as
+     * in the {@code CompletionListener} callback of an asynchronous send. A synchronous Guaranteed send returns on the
+     * acknowledgement, so the duration given to {@link #sent} already covers it.
+     */
+    public void acknowledged(long ackNanos) {
+        metrics.operationDuration.record(ackNanos / 1e9, ackAttributes);
+    }
+
+    /** Records a message delivered to the application. */
+    public void received(int bytes) {
+        metrics.consumedMessages.add(1, attributes);
+        metrics.consumedBytes.add(bytes, attributes);
+    }
+
+    @Override
+    public String toString() {
+        return "DestinationMetrics[" + name + "]";
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: MessagingMetrics
+ */
+
+package com.solace.samples.features.metrics;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
+import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.resources.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+/**
+ * Message flow metrics through OpenTelemetry Metrics, next to the traces of the {@code distributedtracing} samples:
+ * <ul>
+ *   <li>{@code messaging.client.sent.messages} and {@code messaging.client.sent.bytes}, per destination</li>
+ *   <li>{@code messaging.client.consumed.messages} and {@code messaging.client.consumed.bytes}, per destination</li>
+ *   <li>{@code messaging.client.operation.duration}, a histogram in seconds of the send ({@code send}) and
+ *       broker acknowledgement ({@code ack}) latencies, per destination</li>
+ *   <li>{@code messaging.client.discards}, the messages that the broker discarded for a consumer, as flagged by the
+ *       discard indication of the next message delivered</li>
+ *   <li>{@code messaging.client.reconnects}, the connection reconnections</li>
+ *   <li>{@code messaging.client.queue.depth}, a gauge of the application's consumer-side queues</li>
+ * </ul>
+ * Recording is meant for the hot path. The attributes of a destination are built once, in its
+ * {@link DestinationMetrics}, and the instruments are looked up by the SDK from that same {@code Attributes}
+ * instance, so recording a message allocates nothing. The attributes are kept to a small, bounded set: the
+ * destination name and kind, and the operation. Temporary destinations share one name, and past
+ * {@code -Dmetrics.maxDestinations} (100 by default) destinations are counted under {@value #OTHER_DESTINATION}.
+ * <p>
+ * {@link #fromSystemProperties(String)} selects the exporter with {@code -Dmetrics.exporter}: {@code none} (the
+ * default, a no-op meter), {@code stdout}, {@code file} (JSON lines to {@code -Dmetrics.file}, see
+ * {@link MetricsLineExporter}), {@code otlp} (gRPC) or {@code otlp-http}. Metrics are exported every
+ * {@code -Dmetrics.interval} seconds, 10 by default.
+ */
+public class MessagingMetrics implements AutoCloseable {
+
+    public static final String INSTRUMENTATION_SCOPE = "com.solace.samples.features.metrics";
+    public static final String OTHER_DESTINATION = "_other";
+    public static final String TEMPORARY_DESTINATION = "_temporary";
+
+    static final AttributeKey<String> SYSTEM = AttributeKey.stringKey("messaging.system");
+    static final AttributeKey<String> DESTINATION_NAME = AttributeKey.stringKey("messaging.destination.name");
+    static final AttributeKey<String> DESTINATION_KIND = AttributeKey.stringKey("messaging.destination.kind");
+    static final AttributeKey<String> OPERATION_NAME = AttributeKey.stringKey("messaging.operation.name");
+    static final AttributeKey<String> QUEUE_NAME = AttributeKey.stringKey("messaging.client.queue.name");
+
+    // 50 us to 10 s, a little over two buckets per decade: enough for both Direct sends and Guaranteed round trips
+    private static final List<Double> DURATION_BUCKETS = Arrays.asList(0.00005, 0.0001, 0.00025, 0.0005, 0.001,
+            0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0);
+
+    private final SdkMeterProvider sdkProvider;
+    private final int maxDestinations;
+    private final Attributes connectionAttributes;
+
+    final LongCounter sentMessages;
+    final LongCounter sentBytes;
+    final LongCounter consumedMessages;
+    final LongCounter consumedBytes;
+    final DoubleHistogram operationDuration;
+    private final LongCounter discards;
+    private final LongCounter reconnects;
+
+    private final Map<String, DestinationMetrics> destinations = new ConcurrentHashMap<>();
+    private final DestinationMetrics otherDestination;
+    private final List<QueueDepth> queueDepths = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param meterProvider   where the instruments come from
+     * @param sdkProvider     the SDK provider to close with this object, or null if the caller owns it
+     * @param maxDestinations destinations with attributes of their own, the others share {@value #OTHER_DESTINATION}
+     */
+    public MessagingMetrics(MeterProvider meterProvider, SdkMeterProvider sdkProvider, int maxDestinations) {
+        this.sdkProvider = sdkProvider;
+        this.maxDestinations = maxDestinations;
+        this.connectionAttributes = Attributes.of(SYSTEM, "solace");
+        Meter meter = meterProvider.get(INSTRUMENTATION_SCOPE);
+        sentMessages = meter.counterBuilder("messaging.client.sent.messages").setUnit("{message}")
+                .setDescription("Messages sent").build();
+        sentBytes = meter.counterBuilder("messaging.client.sent.bytes").setUnit("By")
+                .setDescription("Payload bytes sent").build();
+        consumedMessages = meter.counterBuilder("messaging.client.consumed.messages").setUnit("{message}")
+                .setDescription("Messages delivered to the application").build();
+        consumedBytes = meter.counterBuilder("messaging.client.consumed.bytes").setUnit("By")
+                .setDescription("Payload bytes delivered to the application").build();
+        operationDuration = meter.histogramBuilder("messaging.client.operation.duration").setUnit("s")
+                .setDescription("Duration of sends and of the broker acknowledgements")
+                .setExplicitBucketBoundariesAdvice(DURATION_BUCKETS).build();
+        discards = meter.counterBuilder("messaging.client.discards").setUnit("{indication}")
+                .setDescription("Deliveries flagged with a discard indication: the broker dropped messages before them")
+                .build();
+        reconnects = meter.counterBuilder("messaging.client.reconnects").setUnit("{reconnect}")
+                .setDescription("Connection reconnections").build();
+        meter.gaugeBuilder("messaging.client.queue.depth").ofLongs().setUnit("{message}")
+                .setDescription("Messages waiting in the application's consumer-side queues")
+                .buildWithCallback(measurement -> {
+                    for (QueueDepth queueDepth : queueDepths) {
+                        measurement.record(queueDepth.depth.getAsLong(), queueDepth.attributes);
+                    }
+                });
+        otherDestination = new DestinationMetrics(this, OTHER_DESTINATION, "other");
+    }
+
+    /** A no-op instance, for when metrics are off. */
+    public static MessagingMetrics noop() {
+        return new MessagingMetrics(OpenTelemetry.noop().getMeterProvider(), null, 0);
+    }
+
+    /**
+     * Creates the metrics with the exporter given by the {@code metrics.*} system properties, see the class
+     * documentation. Metrics still pending are exported when the JVM exits.
+     */
+    public static MessagingMetrics fromSystemProperties(String serviceName) {
+        String exporterName = System.getProperty("metrics.exporter", "none");
+        int maxDestinations = Integer.getInteger("metrics.maxDestinations", 100);
+        if ("none".equals(exporterName)) {
+            return noop();
+        }
+        SdkMeterProvider sdkProvider = SdkMeterProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.of(AttributeKey.stringKey("service.name"), serviceName))))
+                .registerMetricReader(PeriodicMetricReader.builder(metricExporter(exporterName))
+                        .setInterval(Duration.ofSeconds(Integer.getInteger("metrics.interval", 10)))
+                        .build())
+                .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(sdkProvider::close));
+        return new MessagingMetrics(sdkProvider, sdkProvider, maxDestinations);
+    }
+
+    static MetricExporter metricExporter(String exporter) {
+        switch (exporter) {
+            case "stdout":
+                return MetricsLineExporter.toStdout();
+            case "file":
+                try {
+                    return MetricsLineExporter.toFile(new File(System.getProperty("metrics.file", "metrics.jsonl")));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            case "otlp":
+                return OtlpGrpcMetricExporter.builder()
+                        .setEndpoint(System.getProperty("metrics.endpoint", "http://localhost:4317")).build();
+            case "otlp-http":
+                return OtlpHttpMetricExporter.builder()
+                        .setEndpoint(System.getProperty("metrics.endpoint", "http://localhost:4318/v1/metrics")).build();
+            default:
+                throw new IllegalArgumentException("Unknown metrics.exporter '" + exporter
+                        + "', expected none, stdout, file, otlp or otlp-http");
+        }
+    }
+
+    /**
+     * The metrics of a destination, with its attributes built once. Look it up once per destination where possible;
+     * the lookup itself is a map read, so calling it per message is fine too.
+     */
+    public DestinationMetrics forDestination(Destination destination) throws JMSException {
+        if (destination instanceof TemporaryQueue || destination instanceof TemporaryTopic) {
+            return forDestination(TEMPORARY_DESTINATION, destination instanceof TemporaryQueue ? "queue" : "topic");
+        }
+        if (destination instanceof Queue) {
+            return forDestination(((Queue) destination).getQueueName(), "queue");
+        }
+        return forDestination(((Topic) destination).getTopicName(), "topic");
+    }
+
+    /** @see #forDestination(Destination) */
+    public DestinationMetrics forDestination(String name, String kind) {
+        DestinationMetrics metrics = destinations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (destinations.size() >= maxDestinations) {
+            return otherDestination;
+        }
+        return destinations.computeIfAbsent(name, n -> new DestinationMetrics(this, n, kind));
+    }
+
+    /** Counts a delivery with the discard indication set. */
+    public void recordDiscard() {
+        discards.add(1, connectionAttributes);
+    }
+
+    public void recordReconnect() {
+        reconnects.add(1, connectionAttributes);
+    }
+
+    /** Reports the depth of a consumer-side queue of the application, read at every export. */
+    public void registerQueueDepth(String queueName, LongSupplier depth) {
+        queueDepths.add(new QueueDepth(Attributes.of(SYSTEM, "solace", QUEUE_NAME, queueName), depth));
+    }
+
+    /** Exports what was recorded since the last export and stops the exporter, when created with one. */
+    @Override
+    public void close() {
+        if (sdkProvider != null) {
+            sdkProvider.close();
+        }
+    }
+
+    private static final class QueueDepth {
+        final Attributes attributes;
+        final LongSupplier depth;
+
+        QueueDepth(Attributes attributes, LongSupplier depth) {
+            this.attributes = attributes;
+            this.depth = depth;
+        }
+    }
+}
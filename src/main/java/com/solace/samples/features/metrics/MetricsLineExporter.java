@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: MetricsLineExporter
+ */
+
+package com.solace.samples.features.metrics;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Metric exporter that writes one JSON object per line and data point, to stdout or appended to a local file, for
+ * hosts without a collector. A line has the metric name and unit, the point's attributes and end time, and either
+ * {@code value} (sums and gauges) or {@code count}, {@code sum}, {@code min}, {@code max}, {@code boundaries} and
+ * {@code counts} (histograms):
+ * <pre>
+ * {"time":1700000000000000000,"metric":"messaging.client.sent.messages","unit":"{message}","attributes":{...},"value":42}
+ * </pre>
+ * {@code -Dmetrics.temporality=delta} exports what was recorded since the previous export instead of the running
+ * totals. Data points are written as they are read, so the SDK may reuse them between exports.
+ */
+public class MetricsLineExporter implements MetricExporter {
+
+    private final Writer out;
+    private final boolean closeOut;
+    private final AggregationTemporalitySelector temporalitySelector;
+    private final StringBuilder line = new StringBuilder(256);
+    private boolean closed = false;
+
+    MetricsLineExporter(Writer out, boolean closeOut, AggregationTemporalitySelector temporalitySelector) {
+        this.out = out;
+        this.closeOut = closeOut;
+        this.temporalitySelector = temporalitySelector;
+    }
+
+    public static MetricsLineExporter toStdout() {
+        return new MetricsLineExporter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+                false, temporalityFromSystemProperty());
+    }
+
+    /** Appends to the file, created if needed. */
+    public static MetricsLineExporter toFile(File file) throws IOException {
+        return new MetricsLineExporter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true),
+                StandardCharsets.UTF_8)), true, temporalityFromSystemProperty());
+    }
+
+    static AggregationTemporalitySelector temporalityFromSystemProperty() {
+        String temporality = System.getProperty("metrics.temporality", "cumulative");
+        switch (temporality) {
+            case "cumulative":
+                return AggregationTemporalitySelector.alwaysCumulative();
+            case "delta":
+                return AggregationTemporalitySelector.deltaPreferred();
+            default:
+                throw new IllegalArgumentException("Unknown metrics.temporality '" + temporality
+                        + "', expected cumulative or delta");
+        }
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return temporalitySelector.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public MemoryMode getMemoryMode() {
+        return MemoryMode.REUSABLE_DATA;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<MetricData> metrics) {
+        if (closed) {
+            return CompletableResultCode.ofFailure();
+        }
+        try {
+            for (MetricData metric : metrics) {
+                switch (metric.getType()) {
+                    case LONG_SUM:
+                        writeLongPoints(metric, metric.getLongSumData().getPoints());
+                        break;
+                    case LONG_GAUGE:
+                        writeLongPoints(metric, metric.getLongGaugeData().getPoints());
+                        break;
+                    case DOUBLE_SUM:
+                        writeDoublePoints(metric, metric.getDoubleSumData().getPoints());
+                        break;
+                    case DOUBLE_GAUGE:
+                        writeDoublePoints(metric, metric.getDoubleGaugeData().getPoints());
+                        break;
+                    case HISTOGRAM:
+                        for (HistogramPointData point : metric.getHistogramData().getPoints()) {
+                            startLine(metric, point);
+                            line.append(",\"count\":").append(point.getCount())
+                                    .append(",\"sum\":").append(point.getSum());
+                            if (point.hasMin()) {
+                                line.append(",\"min\":").append(point.getMin());
+                            }
+                            if (point.hasMax()) {
+                                line.append(",\"max\":").append(point.getMax());
+                            }
+                            line.append(",\"boundaries\":").append(point.getBoundaries())
+                                    .append(",\"counts\":").append(point.getCounts());
+                            endLine();
+                        }
+                        break;
+                    default:
+                        // summaries and exponential histograms are not created by these samples
+                        break;
+                }
+            }
+            out.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            System.out.println("### Metrics export failed: " + e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private void writeLongPoints(MetricData metric, Collection<LongPointData> points) throws IOException {
+        for (LongPointData point : points) {
+            startLine(metric, point);
+            line.append(",\"value\":").append(point.getValue());
+            endLine();
+        }
+    }
+
+    private void writeDoublePoints(MetricData metric, Collection<DoublePointData> points) throws IOException {
+        for (DoublePointData point : points) {
+            startLine(metric, point);
+            line.append(",\"value\":").append(point.getValue());
+            endLine();
+        }
+    }
+
+    private void startLine(MetricData metric, PointData point) {
+        line.setLength(0);
+        line.append("{\"time\":").append(point.getEpochNanos());
+        line.append(",\"metric\":");
+        appendString(metric.getName());
+        line.append(",\"unit\":");
+        appendString(metric.getUnit());
+        line.append(",\"attributes\":{");
+        Attributes attributes = point.getAttributes();
+        boolean[] first = {true};
+        attributes.forEach((key, value) -> {
+            if (!first[0]) {
+                line.append(',');
+            }
+            first[0] = false;
+            appendString(key.getKey());
+            line.append(':');
+            if (value instanceof String) {
+                appendString((String) value);
+            } else if (value instanceof List) {
+                appendString(value.toString());
+            } else {
+                line.append(value);
+            }
+        });
+        line.append('}');
+    }
+
+    private void endLine() throws IOException {
+        line.append('}').append(System.lineSeparator());
+        out.append(line);
+    }
+
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            if (!closed) {
+                out.flush();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (closed) {
+            return CompletableResultCode.ofSuccess();
+        }
+        closed = true;
+        try {
+            out.flush();
+            if (closeOut) {
+                out.close();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsLineExporter{" + (closeOut ? "file" : "stdout") + "}";
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PooledConnectionFactory
+ */
+
+package com.solace.samples.features.pooling;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares a few connections of a {@link ConnectionFactory} (typically a {@code SolConnectionFactory}) between many
+ * threads, handing out {@link PooledSession}s that cache their producer and consumers.
+ * <p>
+ * JMS sessions are single-threaded, so a thread borrows a session, uses it and closes it to return it. Sessions are
+ * created lazily up to {@code maxSessions}, spread round-robin over the connections, and kept idle in LIFO order so
+ * the most recently used ones stay warm. A background task closes sessions that have been idle longer than the idle
+ * timeout and reports sessions that have been borrowed longer than the leak threshold. Capturing a stack trace costs
+ * microseconds, so only one borrow in {@code leakSampleInterval} records the borrower's stack to print with the report.
+ * <p>
+ * {@link #toString()} reports the pool-wait time metrics.
+ */
+public class PooledConnectionFactory implements AutoCloseable {
+
+    private final ConnectionFactory connectionFactory;
+    private final Connection[] connections;
+    private final int sessionAckMode;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledSession> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledSession> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+    private final int leakSampleInterval;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final AtomicLong waitNanosMax = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong sessionsCreated = new AtomicLong();
+    private final AtomicLong sessionsEvicted = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param connectionFactory the factory used to create the shared connections
+     * @param connectionCount number of connections to share
+     * @param maxSessions maximum number of sessions, borrowed or idle
+     * @param sessionAckMode acknowledge mode of the pooled non-transacted sessions
+     * @param idleTimeoutMillis idle sessions are closed after this long
+     * @param leakThresholdMillis borrowed sessions are reported as leaked after this long, 0 to disable
+     */
+    public PooledConnectionFactory(ConnectionFactory connectionFactory, int connectionCount, int maxSessions,
+            int sessionAckMode, long idleTimeoutMillis, long leakThresholdMillis) throws JMSException {
+        this(connectionFactory, connectionCount, maxSessions, sessionAckMode, idleTimeoutMillis, leakThresholdMillis,
+                64);
+    }
+
+    /**
+     * @param leakSampleInterval one borrow in this many records the borrower's stack trace, 1 to record all
+     */
+    public PooledConnectionFactory(ConnectionFactory connectionFactory, int connectionCount, int maxSessions,
+            int sessionAckMode, long idleTimeoutMillis, long leakThresholdMillis, int leakSampleInterval)
+            throws JMSException {
+        if (leakSampleInterval < 1) {
+            throw new IllegalArgumentException("leakSampleInterval must be at least 1");
+        }
+        this.connectionFactory = connectionFactory;
+        this.connections = new Connection[connectionCount];
+        this.sessionAckMode = sessionAckMode;
+        this.permits = new Semaphore(maxSessions, true);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.leakSampleInterval = leakThresholdMillis > 0 ? leakSampleInterval : 0;
+        for (int i = 0; i < connectionCount; i++) {
+            connections[i] = connectionFactory.createConnection();
+            connections[i].start();
+        }
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PooledConnectionFactory-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMillis = Math.max(100, Math.min(idleTimeoutMillis, leakThresholdMillis > 0 ? leakThresholdMillis : Long.MAX_VALUE) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a session, waiting up to {@code timeoutMillis} for one to become available.
+     *
+     * @throws JMSException if no session became available in time, or one could not be created
+     */
+    public PooledSession borrowSession(long timeoutMillis) throws JMSException {
+        if (closed) {
+            throw new JMSException("Pool is closed");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for a pooled session");
+        }
+        long waited = System.nanoTime() - start;
+        waitNanosTotal.addAndGet(waited);
+        waitNanosMax.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new JMSException("Timed out after " + timeoutMillis + " ms waiting for a pooled session");
+        }
+        PooledSession session = idle.pollFirst();
+        if (session == null) {
+            try {
+                Connection connection = connections[Math.floorMod(nextConnection.getAndIncrement(), connections.length)];
+                session = new PooledSession(this, connection.createSession(false, sessionAckMode));
+                sessionsCreated.incrementAndGet();
+            } catch (JMSException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        long borrow = borrows.incrementAndGet();
+        session.borrowedNanos = System.nanoTime();
+        session.leakReported = false;
+        session.borrowSite = leakSampleInterval > 0 && borrow % leakSampleInterval == 0
+                ? new Throwable("Pooled session borrowed here") : null;
+        session.borrowed.set(true);
+        borrowed.add(session);
+        return session;
+    }
+
+    void release(PooledSession session) {
+        if (!session.borrowed.compareAndSet(true, false)) {
+            return;  // returned twice
+        }
+        session.borrowSite = null;
+        borrowed.remove(session);
+        if (closed) {
+            session.destroy();
+        } else {
+            session.closeConsumers();
+            session.lastReturnedNanos = System.nanoTime();
+            idle.offerFirst(session);
+        }
+        permits.release();
+    }
+
+    private void housekeeping() {
+        long now = System.nanoTime();
+        // the oldest idle sessions are at the tail
+        Iterator<PooledSession> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledSession session = it.next();
+            if (now - session.lastReturnedNanos < idleTimeoutNanos) {
+                break;
+            }
+            if (idle.removeLastOccurrence(session)) {
+                session.destroy();
+                sessionsEvicted.incrementAndGet();
+            }
+        }
+        if (leakThresholdNanos > 0) {
+            for (PooledSession session : borrowed) {
+                // the borrow fields are written before borrowed is set, so read them after it
+                if (!session.borrowed.get()) {
+                    continue;
+                }
+                Throwable site = session.borrowSite;
+                if (!session.leakReported && now - session.borrowedNanos > leakThresholdNanos) {
+                    leaksDetected.incrementAndGet();
+                    System.out.printf("### Pooled session borrowed %,d ms ago was not returned%s%n",
+                            TimeUnit.NANOSECONDS.toMillis(now - session.borrowedNanos),
+                            site != null ? "" : " (borrow site not sampled)");
+                    if (site != null) {
+                        site.printStackTrace(System.out);
+                    }
+                    session.leakReported = true;  // report each leak once
+                }
+            }
+        }
+    }
+
+    public ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    public long getBorrows() {
+        return borrows.get();
+    }
+
+    /** @return average time spent waiting for a session, in microseconds */
+    public double getAverageWaitMicros() {
+        long count = borrows.get() + timeouts.get();
+        return count == 0 ? 0.0 : waitNanosTotal.get() / 1000.0 / count;
+    }
+
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(waitNanosMax.get());
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getSessionsCreated() {
+        return sessionsCreated.get();
+    }
+
+    public long getSessionsEvicted() {
+        return sessionsEvicted.get();
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected.get();
+    }
+
+    /**
+     * Closes the idle sessions and the connections. Sessions still borrowed are closed with their connection.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            session.destroy();
+        }
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                System.out.println("### Caught while closing pooled connection: " + e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PooledConnectionFactory[connections=%d, idle=%d, borrowed=%d, borrows=%,d, "
+                        + "avgWait=%.1f us, maxWait=%,d us, timeouts=%,d, created=%,d, evicted=%,d, leaks=%,d]",
+                connections.length, getIdleCount(), getBorrowedCount(), getBorrows(), getAverageWaitMicros(),
+                getMaxWaitMicros(), getTimeouts(), getSessionsCreated(), getSessionsEvicted(), getLeaksDetected());
+    }
+}
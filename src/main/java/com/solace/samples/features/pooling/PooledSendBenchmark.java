@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PooledSendBenchmark
+ */
+
+package com.solace.samples.features.pooling;
+
+import com.solace.samples.features.tuning.ConnectionSettings;
+
+import javax.jms.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares send throughput from many threads when every send opens its own session against sending through a
+ * {@link PooledConnectionFactory}.
+ * <p>
+ * Connection settings are resolved by {@link ConnectionSettings}, so {@code -profile low-latency} or
+ * {@code -profile high-throughput} (and {@code key=value} overrides) can be compared on the same workload.
+ */
+public class PooledSendBenchmark {
+
+    private static final String SAMPLE_NAME = PooledSendBenchmark.class.getSimpleName();
+    private static final String TOPIC_NAME = "solace/samples/jms/pooling/bench";
+    private static final int PAYLOAD_SIZE = 100;
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 3 || args[1].split("@").length != 2) {
+            System.out.printf("Usage: %s <host:port> <client-username@message-vpn> <client-password> [threads] [messagesPerThread]"
+                    + " [-profile NAME] [-config FILE] [key=value ...]%n%n", SAMPLE_NAME);
+            System.exit(-1);
+        }
+        ConnectionSettings settings = ConnectionSettings.fromSampleArgs(args);
+        String[] remaining = settings.getRemainingArgs();
+        int threads = remaining.length > 0 ? Integer.parseInt(remaining[0]) : 16;
+        int messagesPerThread = remaining.length > 1 ? Integer.parseInt(remaining[1]) : 2_000;
+        System.out.print(settings.describe());
+
+        ConnectionFactory connectionFactory = settings.createJmsConnectionFactory();
+
+        byte[] payload = new byte[PAYLOAD_SIZE];
+
+        // Baseline: one shared connection, but a new session and producer for every single send
+        try (Connection connection = connectionFactory.createConnection()) {
+            Topic topic;
+            try (Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE)) {
+                topic = session.createTopic(TOPIC_NAME);
+            }
+            double rate = run(threads, messagesPerThread, () -> {
+                try (Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE)) {
+                    BytesMessage message = session.createBytesMessage();
+                    message.writeBytes(payload);
+                    MessageProducer producer = session.createProducer(topic);
+                    settings.configureProducer(producer);
+                    producer.send(message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+                }
+            });
+            System.out.printf("Session-per-send: %,.0f msgs/s with %d threads%n", rate, threads);
+        }
+
+        // Pooled: 2 shared connections, at most one session per thread, cached producers
+        // leak detection off, so the pooled run measures the pool and not the sampled borrow-site stack traces
+        try (PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory, 2, threads,
+                Session.AUTO_ACKNOWLEDGE, 60_000, 0)) {
+            Topic topic;
+            try (PooledSession pooledSession = pool.borrowSession(1000)) {
+                topic = pooledSession.getSession().createTopic(TOPIC_NAME);
+            }
+            // the cached producers are configured once, on first use in each session
+            Set<MessageProducer> configured = ConcurrentHashMap.newKeySet();
+            double rate = run(threads, messagesPerThread, () -> {
+                try (PooledSession pooledSession = pool.borrowSession(1000)) {
+                    BytesMessage message = pooledSession.getSession().createBytesMessage();
+                    message.writeBytes(payload);
+                    MessageProducer producer = pooledSession.getProducer();
+                    if (configured.add(producer)) {
+                        settings.configureProducer(producer);
+                    }
+                    producer.send(topic, message, DeliveryMode.NON_PERSISTENT, Message.DEFAULT_PRIORITY,
+                            Message.DEFAULT_TIME_TO_LIVE);
+                }
+            });
+            System.out.printf("Pooled:           %,.0f msgs/s with %d threads%n", rate, threads);
+            System.out.println(pool);
+        }
+    }
+
+    /** @return messages per second achieved by all threads together */
+    private static double run(int threads, int messagesPerThread, SendAction action) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong sent = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < messagesPerThread; i++) {
+                        try {
+                            action.send();
+                            sent.incrementAndGet();
+                        } catch (JMSException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    System.out.printf("### Sender thread stopped: %s%n", e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        if (failures.get() > 0) {
+            System.out.printf("### %,d sends failed%n", failures.get());
+        }
+        return sent.get() / seconds;
+    }
+
+    @FunctionalInterface
+    private interface SendAction {
+        void send() throws JMSException;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: PooledSession
+ */
+
+package com.solace.samples.features.pooling;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Session} checked out of a {@link PooledConnectionFactory}, with a cached anonymous producer and cached
+ * consumers. It must only be used by the thread that borrowed it; {@link #close()} returns it to the pool instead
+ * of closing it. The producer stays cached while the session is idle, the consumers are closed on return so they
+ * don't keep receiving messages that nobody reads.
+ */
+public class PooledSession implements AutoCloseable {
+
+    private final PooledConnectionFactory pool;
+    private final Session session;
+    private final Map<Destination, MessageConsumer> consumers = new HashMap<>();
+    private MessageProducer producer;
+
+    long lastReturnedNanos;         // when the session went back to the idle pool
+    long borrowedNanos;             // when the session was checked out
+    Throwable borrowSite;           // where it was checked out, for the sampled borrows when leak detection is on
+    volatile boolean leakReported;  // the current borrow was already reported as leaked
+    final AtomicBoolean borrowed = new AtomicBoolean();
+
+    PooledSession(PooledConnectionFactory pool, Session session) {
+        this.pool = pool;
+        this.session = session;
+        this.lastReturnedNanos = System.nanoTime();
+    }
+
+    /** @return the underlying session, e.g. to create messages */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * @return a producer not bound to any destination, created once per session
+     */
+    public MessageProducer getProducer() throws JMSException {
+        if (producer == null) {
+            producer = session.createProducer(null);
+        }
+        return producer;
+    }
+
+    /** Sends the message with the cached producer. */
+    public void send(Destination destination, Message message) throws JMSException {
+        getProducer().send(destination, message);
+    }
+
+    /**
+     * @return a consumer for the destination, created on first use and kept until the session is returned
+     */
+    public MessageConsumer getConsumer(Destination destination) throws JMSException {
+        MessageConsumer consumer = consumers.get(destination);
+        if (consumer == null) {
+            consumer = session.createConsumer(destination);
+            consumers.put(destination, consumer);
+        }
+        return consumer;
+    }
+
+    /** Returns the session to the pool. */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    void closeConsumers() {
+        for (MessageConsumer consumer : consumers.values()) {
+            try {
+                consumer.close();
+            } catch (JMSException e) {
+                System.out.println("### Caught while closing pooled consumer: " + e);
+            }
+        }
+        consumers.clear();
+    }
+
+    void destroy() {
+        try {
+            session.close();  // also closes the cached producer and consumers
+        } catch (JMSException e) {
+            System.out.println("### Caught while closing pooled session: " + e);
+        }
+    }
+}
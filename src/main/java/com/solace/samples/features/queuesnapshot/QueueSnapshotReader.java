@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: QueueSnapshotReader
+ */
+
+package com.solace.samples.features.queuesnapshot;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static com.solace.samples.features.queuesnapshot.QueueSnapshotWriter.*;
+
+/**
+ * Reads a snapshot file written by {@link QueueSnapshotWriter} one record at a time and turns each record back into
+ * a JMS message of the original type. The record buffer is reused, so memory use depends on the largest message.
+ * <p>
+ * Length prefixes are checked against {@value #MAX_RECORD_LENGTH} and against what is left of the record, so a
+ * truncated or corrupt file fails with an {@code IOException} instead of a huge or negative allocation.
+ */
+public class QueueSnapshotReader implements AutoCloseable {
+
+    /** Largest record accepted, well above the 30 MB maximum message size of the broker. */
+    static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    private final DataInputStream in;
+    private final RecordInputStream recordStream = new RecordInputStream();
+    private final DataInputStream record = new DataInputStream(recordStream);
+    private byte[] recordBuffer = new byte[4096];
+
+    private long messagesRead = 0;
+    private long recordBytes = 0;
+
+    public QueueSnapshotReader(File file) throws IOException {
+        in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), 65536), 65536));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(file + " is not a queue snapshot file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported queue snapshot version " + version);
+        }
+    }
+
+    /**
+     * Reads the next record and creates the matching message from the session.
+     *
+     * @return the message, or {@code null} at the end of the file
+     */
+    public Message next(Session session) throws IOException, JMSException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 1 || length > MAX_RECORD_LENGTH) {
+            throw new IOException("Corrupt queue snapshot, record length " + length);
+        }
+        if (recordBuffer.length < length) {
+            recordBuffer = new byte[Math.max(length, recordBuffer.length * 2)];
+        }
+        in.readFully(recordBuffer, 0, length);
+        recordStream.reset(recordBuffer, length);
+        messagesRead++;
+        recordBytes += length + Integer.BYTES;
+
+        byte type = record.readByte();
+        Message message;
+        switch (type) {
+            case TYPE_TEXT -> message = session.createTextMessage();
+            case TYPE_BYTES -> message = session.createBytesMessage();
+            case TYPE_MAP -> message = session.createMapMessage();
+            default -> message = session.createMessage();
+        }
+        readHeaders(message, session);
+        readProperties(message);
+        readBody(message, type);
+        return message;
+    }
+
+    private void readHeaders(Message message, Session session) throws IOException, JMSException {
+        message.setJMSDeliveryMode(record.readByte());
+        message.setJMSPriority(record.readByte());
+        message.setJMSExpiration(record.readLong());
+        message.setJMSTimestamp(record.readLong());
+        readNullableString();  // the JMSMessageID is informational, the producer assigns a new one
+        message.setJMSCorrelationID(readNullableString());
+        message.setJMSType(readNullableString());
+        // informational like the JMSMessageID, the producer sets the destination it sends to
+        message.setJMSDestination(readDestination(session));
+        message.setJMSReplyTo(readDestination(session));
+    }
+
+    private void readProperties(Message message) throws IOException, JMSException {
+        while (record.readBoolean()) {
+            String name = readString();
+            Object value = readValue();
+            try {
+                message.setObjectProperty(name, value);
+            } catch (JMSException e) {
+                System.out.printf("### Unable to restore property '%s': %s%n", name, e);
+            }
+        }
+    }
+
+    private void readBody(Message message, byte type) throws IOException, JMSException {
+        if (type == TYPE_TEXT) {
+            int length = record.readInt();
+            if (length != -1) {  // -1 for a null text
+                checkLength(length);
+                ((TextMessage) message).setText(new String(recordBuffer, recordStream.position(), length, StandardCharsets.UTF_8));
+                record.skipBytes(length);
+            }
+        } else if (type == TYPE_BYTES) {
+            int length = readLength();
+            ((BytesMessage) message).writeBytes(recordBuffer, recordStream.position(), length);
+            record.skipBytes(length);
+        } else if (type == TYPE_MAP) {
+            MapMessage mapMessage = (MapMessage) message;
+            while (record.readBoolean()) {
+                String name = readString();
+                mapMessage.setObject(name, readValue());
+            }
+        }
+    }
+
+    private Object readValue() throws IOException {
+        byte valueType = record.readByte();
+        switch (valueType) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_BOOLEAN:
+                return record.readBoolean();
+            case VALUE_BYTE:
+                return record.readByte();
+            case VALUE_SHORT:
+                return record.readShort();
+            case VALUE_INT:
+                return record.readInt();
+            case VALUE_LONG:
+                return record.readLong();
+            case VALUE_FLOAT:
+                return record.readFloat();
+            case VALUE_DOUBLE:
+                return record.readDouble();
+            case VALUE_CHAR:
+                return record.readChar();
+            case VALUE_BYTES:
+                byte[] bytes = new byte[readLength()];
+                record.readFully(bytes);
+                return bytes;
+            case VALUE_STRING:
+                return readString();
+            default:
+                throw new IOException("Corrupt queue snapshot, unknown value type " + valueType);
+        }
+    }
+
+    private String readNullableString() throws IOException {
+        return record.readBoolean() ? readString() : null;
+    }
+
+    private String readString() throws IOException {
+        int length = readLength();
+        String value = new String(recordBuffer, recordStream.position(), length, StandardCharsets.UTF_8);
+        record.skipBytes(length);
+        return value;
+    }
+
+    // Reads a length prefix, which has to fit in the rest of the record
+    private int readLength() throws IOException {
+        int length = record.readInt();
+        checkLength(length);
+        return length;
+    }
+
+    private void checkLength(int length) throws IOException {
+        if (length < 0 || length > recordStream.available()) {
+            throw new IOException("Corrupt queue snapshot, length " + length + " with " + recordStream.available()
+                    + " bytes left in the record");
+        }
+    }
+
+    /**
+     * @return the captured destination, or {@code null} if there was none or it was a temporary destination, which
+     *         only lived as long as the connection that created it
+     */
+    private Destination readDestination(Session session) throws IOException, JMSException {
+        byte kind = record.readByte();
+        if (kind == DESTINATION_NONE) {
+            return null;
+        }
+        String name = readString();
+        switch (kind) {
+            case DESTINATION_QUEUE:
+                return session.createQueue(name);
+            case DESTINATION_TOPIC:
+                return session.createTopic(name);
+            case DESTINATION_TEMPORARY_QUEUE:
+            case DESTINATION_TEMPORARY_TOPIC:
+                return null;
+            default:
+                throw new IOException("Corrupt queue snapshot, unknown destination type " + kind);
+        }
+    }
+
+    public long getMessagesRead() {
+        return messagesRead;
+    }
+
+    /** @return total uncompressed size of the records read so far */
+    public long getRecordBytes() {
+        return recordBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /** A {@link ByteArrayInputStream} that can be pointed at a new record without allocating. */
+    private static class RecordInputStream extends ByteArrayInputStream {
+
+        RecordInputStream() {
+            super(new byte[0]);
+        }
+
+        void reset(byte[] buffer, int length) {
+            this.buf = buffer;
+            this.pos = 0;
+            this.count = length;
+            this.mark = 0;
+        }
+
+        int position() {
+            return pos;
+        }
+    }
+}
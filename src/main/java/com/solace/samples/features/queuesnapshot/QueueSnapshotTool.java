@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: QueueSnapshotTool
+ */
+
+package com.solace.samples.features.queuesnapshot;
+
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SolJmsUtility;
+
+import javax.jms.*;
+import java.io.File;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exports the contents of a queue to a snapshot file without consuming them, and imports a snapshot file back into
+ * a queue at a controlled rate.
+ * <p>
+ * EXPORT walks the queue with a {@link QueueBrowser}, so the messages stay on the queue. IMPORT re-publishes every
+ * message as it was captured (type, headers, properties and body) through a regular {@link MessageProducer}.
+ * Both operations stream one message at a time and report messages/s and bytes/s once a second.
+ */
+public class QueueSnapshotTool {
+
+    private String host = null;
+    private String username = null;  // formatted as user@message-vpn
+    private String password = null;
+    private String queueName = null;
+    private String fileName = null;
+    private Operation operation = null;
+    private int rate = 0;            // messages per second for IMPORT, 0 means unlimited
+
+    public static void main(String[] args) {
+        try {
+            QueueSnapshotTool instance = new QueueSnapshotTool();
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                i++;
+                if (i >= args.length) {
+                    instance.printUsage();
+                    return;
+                }
+                switch (option) {
+                    case "-host" -> instance.host = args[i];
+                    case "-username" -> instance.username = args[i];
+                    case "-password" -> instance.password = args[i];
+                    case "-queue" -> instance.queueName = args[i];
+                    case "-file" -> instance.fileName = args[i];
+                    case "-operation" -> instance.operation = Operation.valueOf(args[i]);
+                    case "-rate" -> instance.rate = Integer.parseInt(args[i]);
+                    default -> {
+                        instance.printUsage();
+                        System.out.println("Illegal argument specified - " + option);
+                        return;
+                    }
+                }
+            }
+            if (instance.host == null || instance.username == null || instance.username.split("@").length != 2
+                    || instance.queueName == null || instance.fileName == null || instance.operation == null) {
+                instance.printUsage();
+                System.out.println("Please specify all of \"-host\", \"-username\", \"-queue\", \"-file\" and \"-operation\" parameters");
+                return;
+            }
+            instance.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private void printUsage() {
+        System.out.println(
+                """
+                        
+                        Usage:\s
+                        QueueSnapshotTool -host HOST:PORT -username USERNAME@VPN [-password PASSWORD]\
+                         -queue QUEUE -file FILE -operation OPERATION [-rate MSGS_PER_SEC]\
+                        
+                        Where:
+                        - OPERATION  is one of [EXPORT, IMPORT]
+                        - MSGS_PER_SEC  limits the IMPORT publish rate, 0 (the default) for unlimited
+                        """);
+    }
+
+    private void run() throws Exception {
+        String[] split = username.split("@");
+        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
+        connectionFactory.setHost(host);
+        connectionFactory.setVPN(split[1]);
+        connectionFactory.setUsername(split[0]);
+        if (password != null) {
+            connectionFactory.setPassword(password);
+        }
+        try (Connection connection = connectionFactory.createConnection();
+             Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE)) {
+            Queue queue = session.createQueue(queueName);
+            File file = new File(fileName);
+            if (operation == Operation.EXPORT) {
+                export(connection, session, queue, file);
+            } else {
+                importSnapshot(session, queue, file);
+            }
+        }
+    }
+
+    private void export(Connection connection, Session session, Queue queue, File file) throws Exception {
+        connection.start();
+        Progress progress = new Progress("Exported");
+        try (QueueBrowser browser = session.createBrowser(queue);
+             QueueSnapshotWriter writer = new QueueSnapshotWriter(file)) {
+            Enumeration<?> messages = browser.getEnumeration();
+            while (messages.hasMoreElements()) {
+                progress.add(writer.write((Message) messages.nextElement()));
+            }
+            progress.finish();
+            System.out.printf("Skipped %,d unsupported ObjectMessage/StreamMessage(s)%n", writer.getMessagesSkipped());
+        }
+        System.out.printf("Snapshot file %s is %,d bytes (%,d bytes uncompressed)%n", file, file.length(), progress.bytes);
+    }
+
+    private void importSnapshot(Session session, Queue queue, File file) throws Exception {
+        Progress progress = new Progress("Imported");
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        long nextSendNanos = System.nanoTime();
+        try (MessageProducer producer = session.createProducer(queue);
+             QueueSnapshotReader reader = new QueueSnapshotReader(file)) {
+            long lastRecordBytes = 0;
+            Message message;
+            while ((message = reader.next(session)) != null) {
+                if (intervalNanos > 0) {
+                    long waitNanos = nextSendNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                    nextSendNanos += intervalNanos;
+                }
+                producer.send(message, message.getJMSDeliveryMode(), message.getJMSPriority(), remainingTimeToLive(message));
+                progress.add(reader.getRecordBytes() - lastRecordBytes);
+                lastRecordBytes = reader.getRecordBytes();
+            }
+            progress.finish();
+        }
+    }
+
+    /** Keeps the original expiration: returns the time left, or 0 (never expires) if the message had no expiration. */
+    private static long remainingTimeToLive(Message message) throws JMSException {
+        long expiration = message.getJMSExpiration();
+        if (expiration == 0) {
+            return Message.DEFAULT_TIME_TO_LIVE;
+        }
+        return Math.max(1, expiration - System.currentTimeMillis());
+    }
+
+    /** Prints messages/s and bytes/s once a second, and totals at the end. */
+    private static class Progress {
+        private final String label;
+        private final long startNanos = System.nanoTime();
+        private long lastReportNanos = startNanos;
+        private long messages = 0;
+        private long bytes = 0;
+        private long intervalMessages = 0;
+        private long intervalBytes = 0;
+
+        Progress(String label) {
+            this.label = label;
+        }
+
+        void add(long recordBytes) {
+            if (recordBytes == 0) {
+                return;  // skipped message
+            }
+            messages++;
+            bytes += recordBytes;
+            intervalMessages++;
+            intervalBytes += recordBytes;
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= TimeUnit.SECONDS.toNanos(1)) {
+                double seconds = (now - lastReportNanos) / 1e9;
+                System.out.printf("%s msgs/s: %,.0f, bytes/s: %,.0f, total msgs: %,d%n",
+                        label, intervalMessages / seconds, intervalBytes / seconds, messages);
+                intervalMessages = 0;
+                intervalBytes = 0;
+                lastReportNanos = now;
+            }
+        }
+
+        void finish() {
+            double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+            System.out.printf("%s %,d messages, %,d bytes in %.2f s (%,.0f msgs/s, %,.0f bytes/s)%n",
+                    label, messages, bytes, seconds, messages / seconds, bytes / seconds);
+        }
+    }
+
+    // Operation to perform
+    public enum Operation {
+        EXPORT, // browses the queue into the snapshot file
+        IMPORT  // publishes the snapshot file to the queue
+    }
+}
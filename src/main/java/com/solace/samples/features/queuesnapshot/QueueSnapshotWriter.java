@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: QueueSnapshotWriter
+ */
+
+package com.solace.samples.features.queuesnapshot;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams JMS messages into a compressed snapshot file.
+ * <p>
+ * File layout, GZIP compressed: the {@link #MAGIC} bytes and a format version, followed by one record per message,
+ * each prefixed with its length as an {@code int}. A record holds the message type, the JMS headers that a producer
+ * can set plus the destination, the user properties and the body. Strings are UTF-8 bytes prefixed with their length
+ * as an {@code int}, so unlike {@code writeUTF} they are not limited to 64 KB. Each message is serialized into a
+ * single reusable buffer, so memory use depends on the largest message, not on the number of messages.
+ */
+public class QueueSnapshotWriter implements AutoCloseable {
+
+    static final byte[] MAGIC = {'S', 'O', 'L', 'Q', 'S', 'N', 'A', 'P'};
+    static final int VERSION = 2;
+
+    static final byte TYPE_MESSAGE = 0;  // headers and properties only
+    static final byte TYPE_TEXT = 1;
+    static final byte TYPE_BYTES = 2;
+    static final byte TYPE_MAP = 3;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_BOOLEAN = 1;
+    static final byte VALUE_BYTE = 2;
+    static final byte VALUE_SHORT = 3;
+    static final byte VALUE_INT = 4;
+    static final byte VALUE_LONG = 5;
+    static final byte VALUE_FLOAT = 6;
+    static final byte VALUE_DOUBLE = 7;
+    static final byte VALUE_STRING = 8;
+    static final byte VALUE_BYTES = 9;
+    static final byte VALUE_CHAR = 10;
+
+    static final byte DESTINATION_NONE = 0;
+    static final byte DESTINATION_QUEUE = 1;
+    static final byte DESTINATION_TOPIC = 2;
+    static final byte DESTINATION_TEMPORARY_QUEUE = 3;
+    static final byte DESTINATION_TEMPORARY_TOPIC = 4;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(4096);
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    private byte[] bodyBuffer = new byte[4096];
+
+    private long messagesWritten = 0;
+    private long messagesSkipped = 0;
+    private long recordBytes = 0;
+
+    public QueueSnapshotWriter(File file) throws IOException {
+        out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536), 65536));
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Appends the message to the snapshot. {@code ObjectMessage} and {@code StreamMessage} are not supported and are
+     * counted as skipped.
+     *
+     * @return the size of the uncompressed record, 0 if the message was skipped
+     */
+    public int write(Message message) throws JMSException, IOException {
+        if (message instanceof ObjectMessage || message instanceof StreamMessage) {
+            messagesSkipped++;
+            return 0;
+        }
+        recordBuffer.reset();
+        if (message instanceof TextMessage) {
+            record.writeByte(TYPE_TEXT);
+        } else if (message instanceof BytesMessage) {
+            record.writeByte(TYPE_BYTES);
+        } else if (message instanceof MapMessage) {
+            record.writeByte(TYPE_MAP);
+        } else {
+            record.writeByte(TYPE_MESSAGE);
+        }
+        writeHeaders(message);
+        writeProperties(message);
+        writeBody(message);
+
+        out.writeInt(recordBuffer.size());
+        recordBuffer.writeTo(out);
+        messagesWritten++;
+        recordBytes += recordBuffer.size() + Integer.BYTES;
+        return recordBuffer.size() + Integer.BYTES;
+    }
+
+    private void writeHeaders(Message message) throws JMSException, IOException {
+        record.writeByte(message.getJMSDeliveryMode());
+        record.writeByte(message.getJMSPriority());
+        record.writeLong(message.getJMSExpiration());
+        record.writeLong(message.getJMSTimestamp());
+        writeNullableString(message.getJMSMessageID());
+        writeNullableString(message.getJMSCorrelationID());
+        writeNullableString(message.getJMSType());
+        writeDestination(message.getJMSDestination());
+        writeDestination(message.getJMSReplyTo());
+    }
+
+    private void writeProperties(Message message) throws JMSException, IOException {
+        Enumeration<?> names = message.getPropertyNames();
+        while (names.hasMoreElements()) {
+            String name = (String) names.nextElement();
+            if (name.startsWith("JMSX")) {
+                continue;  // set by the provider, not by the application
+            }
+            record.writeBoolean(true);
+            writeString(name);
+            writeValue(message.getObjectProperty(name));
+        }
+        record.writeBoolean(false);
+    }
+
+    private void writeBody(Message message) throws JMSException, IOException {
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            if (text == null) {
+                record.writeInt(-1);
+            } else {
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                record.writeInt(utf8.length);
+                record.write(utf8);
+            }
+        } else if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            int length = (int) bytesMessage.getBodyLength();
+            if (bodyBuffer.length < length) {
+                bodyBuffer = new byte[Math.max(length, bodyBuffer.length * 2)];
+            }
+            bytesMessage.reset();
+            bytesMessage.readBytes(bodyBuffer, length);
+            record.writeInt(length);
+            record.write(bodyBuffer, 0, length);
+        } else if (message instanceof MapMessage) {
+            MapMessage mapMessage = (MapMessage) message;
+            Enumeration<?> names = mapMessage.getMapNames();
+            while (names.hasMoreElements()) {
+                String name = (String) names.nextElement();
+                record.writeBoolean(true);
+                writeString(name);
+                writeValue(mapMessage.getObject(name));
+            }
+            record.writeBoolean(false);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            record.writeByte(VALUE_NULL);
+        } else if (value instanceof Boolean) {
+            record.writeByte(VALUE_BOOLEAN);
+            record.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            record.writeByte(VALUE_BYTE);
+            record.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            record.writeByte(VALUE_SHORT);
+            record.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            record.writeByte(VALUE_INT);
+            record.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            record.writeByte(VALUE_LONG);
+            record.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            record.writeByte(VALUE_FLOAT);
+            record.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            record.writeByte(VALUE_DOUBLE);
+            record.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            record.writeByte(VALUE_CHAR);
+            record.writeChar((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            record.writeByte(VALUE_BYTES);
+            record.writeInt(bytes.length);
+            record.write(bytes);
+        } else {
+            record.writeByte(VALUE_STRING);
+            writeString(value.toString());
+        }
+    }
+
+    private void writeNullableString(String value) throws IOException {
+        record.writeBoolean(value != null);
+        if (value != null) {
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        record.writeInt(utf8.length);
+        record.write(utf8);
+    }
+
+    private void writeDestination(Destination destination) throws JMSException, IOException {
+        // temporary destinations are checked first, they are also a Queue or a Topic
+        if (destination instanceof TemporaryQueue) {
+            record.writeByte(DESTINATION_TEMPORARY_QUEUE);
+            writeString(((Queue) destination).getQueueName());
+        } else if (destination instanceof TemporaryTopic) {
+            record.writeByte(DESTINATION_TEMPORARY_TOPIC);
+            writeString(((Topic) destination).getTopicName());
+        } else if (destination instanceof Queue) {
+            record.writeByte(DESTINATION_QUEUE);
+            writeString(((Queue) destination).getQueueName());
+        } else if (destination instanceof Topic) {
+            record.writeByte(DESTINATION_TOPIC);
+            writeString(((Topic) destination).getTopicName());
+        } else {
+            record.writeByte(DESTINATION_NONE);
+        }
+    }
+
+    public long getMessagesWritten() {
+        return messagesWritten;
+    }
+
+    public long getMessagesSkipped() {
+        return messagesSkipped;
+    }
+
+    /** @return total uncompressed size of the records written so far */
+    public long getRecordBytes() {
+        return recordBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: RetryPolicy
+ */
+
+package com.solace.samples.features.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, capped at a maximum number of processing attempts.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final double multiplier;
+    private final long maxDelayMillis;
+    private final double jitter;
+
+    /**
+     * @param maxAttempts total processing attempts (first delivery included) before a message is dead-lettered
+     * @param initialDelayMillis delay before the first retry
+     * @param multiplier growth factor applied to the delay after each failed retry
+     * @param maxDelayMillis upper bound for a single delay
+     * @param jitter fraction of the delay, in [0, 1], that is randomly subtracted to spread out retries
+     */
+    public RetryPolicy(int maxAttempts, long initialDelayMillis, double multiplier, long maxDelayMillis, double jitter) {
+        if (maxAttempts < 1 || initialDelayMillis < 0 || multiplier < 1.0 || maxDelayMillis < initialDelayMillis
+                || jitter < 0.0 || jitter > 1.0) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.multiplier = multiplier;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+    }
+
+    /** 5 attempts, retrying after roughly 0.5s, 1s, 2s and 4s. */
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(5, 500, 2.0, 30_000, 0.2);
+    }
+
+    /**
+     * @param failedAttempts number of attempts that have failed so far, at least 1
+     * @return how long to wait before the next attempt
+     */
+    public long delayMillis(int failedAttempts) {
+        double delay = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, failedAttempts - 1));
+        return (long) (delay * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /** @return true if a message that failed {@code failedAttempts} times may be tried again */
+    public boolean canRetry(int failedAttempts) {
+        return failedAttempts < maxAttempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RetryPolicy[maxAttempts=%d, initialDelay=%dms, multiplier=%.1f, maxDelay=%dms, jitter=%.2f]",
+                maxAttempts, initialDelayMillis, multiplier, maxDelayMillis, jitter);
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: RetryingMessageListener
+ */
+
+package com.solace.samples.features.retry;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TemporaryTopic;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MessageListener} that retries failed messages without blocking the sol-jms dispatcher thread.
+ * <p>
+ * A message is processed on the dispatcher thread and acknowledged when processing succeeds. When processing
+ * throws, the message is parked unacknowledged and a timer thread waits for the delay given by the
+ * {@link RetryPolicy}. A JMS session and its messages belong to one thread, so the timer never touches the message:
+ * when the delay is up it queues the message for a retry and wakes the dispatcher with an empty message on a
+ * temporary topic consumed by the same session. The retry, the acknowledgement and the dead-lettering all run on the
+ * dispatcher thread. A message that fails {@link RetryPolicy#getMaxAttempts()} times, or that fails while
+ * {@code maxParked} messages are already waiting, is sent to the dead-letter producer and then acknowledged. Healthy
+ * messages therefore keep flowing at full rate while poison messages back off in the background.
+ * <p>
+ * When dead-lettering fails the session is recovered, so that the broker redelivers the message, along with the
+ * parked ones, instead of it staying unacknowledged; the attempts of the redelivered messages start over.
+ * <p>
+ * The session must use client acknowledgement ({@code SupportedProperty.SOL_CLIENT_ACKNOWLEDGE} for per-message acks),
+ * and the dead-letter producer must belong to it. Keep {@code maxParked} below the queue's "max delivered unacked
+ * messages per flow", otherwise parked messages stall the flow. The wake-up session is used by the timer thread only.
+ */
+public class RetryingMessageListener implements MessageListener, AutoCloseable {
+
+    private final Session session;
+    private final MessageProcessor processor;
+    private final RetryPolicy policy;
+    private final MessageProducer deadLetterProducer;
+    private final int maxParked;
+    private final ScheduledExecutorService retryExecutor;
+    private final MessageConsumer wakeupConsumer;
+    private final MessageProducer wakeupProducer;  // timer thread only
+    private final Message wakeupMessage;           // timer thread only
+
+    // retries due, queued by the timer thread and run by the dispatcher thread
+    private final Queue<Retry> due = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile int recoveries = 0;  // parked messages from before a recover() are redelivered, not retried
+
+    private final AtomicInteger parked = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    /**
+     * @param session the client-acknowledged session of the consumer this listener is set on
+     * @param wakeupSession another session of the same connection, used by the timer thread only
+     * @param processor the application processing
+     * @param policy backoff and attempt limit
+     * @param deadLetterProducer producer bound to the dead-letter destination, on {@code session}
+     * @param maxParked maximum number of messages waiting for a retry
+     */
+    public RetryingMessageListener(Session session, Session wakeupSession, MessageProcessor processor,
+            RetryPolicy policy, MessageProducer deadLetterProducer, int maxParked) throws JMSException {
+        this.session = session;
+        this.processor = processor;
+        this.policy = policy;
+        this.deadLetterProducer = deadLetterProducer;
+        this.maxParked = maxParked;
+        TemporaryTopic wakeupTopic = session.createTemporaryTopic();
+        this.wakeupConsumer = session.createConsumer(wakeupTopic);
+        wakeupConsumer.setMessageListener(message -> onWakeup());
+        this.wakeupProducer = wakeupSession.createProducer(wakeupTopic);
+        wakeupProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        this.wakeupMessage = wakeupSession.createMessage();
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RetryingMessageListener-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        runDueRetries();
+        attempt(message, 1);
+    }
+
+    // on the dispatcher thread, woken up by the timer thread
+    private void onWakeup() {
+        wakeupPending.set(false);
+        runDueRetries();
+    }
+
+    private void runDueRetries() {
+        for (Retry retry = due.poll(); retry != null; retry = due.poll()) {
+            parked.decrementAndGet();
+            if (retry.recoveries == recoveries) {
+                attempt(retry.message, retry.attemptNumber);
+            }
+        }
+    }
+
+    /** Runs one processing attempt, always on the dispatcher thread. */
+    private void attempt(Message message, int attemptNumber) {
+        try {
+            processor.process(message);
+        } catch (Exception e) {
+            failedAttempts.incrementAndGet();
+            onFailure(message, attemptNumber, e);
+            return;
+        }
+        processed.incrementAndGet();
+        if (attemptNumber > 1) {
+            recovered.incrementAndGet();
+        }
+        acknowledge(message);
+    }
+
+    private void onFailure(Message message, int failedAttemptCount, Exception cause) {
+        if (!policy.canRetry(failedAttemptCount)) {
+            deadLetter(message, failedAttemptCount, cause);
+            return;
+        }
+        if (parked.incrementAndGet() > maxParked) {
+            parked.decrementAndGet();
+            deadLetter(message, failedAttemptCount, cause);
+            return;
+        }
+        Retry retry = new Retry(message, failedAttemptCount + 1, recoveries);
+        retryExecutor.schedule(() -> {
+            due.add(retry);
+            wakeUp();
+        }, policy.delayMillis(failedAttemptCount), TimeUnit.MILLISECONDS);
+    }
+
+    // on the timer thread: one wake-up message at a time, the dispatcher runs every retry due when it gets it
+    private void wakeUp() {
+        if (!wakeupPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            wakeupProducer.send(wakeupMessage);
+        } catch (JMSException e) {
+            wakeupPending.set(false);  // the retry runs with the next message delivered, or the next wake-up
+            System.out.println("### Unable to wake up the dispatcher for a retry: " + e);
+        }
+    }
+
+    /** Runs on the dispatcher thread, whose session the dead-letter producer belongs to. */
+    private void deadLetter(Message message, int failedAttemptCount, Exception cause) {
+        try {
+            deadLetterProducer.send(message, DeliveryMode.PERSISTENT, Message.DEFAULT_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+            deadLettered.incrementAndGet();
+            System.out.printf("### Dead-lettered message %s after %d failed attempt(s): %s%n",
+                    message.getJMSMessageID(), failedAttemptCount, cause);
+            acknowledge(message);
+        } catch (JMSException e) {
+            System.out.println("### Unable to dead-letter message, recovering the session for a redelivery: " + e);
+            recover();
+        }
+    }
+
+    private void recover() {
+        recoveries++;  // the parked messages are redelivered as well
+        try {
+            session.recover();
+        } catch (JMSException e) {
+            System.out.println("### Caught at session.recover(), the message is redelivered on reconnect: " + e);
+        }
+    }
+
+    private static void acknowledge(Message message) {
+        try {
+            message.acknowledge();
+        } catch (JMSException e) {
+            System.out.println("### Caught at message.acknowledge() " + e);
+        }
+    }
+
+    /** @return messages currently waiting for a retry */
+    public int getRetryQueueDepth() {
+        return parked.get();
+    }
+
+    /** @return messages processed successfully, including recovered ones */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.get();
+    }
+
+    /** @return messages that succeeded on a retry */
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.get();
+    }
+
+    /**
+     * Stops retrying. Parked messages stay unacknowledged and are redelivered by the broker.
+     */
+    @Override
+    public void close() {
+        retryExecutor.shutdownNow();
+        try {
+            wakeupConsumer.close();
+        } catch (JMSException e) {
+            System.out.println("### Caught at closing the wake-up consumer " + e);
+        }
+    }
+
+    private static final class Retry {
+        final Message message;
+        final int attemptNumber;
+        final int recoveries;
+
+        Retry(Message message, int attemptNumber, int recoveries) {
+            this.message = message;
+            this.attemptNumber = attemptNumber;
+            this.recoveries = recoveries;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: RetryingQueueConsumer
+ */
+
+package com.solace.samples.features.retry;
+
+import com.solace.samples.features.metrics.DestinationMetrics;
+import com.solace.samples.features.metrics.MessagingMetrics;
+import com.solace.samples.features.util.MessagePayloads;
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SolJmsUtility;
+import com.solacesystems.jms.SupportedProperty;
+
+import javax.jms.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Consumes a queue through a {@link RetryingMessageListener} while publishing a mix of healthy and poison messages
+ * to it, to show that a poison-message storm does not slow down the healthy traffic.
+ * <p>
+ * Poison messages carry the boolean property {@value #POISON_PROPERTY} and always fail processing; they are retried
+ * with backoff and end up on the dead-letter queue. Both queues are created on the message broker.
+ * <p>
+ * With {@code -Dmetrics.exporter} set (see {@code MessagingMetrics}), the sends and their duration, which includes the
+ * broker's acknowledgement, the deliveries and the retry queue depth are also exported as OpenTelemetry metrics.
+ */
+public class RetryingQueueConsumer {
+
+    private static final String SAMPLE_NAME = RetryingQueueConsumer.class.getSimpleName();
+    private static final String POISON_PROPERTY = "poison";
+    private static final String PAYLOAD = "retry sample";
+    private static final int APPROX_MSG_RATE_PER_SEC = 1000;
+    private static final int MAX_PARKED = 500;
+
+    private static volatile boolean isShutdown = false;
+
+    public static void main(String... args) throws Exception {
+        if (args.length < 5 || args[1].split("@").length != 2) {
+            System.out.printf("Usage: %s <host:port> <client-username@message-vpn> <client-password> <queueName> "
+                    + "<deadLetterQueueName> [poisonPercent]%n%n", SAMPLE_NAME);
+            System.exit(-1);
+        }
+        String[] split = args[1].split("@");
+        final int poisonPercent = args.length > 5 ? Integer.parseInt(args[5]) : 20;
+        final MessagingMetrics metrics = MessagingMetrics.fromSystemProperties(SAMPLE_NAME);
+
+        // Programmatically create the connection factory using default settings
+        SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
+        connectionFactory.setHost(args[0]);
+        connectionFactory.setVPN(split[1]);
+        connectionFactory.setUsername(split[0]);
+        connectionFactory.setPassword(args[2]);
+        // Enables persistent queues to be created dynamically on the router
+        connectionFactory.setDynamicDurables(true);
+        Connection connection = connectionFactory.createConnection();
+
+        // One session per thread: the dispatcher (consumer, retries, dead letters), the retry timer (wake-ups) and the
+        // load generator
+        Session consumerSession = connection.createSession(false, SupportedProperty.SOL_CLIENT_ACKNOWLEDGE);
+        Session wakeupSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session publisherSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        Queue queue = consumerSession.createQueue(args[3]);
+        MessageProducer deadLetterProducer = consumerSession.createProducer(consumerSession.createQueue(args[4]));
+
+        // Processing succeeds quickly for healthy messages and always fails for poison ones
+        MessageProcessor processor = message -> {
+            if (message.propertyExists(POISON_PROPERTY) && message.getBooleanProperty(POISON_PROPERTY)) {
+                throw new IllegalStateException("poison message");
+            }
+        };
+        RetryingMessageListener listener = new RetryingMessageListener(consumerSession, wakeupSession, processor,
+                RetryPolicy.defaults(), deadLetterProducer, MAX_PARKED);
+        metrics.registerQueueDepth("retry", listener::getRetryQueueDepth);
+        final DestinationMetrics queueMetrics = metrics.forDestination(queue);
+        MessageConsumer consumer = consumerSession.createConsumer(queue);
+        consumer.setMessageListener(message -> {
+            try {
+                queueMetrics.received(MessagePayloads.size(message));
+            } catch (JMSException e) {
+                System.out.println("### Unable to record the received message, processing it anyway: " + e);
+            }
+            listener.onMessage(message);
+        });
+        connection.start();
+
+        ExecutorService publishExecutor = Executors.newSingleThreadExecutor();
+        publishExecutor.submit(() -> {
+            MessageProducer producer = null;
+            try {
+                producer = publisherSession.createProducer(queue);
+                producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+                TextMessage message = publisherSession.createTextMessage(PAYLOAD);
+                long sent = 0;
+                while (!isShutdown) {
+                    message.clearProperties();
+                    message.setBooleanProperty(POISON_PROPERTY, sent % 100 < poisonPercent);
+                    long sendStart = System.nanoTime();
+                    producer.send(message);
+                    // a synchronous persistent send returns when the broker has acknowledged the message, so its
+                    // duration includes the acknowledgement
+                    queueMetrics.sent(PAYLOAD.length(), System.nanoTime() - sendStart);
+                    sent++;
+                    Thread.sleep(1000 / APPROX_MSG_RATE_PER_SEC);
+                }
+            } catch (JMSException e) {
+                System.out.printf("### Caught while trying to producer.send(): %s%n", e);
+            } catch (InterruptedException e) {
+                isShutdown = true;
+            }
+        });
+
+        System.out.printf("%s running with %s, %d%% poison messages. Press [ENTER] to quit.%n",
+                SAMPLE_NAME, RetryPolicy.defaults(), poisonPercent);
+        long lastProcessed = 0;
+        while (System.in.available() == 0 && !isShutdown) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                break;
+            }
+            long processed = listener.getProcessed();
+            System.out.printf("Processed msgs/s: %,d, retry queue depth: %,d, failed attempts: %,d, recovered: %,d, dead-lettered: %,d%n",
+                    processed - lastProcessed, listener.getRetryQueueDepth(), listener.getFailedAttempts(),
+                    listener.getRecovered(), listener.getDeadLettered());
+            lastProcessed = processed;
+        }
+        isShutdown = true;
+        publishExecutor.shutdown();
+        connection.stop();
+        listener.close();
+        connection.close();
+        metrics.close();
+        System.out.println("Main thread quitting.");
+    }
+}
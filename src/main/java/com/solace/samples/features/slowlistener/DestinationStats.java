@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: DestinationStats
+ */
+
+package com.solace.samples.features.slowlistener;
+
+import com.solace.samples.features.util.LatencyHistogram;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The callback durations of one destination, and the last slow callbacks sampled for it. Recorded from the
+ * dispatcher threads of every session consuming the destination, so the methods are synchronized; a dispatcher
+ * thread only contends with another session's, or with a report.
+ */
+final class DestinationStats {
+
+    final String destination;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final ArrayDeque<SlowCallback> samples = new ArrayDeque<>();
+    private final int samplesKept;
+    private long slow;
+    private long lastSampleNanos;
+    private boolean sampled;
+
+    DestinationStats(String destination, int samplesKept) {
+        this.destination = destination;
+        this.samplesKept = samplesKept;
+    }
+
+    synchronized void record(long nanos, long thresholdNanos) {
+        histogram.record(nanos);
+        if (nanos > thresholdNanos) {
+            slow++;
+        }
+    }
+
+    /** Whether the watchdog may capture a stack for this destination now: at most one per sample interval. */
+    synchronized boolean trySample(long nowNanos, long sampleIntervalNanos) {
+        if (sampled && nowNanos - lastSampleNanos < sampleIntervalNanos) {
+            return false;
+        }
+        sampled = true;
+        lastSampleNanos = nowNanos;
+        return true;
+    }
+
+    synchronized void addSample(SlowCallback sample) {
+        if (samples.size() == samplesKept) {
+            samples.removeFirst();
+        }
+        samples.addLast(sample);
+    }
+
+    synchronized List<SlowCallback> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    synchronized long getSlow() {
+        return slow;
+    }
+
+    /** @return a copy of the histogram, to read without holding the lock */
+    synchronized LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(histogram);
+        return copy;
+    }
+}
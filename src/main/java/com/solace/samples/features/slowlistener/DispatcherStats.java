@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: DispatcherStats
+ */
+
+package com.solace.samples.features.slowlistener;
+
+/**
+ * What one dispatcher thread is doing: the callback in progress, read by the watchdog to catch slow ones while
+ * they run, and the time spent in callbacks, for the utilisation estimate.
+ * <p>
+ * Only the dispatcher thread writes the callback fields; they are volatile for the watchdog. The start time is written
+ * last when a callback begins and cleared first when it ends, so a non-zero start comes with its destination.
+ */
+final class DispatcherStats {
+
+    final Thread thread;
+    private volatile String destination;
+    private volatile long callbackStart;  // 0 when idle
+    private volatile long callbacks;
+    private volatile long busyNanos;
+
+    // owned by the watchdog
+    private long sampledCallback = -1;
+    private long windowStartNanos;
+    private long windowBusyNanos;
+    private volatile double utilisation;
+
+    DispatcherStats(Thread thread) {
+        this.thread = thread;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    void begin(String destination, long startNanos) {
+        this.destination = destination;
+        this.callbacks = callbacks + 1;
+        this.callbackStart = startNanos == 0 ? 1 : startNanos;
+    }
+
+    void end(long durationNanos) {
+        callbackStart = 0;
+        busyNanos = busyNanos + durationNanos;
+    }
+
+    long getCallbacks() {
+        return callbacks;
+    }
+
+    /** @return the share of the last utilisation window the thread spent in callbacks, between 0 and 1 */
+    double getUtilisation() {
+        return utilisation;
+    }
+
+    /**
+     * Called by the watchdog: if the current callback has run past the threshold and wasn't sampled yet, returns its
+     * destination, else null.
+     */
+    String slowCallback(long nowNanos, long thresholdNanos) {
+        long start = callbackStart;
+        long callback = callbacks;
+        if (start == 0 || nowNanos - start <= thresholdNanos || callback == sampledCallback) {
+            return null;
+        }
+        sampledCallback = callback;
+        return destination;
+    }
+
+    /** @return how long the callback sampled by {@link #slowCallback} has been running, -1 if it has finished */
+    long runningNanos(long nowNanos) {
+        long start = callbackStart;
+        return start == 0 || callbacks != sampledCallback ? -1 : nowNanos - start;
+    }
+
+    /** Called by the watchdog: closes the utilisation window, counting the callback in progress so far. */
+    void updateUtilisation(long nowNanos) {
+        long start = callbackStart;
+        long busy = busyNanos + (start == 0 ? 0 : nowNanos - start);
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed > 0) {
+            utilisation = Math.min(1.0, Math.max(0.0, (double) (busy - windowBusyNanos) / elapsed));
+        }
+        windowStartNanos = nowNanos;
+        // the part of the running callback already counted is taken off the next window through windowBusyNanos
+        windowBusyNanos = busy;
+    }
+}
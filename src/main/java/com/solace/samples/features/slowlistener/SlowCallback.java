@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SlowCallback
+ */
+
+package com.solace.samples.features.slowlistener;
+
+import java.time.Instant;
+
+/**
+ * A listener callback caught running longer than the threshold, with the stack of the dispatcher thread at that
+ * moment: what the listener was doing rather than where it ended up.
+ */
+public final class SlowCallback {
+
+    private static final int FRAMES_SHOWN = 12;
+
+    private final String destination;
+    private final String threadName;
+    private final long runningNanos;
+    private final Instant capturedAt;
+    private final StackTraceElement[] stackTrace;
+
+    SlowCallback(String destination, String threadName, long runningNanos, Instant capturedAt,
+            StackTraceElement[] stackTrace) {
+        this.destination = destination;
+        this.threadName = threadName;
+        this.runningNanos = runningNanos;
+        this.capturedAt = capturedAt;
+        this.stackTrace = stackTrace;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /** @return how long the callback had been running when the stack was captured; it may have run longer */
+    public long getRunningNanos() {
+        return runningNanos;
+    }
+
+    public Instant getCapturedAt() {
+        return capturedAt;
+    }
+
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace.clone();
+    }
+
+    /** @return a header line and the top frames of the stack, one per line */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%s on %s, running for %.1f ms at %s%n", destination,
+                threadName, runningNanos / 1e6, capturedAt));
+        int frames = Math.min(stackTrace.length, FRAMES_SHOWN);
+        for (int i = 0; i < frames; i++) {
+            sb.append("    at ").append(stackTrace[i]).append(System.lineSeparator());
+        }
+        if (stackTrace.length > frames) {
+            sb.append("    ... ").append(stackTrace.length - frames).append(" more").append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: SlowListenerDetector
+ */
+
+package com.solace.samples.features.slowlistener;
+
+import com.solace.samples.features.util.LatencyHistogram;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.Topic;
+
+/**
+ * Times the {@code MessageListener} callbacks of a consumer application, which all run on the sol-jms dispatcher
+ * thread of their session: while one callback runs, every other message of the session waits, and a Direct
+ * subscriber whose dispatcher can't keep up gets egress discards from the broker.
+ * <p>
+ * Listeners {@link #wrap wrapped} by the detector report:
+ * <ul>
+ *   <li>a histogram of the callback durations per destination, with the number of callbacks over the threshold;</li>
+ *   <li>slow callback samples: a watchdog thread checks the dispatchers every quarter threshold and, when a callback
+ *       runs past the threshold, captures the dispatcher's stack while it is still in the callback. At most one
+ *       stack per destination per sample interval is captured, the last few are kept;</li>
+ *   <li>the utilisation of each dispatcher thread, the share of the last second it spent in callbacks. Close to 1,
+ *       the listener is the bottleneck, and discards follow on bursts.</li>
+ * </ul>
+ * The wrapper costs two {@code System.nanoTime()} calls, a map lookup and a short lock per message. Past
+ * {@code maxDestinations} destinations, callbacks are counted under {@value #OTHER_DESTINATION}.
+ */
+public class SlowListenerDetector implements AutoCloseable {
+
+    public static final String OTHER_DESTINATION = "_other";
+    private static final String UNKNOWN_DESTINATION = "_unknown";
+    private static final long UTILISATION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long thresholdNanos;
+    private final long sampleIntervalNanos;
+    private final int samplesKept;
+    private final int maxDestinations;
+    private final Map<String, DestinationStats> destinations = new ConcurrentHashMap<>();
+    private final DestinationStats otherDestination;
+    private final Map<Thread, DispatcherStats> dispatchers = new ConcurrentHashMap<>();
+    private final ThreadLocal<DispatcherStats> currentDispatcher = ThreadLocal.withInitial(this::newDispatcher);
+    private final ScheduledExecutorService watchdog;
+    private long lastUtilisationUpdate = System.nanoTime();  // watchdog thread only
+
+    /**
+     * @param thresholdMillis      callbacks longer than this are slow
+     * @param sampleIntervalMillis minimum time between two stack captures for the same destination
+     * @param samplesKept          slow callback samples kept per destination
+     * @param maxDestinations      destinations with statistics of their own
+     */
+    public SlowListenerDetector(long thresholdMillis, long sampleIntervalMillis, int samplesKept, int maxDestinations) {
+        if (thresholdMillis < 1) {
+            throw new IllegalArgumentException("thresholdMillis must be at least 1, was " + thresholdMillis);
+        }
+        if (samplesKept < 1) {
+            throw new IllegalArgumentException("samplesKept must be at least 1, was " + samplesKept);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+        this.samplesKept = samplesKept;
+        this.maxDestinations = maxDestinations;
+        this.otherDestination = new DestinationStats(OTHER_DESTINATION, samplesKept);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SlowListenerDetector-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000_000L, thresholdNanos / 4);
+        watchdog.scheduleAtFixedRate(this::watch, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /** 10 ms threshold, at most one stack per destination per second, 5 kept, 100 destinations. */
+    public static SlowListenerDetector defaults() {
+        return new SlowListenerDetector(10, 1000, 5, 100);
+    }
+
+    /** @return a listener that times the callbacks of the given one */
+    public MessageListener wrap(MessageListener listener) {
+        return message -> {
+            DispatcherStats dispatcher = currentDispatcher.get();
+            String destination = destinationName(message);
+            long start = System.nanoTime();
+            dispatcher.begin(destination, start);
+            try {
+                listener.onMessage(message);
+            } finally {
+                long duration = System.nanoTime() - start;
+                dispatcher.end(duration);
+                stats(destination).record(duration, thresholdNanos);
+            }
+        };
+    }
+
+    private DispatcherStats newDispatcher() {
+        DispatcherStats dispatcher = new DispatcherStats(Thread.currentThread());
+        dispatchers.put(dispatcher.thread, dispatcher);
+        return dispatcher;
+    }
+
+    private DestinationStats stats(String destination) {
+        DestinationStats stats = destinations.get(destination);
+        if (stats != null) {
+            return stats;
+        }
+        if (destinations.size() >= maxDestinations) {
+            return otherDestination;
+        }
+        return destinations.computeIfAbsent(destination, d -> new DestinationStats(d, samplesKept));
+    }
+
+    private static String destinationName(Message message) {
+        try {
+            Destination destination = message.getJMSDestination();
+            if (destination instanceof Topic) {
+                return ((Topic) destination).getTopicName();
+            }
+            if (destination instanceof Queue) {
+                return ((Queue) destination).getQueueName();
+            }
+        } catch (JMSException e) {
+            // fall through
+        }
+        return UNKNOWN_DESTINATION;
+    }
+
+    // The watchdog: catches slow callbacks while they run, and rolls the utilisation windows
+    private void watch() {
+        long now = System.nanoTime();
+        for (DispatcherStats dispatcher : dispatchers.values()) {
+            if (!dispatcher.thread.isAlive()) {
+                dispatchers.remove(dispatcher.thread);  // the session was closed
+                continue;
+            }
+            String destination = dispatcher.slowCallback(now, thresholdNanos);
+            if (destination == null) {
+                continue;
+            }
+            DestinationStats stats = stats(destination);
+            if (!stats.trySample(now, sampleIntervalNanos)) {
+                continue;
+            }
+            StackTraceElement[] stackTrace = dispatcher.thread.getStackTrace();
+            long running = dispatcher.runningNanos(System.nanoTime());
+            if (running >= 0) {  // still the same callback, the stack is from it
+                stats.addSample(new SlowCallback(destination, dispatcher.thread.getName(), running, Instant.now(),
+                        stackTrace));
+            }
+        }
+        if (now - lastUtilisationUpdate >= UTILISATION_WINDOW_NANOS) {
+            for (DispatcherStats dispatcher : dispatchers.values()) {
+                dispatcher.updateUtilisation(now);
+            }
+            lastUtilisationUpdate = now;
+        }
+    }
+
+    /** @return the utilisation of the busiest dispatcher thread over the last second, between 0 and 1 */
+    public double getMaxUtilisation() {
+        double max = 0;
+        for (DispatcherStats dispatcher : dispatchers.values()) {
+            max = Math.max(max, dispatcher.getUtilisation());
+        }
+        return max;
+    }
+
+    /** @return the callbacks over the threshold, all destinations */
+    public long getSlowCallbacks() {
+        long slow = otherDestination.getSlow();
+        for (DestinationStats stats : destinations.values()) {
+            slow += stats.getSlow();
+        }
+        return slow;
+    }
+
+    /** @return the slow callback samples kept, the longest running first */
+    public List<SlowCallback> getSamples() {
+        List<SlowCallback> samples = new ArrayList<>(otherDestination.getSamples());
+        for (DestinationStats stats : destinations.values()) {
+            samples.addAll(stats.getSamples());
+        }
+        samples.sort(Comparator.comparingLong(SlowCallback::getRunningNanos).reversed());
+        return samples;
+    }
+
+    /** @return the callback durations per destination, the dispatcher utilisations and the slow callback samples */
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format("Listener callbacks per destination, threshold %.1f ms:%n",
+                thresholdNanos / 1e6));
+        sb.append(String.format("  %-40s %10s %9s %9s %9s %9s %9s %8s%n", "destination", "callbacks", "mean ms",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "slow"));
+        List<DestinationStats> all = new ArrayList<>(destinations.values());
+        all.add(otherDestination);
+        for (DestinationStats stats : all) {
+            LatencyHistogram histogram = stats.snapshot();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("  %-40s %,10d %9.3f %9.3f %9.3f %9.3f %9.3f %,8d%n", stats.destination,
+                    histogram.getCount(), histogram.getMean() / 1e6, histogram.getPercentile(50) / 1e6,
+                    histogram.getPercentile(99) / 1e6, histogram.getPercentile(99.9) / 1e6, histogram.getMax() / 1e6,
+                    stats.getSlow()));
+        }
+        sb.append(String.format("Dispatcher threads:%n"));
+        for (DispatcherStats dispatcher : dispatchers.values()) {
+            sb.append(String.format("  %-40s %,10d callbacks, %5.1f%% busy over the last second%n", dispatcher.thread.getName(),
+                    dispatcher.getCallbacks(), dispatcher.getUtilisation() * 100));
+        }
+        List<SlowCallback> samples = getSamples();
+        if (!samples.isEmpty()) {
+            sb.append(String.format("Slow callback samples:%n"));
+            for (SlowCallback sample : samples) {
+                sb.append("  ").append(sample);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Stops the watchdog; wrapped listeners keep timing their callbacks. */
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SlowListenerDetector{threshold=%.1f ms, destinations=%d, dispatchers=%d, slow=%,d, "
+                + "maxUtilisation=%.0f%%}", thresholdNanos / 1e6, destinations.size(), dispatchers.size(),
+                getSlowCallbacks(), getMaxUtilisation() * 100);
+    }
+}
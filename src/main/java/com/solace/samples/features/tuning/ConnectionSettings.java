@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: ConnectionSettings
+ */
+
+package com.solace.samples.features.tuning;
+
+import com.solace.samples.features.loopback.LoopbackConnectionFactory;
+import com.solacesystems.jms.SolConnectionFactory;
+import com.solacesystems.jms.SolJmsUtility;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Typed connection settings, resolved from a {@link TuningProfile}, an optional properties file and command line
+ * overrides, in that order of increasing precedence.
+ * <p>
+ * Command line arguments understood by {@link #fromArgs(String...)}:
+ * <ul>
+ *   <li>{@code -config FILE} - a properties file using the keys below</li>
+ *   <li>{@code -profile NAME} - one of {@code default}, {@code low-latency}, {@code high-throughput}</li>
+ *   <li>{@code key=value} - overrides a single setting, e.g. {@code tcpNoDelay=false}</li>
+ * </ul>
+ * Any other argument is kept, in order, in {@link #getRemainingArgs()} for the application.
+ * {@link #fromSampleArgs(String...)} additionally takes the usual sample arguments
+ * {@code <host:port> <client-username@message-vpn> [client-password]} from the front of the remaining arguments.
+ * <p>
+ * {@link #createConnectionFactory()} builds the {@code SolConnectionFactory} and
+ * {@link #configureProducer(MessageProducer)} applies the producer-level settings. {@link #describe()} lists every
+ * effective value together with where it came from.
+ * <p>
+ * The host {@value #LOOPBACK_HOST} stands for the in-JVM broker of the {@code loopback} package: applications that
+ * create their factory with {@link #createJmsConnectionFactory()} then run without a broker, with the network
+ * modelled from the {@code loopback.*} system properties.
+ */
+public class ConnectionSettings {
+
+    public static final String PROFILE = "profile";
+    public static final String HOST = "host";
+    public static final String VPN = "vpn";
+    public static final String USERNAME = "username";
+    public static final String PASSWORD = "password";
+    public static final String CLIENT_ID = "clientId";
+    public static final String RECONNECT_RETRIES = "reconnectRetries";
+    public static final String CONNECT_RETRIES_PER_HOST = "connectRetriesPerHost";
+    public static final String DIRECT_TRANSPORT = "directTransport";
+    public static final String DIRECT_OPTIMIZED = "directOptimized";
+    public static final String XML_PAYLOAD = "xmlPayload";
+    public static final String TCP_NO_DELAY = "tcpNoDelay";
+    public static final String SOCKET_SEND_BUFFER_SIZE = "socketSendBufferSize";
+    public static final String SOCKET_RECEIVE_BUFFER_SIZE = "socketReceiveBufferSize";
+    public static final String PUBLISH_WINDOW_SIZE = "publishWindowSize";
+    public static final String RECEIVE_ACK_THRESHOLD = "receiveAckThreshold";
+    public static final String RECEIVE_ACK_TIMER = "receiveAckTimer";
+    public static final String COMPRESSION_LEVEL = "compressionLevel";
+    public static final String DISABLE_MESSAGE_ID = "disableMessageID";
+    public static final String DISABLE_MESSAGE_TIMESTAMP = "disableMessageTimestamp";
+
+    /** The host of the in-JVM loopback broker. */
+    public static final String LOOPBACK_HOST = "loopback";
+
+    private static final List<String> KEYS = Arrays.asList(PROFILE, HOST, VPN, USERNAME, PASSWORD, CLIENT_ID,
+            RECONNECT_RETRIES, CONNECT_RETRIES_PER_HOST, DIRECT_TRANSPORT, DIRECT_OPTIMIZED, XML_PAYLOAD, TCP_NO_DELAY,
+            SOCKET_SEND_BUFFER_SIZE, SOCKET_RECEIVE_BUFFER_SIZE, PUBLISH_WINDOW_SIZE, RECEIVE_ACK_THRESHOLD,
+            RECEIVE_ACK_TIMER, COMPRESSION_LEVEL, DISABLE_MESSAGE_ID, DISABLE_MESSAGE_TIMESTAMP);
+
+    private final TuningProfile profile;
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Map<String, String> sources = new LinkedHashMap<>();
+    private final List<String> remainingArgs;
+
+    private ConnectionSettings(TuningProfile profile, Properties file, String fileName, Map<String, String> overrides,
+            List<String> remainingArgs) {
+        this.profile = profile;
+        this.remainingArgs = remainingArgs;
+        for (Map.Entry<String, String> entry : profile.settings().entrySet()) {
+            put(entry.getKey(), entry.getValue(), "profile " + profile.getProfileName());
+        }
+        for (String key : file.stringPropertyNames()) {
+            put(key, file.getProperty(key), fileName);
+        }
+        for (Map.Entry<String, String> entry : overrides.entrySet()) {
+            put(entry.getKey(), entry.getValue(), "command line");
+        }
+        values.put(PROFILE, profile.getProfileName());
+    }
+
+    /**
+     * Resolves the settings from command line arguments.
+     *
+     * @throws IllegalArgumentException for unknown keys or invalid values
+     */
+    public static ConnectionSettings fromArgs(String... args) throws IOException {
+        return parse(false, args);
+    }
+
+    /**
+     * Resolves the settings from command line arguments that start with
+     * {@code <host:port> <client-username@message-vpn> [client-password]}, as used by the samples.
+     *
+     * @throws IllegalArgumentException for unknown keys, invalid values or a malformed username
+     */
+    public static ConnectionSettings fromSampleArgs(String... args) throws IOException {
+        return parse(true, args);
+    }
+
+    private static ConnectionSettings parse(boolean samplePositionals, String... args) throws IOException {
+        String configFile = null;
+        String profileName = null;
+        Map<String, String> overrides = new LinkedHashMap<>();
+        List<String> remaining = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-config".equals(args[i]) && i + 1 < args.length) {
+                configFile = args[++i];
+            } else if ("-profile".equals(args[i]) && i + 1 < args.length) {
+                profileName = args[++i];
+            } else if (args[i].indexOf('=') > 0 && KEYS.contains(args[i].substring(0, args[i].indexOf('=')))) {
+                int eq = args[i].indexOf('=');
+                overrides.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+            } else {
+                remaining.add(args[i]);
+            }
+        }
+        if (samplePositionals && remaining.size() >= 2) {
+            String[] split = remaining.remove(1).split("@");
+            if (split.length != 2 || split[0].isEmpty() || split[1].isEmpty()) {
+                throw new IllegalArgumentException("Expected <client-username@message-vpn>");
+            }
+            overrides.putIfAbsent(HOST, remaining.remove(0));
+            overrides.putIfAbsent(USERNAME, split[0]);
+            overrides.putIfAbsent(VPN, split[1]);
+            if (!remaining.isEmpty()) {
+                overrides.putIfAbsent(PASSWORD, remaining.remove(0));
+            }
+        }
+        Properties file = new Properties();
+        if (configFile != null) {
+            try (InputStream in = new FileInputStream(configFile)) {
+                file.load(in);
+            }
+        }
+        if (overrides.containsKey(PROFILE)) {
+            profileName = overrides.remove(PROFILE);
+        }
+        if (profileName == null) {
+            profileName = file.getProperty(PROFILE, TuningProfile.DEFAULT.getProfileName());
+        }
+        file.remove(PROFILE);
+        return new ConnectionSettings(TuningProfile.fromName(profileName), file, configFile, overrides, remaining);
+    }
+
+    private void put(String key, String value, String source) {
+        if (!KEYS.contains(key)) {
+            throw new IllegalArgumentException("Unknown connection setting '" + key + "' from " + source);
+        }
+        values.put(key, value.trim());
+        sources.put(key, source);
+    }
+
+    /**
+     * Creates a {@code SolConnectionFactory} with all the effective settings.
+     *
+     * @throws JMSException if the API could not create the factory, with the cause as the linked exception
+     */
+    public SolConnectionFactory createConnectionFactory() throws JMSException {
+        SolConnectionFactory connectionFactory;
+        try {
+            connectionFactory = SolJmsUtility.createConnectionFactory();
+        } catch (Exception e) {
+            JMSException jmsException = new JMSException("Unable to create the SolConnectionFactory: " + e);
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        }
+        connectionFactory.setHost(required(HOST));
+        connectionFactory.setVPN(required(VPN));
+        connectionFactory.setUsername(required(USERNAME));
+        if (values.containsKey(PASSWORD)) {
+            connectionFactory.setPassword(values.get(PASSWORD));
+        }
+        if (values.containsKey(CLIENT_ID)) {
+            connectionFactory.setClientID(values.get(CLIENT_ID));
+        }
+        if (values.containsKey(RECONNECT_RETRIES)) {
+            connectionFactory.setReconnectRetries(getInt(RECONNECT_RETRIES));
+        }
+        if (values.containsKey(CONNECT_RETRIES_PER_HOST)) {
+            connectionFactory.setConnectRetriesPerHost(getInt(CONNECT_RETRIES_PER_HOST));
+        }
+        if (values.containsKey(DIRECT_TRANSPORT)) {
+            connectionFactory.setDirectTransport(getBoolean(DIRECT_TRANSPORT));
+        }
+        if (values.containsKey(DIRECT_OPTIMIZED)) {
+            connectionFactory.setDirectOptimized(getBoolean(DIRECT_OPTIMIZED));
+        }
+        if (values.containsKey(XML_PAYLOAD)) {
+            connectionFactory.setXmlPayload(getBoolean(XML_PAYLOAD));
+        }
+        if (values.containsKey(TCP_NO_DELAY)) {
+            connectionFactory.setTcpNoDelay(getBoolean(TCP_NO_DELAY));
+        }
+        if (values.containsKey(SOCKET_SEND_BUFFER_SIZE)) {
+            connectionFactory.setSocketSendBufferSize(getInt(SOCKET_SEND_BUFFER_SIZE));
+        }
+        if (values.containsKey(SOCKET_RECEIVE_BUFFER_SIZE)) {
+            connectionFactory.setSocketReceiveBufferSize(getInt(SOCKET_RECEIVE_BUFFER_SIZE));
+        }
+        if (values.containsKey(PUBLISH_WINDOW_SIZE)) {
+            connectionFactory.setSendADWindowSize(getInt(PUBLISH_WINDOW_SIZE));
+        }
+        if (values.containsKey(RECEIVE_ACK_THRESHOLD)) {
+            connectionFactory.setReceiveADAckThreshold(getInt(RECEIVE_ACK_THRESHOLD));
+        }
+        if (values.containsKey(RECEIVE_ACK_TIMER)) {
+            connectionFactory.setReceiveADAckTimerInMillis(getInt(RECEIVE_ACK_TIMER));
+        }
+        if (values.containsKey(COMPRESSION_LEVEL)) {
+            connectionFactory.setCompressionLevel(getInt(COMPRESSION_LEVEL));
+        }
+        return connectionFactory;
+    }
+
+    /**
+     * Creates the {@code SolConnectionFactory}, or a {@code LoopbackConnectionFactory} on the default loopback broker
+     * when the host is {@value #LOOPBACK_HOST}; the client ID is the only other setting that applies to it.
+     */
+    public ConnectionFactory createJmsConnectionFactory() throws JMSException {
+        if (!isLoopback()) {
+            return createConnectionFactory();
+        }
+        LoopbackConnectionFactory connectionFactory = new LoopbackConnectionFactory();
+        if (values.containsKey(CLIENT_ID)) {
+            connectionFactory.setClientID(values.get(CLIENT_ID));
+        }
+        return connectionFactory;
+    }
+
+    /** @return whether the host is the in-JVM loopback broker */
+    public boolean isLoopback() {
+        return LOOPBACK_HOST.equalsIgnoreCase(values.get(HOST));
+    }
+
+    /**
+     * Applies the producer-level settings (message ID and timestamp generation) that are set; the producer keeps its
+     * defaults for the others.
+     */
+    public void configureProducer(MessageProducer producer) throws JMSException {
+        if (values.containsKey(DISABLE_MESSAGE_ID)) {
+            producer.setDisableMessageID(getBoolean(DISABLE_MESSAGE_ID));
+        }
+        if (values.containsKey(DISABLE_MESSAGE_TIMESTAMP)) {
+            producer.setDisableMessageTimestamp(getBoolean(DISABLE_MESSAGE_TIMESTAMP));
+        }
+    }
+
+    private String required(String key) {
+        String value = values.get(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing connection setting '" + key + "'");
+        }
+        return value;
+    }
+
+    public TuningProfile getProfile() {
+        return profile;
+    }
+
+    /** @return the effective value, or {@code null} if not set */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public int getInt(String key) {
+        try {
+            return Integer.parseInt(required(key));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Connection setting '" + key + "' from " + sources.get(key)
+                    + " is not a number: " + values.get(key));
+        }
+    }
+
+    /** @return the boolean value, false when not set */
+    public boolean getBoolean(String key) {
+        String value = values.get(key);
+        if (value == null) {
+            return false;
+        }
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Connection setting '" + key + "' from " + sources.get(key)
+                    + " is not true or false: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /** @return the arguments that were not connection settings */
+    public String[] getRemainingArgs() {
+        return remainingArgs.toArray(new String[0]);
+    }
+
+    /** @return one line per effective setting with its source; the password is masked */
+    public String describe() {
+        StringBuilder sb = new StringBuilder("Effective connection settings (profile ")
+                .append(profile.getProfileName()).append("):").append(System.lineSeparator());
+        for (String key : KEYS) {
+            if (!values.containsKey(key) || key.equals(PROFILE)) {
+                continue;
+            }
+            String value = key.equals(PASSWORD) ? "********" : values.get(key);
+            sb.append(String.format("  %-24s = %-12s (%s)%n", key, value, sources.get(key)));
+        }
+        return sb.toString();
+    }
+}
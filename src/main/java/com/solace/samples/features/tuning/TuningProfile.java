@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: TuningProfile
+ */
+
+package com.solace.samples.features.tuning;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named sets of connection and producer settings, applied by {@link ConnectionSettings} before the properties file
+ * and the command line overrides.
+ */
+public enum TuningProfile {
+
+    /** Nothing beyond the API defaults; samples that need a particular value set it themselves. */
+    DEFAULT("default"),
+
+    /**
+     * Smallest per-message delay: Direct transport, Nagle's algorithm off, API optimized for Direct messaging and
+     * no per-message ID or timestamp generation. Small batching: Guaranteed consumers acknowledge every 20 ms or at
+     * 1% of the window instead of batching acknowledgements for up to a second, so the broker frees the window and
+     * delivers the next messages sooner.
+     */
+    LOW_LATENCY("low-latency") {
+        @Override
+        void fill(Map<String, String> settings) {
+            fillRetries(settings);
+            settings.put(ConnectionSettings.DIRECT_TRANSPORT, "true");
+            settings.put(ConnectionSettings.DIRECT_OPTIMIZED, "true");
+            settings.put(ConnectionSettings.TCP_NO_DELAY, "true");
+            settings.put(ConnectionSettings.DISABLE_MESSAGE_ID, "true");
+            settings.put(ConnectionSettings.DISABLE_MESSAGE_TIMESTAMP, "true");
+            settings.put(ConnectionSettings.RECEIVE_ACK_THRESHOLD, "1");
+            settings.put(ConnectionSettings.RECEIVE_ACK_TIMER, "20");
+        }
+    },
+
+    /**
+     * Most messages per second: large socket buffers, the largest Guaranteed publish window and the fastest
+     * connection compression level. Compression requires the compressed SMF port of the broker (55003 by default).
+     */
+    HIGH_THROUGHPUT("high-throughput") {
+        @Override
+        void fill(Map<String, String> settings) {
+            fillRetries(settings);
+            settings.put(ConnectionSettings.TCP_NO_DELAY, "false");
+            settings.put(ConnectionSettings.SOCKET_SEND_BUFFER_SIZE, String.valueOf(4 * 1024 * 1024));
+            settings.put(ConnectionSettings.SOCKET_RECEIVE_BUFFER_SIZE, String.valueOf(4 * 1024 * 1024));
+            settings.put(ConnectionSettings.PUBLISH_WINDOW_SIZE, "255");
+            settings.put(ConnectionSettings.COMPRESSION_LEVEL, "1");
+        }
+    };
+
+    private final String profileName;
+
+    TuningProfile(String profileName) {
+        this.profileName = profileName;
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    /** Puts this profile's values into the settings map; the default profile puts none. */
+    void fill(Map<String, String> settings) {
+    }
+
+    /** The reconnect settings recommended for production clients, part of every tuned profile. */
+    private static void fillRetries(Map<String, String> settings) {
+        settings.put(ConnectionSettings.RECONNECT_RETRIES, "2");         // recommended settings
+        settings.put(ConnectionSettings.CONNECT_RETRIES_PER_HOST, "2");  // recommended settings
+    }
+
+    Map<String, String> settings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        fill(settings);
+        return settings;
+    }
+
+    /**
+     * @param profileName e.g. "low-latency"; the enum constant name is accepted too
+     */
+    public static TuningProfile fromName(String profileName) {
+        for (TuningProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(profileName) || profile.name().equalsIgnoreCase(profileName)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown tuning profile '" + profileName + "', expected one of "
+                + "[default, low-latency, high-throughput]");
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/*
+ * Solace JMS 1.1 Examples: MessagePayloads
+ */
+
+package com.solace.samples.features.util;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+/**
+ * Payload helpers shared by the metrics and Java Flight Recorder features.
+ */
+public final class MessagePayloads {
+
+    private MessagePayloads() {
+    }
+
+    /**
+     * The payload size of a bytes or text message, 0 for the other types. For text messages this is the number of
+     * characters, which is the number of bytes for ASCII; getting the text may decode the body into a new String, so
+     * per-message hot paths should pass a size they already know instead. A bytes message being sent is write-only
+     * and has no readable length.
+     */
+    public static int size(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            return (int) ((BytesMessage) message).getBodyLength();
+        }
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            return text == null ? 0 : text.length();
+        }
+        return 0;
+    }
+}
@@ -19,6 +19,8 @@
 
 package com.solace.samples.jms.patterns;
 
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.metrics.MessagingMetrics;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
 import java.util.Arrays;
@@ -31,6 +33,7 @@ import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
+import javax.jms.Topic;
 
 /**
  * A more performant sample that shows an application that publishes.
@@ -53,6 +56,8 @@ public class NonPersistentPublisher {
             System.exit(-1);
         }
         System.out.println(API.toUpperCase()+ " " + SAMPLE_NAME + " initializing...");
+        // message flow metrics, off unless -Dmetrics.exporter=stdout|file|otlp|otlp-http
+        final MessagingMetrics metrics = MessagingMetrics.fromSystemProperties(SAMPLE_NAME);
 
         // Programmatically create the connection factory using default settings
         SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
@@ -99,7 +104,10 @@ public class NonPersistentPublisher {
                     // dynamic topics!!  "solace/samples/jms/direct/pub/A"
                     String topicString = new StringBuilder(TOPIC_PREFIX)
                             .append(API.toLowerCase()).append("/direct/pub/").append(chosenCharacter).toString();
-                    producer.send(session.createTopic(topicString),message);  // send the message
+                    Topic topic = session.createTopic(topicString);
+                    long sendStart = System.nanoTime();
+                    JmsEvents.send(producer,topic,message,PAYLOAD_SIZE);  // send the message, recorded as a JFR event
+                    metrics.forDestination(topic).sent(PAYLOAD_SIZE, System.nanoTime() - sendStart);
                     msgSentCounter++;  // add one
                     message.clearBody();  // re-use the message
                     Thread.sleep(1000 / APPROX_MSG_RATE_PER_SEC);  // do Thread.sleep(0) for max speed
@@ -136,6 +144,7 @@ public class NonPersistentPublisher {
         connection.stop();
         Thread.sleep(500);
         connection.close();
+        metrics.close();
         System.out.println("Main thread quitting.");
     }
 }
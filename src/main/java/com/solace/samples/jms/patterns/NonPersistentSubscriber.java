@@ -19,8 +19,14 @@
 
 package com.solace.samples.jms.patterns;
 
+import com.solace.samples.features.jfr.JmsEvents;
+import com.solace.samples.features.metrics.MessagingMetrics;
+import com.solace.samples.features.slowlistener.SlowListenerDetector;
+import com.solacesystems.jcsmp.XMLMessage;
+import com.solacesystems.jms.SolConnection;
 import com.solacesystems.jms.SolConnectionFactory;
 import com.solacesystems.jms.SolJmsUtility;
+import com.solacesystems.jms.events.SolReconnectedEvent;
 import com.solacesystems.jms.message.SolMessage;
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -48,6 +54,10 @@ public class NonPersistentSubscriber {
             System.exit(-1);
         }
         System.out.println(API + " " + SAMPLE_NAME + " initializing...");
+        // message flow metrics, off unless -Dmetrics.exporter=stdout|file|otlp|otlp-http
+        final MessagingMetrics metrics = MessagingMetrics.fromSystemProperties(SAMPLE_NAME);
+        // how busy the dispatcher thread is in the listener, and stacks of callbacks over 10 ms
+        final SlowListenerDetector slowListenerDetector = SlowListenerDetector.defaults();
 
         // Programmatically create the connection factory using default settings
         SolConnectionFactory connectionFactory = SolJmsUtility.createConnectionFactory();
@@ -64,23 +74,38 @@ public class NonPersistentSubscriber {
         connectionFactory.setClientID(API+"_"+SAMPLE_NAME);  // change the name, easier to find
         Connection connection = connectionFactory.createConnection();
 
-        connection.setExceptionListener(jmsException -> {  // ExceptionListener.onException()
+        JmsEvents.ReconnectListener reconnects = JmsEvents.reconnectListener(connection);  // JFR events
+        connection.setExceptionListener(reconnects.exceptionListener(jmsException -> {  // onException()
             System.out.println("### Connection ExceptionListener caught this: "+jmsException);
             if (jmsException.getMessage().contains("JCSMPTransportException")) {
                 isShutdown = true;  // bail out
             }
+        }));
+        ((SolConnection)connection).addConnectionEventListener(event -> {  // SolConnectionEventListener.onEvent()
+            if (event instanceof SolReconnectedEvent) {
+                metrics.recordReconnect();
+            }
         });
+        ((SolConnection)connection).addConnectionEventListener(reconnects);
         
         Session session = connection.createSession(false,Session.CLIENT_ACKNOWLEDGE);  // ACK mode doesn't matter for Direct only
 
         // Create the subscription topic programmatically, & the message consumer for the subscription topic
         MessageConsumer consumer = session.createConsumer(session.createTopic(TOPIC_PREFIX + "*/direct/>"));
-        consumer.setMessageListener(new MessageListener() {
+        consumer.setMessageListener(slowListenerDetector.wrap(JmsEvents.listener(new MessageListener() {  // JFR events too
             @Override
             public void onMessage(Message message) {
                 // do not print anything to console... too slow!
                 msgRecvCounter++;
-                if (((SolMessage)message).getMessage().getDiscardIndication()) {
+                XMLMessage solMessage = ((SolMessage)message).getMessage();
+                // payload size as received, without decoding a text body into a String just to measure it
+                int payloadSize = solMessage.getAttachmentContentLength() + solMessage.getContentLength();
+                try {
+                    metrics.forDestination(message.getJMSDestination()).received(payloadSize);
+                } catch (JMSException e) {
+                    System.out.println("### Caught while recording the received message: " + e);
+                }
+                if (solMessage.getDiscardIndication()) {
                     // since Direct messages, check if there have been any lost any messages
                     // If the consumer is being over-driven (i.e. publish rates too high), the broker might discard some messages for this consumer
                     // check this flag to know if that's happened
@@ -89,9 +114,10 @@ public class NonPersistentSubscriber {
                     //  b) use multiple-threads or shared subscriptions for parallel processing
                     //  c) increase size of consumer's D-1 egress buffers (check client-profile) (helps more with bursts)
                     hasDetectedDiscard = true;  // set my own flag
+                    metrics.recordDiscard();
                 }
             }
-        });
+        })));
         
         // just an example of using Solace messages for command-and-control:
         MessageConsumer messageConsumer2 = session.createConsumer(session.createTopic(TOPIC_PREFIX + "control/>"));
@@ -102,6 +128,7 @@ public class NonPersistentSubscriber {
                     isShutdown = true;
                 }
             } catch (JMSException e) {
+                System.out.println("### Caught while reading the control message: " + e);
             }
         });
 
@@ -113,6 +140,10 @@ public class NonPersistentSubscriber {
                 Thread.sleep(1000);  // wait 1 second
                 System.out.printf("%s Received msgs/s: %,d%n",API,msgRecvCounter);  // simple way of calculating message rates
                 msgRecvCounter = 0;
+                if (slowListenerDetector.getMaxUtilisation() > 0.9) {  // the next burst will be discarded
+                    System.out.printf("*** Dispatcher thread %.0f%% busy in the listener ***%n",
+                            slowListenerDetector.getMaxUtilisation() * 100);
+                }
                 if (hasDetectedDiscard) {
                     System.out.println("*** Egress discard detected *** : "
                             + SAMPLE_NAME + " unable to keep up with full message rate");
@@ -128,6 +159,9 @@ public class NonPersistentSubscriber {
         System.out.println("********** after connection stop");
 //        session.close();
         connection.close();  // could block here for a while.
+        metrics.close();
+        slowListenerDetector.close();
+        System.out.print(slowListenerDetector.report());
         System.out.println("Main thread quitting.");
     }
 }
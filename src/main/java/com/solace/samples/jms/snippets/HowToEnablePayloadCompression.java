@@ -38,6 +38,10 @@ import java.util.Hashtable;
  * Note: brokers with JMS payload compression in the connection factory WILL OVERWRITE the {@code InitialContext}.
  * The {@code InitialContext} payload compression value is only used for connecting to older brokers without JMS payload compression support.
  * To use payload compression on newer brokers, configure its value in the broker's connection factory that you connect to.
+ * <p>
+ * The level applies to every message of the connection. To compress only the payloads where it pays off, see
+ * {@link com.solace.samples.features.compression.AdaptivePayloadCompressor}. For small messages, where compression
+ * gains little, see {@link PresetDictionaryCodec}.
  */
 public class HowToEnablePayloadCompression {
     final static String SOLJMS_INITIAL_CONTEXT_FACTORY = "com.solacesystems.jndi.SolJNDIInitialContextFactory";
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021-2023 Solace Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.solace.samples.jms.snippets;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compares the {@link PresetDictionaryCodec} with the API compression settings on small JSON messages, in compression
+ * ratio and encode/decode ns per message. Runs offline, no broker needed.
+ * <p>
+ * The API compression is modelled by what it puts on the wire: payload compression deflates each message on its own,
+ * transport compression runs one deflate stream per connection, flushed after each message. Dictionaries are trained
+ * on a separate set of messages from the measured ones.
+ * <p>
+ * Options: {@code -messages N} (measured, default 100,000), {@code -samples N} (training, default 2,000),
+ * {@code -level L} (default 6), {@code -dictSizes 1024,4096,16384}.
+ */
+public class PresetDictionaryBenchmark {
+
+    private static final String[] STATUSES = {"NEW", "ACCEPTED", "PICKED", "SHIPPED", "DELIVERED", "CANCELLED"};
+    private static final String[] REGIONS = {"us-east", "us-west", "eu-central", "ap-south"};
+    private static final String[] CURRENCIES = {"USD", "EUR", "CAD"};
+
+    public static void main(String... args) throws Exception {
+        int messages = 100_000;
+        int samples = 2_000;
+        int level = 6;
+        int[] dictSizes = {1024, 4096, 16384};
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-messages" -> messages = Integer.parseInt(args[i + 1]);
+                case "-samples" -> samples = Integer.parseInt(args[i + 1]);
+                case "-level" -> level = Integer.parseInt(args[i + 1]);
+                case "-dictSizes" -> dictSizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                default -> {
+                    System.out.printf("Usage: %s [-messages N] [-samples N] [-level L] [-dictSizes 1024,4096,...]%n%n",
+                            PresetDictionaryBenchmark.class.getSimpleName());
+                    System.exit(-1);
+                }
+            }
+        }
+
+        Random random = new Random(42);
+        List<byte[]> training = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            training.add(order(random));
+        }
+        byte[][] payloads = new byte[messages][];
+        long payloadBytes = 0;
+        for (int i = 0; i < messages; i++) {
+            payloads[i] = order(random);
+            payloadBytes += payloads[i].length;
+        }
+        System.out.printf("%,d JSON messages, %.0f bytes on average, deflate level %d%n%n", messages,
+                (double) payloadBytes / messages, level);
+        System.out.println(String.format("%-28s %8s %10s %14s %14s", "codec", "ratio", "bytes/msg", "encode ns/msg", "decode ns/msg"));
+
+        // each measurement runs twice, the first run warms up
+        for (int run = 0; run < 2; run++) {
+            boolean print = run == 1;
+            report(print, "none", payloadBytes, payloadBytes, 0, 0, messages);
+            streamDeflate(print, payloads, payloadBytes, level);
+            messageDeflate(print, payloads, payloadBytes, level);
+            for (int dictSize : dictSizes) {
+                PresetDictionaryCodec codec = new PresetDictionaryCodec(level);
+                codec.register(1, PresetDictionaryCodec.train(training, dictSize));
+                codec.use(1);
+                long bytes = 0;
+                long start = System.nanoTime();
+                byte[][] encoded = new byte[payloads.length][];
+                for (int i = 0; i < payloads.length; i++) {
+                    encoded[i] = codec.encode(payloads[i]);
+                    bytes += encoded[i].length;
+                }
+                long encodeNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (byte[] body : encoded) {
+                    codec.decode(body);
+                }
+                long decodeNanos = System.nanoTime() - start;
+                report(print, "preset dictionary " + dictSize + " B", payloadBytes, bytes, encodeNanos, decodeNanos, payloads.length);
+            }
+        }
+    }
+
+    // One deflate stream flushed after each message, as a connection with transport compression does
+    private static void streamDeflate(boolean print, byte[][] payloads, long payloadBytes, int level) throws DataFormatException {
+        Deflater deflater = new Deflater(level);
+        byte[] buffer = new byte[64 * 1024];
+        byte[][] encoded = new byte[payloads.length][];
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < payloads.length; i++) {
+            deflater.setInput(payloads[i]);
+            int length = 0;
+            int n;
+            do {
+                n = deflater.deflate(buffer, length, buffer.length - length, Deflater.SYNC_FLUSH);
+                length += n;
+            } while (!deflater.needsInput());
+            encoded[i] = Arrays.copyOf(buffer, length);
+            bytes += length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+        deflater.end();
+
+        Inflater inflater = new Inflater();
+        start = System.nanoTime();
+        for (byte[] body : encoded) {
+            inflater.setInput(body);
+            while (!inflater.needsInput()) {
+                inflater.inflate(buffer);
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+        inflater.end();
+        report(print, "transport compression", payloadBytes, bytes, encodeNanos, decodeNanos, payloads.length);
+    }
+
+    // Each message deflated on its own, as payload compression does
+    private static void messageDeflate(boolean print, byte[][] payloads, long payloadBytes, int level) throws DataFormatException {
+        Deflater deflater = new Deflater(level);
+        Inflater inflater = new Inflater();
+        byte[] buffer = new byte[64 * 1024];
+        byte[][] encoded = new byte[payloads.length][];
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < payloads.length; i++) {
+            deflater.reset();
+            deflater.setInput(payloads[i]);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            encoded[i] = Arrays.copyOf(buffer, length);
+            bytes += length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (byte[] body : encoded) {
+            inflater.reset();
+            inflater.setInput(body);
+            while (!inflater.finished()) {
+                inflater.inflate(buffer);
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+        deflater.end();
+        inflater.end();
+        report(print, "payload compression", payloadBytes, bytes, encodeNanos, decodeNanos, payloads.length);
+    }
+
+    private static void report(boolean print, String codec, long payloadBytes, long bytes, long encodeNanos,
+                               long decodeNanos, int messages) {
+        if (print) {
+            System.out.println(String.format("%-28s %8.3f %10.1f %14.0f %14.0f", codec, (double) bytes / payloadBytes,
+                    (double) bytes / messages, (double) encodeNanos / messages, (double) decodeNanos / messages));
+        }
+    }
+
+    // An order event of roughly 200 to 800 bytes
+    private static byte[] order(Random random) {
+        StringBuilder sb = new StringBuilder(800);
+        sb.append("{\"orderId\":\"").append(new UUID(random.nextLong(), random.nextLong()))
+                .append("\",\"customerId\":\"C").append(100_000 + random.nextInt(900_000))
+                .append("\",\"status\":\"").append(STATUSES[random.nextInt(STATUSES.length)])
+                .append("\",\"region\":\"").append(REGIONS[random.nextInt(REGIONS.length)])
+                .append("\",\"currency\":\"").append(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .append("\",\"createdAt\":\"2024-0").append(1 + random.nextInt(9)).append('-').append(10 + random.nextInt(18))
+                .append("T").append(10 + random.nextInt(14)).append(':').append(10 + random.nextInt(50)).append(":00Z\"")
+                .append(",\"items\":[");
+        int items = 1 + random.nextInt(6);
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"sku\":\"SKU-").append(10_000 + random.nextInt(90_000))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(20))
+                    .append(",\"unitPrice\":").append(random.nextInt(100_000) / 100.0)
+                    .append(",\"warehouse\":\"WH-").append(random.nextInt(12)).append("\"}");
+        }
+        sb.append("],\"shipping\":{\"method\":\"").append(random.nextBoolean() ? "STANDARD" : "EXPRESS")
+                .append("\",\"postalCode\":\"K").append(random.nextInt(10)).append('A').append(random.nextInt(10))
+                .append("\"}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
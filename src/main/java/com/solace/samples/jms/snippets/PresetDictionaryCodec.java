@@ -0,0 +1,286 @@
+/*
+ * Copyright 2021-2023 Solace Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.solace.samples.jms.snippets;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Sample of a {@code BytesMessage} payload codec for small messages, using deflate with a preset dictionary.
+ * <p>
+ * Deflate finds little to reference within a 200-800 byte JSON message, so payload compression (see
+ * {@link HowToEnablePayloadCompression}) gains little on such messages. A preset dictionary holding the strings that
+ * recur across messages (field names, enum values, common prefixes) gives deflate those references from the first
+ * byte, without compressing all the traffic of the connection as transport compression does.
+ * {@link PresetDictionaryBenchmark} compares them.
+ * <p>
+ * The first byte of the body identifies the dictionary: 0 for a payload sent as is, 1-255 for a raw deflate stream
+ * compressed with that dictionary version. Consumers decode every version registered with
+ * {@link #register(int, byte[])}, producers encode with the one chosen by {@link #use(int)}. To roll out a new
+ * dictionary, register it on the consumers first, then switch the producers, and unregister the old version once
+ * no message using it can be in flight anymore.
+ * <p>
+ * Deflate re-indexes the dictionary for every message, so keep dictionaries small: a few KB is where most of the gain
+ * is. Thread safe; deflaters, inflaters and buffers are kept per thread.
+ */
+public class PresetDictionaryCodec {
+
+    /** Header byte of a payload sent uncompressed. */
+    public static final int PLAIN = 0;
+    /** The largest useful dictionary: deflate only references the last 32 KB. */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int SHINGLE = 8;
+
+    private final int level;
+    private final AtomicReferenceArray<byte[]> dictionaries = new AtomicReferenceArray<>(256);
+    private volatile int currentId = PLAIN;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[4 * 1024]);
+
+    /**
+     * @param level deflate level 1-9, 6 is a good default for small messages
+     */
+    public PresetDictionaryCodec(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 1 and 9: " + level);
+        }
+        this.level = level;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(this.level, true));
+    }
+
+    /** Makes a dictionary version available for decoding, and for encoding once selected with {@link #use(int)}. */
+    public void register(int id, byte[] dictionary) {
+        checkId(id);
+        if (dictionary.length == 0 || dictionary.length > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("dictionary must be 1 to " + MAX_DICTIONARY_SIZE + " bytes: " + dictionary.length);
+        }
+        dictionaries.set(id, dictionary.clone());
+    }
+
+    public void unregister(int id) {
+        checkId(id);
+        if (id == currentId) {
+            throw new IllegalStateException("dictionary " + id + " is in use for encoding");
+        }
+        dictionaries.set(id, null);
+    }
+
+    /** Selects the dictionary version producers encode with, {@link #PLAIN} to stop compressing. */
+    public void use(int id) {
+        if (id != PLAIN) {
+            checkId(id);
+            if (dictionaries.get(id) == null) {
+                throw new IllegalArgumentException("dictionary " + id + " is not registered");
+            }
+        }
+        currentId = id;
+    }
+
+    public int getCurrentId() {
+        return currentId;
+    }
+
+    /** Writes the encoded payload to the message body, returning the number of bytes written. */
+    public int write(BytesMessage message, byte[] payload) throws JMSException {
+        int length = encodeToBuffer(payload);
+        message.writeBytes(buffers.get(), 0, length);
+        return length;
+    }
+
+    /** Returns the header byte followed by the compressed payload, or by the payload as is if it doesn't shrink. */
+    public byte[] encode(byte[] payload) {
+        int length = encodeToBuffer(payload);
+        return Arrays.copyOf(buffers.get(), length);
+    }
+
+    /** Reads and decodes the body of a message written by {@link #write(BytesMessage, byte[])}. */
+    public byte[] read(BytesMessage message) throws JMSException {
+        byte[] body = new byte[(int) message.getBodyLength()];
+        message.readBytes(body);
+        return decode(body);
+    }
+
+    public byte[] decode(byte[] body) throws JMSException {
+        if (body.length == 0) {
+            throw new JMSException("Payload has no dictionary header");
+        }
+        int id = body[0] & 0xff;
+        if (id == PLAIN) {
+            return Arrays.copyOfRange(body, 1, body.length);
+        }
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new JMSException("Payload is compressed with dictionary " + id + ", which is not registered");
+        }
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setDictionary(dictionary);
+        inflater.setInput(body, 1, body.length - 1);
+        byte[] buffer = buffers.get();
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffers.set(buffer);
+                }
+                int n = inflater.inflate(buffer, length, buffer.length - length);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new JMSException("Compressed payload is truncated after " + length + " bytes");
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            JMSException jmsException = new JMSException("Corrupt compressed payload: " + e.getMessage());
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    // Encodes into the thread's buffer, growing it as needed, and returns the encoded length
+    private int encodeToBuffer(byte[] payload) {
+        int id = currentId;
+        byte[] dictionary = id == PLAIN ? null : dictionaries.get(id);
+        byte[] buffer = buffers.get();
+        if (dictionary != null) {
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            deflater.setDictionary(dictionary);
+            deflater.setInput(payload);
+            deflater.finish();
+            buffer[0] = (byte) id;
+            int length = 1;
+            // give up as soon as the output isn't smaller than the payload
+            while (!deflater.finished() && length <= payload.length) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffers.set(buffer);
+                }
+                length += deflater.deflate(buffer, length, Math.min(buffer.length, payload.length + 1) - length);
+            }
+            if (deflater.finished() && length <= payload.length) {
+                return length;
+            }
+        }
+        if (buffer.length < payload.length + 1) {
+            buffer = new byte[Math.max(buffer.length * 2, payload.length + 1)];
+            buffers.set(buffer);
+        }
+        buffer[0] = PLAIN;
+        System.arraycopy(payload, 0, buffer, 1, payload.length);
+        return payload.length + 1;
+    }
+
+    /**
+     * Builds a dictionary from sample payloads, e.g. a few thousand messages captured from the topic.
+     * <p>
+     * Byte sequences of at least 8 bytes that occur in a tenth of the samples or more are collected with their
+     * number of occurrences, and the ones covering the most bytes fill the dictionary. Deflate encodes close references
+     * in fewer bits, so they are laid out with the most valuable at the end. It's a simple trainer, but on typical
+     * JSON it captures the field names and recurring values, which is what matters.
+     *
+     * @param maxSize dictionary size limit, at most {@value #MAX_DICTIONARY_SIZE}
+     */
+    public static byte[] train(List<byte[]> samples, int maxSize) {
+        if (maxSize < 1 || maxSize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("maxSize must be 1 to " + MAX_DICTIONARY_SIZE + ": " + maxSize);
+        }
+        // in how many samples each shingle occurs
+        Map<Long, Integer> sampleCounts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + SHINGLE <= sample.length; i++) {
+                Long key = shingle(sample, i);
+                if (seen.add(key)) {
+                    sampleCounts.merge(key, 1, Integer::sum);
+                }
+            }
+        }
+        int threshold = Math.max(2, samples.size() / 10);
+
+        // the longest runs of common shingles, with their occurrences
+        Map<String, Integer> segments = new HashMap<>();
+        for (byte[] sample : samples) {
+            int i = 0;
+            while (i + SHINGLE <= sample.length) {
+                if (sampleCounts.get(shingle(sample, i)) < threshold) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i + SHINGLE <= sample.length && sampleCounts.get(shingle(sample, i)) >= threshold) {
+                    i++;
+                }
+                // ISO-8859-1 maps bytes to chars one to one
+                segments.merge(new String(sample, start, i - 1 + SHINGLE - start, StandardCharsets.ISO_8859_1),
+                        1, Integer::sum);
+                i += SHINGLE - 1;
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(segments.entrySet());
+        ranked.sort((a, b) -> Long.compare((long) b.getValue() * b.getKey().length(), (long) a.getValue() * a.getKey().length()));
+        List<String> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            String segment = entry.getKey();
+            if (size + segment.length() > maxSize) {
+                continue;
+            }
+            if (selected.stream().anyMatch(s -> s.contains(segment))) {
+                continue;
+            }
+            selected.add(segment);
+            size += segment.length();
+        }
+        StringBuilder dictionary = new StringBuilder(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.append(selected.get(i));
+        }
+        return dictionary.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long shingle(byte[] bytes, int offset) {
+        long key = 0;
+        for (int i = 0; i < SHINGLE; i++) {
+            key = key << 8 | (bytes[offset + i] & 0xff);
+        }
+        return key;
+    }
+
+    private static void checkId(int id) {
+        if (id < 1 || id > 255) {
+            throw new IllegalArgumentException("dictionary id must be between 1 and 255: " + id);
+        }
+    }
+}